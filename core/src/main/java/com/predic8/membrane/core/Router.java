@@ -50,6 +50,7 @@ import com.predic8.membrane.core.exchangestore.LimitedMemoryExchangeStore;
 import com.predic8.membrane.core.interceptor.ExchangeStoreInterceptor;
 import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.interceptor.administration.AdminConsoleInterceptor;
+import com.predic8.membrane.core.interceptor.xslt.TemplatesCache;
 import com.predic8.membrane.core.resolver.ResolverMap;
 import com.predic8.membrane.core.rules.Rule;
 import com.predic8.membrane.core.rules.ServiceProxy;
@@ -59,6 +60,7 @@ import com.predic8.membrane.core.transport.http.HttpTransport;
 import com.predic8.membrane.core.transport.http.client.HttpClientConfiguration;
 import com.predic8.membrane.core.util.DNSCache;
 import com.predic8.membrane.core.util.URIFactory;
+import com.predic8.membrane.core.ws.relocator.RelocationCache;
 
 /**
  * @description <p>
@@ -101,6 +103,8 @@ public class Router implements Lifecycle, ApplicationContextAware, BeanNameAware
 	protected Transport transport;
 	protected ResolverMap resolverMap = new ResolverMap();
 	protected DNSCache dnsCache = new DNSCache();
+	protected TemplatesCache templatesCache = new TemplatesCache();
+	protected RelocationCache relocationCache = new RelocationCache();
 	protected ExecutorService backgroundInitializator =
 			Executors.newSingleThreadExecutor(new HttpServerThreadFactory("Router Background Initializator"));
 	protected HotDeploymentThread hdt;
@@ -205,6 +209,14 @@ public class Router implements Lifecycle, ApplicationContextAware, BeanNameAware
 		return resolverMap;
 	}
 
+	public TemplatesCache getTemplatesCache() {
+		return templatesCache;
+	}
+
+	public RelocationCache getRelocationCache() {
+		return relocationCache;
+	}
+
 	/**
 	 * Closes all ports (if any were opened) and waits for running exchanges to complete.
 	 *
@@ -212,6 +224,9 @@ public class Router implements Lifecycle, ApplicationContextAware, BeanNameAware
 	 */
 	public void shutdown() throws IOException {
 		backgroundInitializator.shutdown();
+		for (Rule rule : getRuleManager().getRules())
+			if (rule.getSslInboundContext() != null)
+				rule.getSslInboundContext().stop();
 		if (transport != null)
 			transport.closeAll();
 	}
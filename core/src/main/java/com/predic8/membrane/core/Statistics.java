@@ -13,12 +13,18 @@
    limitations under the License. */
 package com.predic8.membrane.core;
 
+import com.predic8.membrane.core.statistics.TimeSeriesStore;
 import com.predic8.membrane.core.transport.http.StreamPump;
 
 public class Statistics {
 	private StreamPump.StreamPumpStats streamPumpStats = new StreamPump.StreamPumpStats();
+	private TimeSeriesStore timeSeries = new TimeSeriesStore();
 
 	public StreamPump.StreamPumpStats getStreamPumpStats() {
 		return streamPumpStats;
 	}
+
+	public TimeSeriesStore getTimeSeries() {
+		return timeSeries;
+	}
 }
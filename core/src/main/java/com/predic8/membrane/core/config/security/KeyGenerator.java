@@ -14,6 +14,7 @@
 
 package com.predic8.membrane.core.config.security;
 
+import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCChildElement;
 import com.predic8.membrane.annot.MCElement;
 
@@ -27,6 +28,13 @@ import com.predic8.membrane.annot.MCElement;
 public class KeyGenerator {
 
     private Key key;
+    private String keyAlgorithm = "RSA";
+    private int keySize = -1;
+    private int poolSize = 10;
+    private int cacheSize = 100;
+    private int cacheExpiry = 0;
+    private String persistDirectory;
+    private String persistPassword;
 
     public Key getKey() {
         return key;
@@ -36,4 +44,98 @@ public class KeyGenerator {
     public void setKey(Key key) {
         this.key = key;
     }
+
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * @description The algorithm of the generated keys: <tt>RSA</tt> or <tt>EC</tt>. (The certificates are always
+     * signed using the RSA root CA key.)
+     * @default RSA
+     */
+    @MCAttribute
+    public void setKeyAlgorithm(String keyAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    public int getKeySize() {
+        return keySize;
+    }
+
+    /**
+     * @description Size of the generated keys in bits.
+     * @default 2048 for RSA, 256 for EC
+     */
+    @MCAttribute
+    public void setKeySize(int keySize) {
+        this.keySize = keySize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @description Number of key pairs generated in advance by a background thread. 0 disables pre-generation.
+     * @default 10
+     */
+    @MCAttribute
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @description Maximum number of generated certificates kept in memory.
+     * @default 100
+     */
+    @MCAttribute
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheExpiry() {
+        return cacheExpiry;
+    }
+
+    /**
+     * @description Time in seconds after which a generated certificate is evicted from the cache. 0 means never.
+     * @default 0
+     */
+    @MCAttribute
+    public void setCacheExpiry(int cacheExpiry) {
+        this.cacheExpiry = cacheExpiry;
+    }
+
+    public String getPersistDirectory() {
+        return persistDirectory;
+    }
+
+    /**
+     * @description If set, generated keys and certificates are stored in this directory and reused after a restart.
+     * @default <i>not set</i>
+     * @example certs
+     */
+    @MCAttribute
+    public void setPersistDirectory(String persistDirectory) {
+        this.persistDirectory = persistDirectory;
+    }
+
+    public String getPersistPassword() {
+        return persistPassword;
+    }
+
+    /**
+     * @description Password protecting the key stores in <i>persistDirectory</i>. The files are readable by the
+     *              owner only.
+     * @default <i>derived from the CA's private key</i>
+     */
+    @MCAttribute
+    public void setPersistPassword(String persistPassword) {
+        this.persistPassword = persistPassword;
+    }
 }
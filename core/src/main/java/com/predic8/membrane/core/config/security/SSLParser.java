@@ -38,6 +38,8 @@ public class SSLParser {
 	private boolean ignoreTimestampCheckFailure;
 	private String endpointIdentificationAlgorithm = "HTTPS";
 	private String serverName;
+	private int sessionCacheSize = -1;
+	private int sessionTimeout = -1;
 
 	@Override
 	public boolean equals(Object obj) {
@@ -54,7 +56,9 @@ public class SSLParser {
 				&& Objects.equal(clientAuth, other.clientAuth)
 				&& Objects.equal(ignoreTimestampCheckFailure, other.ignoreTimestampCheckFailure)
 				&& Objects.equal(endpointIdentificationAlgorithm, other.endpointIdentificationAlgorithm)
-				&& Objects.equal(serverName, other.serverName);
+				&& Objects.equal(serverName, other.serverName)
+				&& sessionCacheSize == other.sessionCacheSize
+				&& sessionTimeout == other.sessionTimeout;
 	}
 
 
@@ -215,4 +219,35 @@ public class SSLParser {
 	public void setServerName(String serverName) {
 		this.serverName = serverName;
 	}
+
+	public int getSessionCacheSize() {
+		return sessionCacheSize;
+	}
+
+	/**
+	 * @description Maximum number of TLS sessions cached for resumption (separately for inbound and outbound connections). 0 means unlimited.
+	 * @default java default (20480)
+	 * @example 50000
+	 */
+	@MCAttribute
+	public void setSessionCacheSize(int sessionCacheSize) {
+		this.sessionCacheSize = sessionCacheSize;
+	}
+
+	public int getSessionTimeout() {
+		return sessionTimeout;
+	}
+
+	/**
+	 * @description Time in seconds after which a cached TLS session may no longer be resumed. 0 means unlimited.
+	 * Stateless session tickets (RFC 5077) are a JVM-wide setting of Java 13 and later, which is read when JSSE is
+	 * initialized: Start Membrane with <tt>-Djdk.tls.server.enableSessionTicketExtension=true</tt> and optionally
+	 * <tt>-Djdk.tls.server.statelessKeyTimeout=3600</tt> (the key rotation interval in seconds) to use them.
+	 * @default java default (86400)
+	 * @example 3600
+	 */
+	@MCAttribute
+	public void setSessionTimeout(int sessionTimeout) {
+		this.sessionTimeout = sessionTimeout;
+	}
 }
@@ -14,9 +14,9 @@
 
 package com.predic8.membrane.core.exchangestore;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.model.IExchangesStoreListener;
@@ -24,7 +24,7 @@ import com.predic8.membrane.core.rules.Rule;
 
 public abstract class AbstractExchangeStore implements ExchangeStore {
 
-	protected Set<IExchangesStoreListener> exchangesStoreListeners = new HashSet<IExchangesStoreListener>();
+	protected Set<IExchangesStoreListener> exchangesStoreListeners = new CopyOnWriteArraySet<IExchangesStoreListener>();
 
 	public void addExchangesStoreListener(IExchangesStoreListener viewer) {
 		exchangesStoreListeners.add(viewer);
@@ -59,6 +59,10 @@ public abstract class AbstractExchangeStore implements ExchangeStore {
 	}
 
 
+	public ExchangeQueryResult query(ExchangeQuery query) {
+		throw new UnsupportedOperationException("query must be implemented in the sub class.");
+	}
+
 	public List<? extends ClientStatistics> getClientStatistics() {
 		throw new UnsupportedOperationException("getClientStatistics must be implemented in the sub class.");
 	}
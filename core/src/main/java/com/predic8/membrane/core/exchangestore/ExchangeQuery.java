@@ -0,0 +1,145 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+
+/**
+ * Selects a page of exchanges from an {@link ExchangeStore}, newest first.
+ *
+ * Pages are addressed by cursors, which are positions in the insertion order of the store: A query returns the
+ * newest matching exchanges with a cursor strictly between {@link #getAfter()} and {@link #getBefore()}. To page
+ * backwards, pass {@link ExchangeQueryResult#getNext()} as <i>before</i>. To poll for new exchanges only, pass
+ * {@link ExchangeQueryResult#getLatest()} of the previous poll as <i>after</i>.
+ *
+ * Filter values which are <code>null</code> match every exchange.
+ */
+public class ExchangeQuery {
+
+	private long after = 0;
+	private long before = Long.MAX_VALUE;
+	private int max = 100;
+
+	private String proxy;
+	private Integer statusCode;
+	private String client;
+	private String server;
+	private String method;
+	private String reqContentType;
+	private String respContentType;
+
+	public boolean isFiltered() {
+		return proxy != null || statusCode != null || client != null || server != null || method != null ||
+				reqContentType != null || respContentType != null;
+	}
+
+	public boolean matches(AbstractExchange exc) {
+		if (proxy != null && (exc.getRule() == null || !proxy.equals(exc.getRule().toString())))
+			return false;
+		if (statusCode != null && (exc.getResponse() == null || exc.getResponse().getStatusCode() != statusCode))
+			return false;
+		if (client != null && !client.equals(exc.getRemoteAddr()))
+			return false;
+		if (server != null && !server.equals(exc.getServer() == null ? "" : exc.getServer()))
+			return false;
+		if (method != null && (exc.getRequest() == null || !method.equals(exc.getRequest().getMethod())))
+			return false;
+		if (reqContentType != null && !reqContentType.equals(exc.getRequestContentType()))
+			return false;
+		if (respContentType != null && !respContentType.equals(exc.getResponseContentType()))
+			return false;
+		return true;
+	}
+
+	public long getAfter() {
+		return after;
+	}
+
+	public void setAfter(long after) {
+		this.after = after;
+	}
+
+	public long getBefore() {
+		return before;
+	}
+
+	public void setBefore(long before) {
+		this.before = before;
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public void setMax(int max) {
+		this.max = max;
+	}
+
+	public String getProxy() {
+		return proxy;
+	}
+
+	public void setProxy(String proxy) {
+		this.proxy = proxy;
+	}
+
+	public Integer getStatusCode() {
+		return statusCode;
+	}
+
+	public void setStatusCode(Integer statusCode) {
+		this.statusCode = statusCode;
+	}
+
+	public String getClient() {
+		return client;
+	}
+
+	public void setClient(String client) {
+		this.client = client;
+	}
+
+	public String getServer() {
+		return server;
+	}
+
+	public void setServer(String server) {
+		this.server = server;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public void setMethod(String method) {
+		this.method = method;
+	}
+
+	public String getReqContentType() {
+		return reqContentType;
+	}
+
+	public void setReqContentType(String reqContentType) {
+		this.reqContentType = reqContentType;
+	}
+
+	public String getRespContentType() {
+		return respContentType;
+	}
+
+	public void setRespContentType(String respContentType) {
+		this.respContentType = respContentType;
+	}
+}
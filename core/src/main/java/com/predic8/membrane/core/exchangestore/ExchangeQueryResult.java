@@ -0,0 +1,67 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import java.util.List;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+
+/**
+ * One page of exchanges returned by {@link ExchangeStore#query(ExchangeQuery)}.
+ */
+public class ExchangeQueryResult {
+
+	private final List<AbstractExchange> exchanges;
+	private final long next;
+	private final long latest;
+	private final int total;
+
+	public ExchangeQueryResult(List<AbstractExchange> exchanges, long next, long latest, int total) {
+		this.exchanges = exchanges;
+		this.next = next;
+		this.latest = latest;
+		this.total = total;
+	}
+
+	/**
+	 * @return the exchanges of this page, newest first
+	 */
+	public List<AbstractExchange> getExchanges() {
+		return exchanges;
+	}
+
+	/**
+	 * @return the cursor to pass as <i>before</i> to get the next (older) page, or -1 if there are no older matching
+	 *         exchanges
+	 */
+	public long getNext() {
+		return next;
+	}
+
+	/**
+	 * @return the cursor of the newest exchange in the store, to pass as <i>after</i> to get newer exchanges only
+	 */
+	public long getLatest() {
+		return latest;
+	}
+
+	/**
+	 * @return the number of exchanges in the store, or -1 if the query was filtered (counting the matches would
+	 *         require a full scan)
+	 */
+	public int getTotal() {
+		return total;
+	}
+}
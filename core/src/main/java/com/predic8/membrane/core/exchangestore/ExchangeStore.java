@@ -64,6 +64,11 @@ public interface ExchangeStore {
 
 	public List<AbstractExchange> getAllExchangesAsList();
 
+	/**
+	 * Returns one page of exchanges, newest first, without copying or sorting the whole store.
+	 */
+	public ExchangeQueryResult query(ExchangeQuery query);
+
 	public AbstractExchange getExchangeById(int id);
 
 	public void init() throws Exception;
@@ -14,6 +14,7 @@
 
 package com.predic8.membrane.core.exchangestore;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.predic8.membrane.annot.MCElement;
@@ -98,6 +99,10 @@ public class ForgetfulExchangeStore implements ExchangeStore {
 		return null;
 	}
 
+	public ExchangeQueryResult query(ExchangeQuery query) {
+		return new ExchangeQueryResult(new ArrayList<AbstractExchange>(), -1, 0, 0);
+	}
+
 	public void removeAllExchanges(AbstractExchange[] exchanges) {
 
 	}
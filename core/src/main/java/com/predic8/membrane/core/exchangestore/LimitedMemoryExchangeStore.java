@@ -15,14 +15,19 @@
 package com.predic8.membrane.core.exchangestore;
 
 import java.text.DecimalFormat;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
@@ -34,6 +39,7 @@ import com.predic8.membrane.core.model.AbstractExchangeViewerListener;
 import com.predic8.membrane.core.rules.Rule;
 import com.predic8.membrane.core.rules.RuleKey;
 import com.predic8.membrane.core.rules.StatisticCollector;
+import com.google.common.collect.Iterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,12 +55,36 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 	private int currentSize;
 
 	/**
+	 * The stored exchanges by their position in insertion order (see {@link #query(ExchangeQuery)}).
+	 *
 	 * EVERY time that exchanges or inflight is changed, modify() MUST be called afterwards
 	 */
-	private final Queue<AbstractExchange> exchanges = new LinkedList<AbstractExchange>();
+	private final TreeMap<Long, AbstractExchange> exchanges = new TreeMap<Long, AbstractExchange>();
+	private final Map<AbstractExchange, Long> positions = new HashMap<AbstractExchange, Long>();
+	private long lastPosition;
 	private Map<AbstractExchange, Request> inflight = new ConcurrentHashMap<AbstractExchange, Request>();
+	/**
+	 * The exchanges in flight by their position, taken from the same sequence as the stored ones.
+	 */
+	private final TreeMap<Long, AbstractExchange> inflightExchanges = new TreeMap<Long, AbstractExchange>();
+	private final Map<AbstractExchange, Long> inflightPositions = new HashMap<AbstractExchange, Long>();
+
+	private static final int QUERY_BATCH_SIZE = 1000;
 
-	private long lastModification = System.currentTimeMillis();
+	private static final Comparator<Map.Entry<Long, AbstractExchange>> NEWEST_FIRST = new Comparator<Map.Entry<Long, AbstractExchange>>() {
+		@Override
+		public int compare(Map.Entry<Long, AbstractExchange> o1, Map.Entry<Long, AbstractExchange> o2) {
+			return o2.getKey().compareTo(o1.getKey());
+		}
+	};
+
+	/**
+	 * Guards the notification of {@link #waitForModification(long)}: Unlike a monitor, a virtual thread waiting on
+	 * the condition does not pin its carrier thread.
+	 */
+	private final ReentrantLock modificationLock = new ReentrantLock();
+	private final Condition modified = modificationLock.newCondition();
+	private volatile long lastModification = System.currentTimeMillis();
 
 	public void snap(final AbstractExchange exc, final Flow flow) {
 		// TODO: [fix me] support multi-snap
@@ -63,7 +93,7 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 		exc.addExchangeViewerListener(new AbstractExchangeViewerListener() {
 			@Override
 			public void setExchangeFinished() {
-				inflight.remove(exc);
+				removeInflight(exc);
 			}
 		});
 
@@ -82,8 +112,7 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 									return; // request-bodyComplete might occur after response-bodyComplete
 							}
 							//System.out.println("Exchange put inflight " + exc.hashCode() + " " + exc.getRequest().getStartLine());
-							inflight.put(exc, exc.getRequest());
-							modify();
+							putInflight(exc, exc.getRequest());
 						}
 					}
 					);
@@ -98,14 +127,12 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 					}
 					public void bodyComplete(AbstractBody body) {
 						snapInternal(exc, flow);
-						inflight.remove(exc);
-						modify();
+						notifyListenersOnExchangeAdd(exc.getRule(), exc);
 						//System.out.println("Exchange remove inflight " + exc.hashCode());
 					}
 				});
 			else {
-				inflight.remove(exc);
-				modify();
+				removeInflight(exc);
 				//System.out.println("Exchange remove inflight " + exc.hashCode() + " (2)");
 			}
 		} catch (Exception e) {
@@ -113,30 +140,61 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 		}
 	}
 
+	private synchronized void putInflight(AbstractExchange exc, Request request) {
+		if (inflight.put(exc, request) == null) {
+			inflightExchanges.put(++lastPosition, exc);
+			inflightPositions.put(exc, lastPosition);
+		}
+		modify();
+	}
+
+	private synchronized void removeInflight(AbstractExchange exc) {
+		removeInflightInternal(exc);
+		modify();
+	}
+
+	private void removeInflightInternal(AbstractExchange exc) {
+		inflight.remove(exc);
+		Long position = inflightPositions.remove(exc);
+		if (position != null)
+			inflightExchanges.remove(position);
+	}
+
 	private synchronized void snapInternal(AbstractExchange exc, Flow flow) {
-		if (exc.getHeapSizeEstimation() > maxSize)
+		removeInflightInternal(exc);
+		if (exc.getHeapSizeEstimation() > maxSize) {
+			modify();
 			return;
+		}
 
 		makeSpaceIfNeeded(exc);
 
-		exchanges.offer(exc);
+		exchanges.put(++lastPosition, exc);
+		positions.put(exc, lastPosition);
 		modify();
 		currentSize += exc.getHeapSizeEstimation();
 	}
 
 	public synchronized void remove(AbstractExchange exc) {
-		exchanges.remove(exc);
+		removeInternal(exc);
 		modify();
 	}
 
+	private void removeInternal(AbstractExchange exc) {
+		Long position = positions.remove(exc);
+		if (position != null)
+			exchanges.remove(position);
+	}
+
 	public synchronized void removeAllExchanges(Rule rule) {
-		exchanges.removeAll(getExchangeList(rule.getKey()));
+		for (AbstractExchange exc : getExchangeList(rule.getKey()))
+			removeInternal(exc);
 		modify();
 	}
 
 	private synchronized List<AbstractExchange> getExchangeList(RuleKey key) {
 		List<AbstractExchange> c = new ArrayList<AbstractExchange>();
-		for(AbstractExchange exc : exchanges) {
+		for(AbstractExchange exc : exchanges.values()) {
 			if (exc.getRule().equals(key)) {
 				c.add(exc);
 			}
@@ -165,32 +223,91 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 	}
 
 	public synchronized Object[] getAllExchanges() {
-		return exchanges.toArray(new AbstractExchange[0]);
+		return exchanges.values().toArray(new AbstractExchange[0]);
 	}
 
 	public synchronized List<AbstractExchange> getAllExchangesAsList() {
 		List<AbstractExchange> ret = new LinkedList<AbstractExchange>();
 
-		for (Map.Entry<AbstractExchange, Request> entry : inflight.entrySet()) {
-			AbstractExchange ex = entry.getKey();
-			Request req = entry.getValue();
-			Exchange newEx = new Exchange(null);
-			newEx.setId(ex.getId());
-			newEx.setRequest(req);
-			newEx.setRule(ex.getRule());
-			newEx.setRemoteAddr(ex.getRemoteAddr());
-			newEx.setTime(ex.getTime());
-			newEx.setTimeReqSent(ex.getTimeReqSent() != 0 ? ex.getTimeReqSent() : ex.getTimeReqReceived());
-			newEx.setTimeResReceived(System.currentTimeMillis());
-			ret.add(newEx);
-		}
-		ret.addAll(exchanges);
+		for (Map.Entry<AbstractExchange, Request> entry : inflight.entrySet())
+			ret.add(createInflightCopy(entry.getKey(), entry.getValue()));
+		ret.addAll(exchanges.values());
 
 		return ret;
 	}
 
+	private Exchange createInflightCopy(AbstractExchange ex, Request req) {
+		Exchange newEx = new Exchange(null);
+		newEx.setId(ex.getId());
+		newEx.setRequest(req);
+		newEx.setRule(ex.getRule());
+		newEx.setRemoteAddr(ex.getRemoteAddr());
+		newEx.setTime(ex.getTime());
+		newEx.setTimeReqSent(ex.getTimeReqSent() != 0 ? ex.getTimeReqSent() : ex.getTimeReqReceived());
+		newEx.setTimeResReceived(System.currentTimeMillis());
+		return newEx;
+	}
+
+	/**
+	 * Walks the exchanges from the newest to the oldest within the cursor range and stops as soon as the page is
+	 * full. An exchange gets a position when its request has been received and a new one when it is stored, so
+	 * exchanges in flight are paged like stored ones and a delta poll returns an exchange again once it completes.
+	 *
+	 * The candidates are copied in batches of {@link #QUERY_BATCH_SIZE} while holding the store's monitor and
+	 * filtered outside of it, so a query scanning many exchanges does not block {@link #snap(AbstractExchange, Flow)}.
+	 */
+	@Override
+	public ExchangeQueryResult query(ExchangeQuery query) {
+		List<AbstractExchange> page = new ArrayList<AbstractExchange>();
+		List<Map.Entry<Long, AbstractExchange>> candidates = new ArrayList<Map.Entry<Long, AbstractExchange>>();
+		long before = query.getBefore();
+		long latest = -1;
+		int total = -1;
+		while (true) {
+			candidates.clear();
+			synchronized (this) {
+				if (latest == -1) {
+					latest = lastPosition;
+					total = exchanges.size() + inflight.size();
+				}
+				copyCandidates(query.getAfter(), before, candidates);
+			}
+			for (Map.Entry<Long, AbstractExchange> entry : candidates) {
+				if (!query.matches(entry.getValue()))
+					continue;
+				if (page.size() >= query.getMax())
+					return new ExchangeQueryResult(page, entry.getKey() + 1, latest, query.isFiltered() ? -1 : total);
+				page.add(entry.getValue());
+			}
+			if (candidates.size() < QUERY_BATCH_SIZE)
+				return new ExchangeQueryResult(page, -1, latest, query.isFiltered() ? -1 : total);
+			before = candidates.get(candidates.size() - 1).getKey();
+		}
+	}
+
+	/**
+	 * Copies up to {@link #QUERY_BATCH_SIZE} stored and inflight exchanges between the cursors, newest first. The
+	 * entries are copied, as the nodes of a TreeMap are reused when other entries are removed.
+	 */
+	private void copyCandidates(long after, long before, List<Map.Entry<Long, AbstractExchange>> candidates) {
+		Iterator<Map.Entry<Long, AbstractExchange>> it = Iterators.mergeSorted(Arrays.asList(
+				newestFirst(exchanges, after, before), newestFirst(inflightExchanges, after, before)), NEWEST_FIRST);
+		while (it.hasNext() && candidates.size() < QUERY_BATCH_SIZE) {
+			Map.Entry<Long, AbstractExchange> entry = it.next();
+			AbstractExchange exc = entry.getValue();
+			if (inflightExchanges.get(entry.getKey()) == exc)
+				exc = createInflightCopy(exc, inflight.get(exc));
+			candidates.add(new AbstractMap.SimpleImmutableEntry<Long, AbstractExchange>(entry.getKey(), exc));
+		}
+	}
+
+	private static Iterator<Map.Entry<Long, AbstractExchange>> newestFirst(TreeMap<Long, AbstractExchange> map, long after, long before) {
+		return map.subMap(after, false, before, false).descendingMap().entrySet().iterator();
+	}
+
 	public synchronized void removeAllExchanges(AbstractExchange[] candidates) {
-		exchanges.removeAll(Arrays.asList(candidates));
+		for (AbstractExchange exc : candidates)
+			removeInternal(exc);
 		modify();
 	}
 
@@ -227,13 +344,15 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 	}
 
 	public synchronized Long getOldestTimeResSent() {
-		AbstractExchange exc = exchanges.peek();
-		return exc == null ? null : exc.getTimeResSent();
+		Map.Entry<Long, AbstractExchange> oldest = exchanges.firstEntry();
+		return oldest == null ? null : oldest.getValue().getTimeResSent();
 	}
 
 	private void makeSpaceIfNeeded(AbstractExchange exc) {
 		while (!hasEnoughSpace(exc)) {
-			currentSize -= exchanges.poll().getHeapSizeEstimation();
+			AbstractExchange oldest = exchanges.pollFirstEntry().getValue();
+			positions.remove(oldest);
+			currentSize -= oldest.getHeapSizeEstimation();
 		}
 	}
 
@@ -281,24 +400,29 @@ public class LimitedMemoryExchangeStore extends AbstractExchangeStore {
 		return formatter.format(number);
 	}
 
-	private synchronized void modify() {
-		lastModification = System.currentTimeMillis();
-		notifyAll();
+	private void modify() {
+		modificationLock.lock();
+		try {
+			lastModification = System.currentTimeMillis();
+			modified.signalAll();
+		} finally {
+			modificationLock.unlock();
+		}
 	}
 
 	@Override
-	public synchronized long getLastModified() {
+	public long getLastModified() {
 		return lastModification;
 	}
 
 	@Override
-	public synchronized void waitForModification(long lastKnownModification) throws InterruptedException {
-		for (;;) {
-			if (lastKnownModification < this.lastModification) {
-				return;
-			}
-			// lastKnownModification >= this.lastModification:
-			wait();
+	public void waitForModification(long lastKnownModification) throws InterruptedException {
+		modificationLock.lock();
+		try {
+			while (lastKnownModification >= this.lastModification)
+				modified.await();
+		} finally {
+			modificationLock.unlock();
 		}
 	}
 
@@ -0,0 +1,332 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.AbstractBody;
+import com.predic8.membrane.core.http.Body;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.http.MessageObserver;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Interceptor.Flow;
+
+/**
+ * @description Decides which exchanges are recorded in the exchange store and how much of them.
+ * @explanation <p>
+ *              Exchanges are sampled when the request arrives: A fraction <i>sampleRate</i> of the exchanges is
+ *              recorded, but no more than <i>maxPerSecond</i>. Exchanges which were not sampled are still recorded
+ *              if they failed (status 500 or above, or aborted) or took longer than <i>slowThreshold</i>
+ *              milliseconds. Note that in this case the request is recorded after the response has been received.
+ *              </p>
+ *              <p>
+ *              If <i>maxBodySize</i> or <i>headersOnly</i> are set, the exchange store receives a copy of each
+ *              message with a shortened body. The messages passed on to the client and the server are never
+ *              changed. Bodies are truncated as transferred, i.e. before decompression.
+ *              </p>
+ * @example <pre>
+ * &lt;exchangeStore&gt;
+ *   &lt;recordingPolicy sampleRate="0.01" slowThreshold="2000" maxBodySize="4096" /&gt;
+ * &lt;/exchangeStore&gt;
+ * </pre>
+ */
+@MCElement(name="recordingPolicy", topLevel=false)
+public class RecordingPolicy {
+	private static final Logger log = LoggerFactory.getLogger(RecordingPolicy.class.getName());
+
+	private static final String SAMPLED = "membrane.recording.sampled";
+	private static final String COPY = "membrane.recording.copy";
+
+	public enum Truncation {
+		HEAD,
+		TAIL
+	}
+
+	private double sampleRate = 1;
+	private int maxPerSecond = -1;
+	private boolean recordErrors = true;
+	private long slowThreshold = -1;
+	private int maxBodySize = -1;
+	private Truncation truncation = Truncation.HEAD;
+	private boolean headersOnly;
+
+	private final AtomicLong second = new AtomicLong();
+	private final AtomicInteger recordedInSecond = new AtomicInteger();
+	private final AtomicLong sampled = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong forced = new AtomicLong();
+
+	/**
+	 * Passes the exchange to the store, if it should be recorded.
+	 */
+	public void snap(ExchangeStore store, Exchange exc, Flow flow) {
+		Boolean decision = (Boolean) exc.getProperty(SAMPLED);
+		if (decision == null) {
+			decision = sample();
+			exc.setProperty(SAMPLED, decision);
+			if (decision) {
+				record(store, exc, Flow.REQUEST);
+				if (flow == Flow.REQUEST)
+					return;
+			} else {
+				skipped.incrementAndGet();
+			}
+		}
+
+		if (flow == Flow.REQUEST)
+			return;
+
+		if (!decision) {
+			if (!isErrorOrSlow(exc, flow))
+				return;
+			forced.incrementAndGet();
+			exc.setProperty(SAMPLED, true);
+			record(store, exc, Flow.REQUEST);
+		}
+		record(store, exc, flow);
+	}
+
+	private boolean sample() {
+		if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+			return false;
+		if (maxPerSecond >= 0) {
+			long now = System.currentTimeMillis() / 1000;
+			long current = second.get();
+			if (current != now && second.compareAndSet(current, now))
+				recordedInSecond.set(0);
+			if (recordedInSecond.incrementAndGet() > maxPerSecond)
+				return false;
+		}
+		sampled.incrementAndGet();
+		return true;
+	}
+
+	private boolean isErrorOrSlow(Exchange exc, Flow flow) {
+		if (recordErrors) {
+			if (flow == Flow.ABORT)
+				return true;
+			if (exc.getResponse() != null && exc.getResponse().getStatusCode() >= 500)
+				return true;
+		}
+		return slowThreshold >= 0 && exc.getTimeReqReceived() > 0 &&
+				System.currentTimeMillis() - exc.getTimeReqReceived() >= slowThreshold;
+	}
+
+	private boolean isCopying() {
+		return headersOnly || maxBodySize >= 0;
+	}
+
+	private void record(ExchangeStore store, Exchange exc, Flow flow) {
+		if (!isCopying()) {
+			store.snap(exc, flow);
+			return;
+		}
+
+		Exchange copy = getCopy(exc);
+		Message message = flow == Flow.REQUEST ? exc.getRequest() : exc.getResponse();
+		if (message == null) {
+			// aborted before a response was received
+			store.snap(copy, flow);
+			return;
+		}
+		message.addObserver(new CopyingObserver(store, exc, copy, flow));
+	}
+
+	private Exchange getCopy(Exchange exc) {
+		Exchange copy = (Exchange) exc.getProperty(COPY);
+		if (copy == null) {
+			copy = new Exchange(exc, null);
+			copy.setId(exc.getId());
+			copy.setTime(exc.getTime());
+			copy.setRemoteAddr(exc.getRemoteAddr());
+			copy.setRemoteAddrIp(exc.getRemoteAddrIp());
+			copy.setTimeReqReceived(exc.getTimeReqReceived());
+			exc.setProperty(COPY, copy);
+		}
+		return copy;
+	}
+
+	private class CopyingObserver implements MessageObserver {
+		private final ExchangeStore store;
+		private final Exchange exc;
+		private final Exchange copy;
+		private final Flow flow;
+
+		public CopyingObserver(ExchangeStore store, Exchange exc, Exchange copy, Flow flow) {
+			this.store = store;
+			this.exc = exc;
+			this.copy = copy;
+			this.flow = flow;
+		}
+
+		@Override
+		public void bodyRequested(AbstractBody body) {
+		}
+
+		@Override
+		public void bodyComplete(AbstractBody body) {
+			try {
+				if (flow == Flow.REQUEST) {
+					Request request = new Request();
+					request.setMethod(exc.getRequest().getMethod());
+					request.setUri(exc.getRequest().getUri());
+					copyMessage(exc.getRequest(), request);
+					copy.setRequest(request);
+				} else {
+					Response response = new Response();
+					response.setStatusCode(exc.getResponse().getStatusCode());
+					response.setStatusMessage(exc.getResponse().getStatusMessage());
+					copyMessage(exc.getResponse(), response);
+					copy.setResponse(response);
+					copy.setTimeReqSent(exc.getTimeReqSent());
+					copy.setTimeResReceived(exc.getTimeResReceived());
+				}
+				store.snap(copy, flow);
+				if (flow == Flow.RESPONSE)
+					copy.setCompleted();
+			} catch (IOException | RuntimeException e) {
+				// must not break the exchange, as this observer runs while the body is being forwarded
+				log.warn("Could not record " + flow + " of exchange " + exc.getId() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void copyMessage(Message source, Message target) throws IOException {
+		target.setVersion(source.getVersion());
+		target.setHeader(new Header(source.getHeader()));
+		target.setBody(new Body(headersOnly ? new byte[0] : source.getBody().getContent(
+				maxBodySize < 0 ? Integer.MAX_VALUE : maxBodySize, truncation == Truncation.TAIL)));
+	}
+
+	public long getSampled() {
+		return sampled.get();
+	}
+
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * @return the number of exchanges recorded although they were not sampled, because they failed or were slow
+	 */
+	public long getForced() {
+		return forced.get();
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @description The fraction of exchanges to record, between 0 and 1.
+	 * @default 1
+	 * @example 0.05
+	 */
+	@MCAttribute
+	public void setSampleRate(double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	public int getMaxPerSecond() {
+		return maxPerSecond;
+	}
+
+	/**
+	 * @description The maximum number of sampled exchanges per second. -1 means unlimited.
+	 * @default -1
+	 */
+	@MCAttribute
+	public void setMaxPerSecond(int maxPerSecond) {
+		this.maxPerSecond = maxPerSecond;
+	}
+
+	public boolean isRecordErrors() {
+		return recordErrors;
+	}
+
+	/**
+	 * @description Whether exchanges which were not sampled are recorded anyway, if the response status is 500 or
+	 *              above or the exchange was aborted.
+	 * @default true
+	 */
+	@MCAttribute
+	public void setRecordErrors(boolean recordErrors) {
+		this.recordErrors = recordErrors;
+	}
+
+	public long getSlowThreshold() {
+		return slowThreshold;
+	}
+
+	/**
+	 * @description Exchanges which were not sampled are recorded anyway, if they took at least this many
+	 *              milliseconds. -1 disables this.
+	 * @default -1
+	 */
+	@MCAttribute
+	public void setSlowThreshold(long slowThreshold) {
+		this.slowThreshold = slowThreshold;
+	}
+
+	public int getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * @description The number of body bytes recorded per message. -1 means the whole body is recorded.
+	 * @default -1
+	 */
+	@MCAttribute
+	public void setMaxBodySize(int maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public Truncation getTruncation() {
+		return truncation;
+	}
+
+	/**
+	 * @description Whether the first (HEAD) or the last (TAIL) <i>maxBodySize</i> bytes of a body are recorded.
+	 * @default HEAD
+	 */
+	@MCAttribute
+	public void setTruncation(Truncation truncation) {
+		this.truncation = truncation;
+	}
+
+	public boolean isHeadersOnly() {
+		return headersOnly;
+	}
+
+	/**
+	 * @description Whether bodies are omitted from the recording.
+	 * @default false
+	 */
+	@MCAttribute
+	public void setHeadersOnly(boolean headersOnly) {
+		this.headersOnly = headersOnly;
+	}
+}
@@ -0,0 +1,760 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.Constants;
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.AbstractBody;
+import com.predic8.membrane.core.http.Body;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.http.MessageObserver;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Interceptor.Flow;
+import com.predic8.membrane.core.rules.NullRule;
+import com.predic8.membrane.core.rules.Rule;
+import com.predic8.membrane.core.rules.RuleKey;
+import com.predic8.membrane.core.rules.ServiceProxyKey;
+import com.predic8.membrane.core.rules.StatisticCollector;
+
+/**
+ * @description Writes exchanges to compressed segment files in the background.
+ * @explanation <p>
+ *              Unlike the {@link FileExchangeStore}, which writes one file per message in the thread handling the
+ *              exchange, this store only copies the message into a queue. A background thread appends the queued
+ *              messages in batches to the current segment file (each message compressed on its own). When the
+ *              segment reaches <i>maxSegmentSize</i>, a new one is started; the oldest segments are deleted when
+ *              there are more than <i>maxSegments</i>.
+ *              </p>
+ *              <p>
+ *              Every segment has an index file listing the position of each message. The indexes are read on
+ *              startup, so exchanges written earlier can still be looked up by their ID (for example by the
+ *              administration console). As exchange IDs are not unique, each message also carries a serial number
+ *              of its exchange: Only a request and a response with the same serial number are combined. If IDs
+ *              collide, the newest exchange is found. Exchanges cannot be listed.
+ *              </p>
+ *              <p>
+ *              If the disk cannot keep up and the queue is full (either <i>queueSize</i> messages or
+ *              <i>maxQueuedBytes</i> are queued), the <i>overflowPolicy</i> decides whether new messages are
+ *              dropped (DROP), the oldest queued messages are dropped (DROP_OLDEST), or the thread handling the
+ *              exchange waits (BLOCK).
+ *              </p>
+ */
+@MCElement(name="segmentExchangeStore")
+public class SegmentExchangeStore extends AbstractExchangeStore {
+
+	private static Logger log = LoggerFactory.getLogger(SegmentExchangeStore.class.getName());
+
+	public enum OverflowPolicy {
+		DROP,
+		DROP_OLDEST,
+		BLOCK
+	}
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String INDEX_SUFFIX = ".idx";
+
+	private static final byte REQUEST = 0;
+	private static final byte RESPONSE = 1;
+
+	/**
+	 * A message copied in the thread handling the exchange, waiting to be written.
+	 */
+	static final class Record {
+		final long id;
+		final long serial;
+		final byte flow;
+		final long time;
+		final String rule;
+		final int port;
+		final String remoteAddr;
+		final long timeReqSent;
+		final long timeResReceived;
+		final byte[] head;
+		final byte[] body;
+
+		Record(long id, long serial, byte flow, long time, String rule, int port, String remoteAddr, long timeReqSent,
+				long timeResReceived, byte[] head, byte[] body) {
+			this.id = id;
+			this.serial = serial;
+			this.flow = flow;
+			this.time = time;
+			this.rule = rule;
+			this.port = port;
+			this.remoteAddr = remoteAddr;
+			this.timeReqSent = timeReqSent;
+			this.timeResReceived = timeResReceived;
+			this.head = head;
+			this.body = body;
+		}
+
+		int getSize() {
+			return head.length + body.length;
+		}
+	}
+
+	/**
+	 * The position of a message within a segment.
+	 */
+	static final class Location {
+		final long serial;
+		final long segment;
+		final long offset;
+
+		Location(long serial, long segment, long offset) {
+			this.serial = serial;
+			this.segment = segment;
+			this.offset = offset;
+		}
+	}
+
+	private String dir;
+	private int queueSize = 10000;
+	private int maxQueuedBytes = 64 * 1024 * 1024;
+	private int batchSize = 256;
+	private long maxSegmentSize = 64 * 1024 * 1024;
+	private int maxSegments = 64;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+	private File directory;
+	private BlockingQueue<Record> queue;
+	/**
+	 * One permit per byte of the queued messages.
+	 */
+	private Semaphore queuedBytes;
+	/**
+	 * The exchange property holding the serial number assigned by this store.
+	 */
+	private final String serialProperty = SegmentExchangeStore.class.getName() + ".serial." + System.identityHashCode(this);
+	private final AtomicLong lastSerial = new AtomicLong();
+	/**
+	 * exchange ID to the locations of its request and response. The arrays are never modified once they have been
+	 * put into the map, only replaced.
+	 */
+	private final ConcurrentHashMap<Long, Location[]> index = new ConcurrentHashMap<Long, Location[]>();
+	private volatile Thread writer;
+	private volatile boolean stopped;
+
+	// used by the writer thread only
+	private final List<Long> segments = new ArrayList<Long>();
+	private long segment = -1;
+	private DataOutputStream segmentOut, indexOut;
+	private long segmentSize;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	@Override
+	public synchronized void init() {
+		if (writer != null)
+			return;
+		directory = new File(dir);
+		directory.mkdirs();
+		if (!directory.isDirectory())
+			throw new RuntimeException("Directory does not exist or is not a directory: " + dir);
+		index.clear();
+		segments.clear();
+		lastSerial.set(0);
+		loadIndexes();
+		queue = new ArrayBlockingQueue<Record>(queueSize);
+		queuedBytes = new Semaphore(maxQueuedBytes);
+		stopped = false;
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "Exchange Store Writer " + dir);
+		t.setDaemon(true);
+		t.start();
+		writer = t;
+	}
+
+	private void ensureStarted() {
+		if (writer == null)
+			init();
+	}
+
+	/**
+	 * Stops the writer after all queued messages have been written.
+	 */
+	public synchronized void close() throws InterruptedException {
+		Thread t = writer;
+		if (t == null)
+			return;
+		stopped = true;
+		t.join();
+		writer = null;
+	}
+
+	public void snap(final AbstractExchange exc, final Flow flow) {
+		ensureStarted();
+		Message m = flow == Flow.REQUEST ? exc.getRequest() : exc.getResponse();
+		if (m != null)
+			m.addObserver(new MessageObserver() {
+				public void bodyRequested(AbstractBody body) {
+				}
+				public void bodyComplete(AbstractBody body) {
+					try {
+						enqueue(createRecord(exc, flow));
+					} catch (Exception e) {
+						log.error("", e);
+					}
+				}
+			});
+	}
+
+	private long getSerial(AbstractExchange exc) {
+		synchronized (exc) {
+			Long serial = (Long) exc.getProperty(serialProperty);
+			if (serial == null) {
+				serial = lastSerial.incrementAndGet();
+				exc.setProperty(serialProperty, serial);
+			}
+			return serial;
+		}
+	}
+
+	private Record createRecord(AbstractExchange exc, Flow flow) throws IOException {
+		Message msg = flow == Flow.REQUEST ? exc.getRequest() : exc.getResponse();
+		byte[] body = msg.isBodyEmpty() ? new byte[0] : msg.getBody().getContent();
+
+		// the body is stored without transfer encoding
+		Header header = new Header(msg.getHeader());
+		header.removeFields(Header.TRANSFER_ENCODING);
+		if (body.length > 0 || header.getContentLength() != -1)
+			header.setContentLength(body.length);
+		ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+		msg.writeStartLine(head);
+		header.write(head);
+		head.write(Constants.CRLF_BYTES);
+
+		Rule rule = exc.getRule();
+		RuleKey key = rule == null ? null : rule.getKey();
+		return new Record(exc.getId(), getSerial(exc), flow == Flow.REQUEST ? REQUEST : RESPONSE, exc.getTime().getTimeInMillis(),
+				rule == null ? "" : rule.toString(), key == null ? -1 : key.getPort(), exc.getRemoteAddr(),
+				exc.getTimeReqSent(), exc.getTimeResReceived(), head.toByteArray(), body);
+	}
+
+	private int getPermits(Record record) {
+		return Math.min(record.getSize(), maxQueuedBytes);
+	}
+
+	private void enqueue(Record record) throws InterruptedException {
+		int permits = getPermits(record);
+		switch (overflowPolicy) {
+		case BLOCK:
+			queuedBytes.acquire(permits);
+			queue.put(record);
+			return;
+		case DROP_OLDEST:
+			while (!queuedBytes.tryAcquire(permits))
+				dropOldest();
+			while (!queue.offer(record))
+				dropOldest();
+			return;
+		default:
+			if (!queuedBytes.tryAcquire(permits)) {
+				dropped.incrementAndGet();
+				return;
+			}
+			if (!queue.offer(record)) {
+				queuedBytes.release(permits);
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	private void dropOldest() {
+		Record oldest = queue.poll();
+		if (oldest != null) {
+			queuedBytes.release(getPermits(oldest));
+			dropped.incrementAndGet();
+		} else {
+			// the writer is about to release the memory
+			Thread.yield();
+		}
+	}
+
+	private void writeLoop() {
+		List<Record> batch = new ArrayList<Record>(batchSize);
+		while (true) {
+			try {
+				Record r = queue.poll(1, TimeUnit.SECONDS);
+				if (r == null) {
+					if (stopped)
+						break;
+					continue;
+				}
+				batch.add(r);
+				queue.drainTo(batch, batchSize - 1);
+				write(batch);
+			} catch (InterruptedException e) {
+				break;
+			} catch (Exception e) {
+				log.error("Could not write exchanges to " + dir + ".", e);
+				closeSegment();
+			}
+			for (Record r : batch)
+				queuedBytes.release(getPermits(r));
+			batch.clear();
+		}
+		closeSegment();
+	}
+
+	private void write(List<Record> batch) throws IOException {
+		List<Long> ids = new ArrayList<Long>(batch.size());
+		List<Location> locations = new ArrayList<Location>(batch.size());
+		for (Record r : batch) {
+			if (segmentOut == null || segmentSize >= maxSegmentSize)
+				startSegment();
+			byte[] compressed = compress(serialize(r));
+			long offset = segmentSize;
+			segmentOut.writeInt(compressed.length);
+			segmentOut.write(compressed);
+			segmentSize += 4 + compressed.length;
+			indexOut.writeLong(r.id);
+			indexOut.writeLong(r.serial);
+			indexOut.writeByte(r.flow);
+			indexOut.writeLong(offset);
+			ids.add(r.id);
+			locations.add(new Location(r.serial, segment, offset));
+		}
+		segmentOut.flush();
+		indexOut.flush();
+		// publish the locations only after the data has been written
+		for (int i = 0; i < ids.size(); i++)
+			addToIndex(ids.get(i), batch.get(i).flow, locations.get(i));
+		written.addAndGet(batch.size());
+	}
+
+	/**
+	 * Replaces the entry of another exchange with the same ID, so that request and response of different exchanges
+	 * are never combined.
+	 */
+	private void addToIndex(long id, byte flow, Location location) {
+		Location[] locations = index.get(id);
+		if (locations != null && flow == RESPONSE && locations[REQUEST] != null && locations[REQUEST].serial == location.serial)
+			locations = locations.clone();
+		else
+			locations = new Location[2];
+		locations[flow] = location;
+		index.put(id, locations);
+	}
+
+	private void startSegment() throws IOException {
+		closeSegment();
+		segment = segments.isEmpty() ? System.currentTimeMillis() : Math.max(System.currentTimeMillis(), segments.get(segments.size() - 1) + 1);
+		segments.add(segment);
+		segmentOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getSegmentFile(segment)), 65536));
+		indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(segment)), 8192));
+		segmentSize = 0;
+		while (segments.size() > maxSegments)
+			deleteSegment(segments.remove(0));
+	}
+
+	private void closeSegment() {
+		try {
+			if (segmentOut != null)
+				segmentOut.close();
+			if (indexOut != null)
+				indexOut.close();
+		} catch (IOException e) {
+			log.error("", e);
+		}
+		segmentOut = null;
+		indexOut = null;
+	}
+
+	private void deleteSegment(long s) {
+		for (Map.Entry<Long, Location[]> e : index.entrySet()) {
+			Location[] locations = e.getValue();
+			boolean request = locations[REQUEST] != null && locations[REQUEST].segment == s;
+			boolean response = locations[RESPONSE] != null && locations[RESPONSE].segment == s;
+			if (!request && !response)
+				continue;
+			Location[] remaining = locations.clone();
+			if (request)
+				remaining[REQUEST] = null;
+			if (response)
+				remaining[RESPONSE] = null;
+			if (remaining[REQUEST] == null && remaining[RESPONSE] == null)
+				index.remove(e.getKey(), locations);
+			else
+				index.replace(e.getKey(), locations, remaining);
+		}
+		getIndexFile(s).delete();
+		if (!getSegmentFile(s).delete())
+			log.warn("Could not delete " + getSegmentFile(s));
+	}
+
+	private File getSegmentFile(long s) {
+		return new File(directory, s + SEGMENT_SUFFIX);
+	}
+
+	private File getIndexFile(long s) {
+		return new File(directory, s + INDEX_SUFFIX);
+	}
+
+	private void loadIndexes() {
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(INDEX_SUFFIX);
+			}
+		});
+		List<Long> found = new ArrayList<Long>();
+		for (String name : names) {
+			try {
+				found.add(Long.parseLong(name.substring(0, name.length() - INDEX_SUFFIX.length())));
+			} catch (NumberFormatException e) {
+				// not ours
+			}
+		}
+		Collections.sort(found);
+		for (long s : found) {
+			try {
+				loadIndex(s);
+				segments.add(s);
+			} catch (IOException e) {
+				log.warn("Could not read index " + getIndexFile(s) + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void loadIndex(long s) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getIndexFile(s))));
+		try {
+			while (true) {
+				long id;
+				try {
+					id = in.readLong();
+				} catch (EOFException e) {
+					return;
+				}
+				long serial = in.readLong();
+				byte flow = in.readByte();
+				long offset = in.readLong();
+				addToIndex(id, flow, new Location(serial, s, offset));
+				if (serial > lastSerial.get())
+					lastSerial.set(serial);
+			}
+		} catch (EOFException e) {
+			// a truncated last entry
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] serialize(Record r) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(r.getSize() + 128);
+		DataOutputStream out = new DataOutputStream(baos);
+		out.writeLong(r.id);
+		out.writeLong(r.serial);
+		out.writeByte(r.flow);
+		out.writeLong(r.time);
+		out.writeUTF(r.rule);
+		out.writeInt(r.port);
+		out.writeUTF(r.remoteAddr == null ? "" : r.remoteAddr);
+		out.writeLong(r.timeReqSent);
+		out.writeLong(r.timeResReceived);
+		out.writeInt(r.head.length);
+		out.write(r.head);
+		out.writeInt(r.body.length);
+		out.write(r.body);
+		out.close();
+		return baos.toByteArray();
+	}
+
+	private byte[] compress(byte[] data) {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte[] buf = new byte[8192];
+		while (!deflater.finished())
+			out.write(buf, 0, deflater.deflate(buf));
+		return out.toByteArray();
+	}
+
+	private static byte[] decompress(byte[] data) throws DataFormatException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+			byte[] buf = new byte[8192];
+			while (!inflater.finished()) {
+				int n = inflater.inflate(buf);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new DataFormatException("Truncated record.");
+				out.write(buf, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads the exchange from the segment files. Messages which are still queued are not found.
+	 */
+	@Override
+	public AbstractExchange getExchangeById(int id) {
+		ensureStarted();
+		Location[] locations = index.get((long) id);
+		if (locations == null)
+			return null;
+		Exchange exc = null;
+		for (Location location : locations) {
+			if (location == null)
+				continue;
+			try {
+				exc = read(location, exc);
+			} catch (Exception e) {
+				log.debug("Could not read exchange " + id + ": " + e.getMessage());
+			}
+		}
+		return exc;
+	}
+
+	private Exchange read(Location location, Exchange exc) throws Exception {
+		byte[] data;
+		RandomAccessFile raf = new RandomAccessFile(getSegmentFile(location.segment), "r");
+		try {
+			raf.seek(location.offset);
+			data = new byte[raf.readInt()];
+			raf.readFully(data);
+		} finally {
+			raf.close();
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(decompress(data)));
+		long id = in.readLong();
+		long serial = in.readLong();
+		if (serial != location.serial)
+			throw new IOException("Found the message of another exchange.");
+		byte flow = in.readByte();
+		long time = in.readLong();
+		String rule = in.readUTF();
+		int port = in.readInt();
+		String remoteAddr = in.readUTF();
+		long timeReqSent = in.readLong();
+		long timeResReceived = in.readLong();
+		byte[] head = new byte[in.readInt()];
+		in.readFully(head);
+		byte[] body = new byte[in.readInt()];
+		in.readFully(body);
+
+		if (exc == null) {
+			exc = new Exchange(null);
+			exc.setId(id);
+			Calendar c = Calendar.getInstance();
+			c.setTimeInMillis(time);
+			exc.setTime(c);
+			NullRule r = new NullRule();
+			r.setName(rule);
+			r.setKey(new ServiceProxyKey(port));
+			exc.setRule(r);
+			exc.setRemoteAddr(remoteAddr);
+		}
+		exc.setTimeReqSent(timeReqSent);
+		exc.setTimeResReceived(timeResReceived);
+
+		Message msg = flow == REQUEST ? new Request() : new Response();
+		msg.read(new ByteArrayInputStream(head), false);
+		msg.setBody(new Body(body));
+		if (flow == REQUEST) {
+			exc.setRequest((Request) msg);
+		} else {
+			exc.setResponse((Response) msg);
+			exc.setCompleted();
+		}
+		return exc;
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public int getQueued() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	public AbstractExchange[] getExchanges(RuleKey ruleKey) {
+		throw new RuntimeException("Method getExchanges() is not supported by SegmentExchangeStore");
+	}
+
+	public int getNumberOfExchanges(RuleKey ruleKey) {
+		throw new RuntimeException("Method getNumberOfExchanges() is not supported by SegmentExchangeStore");
+	}
+
+	public void remove(AbstractExchange exchange) {
+		throw new RuntimeException("Method remove() is not supported by SegmentExchangeStore");
+	}
+
+	public void removeAllExchanges(Rule rule) {
+		throw new RuntimeException("Method removeAllExchanges() is not supported by SegmentExchangeStore");
+	}
+
+	public void removeAllExchanges(AbstractExchange[] exchanges) {
+		// ignore
+	}
+
+	public StatisticCollector getStatistics(RuleKey ruleKey) {
+		return null;
+	}
+
+	public Object[] getAllExchanges() {
+		return null;
+	}
+
+	public List<AbstractExchange> getAllExchangesAsList() {
+		return null;
+	}
+
+	public String getDir() {
+		return dir;
+	}
+
+	/**
+	 * @description Directory where the segment files are saved.
+	 * @example logs
+	 */
+	@Required
+	@MCAttribute
+	public void setDir(String dir) {
+		this.dir = dir;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * @description The maximum number of messages waiting to be written.
+	 * @default 10000
+	 */
+	@MCAttribute
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public int getMaxQueuedBytes() {
+		return maxQueuedBytes;
+	}
+
+	/**
+	 * @description The maximum size (in bytes) of the messages waiting to be written. A single larger message is
+	 *              only queued if the queue is empty.
+	 * @default 67108864
+	 */
+	@MCAttribute
+	public void setMaxQueuedBytes(int maxQueuedBytes) {
+		this.maxQueuedBytes = maxQueuedBytes;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @description The maximum number of messages written at once.
+	 * @default 256
+	 */
+	@MCAttribute
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getMaxSegmentSize() {
+		return maxSegmentSize;
+	}
+
+	/**
+	 * @description The size (in bytes) after which a new segment file is started.
+	 * @default 67108864
+	 */
+	@MCAttribute
+	public void setMaxSegmentSize(long maxSegmentSize) {
+		this.maxSegmentSize = maxSegmentSize;
+	}
+
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+
+	/**
+	 * @description The number of segment files kept. When a new segment is started, the oldest ones are deleted.
+	 * @default 64
+	 */
+	@MCAttribute
+	public void setMaxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * @description What happens when the queue is full: DROP drops the new message, DROP_OLDEST drops the oldest
+	 *              queued message, BLOCK lets the thread handling the exchange wait.
+	 * @default DROP
+	 */
+	@MCAttribute
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+}
@@ -100,6 +100,38 @@ public abstract class AbstractBody {
 		return content;
 	}
 
+	/**
+	 * Returns the first (or last) <code>max</code> bytes of the body's content, copying only those bytes out of the
+	 * chunks.
+	 *
+	 * Chunks which were not retained (see {@link Body}, bodies over 100MB which were streamed) are skipped, so only
+	 * the retained part of such a body is available.
+	 */
+	public byte[] getContent(int max, boolean tail) throws IOException {
+		read();
+		int length = 0;
+		for (Chunk chunk : chunks)
+			length += chunk.getLength();
+		byte[] content = new byte[Math.min(max, length)];
+		int skip = tail ? length - content.length : 0;
+		int destPos = 0;
+		for (Chunk chunk : chunks) {
+			if (destPos == content.length)
+				break;
+			int chunkLength = chunk.getLength();
+			if (skip >= chunkLength) {
+				// also skips chunks which were not retained, as their length is 0
+				skip -= chunkLength;
+				continue;
+			}
+			int count = Math.min(chunkLength - skip, content.length - destPos);
+			System.arraycopy(chunk.getContent(), skip, content, destPos, count);
+			destPos += count;
+			skip = 0;
+		}
+		return content;
+	}
+
 	public InputStream getContentAsStream() throws IOException {
 		read();
 		return new BodyInputStream(chunks);
@@ -137,6 +169,19 @@ public abstract class AbstractBody {
 		return length;
 	}
 
+	/**
+	 * Like {@link #getLength()}, but for bodies which have already been read.
+	 */
+	int getLengthAlreadyRead() {
+		if (!read)
+			throw new IllegalStateException("The body has not been read.");
+		int length = 0;
+		for (Chunk chunk : chunks) {
+			length += chunk.getLength();
+		}
+		return length;
+	}
+
 	/**
 	 * Returns a reconstruction of the over-the-wire byte sequence received.
 	 *
@@ -17,6 +17,7 @@ package com.predic8.membrane.core.http;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +65,16 @@ public class Body extends AbstractBody {
 		markAsRead(); // because we do not have something to read
 	}
 
+	/**
+	 * @see BodyOutputStream#createBody()
+	 */
+	Body(List<Chunk> chunks, int length) {
+		this.inputStream = null;
+		this.length = length;
+		this.chunks.addAll(chunks);
+		markAsRead();
+	}
+
 	@Override
 	protected void readLocal() throws IOException {
 		chunks.add(new Chunk(ByteUtil.readByteArray(inputStream, length)));
@@ -74,7 +85,8 @@ public class Body extends AbstractBody {
 		if (getLength() == 0)
 			return;
 
-		out.write(getContent(), 0, getLength());
+		for (Chunk chunk : chunks)
+			out.write(chunk.getContent(), 0, chunk.getLength());
 		out.finish();
 	}
 
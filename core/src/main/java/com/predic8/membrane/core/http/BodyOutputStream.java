@@ -0,0 +1,78 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.http;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the written data in {@link Chunk}s, which then become a {@link Body}.
+ *
+ * In contrast to a {@link java.io.ByteArrayOutputStream}, already written data is never copied when the buffer
+ * grows: Each full buffer simply becomes a chunk.
+ */
+public class BodyOutputStream extends OutputStream {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+	private byte[] buffer = new byte[CHUNK_SIZE];
+	private int position;
+	private int length;
+
+	@Override
+	public void write(int b) {
+		if (position == buffer.length)
+			nextBuffer();
+		buffer[position++] = (byte) b;
+		length++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		length += len;
+		while (len > 0) {
+			if (position == buffer.length)
+				nextBuffer();
+			int n = Math.min(len, buffer.length - position);
+			System.arraycopy(b, off, buffer, position, n);
+			position += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void nextBuffer() {
+		chunks.add(new Chunk(buffer));
+		buffer = new byte[CHUNK_SIZE];
+		position = 0;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return a body containing all data written so far. The stream must not be used afterwards.
+	 */
+	public Body createBody() {
+		if (position > 0)
+			chunks.add(new Chunk(Arrays.copyOf(buffer, position)));
+		buffer = null;
+		return new Body(chunks, length);
+	}
+}
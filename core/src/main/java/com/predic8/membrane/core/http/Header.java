@@ -94,6 +94,8 @@ public class Header {
 
 	public static final String LAST_MODIFIED = "Last-Modified";
 
+	public static final String ETAG = "ETag";
+
 	public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
 
 	public static final String WWW_AUTHENTICATE = "WWW-Authenticate";
@@ -157,6 +157,18 @@ public abstract class Message {
 		header.setContentLength(content.length);
 	}
 
+	/**
+	 * Sets the body, which must already have been read (e.g. created by {@link BodyOutputStream#createBody()}). Also
+	 * adjusts the header fields like {@link #setBodyContent(byte[])}.
+	 */
+	public void setBodyContent(Body body) {
+		int length = body.getLengthAlreadyRead();
+		this.body = body;
+		header.removeFields(Header.CONTENT_ENCODING);
+		header.removeFields(Header.TRANSFER_ENCODING);
+		header.setContentLength(length);
+	}
+
 	protected void createBody(InputStream in) throws IOException {
 		log.debug("createBody");
 		if (isHTTP10()) {
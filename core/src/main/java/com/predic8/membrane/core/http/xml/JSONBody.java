@@ -15,8 +15,6 @@ package com.predic8.membrane.core.http.xml;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -24,13 +22,16 @@ import javax.xml.stream.XMLStreamWriter;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
 
 import com.predic8.membrane.core.config.AbstractXmlElement;
 import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.interceptor.rest.JSON2XML;
 
 class JSONBody extends AbstractXmlElement {
 
+	private static final JsonFactory jsonFactory = new JsonFactory();
+	private static final JSON2XML json2xml = new JSON2XML();
+
 	private final Message msg;
 
 	public JSONBody(Message msg) {
@@ -42,75 +43,8 @@ class JSONBody extends AbstractXmlElement {
 		out.writeAttribute("type", "json");
 
 		try {
-
-			final JsonFactory jsonFactory = new JsonFactory();
-			final JsonParser jp = jsonFactory.createParser(new InputStreamReader(msg.getBodyAsStreamDecoded(), msg.getCharset()));
-			final List<String> stack = new ArrayList<String>();
-			String name = "root";
-			OUTER:
-				while (jp.nextToken() != null) {
-					switch (jp.getCurrentToken()) {
-					case START_OBJECT:
-						if (name != null) {
-							stack.add(name);
-							out.writeStartElement(name);
-							out.writeAttribute("type", "o");
-							name = null;
-						}
-						break;
-					case END_OBJECT:
-						out.writeEndElement();
-						name = stack.remove(stack.size()-1);
-						if (stack.isEmpty())
-							break OUTER;
-						break;
-					case FIELD_NAME:
-						name = jp.getCurrentName();
-						break;
-					case START_ARRAY:
-						if (name != null) {
-							stack.add(name);
-							out.writeStartElement(name);
-							out.writeAttribute("type", "a");
-						}
-						name = "item";
-						break;
-					case END_ARRAY:
-						out.writeEndElement();
-						name = stack.remove(stack.size()-1);
-						if (stack.isEmpty())
-							break OUTER;
-						break;
-					case VALUE_TRUE:
-					case VALUE_FALSE:
-						out.writeStartElement(name);
-						out.writeAttribute("type", "b");
-						out.writeCharacters(Boolean.toString(jp.getBooleanValue()));
-						out.writeEndElement();
-						break;
-					case VALUE_NULL:
-						out.writeStartElement(name);
-						out.writeAttribute("type", "n");
-						out.writeAttribute("isNull", "true");
-						out.writeEndElement();
-						break;
-					case VALUE_STRING:
-					case VALUE_NUMBER_INT:
-					case VALUE_NUMBER_FLOAT:
-						out.writeStartElement(name);
-						out.writeAttribute("type",
-								jp.getCurrentToken() == JsonToken.VALUE_STRING ? "s" :
-									jp.getCurrentToken() == JsonToken.VALUE_NUMBER_INT ? "i" :
-								"f");
-						out.writeCharacters(jp.getText());
-						out.writeEndElement();
-						break;
-					case VALUE_EMBEDDED_OBJECT:
-					case NOT_AVAILABLE:
-						throw new RuntimeException(jp.getCurrentToken().toString());
-					}
-				}
-
+			JsonParser jp = jsonFactory.createParser(new InputStreamReader(msg.getBodyAsStreamDecoded(), msg.getCharset()));
+			json2xml.convert(jp, out);
 		} catch (JsonParseException e) {
 			throw new RuntimeException(e);
 		} catch (IOException e) {
@@ -0,0 +1,74 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import com.predic8.membrane.core.exchange.Exchange;
+
+/**
+ * Base class of {@link AsyncInterceptor}s: The synchronous methods wait for the asynchronous ones.
+ */
+public abstract class AbstractAsyncInterceptor extends AbstractInterceptor implements AsyncInterceptor {
+
+	protected static final CompletionStage<Outcome> CONTINUE = CompletableFuture.completedFuture(Outcome.CONTINUE);
+
+	@Override
+	public CompletionStage<Outcome> handleRequestAsync(Exchange exc) {
+		return CONTINUE;
+	}
+
+	@Override
+	public CompletionStage<Outcome> handleResponseAsync(Exchange exc) {
+		return CONTINUE;
+	}
+
+	@Override
+	public final Outcome handleRequest(Exchange exc) throws Exception {
+		return await(handleRequestAsync(exc));
+	}
+
+	@Override
+	public final Outcome handleResponse(Exchange exc) throws Exception {
+		return await(handleResponseAsync(exc));
+	}
+
+	/**
+	 * Waits for the stage and rethrows the exception it failed with.
+	 */
+	public static <T> T await(CompletionStage<T> stage) throws Exception {
+		try {
+			return stage.toCompletableFuture().get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a stage which failed with the given exception
+	 */
+	public static <T> CompletionStage<T> failed(Throwable t) {
+		CompletableFuture<T> f = new CompletableFuture<T>();
+		f.completeExceptionally(t);
+		return f;
+	}
+}
@@ -0,0 +1,39 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor;
+
+import java.util.concurrent.CompletionStage;
+
+import com.predic8.membrane.core.exchange.Exchange;
+
+/**
+ * An interceptor which does not block while waiting for I/O.
+ *
+ * {@link InterceptorFlowController#invokeHandlersAsync(Exchange, java.util.List)} calls
+ * {@link #handleRequestAsync(Exchange)} and {@link #handleResponseAsync(Exchange)} instead of the synchronous
+ * methods. Until the returned stage completes, the exchange is suspended and no thread is used for it. The chain is
+ * resumed on the thread completing the stage, so the stage should be completed by an I/O or worker thread, not by a
+ * thread which has to return quickly.
+ *
+ * The synchronous methods are still called by synchronous callers of the flow controller: Use
+ * {@link AbstractAsyncInterceptor}, which implements them by waiting for the stage.
+ */
+public interface AsyncInterceptor extends Interceptor {
+
+	public CompletionStage<Outcome> handleRequestAsync(Exchange exc);
+
+	public CompletionStage<Outcome> handleResponseAsync(Exchange exc);
+
+}
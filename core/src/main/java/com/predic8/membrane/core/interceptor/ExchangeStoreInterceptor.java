@@ -22,9 +22,11 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
 import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCChildElement;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.exchangestore.ExchangeStore;
+import com.predic8.membrane.core.exchangestore.RecordingPolicy;
 import com.predic8.membrane.core.interceptor.administration.AdminConsoleInterceptor;
 import com.predic8.membrane.core.rules.AbstractServiceProxy;
 import com.predic8.membrane.core.rules.Rule;
@@ -32,7 +34,8 @@ import com.predic8.membrane.core.rules.Rule;
 /**
  * @description Adds the current state of HTTP requests and responses to an "exchange store".
  * @explanation Note that depending on the implementation of the exchange store, both request *and* response logging
- *              might both be required for the exchange to be saved.
+ *              might both be required for the exchange to be saved. A recording policy may be used to sample
+ *              exchanges and to shorten the recorded bodies.
  * @topic 5. Monitoring, Logging and Statistics
  */
 @MCElement(name="exchangeStore")
@@ -43,6 +46,7 @@ public class ExchangeStoreInterceptor extends AbstractInterceptor implements App
 
 	private ExchangeStore store;
 	private String exchangeStoreBeanId;
+	private RecordingPolicy recordingPolicy;
 
 	private Set<AbstractServiceProxy> serviceProxiesContainingAdminConsole = new HashSet<AbstractServiceProxy>();
 
@@ -80,7 +84,10 @@ public class ExchangeStoreInterceptor extends AbstractInterceptor implements App
 			return Outcome.CONTINUE;
 		}
 
-		store.snap(exc, flow);
+		if (recordingPolicy != null)
+			recordingPolicy.snap(store, exc, flow);
+		else
+			store.snap(exc, flow);
 
 		return Outcome.CONTINUE;
 	}
@@ -99,6 +106,19 @@ public class ExchangeStoreInterceptor extends AbstractInterceptor implements App
 		exchangeStoreBeanId = BEAN_ID_ATTRIBUTE_CANNOT_BE_USED;
 	}
 
+	public RecordingPolicy getRecordingPolicy() {
+		return recordingPolicy;
+	}
+
+	/**
+	 * @description Decides which exchanges are recorded and how much of their bodies. By default, everything is
+	 *              recorded.
+	 */
+	@MCChildElement
+	public void setRecordingPolicy(RecordingPolicy recordingPolicy) {
+		this.recordingPolicy = recordingPolicy;
+	}
+
 	public String getExchangeStoreBeanId() {
 		return exchangeStoreBeanId;
 	}
@@ -15,6 +15,10 @@ package com.predic8.membrane.core.interceptor;
 
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +52,12 @@ import com.predic8.membrane.core.transport.http.AbortException;
  * When {@link Outcome#ABORT} is hit, handling is aborted: An
  * {@link AbortException} is thrown. The stack is unwound calling
  * {@link Interceptor#handleAbort(Exchange)} on each interceptor on it.
+ *
+ * The asynchronous variants {@link #invokeHandlersAsync(Exchange, List)} and
+ * {@link #invokeRequestHandlersAsync(Exchange, List)} follow the same rules,
+ * but suspend the exchange while an {@link AsyncInterceptor} has not completed
+ * its stage: The chain is continued by the thread completing the stage.
+ * Synchronous interceptors are called directly.
  */
 public class InterceptorFlowController {
 
@@ -131,6 +141,207 @@ public class InterceptorFlowController {
 		}
 	}
 
+	/**
+	 * Asynchronous variant of {@link #invokeHandlers(Exchange, List)}.
+	 *
+	 * @return a stage completing after the response handlers have run, or
+	 *         failing (after the abortion handlers have run) with the
+	 *         exception {@link #invokeHandlers(Exchange, List)} would throw.
+	 *         Errors thrown by handlers fail the stage as well.
+	 */
+	public CompletionStage<Void> invokeHandlersAsync(final Exchange exchange, List<Interceptor> interceptors) {
+		final CompletableFuture<Void> result = new CompletableFuture<Void>();
+		invokeRequestHandlersAsync(exchange, interceptors).whenComplete(new BiConsumer<Outcome, Throwable>() {
+			@Override
+			public void accept(Outcome outcome, Throwable t) {
+				if (t != null) {
+					abort(exchange, unwrap(t), result);
+					return;
+				}
+				switch (outcome) {
+				case CONTINUE:
+					abort(exchange, new Exception("The last interceptor in the main chain may not return CONTINUE. Change it to RETURN."), result);
+					return;
+				case ABORT:
+					abort(exchange, new AbortException(), result);
+					return;
+				case RETURN:
+					break;
+				}
+				new ResponseChain(exchange, result).run();
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Asynchronous variant of {@link #invokeRequestHandlers(Exchange, List)}.
+	 */
+	public CompletionStage<Outcome> invokeRequestHandlersAsync(Exchange exchange, List<Interceptor> interceptors) {
+		RequestChain chain = new RequestChain(exchange, interceptors);
+		chain.run(0);
+		return chain.result;
+	}
+
+	private void abort(Exchange exchange, Throwable t, CompletableFuture<Void> result) {
+		exchange.setProperty(ABORTION_REASON, t);
+		invokeAbortionHandlers(exchange);
+		result.completeExceptionally(t);
+	}
+
+	private static Throwable unwrap(Throwable t) {
+		while (t instanceof CompletionException && t.getCause() != null)
+			t = t.getCause();
+		return t;
+	}
+
+	/**
+	 * @return the outcome of a completed stage
+	 */
+	private static Outcome getNow(CompletionStage<Outcome> stage) throws Exception {
+		try {
+			return stage.toCompletableFuture().join();
+		} catch (CompletionException e) {
+			Throwable t = unwrap(e);
+			if (t instanceof Exception)
+				throw (Exception) t;
+			throw e;
+		}
+	}
+
+	/**
+	 * The state of {@link #invokeRequestHandlersAsync(Exchange, List)}: The
+	 * position in the chain to continue at when a pending stage completes.
+	 */
+	private class RequestChain implements BiConsumer<Outcome, Throwable> {
+		private final Exchange exchange;
+		private final List<Interceptor> interceptors;
+		private final CompletableFuture<Outcome> result = new CompletableFuture<Outcome>();
+		private int pending;
+
+		public RequestChain(Exchange exchange, List<Interceptor> interceptors) {
+			this.exchange = exchange;
+			this.interceptors = interceptors;
+		}
+
+		public void run(int start) {
+			boolean logDebug = log.isDebugEnabled();
+
+			for (int index = start; index < interceptors.size(); index++) {
+				Interceptor i = interceptors.get(index);
+				EnumSet<Flow> f = i.getFlow();
+				if (f.contains(Flow.RESPONSE) && !f.contains(Flow.REQUEST)) {
+					exchange.pushInterceptorToStack(i);
+					continue;
+				}
+
+				if (logDebug)
+					log.debug("Invoking request handler: " + i.getDisplayName() + " on exchange: " + exchange);
+
+				Outcome o;
+				try {
+					if (i instanceof AsyncInterceptor) {
+						CompletableFuture<Outcome> stage = ((AsyncInterceptor) i).handleRequestAsync(exchange).toCompletableFuture();
+						if (!stage.isDone()) {
+							pending = index;
+							stage.whenComplete(this);
+							return;
+						}
+						o = getNow(stage);
+					} else {
+						o = i.handleRequest(exchange);
+					}
+				} catch (Throwable e) {
+					// also Errors: when resumed, nobody would see them and the result would never complete
+					result.completeExceptionally(e);
+					return;
+				}
+				if (o != Outcome.CONTINUE) {
+					result.complete(o);
+					return;
+				}
+
+				if (f.contains(Flow.RESPONSE))
+					exchange.pushInterceptorToStack(i);
+			}
+			result.complete(Outcome.CONTINUE);
+		}
+
+		@Override
+		public void accept(Outcome o, Throwable t) {
+			if (t != null) {
+				result.completeExceptionally(unwrap(t));
+				return;
+			}
+			if (o != Outcome.CONTINUE) {
+				result.complete(o);
+				return;
+			}
+			Interceptor i = interceptors.get(pending);
+			if (i.getFlow().contains(Flow.RESPONSE))
+				exchange.pushInterceptorToStack(i);
+			run(pending + 1);
+		}
+	}
+
+	/**
+	 * The state of the response handling of {@link #invokeHandlersAsync(Exchange, List)}.
+	 */
+	private class ResponseChain implements BiConsumer<Outcome, Throwable> {
+		private final Exchange exchange;
+		private final CompletableFuture<Void> result;
+
+		public ResponseChain(Exchange exchange, CompletableFuture<Void> result) {
+			this.exchange = exchange;
+			this.result = result;
+		}
+
+		public void run() {
+			boolean logDebug = log.isDebugEnabled();
+
+			Interceptor i;
+			while ((i = exchange.popInterceptorFromStack()) != null) {
+				if (logDebug)
+					log.debug("Invoking response handler: " + i.getDisplayName() + " on exchange: " + exchange);
+
+				Outcome o;
+				try {
+					if (i instanceof AsyncInterceptor) {
+						CompletableFuture<Outcome> stage = ((AsyncInterceptor) i).handleResponseAsync(exchange).toCompletableFuture();
+						if (!stage.isDone()) {
+							stage.whenComplete(this);
+							return;
+						}
+						o = getNow(stage);
+					} else {
+						o = i.handleResponse(exchange);
+					}
+				} catch (Throwable e) {
+					abort(exchange, e, result);
+					return;
+				}
+				if (o == Outcome.ABORT) {
+					abort(exchange, new AbortException(), result);
+					return;
+				}
+			}
+			result.complete(null);
+		}
+
+		@Override
+		public void accept(Outcome o, Throwable t) {
+			if (t != null) {
+				abort(exchange, unwrap(t), result);
+				return;
+			}
+			if (o == Outcome.ABORT) {
+				abort(exchange, new AbortException(), result);
+				return;
+			}
+			run();
+		}
+	}
+
 	/**
 	 * Runs all abortion handlers for interceptors that have been collected on
 	 * the exchange's stack so far.
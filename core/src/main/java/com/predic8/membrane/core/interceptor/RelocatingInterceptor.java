@@ -14,16 +14,31 @@
 
 package com.predic8.membrane.core.interceptor;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.predic8.membrane.core.Router;
 import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.rules.ProxyRule;
+import com.predic8.membrane.core.ws.relocator.RelocationCache;
 import com.predic8.membrane.core.ws.relocator.Relocator;
 
+/**
+ * Relocates the addresses in XML documents (as returned by {@link #getRelocatingAttributes()}).
+ *
+ * If the interceptor has been initialized with a router, relocated documents are kept in the router's
+ * {@link RelocationCache}.
+ */
 abstract public class RelocatingInterceptor extends AbstractInterceptor {
 
 	private static Logger log = LoggerFactory.getLogger(RelocatingInterceptor.class.getName());
@@ -32,6 +47,14 @@ abstract public class RelocatingInterceptor extends AbstractInterceptor {
 	protected String protocol;
 	protected String port;
 	protected Relocator.PathRewriter pathRewriter;
+	private RelocationCache relocationCache;
+
+	@Override
+	public void init(Router router) throws Exception {
+		super.init(router);
+		if (relocationCache == null)
+			relocationCache = router.getRelocationCache();
+	}
 
 	@Override
 	public Outcome handleResponse(Exchange exc) throws Exception {
@@ -64,7 +87,58 @@ abstract public class RelocatingInterceptor extends AbstractInterceptor {
 		return Outcome.CONTINUE;
 	}
 
-	abstract void rewrite(Exchange exc) throws Exception;
+	/**
+	 * @return the (unmodifiable) elements and the names of their attributes to relocate
+	 */
+	protected abstract Map<QName, String> getRelocatingAttributes();
+
+	/**
+	 * Called after the response has been relocated.
+	 *
+	 * @param wsdlFound whether the document contained SOAP elements
+	 */
+	protected void relocated(Exchange exc, boolean wsdlFound) {
+	}
+
+	protected void rewrite(Exchange exc) throws Exception {
+		Response res = exc.getResponse();
+
+		RelocationCache.Key key = null;
+		String validator = null;
+		if (relocationCache != null && (validator = RelocationCache.getValidator(res)) != null) {
+			key = new RelocationCache.Key(getLocation(exc), getLocationProtocol(), getLocationHost(exc),
+					getLocationPort(exc), pathRewriter, getRelocatingAttributes(), res.getCharset());
+			RelocationCache.Entry entry = relocationCache.get(key, validator);
+			if (entry != null) {
+				log.debug(name + " using cached document for " + key);
+				res.readBody();
+				res.setBodyContent(entry.getContent());
+				relocated(exc, entry.isWsdlFound());
+				return;
+			}
+		}
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		Relocator relocator = new Relocator(new OutputStreamWriter(stream,
+				res.getCharset()), getLocationProtocol(), getLocationHost(exc),
+				getLocationPort(exc), pathRewriter);
+		relocator.getRelocatingAttributes().putAll(getRelocatingAttributes());
+
+		relocator.relocate(new InputStreamReader(res.getBodyAsStreamDecoded(), res.getCharset()));
+
+		byte[] content = stream.toByteArray();
+		if (key != null)
+			relocationCache.put(key, new RelocationCache.Entry(validator, content, relocator.isWsdlFound()));
+		res.setBodyContent(content);
+		relocated(exc, relocator.isWsdlFound());
+	}
+
+	private String getLocation(Exchange exc) {
+		if (exc.getDestinations().isEmpty())
+			return exc.getRequestURI();
+		return exc.getDestinations().get(0);
+	}
 
 	private boolean hasContent(Exchange exc) {
 		return exc.getResponse().getHeader().getContentType() != null;
@@ -140,4 +214,15 @@ abstract public class RelocatingInterceptor extends AbstractInterceptor {
 	public void setPathRewriter(Relocator.PathRewriter pathRewriter) {
 		this.pathRewriter = pathRewriter;
 	}
+
+	public RelocationCache getRelocationCache() {
+		return relocationCache;
+	}
+
+	/**
+	 * Sets the cache for relocated documents. By default, the router's cache is used.
+	 */
+	public void setRelocationCache(RelocationCache relocationCache) {
+		this.relocationCache = relocationCache;
+	}
 }
@@ -13,6 +13,10 @@
    limitations under the License. */
 package com.predic8.membrane.core.interceptor;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,9 +29,12 @@ import com.predic8.membrane.core.rules.Rule;
  *
  * Not that we do not implement handleResponse() as this will be
  * automatically done by the stack-unwinding in {@link InterceptorFlowController}.
+ *
+ * Asynchronous interceptors of the proxy suspend the exchange without
+ * blocking, as the proxy's chain is invoked via {@link #handleRequestAsync(Exchange)}.
  */
 @MCElement(name="userFeature")
-public class UserFeatureInterceptor extends AbstractInterceptor {
+public class UserFeatureInterceptor extends AbstractInterceptor implements AsyncInterceptor {
 
 	private static final Logger log = LoggerFactory.getLogger(UserFeatureInterceptor.class.getName());
 	private static final InterceptorFlowController flowController = new InterceptorFlowController();
@@ -43,17 +50,7 @@ public class UserFeatureInterceptor extends AbstractInterceptor {
 		Outcome outcome = flowController.invokeRequestHandlers(exc, predecessorRule.getInterceptors());
 
 		while (isTargetInternalAndContinue(exc, outcome)) {
-			log.debug("routing to serviceProxy with name: " + getServiceProxyName(exc));
-
-			// rule matching
-			String destination = exc.getDestinations().get(0);
-			Rule newRule = getRuleByDest(destination);
-			if (newRule == null)
-				throw new Exception("No proxy found for destination " + destination);
-			exc.setRule(newRule);
-			// dispatching
-			exc.getDestinations().clear();
-			exc.getDestinations().add(DispatchingInterceptor.getForwardingDestination(exc));
+			Rule newRule = routeToInternalProxy(exc);
 			// user feature
 			outcome = flowController.invokeRequestHandlers(exc, newRule.getInterceptors());
 		}
@@ -61,6 +58,56 @@ public class UserFeatureInterceptor extends AbstractInterceptor {
 		return outcome;
 	}
 
+	@Override
+	public CompletionStage<Outcome> handleRequestAsync(final Exchange exc) {
+		final Rule predecessorRule = exc.getRule();
+		final CompletableFuture<Outcome> result = new CompletableFuture<Outcome>();
+		flowController.invokeRequestHandlersAsync(exc, predecessorRule.getInterceptors()).whenComplete(new BiConsumer<Outcome, Throwable>() {
+			@Override
+			public void accept(Outcome outcome, Throwable t) {
+				if (t != null) {
+					result.completeExceptionally(t);
+					return;
+				}
+				if (isTargetInternalAndContinue(exc, outcome)) {
+					Rule newRule;
+					try {
+						newRule = routeToInternalProxy(exc);
+					} catch (Exception e) {
+						result.completeExceptionally(e);
+						return;
+					}
+					// user feature
+					flowController.invokeRequestHandlersAsync(exc, newRule.getInterceptors()).whenComplete(this);
+					return;
+				}
+				exc.setRule(predecessorRule);
+				result.complete(outcome);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public CompletionStage<Outcome> handleResponseAsync(Exchange exc) {
+		return AbstractAsyncInterceptor.CONTINUE;
+	}
+
+	private Rule routeToInternalProxy(Exchange exc) throws Exception {
+		log.debug("routing to serviceProxy with name: " + getServiceProxyName(exc));
+
+		// rule matching
+		String destination = exc.getDestinations().get(0);
+		Rule newRule = getRuleByDest(destination);
+		if (newRule == null)
+			throw new Exception("No proxy found for destination " + destination);
+		exc.setRule(newRule);
+		// dispatching
+		exc.getDestinations().clear();
+		exc.getDestinations().add(DispatchingInterceptor.getForwardingDestination(exc));
+		return newRule;
+	}
+
 	private String getServiceProxyName(Exchange exc) {
 		return exc.getDestinations().get(0).substring(8);
 	}
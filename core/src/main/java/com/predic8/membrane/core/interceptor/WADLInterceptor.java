@@ -16,10 +16,10 @@ package com.predic8.membrane.core.interceptor;
 
 import static com.predic8.membrane.core.Constants.WADL_NS;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
@@ -29,13 +29,21 @@ import org.slf4j.LoggerFactory;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.exchange.Exchange;
-import com.predic8.membrane.core.ws.relocator.Relocator;
 
 @MCElement(name="wadlRewriter")
 public class WADLInterceptor extends RelocatingInterceptor {
 
 	private static Logger log = LoggerFactory.getLogger(WADLInterceptor.class.getName());
 
+	private static final Map<QName, String> RELOCATING_ATTRIBUTES;
+
+	static {
+		Map<QName, String> attributes = new HashMap<QName, String>();
+		attributes.put(new QName(WADL_NS, "resources"), "base");
+		attributes.put(new QName(WADL_NS, "include"), "href");
+		RELOCATING_ATTRIBUTES = Collections.unmodifiableMap(attributes);
+	}
+
 	public WADLInterceptor() {
 		name = "WADL Rewriting Interceptor";
 		setFlow(Flow.Set.RESPONSE);
@@ -46,20 +54,12 @@ public class WADLInterceptor extends RelocatingInterceptor {
 
 		log.debug("Changing endpoint address in WADL");
 
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-
-		Relocator relocator = new Relocator(new OutputStreamWriter(stream,
-				exc.getResponse().getCharset()), getLocationProtocol(), getLocationHost(exc),
-				getLocationPort(exc), pathRewriter);
-
-		relocator.getRelocatingAttributes().put(
-				new QName(WADL_NS, "resources"), "base");
-		relocator.getRelocatingAttributes().put(new QName(WADL_NS, "include"),
-				"href");
-
-		relocator.relocate(new InputStreamReader(exc.getResponse().getBodyAsStreamDecoded(), exc.getResponse().getCharset()));
+		super.rewrite(exc);
+	}
 
-		exc.getResponse().setBodyContent(stream.toByteArray());
+	@Override
+	protected Map<QName, String> getRelocatingAttributes() {
+		return RELOCATING_ATTRIBUTES;
 	}
 
 	@MCAttribute
@@ -19,15 +19,15 @@ import static com.predic8.membrane.core.Constants.WSDL_SOAP11_NS;
 import static com.predic8.membrane.core.Constants.WSDL_SOAP12_NS;
 import static com.predic8.membrane.core.Constants.XSD_NS;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
@@ -43,7 +43,6 @@ import com.predic8.membrane.core.http.Request;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.transport.http.HttpClient;
 import com.predic8.membrane.core.util.MessageUtil;
-import com.predic8.membrane.core.ws.relocator.Relocator;
 
 /**
  * @description
@@ -55,6 +54,19 @@ public class WSDLInterceptor extends RelocatingInterceptor {
 
 	private static Logger log = LoggerFactory.getLogger(WSDLInterceptor.class.getName());
 
+	private static final Map<QName, String> SCHEMA_LOCATIONS, ALL_LOCATIONS;
+
+	static {
+		Map<QName, String> attributes = new HashMap<QName, String>();
+		attributes.put(new QName(XSD_NS, "import"), "schemaLocation");
+		attributes.put(new QName(XSD_NS, "include"), "schemaLocation");
+		SCHEMA_LOCATIONS = Collections.unmodifiableMap(new HashMap<QName, String>(attributes));
+		attributes.put(new QName(WSDL_SOAP11_NS, "address"), "location");
+		attributes.put(new QName(WSDL_SOAP12_NS, "address"), "location");
+		attributes.put(new QName(WSDL_HTTP_NS, "address"), "location");
+		ALL_LOCATIONS = Collections.unmodifiableMap(attributes);
+	}
+
 	private String registryWSDLRegisterURL;
 	private boolean rewriteEndpoint = true;
 	private HttpClient hc;
@@ -75,31 +87,19 @@ public class WSDLInterceptor extends RelocatingInterceptor {
 
 		log.debug("Changing endpoint address in WSDL");
 
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-
-		Relocator relocator = new Relocator(new OutputStreamWriter(stream,
-				exc.getResponse().getCharset()), getLocationProtocol(), getLocationHost(exc),
-				getLocationPort(exc), pathRewriter);
-
-		if (rewriteEndpoint) {
-			relocator.getRelocatingAttributes().put(
-					new QName(WSDL_SOAP11_NS, "address"), "location");
-			relocator.getRelocatingAttributes().put(
-					new QName(WSDL_SOAP12_NS, "address"), "location");
-			relocator.getRelocatingAttributes().put(
-					new QName(WSDL_HTTP_NS, "address"), "location");
-		}
-		relocator.getRelocatingAttributes().put(new QName(XSD_NS, "import"),
-				"schemaLocation");
-		relocator.getRelocatingAttributes().put(new QName(XSD_NS, "include"),
-				"schemaLocation");
+		super.rewrite(exc);
+	}
 
-		relocator.relocate(new InputStreamReader(exc.getResponse().getBodyAsStreamDecoded(), exc.getResponse().getCharset()));
+	@Override
+	protected Map<QName, String> getRelocatingAttributes() {
+		return rewriteEndpoint ? ALL_LOCATIONS : SCHEMA_LOCATIONS;
+	}
 
-		if (relocator.isWsdlFound()) {
+	@Override
+	protected void relocated(Exchange exc, boolean wsdlFound) {
+		if (wsdlFound) {
 			registerWSDL(exc);
 		}
-		exc.getResponse().setBodyContent(stream.toByteArray());
 	}
 
 	private void registerWSDL(Exchange exc) {
@@ -20,8 +20,12 @@ import java.net.URLEncoder;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import com.predic8.membrane.core.exchange.ExchangeState;
 import org.slf4j.Logger;
@@ -32,26 +36,42 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.exchange.ExchangesUtil;
 import com.predic8.membrane.core.exchangestore.ClientStatistics;
+import com.predic8.membrane.core.exchangestore.ExchangeQuery;
+import com.predic8.membrane.core.exchangestore.ExchangeQueryResult;
 import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.HeaderField;
 import com.predic8.membrane.core.http.Message;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.http.Response.ResponseBuilder;
+import com.predic8.membrane.core.interceptor.HTTPClientInterceptor;
+import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.interceptor.rest.JSONContent;
 import com.predic8.membrane.core.interceptor.rest.QueryParameter;
 import com.predic8.membrane.core.interceptor.rest.RESTInterceptor;
 import com.predic8.membrane.core.interceptor.statistics.util.JDBCUtil;
 import com.predic8.membrane.core.rules.AbstractServiceProxy;
 import com.predic8.membrane.core.rules.Rule;
+import com.predic8.membrane.core.statistics.TimeSeries;
+import com.predic8.membrane.core.statistics.TimeSeriesStore.Dimension;
+import com.predic8.membrane.core.statistics.WindowStatistics;
+import com.predic8.membrane.core.transport.http.HandshakeLatencyStatistics;
+import com.predic8.membrane.core.transport.http.HttpClient;
+import com.predic8.membrane.core.transport.http.HttpEndpointListener;
+import com.predic8.membrane.core.transport.http.HttpTransport;
+import com.predic8.membrane.core.transport.http.IpPort;
+import com.predic8.membrane.core.transport.ssl.HandshakeStatistics;
+import com.predic8.membrane.core.transport.ssl.SSLProvider;
 import com.predic8.membrane.core.util.ComparatorFactory;
 import com.predic8.membrane.core.util.TextUtil;
+import com.predic8.membrane.core.ws.relocator.RelocationCache;
 
 public class AdminRESTInterceptor extends RESTInterceptor {
 
-	@SuppressWarnings("unused")
 	private static Logger log = LoggerFactory.getLogger(AdminRESTInterceptor.class.getName());
 
+	private ExchangeEventStream events;
+
 	@Mapping("/admin/rest/clients(/?\\?.*)?")
 	public Response getClients(QueryParameter params, String relativeRootPath) throws Exception {
 		final List<? extends ClientStatistics> clients = getRouter().getExchangeStore().getClientStatistics();
@@ -145,6 +165,147 @@ public class AdminRESTInterceptor extends RESTInterceptor {
 		});
 	}
 
+	/**
+	 * Rates, errors and latency percentiles of the last <code>window</code> milliseconds (default: one minute) per
+	 * proxy, client or status code, computed from the router's time series.
+	 */
+	@Mapping("/admin/rest/statistics/(proxies|clients|statuses)(/?\\?.*)?")
+	public Response getTimeSeries(final QueryParameter params, String relativeRootPath) throws Exception {
+		final String dimension = params.getGroup(1);
+		final Map<String, TimeSeries> series = getRouter().getStatistics().getTimeSeries().getSeries(
+				dimension.equals("proxies") ? Dimension.PROXY : dimension.equals("clients") ? Dimension.CLIENT : Dimension.STATUS);
+		final long now = System.currentTimeMillis();
+		final int window = params.getInt("window", 60000);
+		final boolean timeline = "true".equals(params.getString("timeline"));
+
+		return json( new JSONContent() {
+			public void write(JsonGenerator gen) throws Exception {
+				gen.writeStartObject();
+				gen.writeArrayFieldStart(dimension);
+				for (Map.Entry<String, TimeSeries> e : series.entrySet()) {
+					if (params.has("name") && !e.getKey().equals(params.getString("name")))
+						continue;
+					WindowStatistics s = e.getValue().query(now, window);
+					gen.writeStartObject();
+					gen.writeStringField("name", e.getKey());
+					gen.writeNumberField("window", s.getWindow());
+					gen.writeNumberField("resolution", s.getResolution());
+					gen.writeNumberField("count", s.getCount());
+					gen.writeNumberField("errors", s.getErrors());
+					gen.writeNumberField("rate", s.getRate());
+					gen.writeNumberField("avg", s.getAverage());
+					gen.writeNumberField("max", s.getMax());
+					gen.writeNumberField("p50", s.getPercentile(50));
+					gen.writeNumberField("p90", s.getPercentile(90));
+					gen.writeNumberField("p99", s.getPercentile(99));
+					if (timeline) {
+						gen.writeArrayFieldStart("timeline");
+						for (long count : e.getValue().getCounts(now, window))
+							gen.writeNumber(count);
+						gen.writeEndArray();
+					}
+					gen.writeEndObject();
+				}
+				gen.writeEndArray();
+				gen.writeEndObject();
+			}
+		});
+	}
+
+	@Mapping("/admin/rest/relocation-cache(/?\\?.*)?")
+	public Response getRelocationCache(QueryParameter params, String relativeRootPath) throws Exception {
+		return json(new RelocationCacheContent(getRouter().getRelocationCache()));
+	}
+
+	@Mapping("/admin/rest/relocation-cache/purge(/?\\?.*)?")
+	public Response purgeRelocationCache(QueryParameter params, String relativeRootPath) throws Exception {
+		if (isReadOnly())
+			return Response.forbidden("The admin console is read-only.").build();
+		RelocationCache cache = getRouter().getRelocationCache();
+		log.info("Purging " + cache.size() + " relocated documents.");
+		cache.purge();
+		return json(new RelocationCacheContent(cache));
+	}
+
+	private static class RelocationCacheContent implements JSONContent {
+		private final RelocationCache cache;
+
+		public RelocationCacheContent(RelocationCache cache) {
+			this.cache = cache;
+		}
+
+		public void write(JsonGenerator gen) throws Exception {
+			gen.writeStartObject();
+			gen.writeNumberField("size", cache.size());
+			gen.writeNumberField("hits", cache.getHits());
+			gen.writeNumberField("misses", cache.getMisses());
+			gen.writeEndObject();
+		}
+	}
+
+	/**
+	 * Returns the counters of full and resumed TLS handshakes of each TLS listener, and the handshake counters and
+	 * latencies of outbound TLS connections of each backend.
+	 */
+	@Mapping("/admin/rest/tls-handshakes(/?\\?.*)?")
+	public Response getTLSHandshakes(QueryParameter params, String relativeRootPath) throws Exception {
+		final List<IpPort> listeners = new ArrayList<IpPort>();
+		final List<HandshakeStatistics> statistics = new ArrayList<HandshakeStatistics>();
+		if (getRouter().getTransport() instanceof HttpTransport) {
+			HttpTransport transport = (HttpTransport) getRouter().getTransport();
+			for (Map.Entry<IpPort, HttpEndpointListener> e : transport.portListenerMapping.entrySet()) {
+				SSLProvider sslProvider = e.getValue().getSslProvider();
+				if (sslProvider != null) {
+					listeners.add(e.getKey());
+					statistics.add(sslProvider.getHandshakeStatistics());
+				}
+			}
+		}
+		final Map<String, HandshakeLatencyStatistics> backends = new TreeMap<String, HandshakeLatencyStatistics>();
+		for (HttpClient client : getHttpClients())
+			backends.putAll(client.getHandshakeStatistics());
+
+		return json( new JSONContent() {
+			public void write(JsonGenerator gen) throws Exception {
+				gen.writeStartObject();
+				gen.writeArrayFieldStart("listeners");
+				for (int i = 0; i < listeners.size(); i++) {
+					gen.writeStartObject();
+					gen.writeStringField("ip", listeners.get(i).ip);
+					gen.writeNumberField("port", listeners.get(i).port);
+					gen.writeNumberField("fullHandshakes", statistics.get(i).getFullHandshakes());
+					gen.writeNumberField("resumedHandshakes", statistics.get(i).getResumedHandshakes());
+					gen.writeEndObject();
+				}
+				gen.writeEndArray();
+				gen.writeArrayFieldStart("backends");
+				for (Map.Entry<String, HandshakeLatencyStatistics> e : backends.entrySet()) {
+					gen.writeStartObject();
+					gen.writeStringField("backend", e.getKey());
+					gen.writeNumberField("fullHandshakes", e.getValue().getFullHandshakes());
+					gen.writeNumberField("resumedHandshakes", e.getValue().getResumedHandshakes());
+					gen.writeNumberField("averageMillis", e.getValue().getAverageMillis());
+					gen.writeNumberField("maxMillis", e.getValue().getMaxMillis());
+					gen.writeEndObject();
+				}
+				gen.writeEndArray();
+				gen.writeEndObject();
+			}
+		});
+	}
+
+	/**
+	 * @return the HTTP clients of the global <i>httpClient</i>s and the one used by the router's resolvers
+	 */
+	private Set<HttpClient> getHttpClients() {
+		Set<HttpClient> clients = Collections.newSetFromMap(new IdentityHashMap<HttpClient, Boolean>());
+		for (Interceptor i : getRouter().getTransport().getInterceptors())
+			if (i instanceof HTTPClientInterceptor && ((HTTPClientInterceptor) i).getHttpClient() != null)
+				clients.add(((HTTPClientInterceptor) i).getHttpClient());
+		clients.add(getRouter().getResolverMap().getHTTPSchemaResolver().getHttpClient());
+		return clients;
+	}
+
 	@Mapping("/admin/rest/exchanges/(-?\\d+)/(response|request)/raw")
 	public Response getRaw(QueryParameter params, String relativeRootPath) throws Exception {
 		AbstractExchange exc = router.getExchangeStore().getExchangeById(params.getGroupInt(1));
@@ -251,6 +412,9 @@ public class AdminRESTInterceptor extends RESTInterceptor {
 			getRouter().getExchangeStore().waitForModification(params.getLong("waitForModification"));
 		}
 
+		if (params.has("after") || params.has("before"))
+			return queryExchanges(params);
+
 		List<AbstractExchange> exchanges;
 		synchronized (getRouter().getExchangeStore().getAllExchangesAsList()) {
 			exchanges = new ArrayList<AbstractExchange>(
@@ -286,6 +450,81 @@ public class AdminRESTInterceptor extends RESTInterceptor {
 		});
 	}
 
+	/**
+	 * Pushes a summary of each completed exchange as Server-Sent Event ("text/event-stream"). An event "dropped"
+	 * tells the client that it did not keep up and should reload the exchange list.
+	 */
+	@Mapping("/admin/rest/exchanges/stream(/?\\?.*)?")
+	public Response getExchangeStream(QueryParameter params, String relativeRootPath) throws Exception {
+		ExchangeEventStream events = getEvents();
+		ExchangeEventStream.Subscriber subscriber = events.subscribe();
+		if (subscriber == null)
+			return Response.serverUnavailable("Too many clients are subscribed to the event stream.").build();
+
+		Response res = Response.ok()
+				.header(Header.CONTENT_TYPE, "text/event-stream;charset=UTF-8")
+				.header(Header.CACHE_CONTROL, "no-cache")
+				.build();
+		res.getHeader().removeFields(Header.CONTENT_LENGTH);
+		res.getHeader().setValue(Header.TRANSFER_ENCODING, Header.CHUNKED);
+		res.setBody(new EventStreamBody(events, subscriber));
+		return res;
+	}
+
+	private synchronized ExchangeEventStream getEvents() {
+		if (events == null) {
+			events = new ExchangeEventStream(20, 1000);
+			getRouter().getExchangeStore().addExchangesStoreListener(events);
+		}
+		return events;
+	}
+
+	/**
+	 * Cursor based variant of {@link #getExchanges(QueryParameter, String)}: Returns the newest exchanges between the
+	 * cursors 'after' and 'before' (in insertion order). Use 'next' of the result as 'before' to get the following
+	 * page, or 'latest' as 'after' to get exchanges which were added since.
+	 */
+	private Response queryExchanges(QueryParameter params) throws Exception {
+		ExchangeQuery query = new ExchangeQuery();
+		if (params.has("after"))
+			query.setAfter(params.getLong("after"));
+		if (params.has("before"))
+			query.setBefore(params.getLong("before"));
+		query.setMax(params.getInt("max", query.getMax()));
+		query.setProxy(params.getString("proxy"));
+		if (params.has("statuscode"))
+			query.setStatusCode(params.getInt("statuscode"));
+		query.setClient(params.getString("client"));
+		query.setServer(params.getString("server"));
+		query.setMethod(params.getString("method"));
+		query.setReqContentType(params.getString("reqcontenttype"));
+		query.setRespContentType(params.getString("respcontenttype"));
+
+		final ExchangeQueryResult result;
+		try {
+			result = getRouter().getExchangeStore().query(query);
+		} catch (UnsupportedOperationException e) {
+			return Response.badRequest("The exchange store does not support cursors.").build();
+		}
+
+		return json( new JSONContent() {
+			public void write(JsonGenerator gen) throws Exception {
+				gen.writeStartObject();
+				gen.writeArrayFieldStart("exchanges");
+				for (AbstractExchange e : result.getExchanges()) {
+					writeExchange(e, gen);
+				}
+				gen.writeEndArray();
+				gen.writeNumberField("next", result.getNext());
+				gen.writeNumberField("latest", result.getLatest());
+				if (result.getTotal() != -1)
+					gen.writeNumberField("total", result.getTotal());
+				gen.writeNumberField("lastModified", getRouter().getExchangeStore().getLastModified());
+				gen.writeEndObject();
+			}
+		});
+	}
+
 	private List<AbstractExchange> filter(QueryParameter params,
 			List<AbstractExchange> exchanges) throws Exception {
 
@@ -0,0 +1,99 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.administration;
+
+import java.io.IOException;
+
+import com.predic8.membrane.core.Constants;
+import com.predic8.membrane.core.http.AbstractBody;
+import com.predic8.membrane.core.http.AbstractBodyTransferrer;
+import com.predic8.membrane.core.interceptor.administration.ExchangeEventStream.Subscriber;
+
+/**
+ * A "text/event-stream" body writing the events of one {@link Subscriber} until the client disconnects or
+ * {@link #MAX_LIFETIME} has passed.
+ *
+ * Writing the body occupies the worker thread of the connection all the time. Ending the stream regularly lets
+ * the thread return to the pool; EventSource clients reconnect by themselves (after the "retry" delay sent).
+ *
+ * Unlike {@link com.predic8.membrane.core.http.Body}, the data written is not retained, as the stream is long-lived.
+ * For the same reason, the body cannot be read: Reading it yields an empty body.
+ */
+public class EventStreamBody extends AbstractBody {
+
+	/**
+	 * Interval of the comments sent while there are no events. A failing write detects disconnected clients.
+	 */
+	public static final long KEEP_ALIVE = 15000;
+
+	public static final long MAX_LIFETIME = 5 * 60 * 1000;
+
+	/**
+	 * Reconnection delay sent to the client, in milliseconds.
+	 */
+	static final long RETRY = 1000;
+
+	private final ExchangeEventStream stream;
+	private final Subscriber subscriber;
+	private final long maxLifetime;
+
+	public EventStreamBody(ExchangeEventStream stream, Subscriber subscriber) {
+		this(stream, subscriber, MAX_LIFETIME);
+	}
+
+	EventStreamBody(ExchangeEventStream stream, Subscriber subscriber, long maxLifetime) {
+		this.stream = stream;
+		this.subscriber = subscriber;
+		this.maxLifetime = maxLifetime;
+	}
+
+	@Override
+	protected void readLocal() throws IOException {
+		stream.unsubscribe(subscriber);
+	}
+
+	@Override
+	protected void writeAlreadyRead(AbstractBodyTransferrer out) throws IOException {
+		out.finish();
+	}
+
+	@Override
+	protected void writeNotRead(AbstractBodyTransferrer out) throws IOException {
+		try {
+			write(out, "retry: " + RETRY + "\n\n");
+			long end = System.currentTimeMillis() + maxLifetime;
+			for (long rest = maxLifetime; rest > 0; rest = end - System.currentTimeMillis()) {
+				String events = subscriber.take(Math.min(KEEP_ALIVE, rest));
+				write(out, events == null ? ": keep-alive\n\n" : events);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stream.unsubscribe(subscriber);
+		}
+		out.finish();
+		markAsRead();
+	}
+
+	private static void write(AbstractBodyTransferrer out, String text) throws IOException {
+		byte[] bytes = text.getBytes(Constants.UTF_8_CHARSET);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	@Override
+	protected byte[] getRawLocal() throws IOException {
+		return new byte[0];
+	}
+}
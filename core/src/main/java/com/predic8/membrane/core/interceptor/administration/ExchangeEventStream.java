@@ -0,0 +1,226 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.administration;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.exchange.ExchangesUtil;
+import com.predic8.membrane.core.model.IExchangesStoreListener;
+import com.predic8.membrane.core.rules.Rule;
+
+/**
+ * Publishes a summary of every exchange added to the exchange store as a Server-Sent Event to all
+ * {@link Subscriber}s.
+ *
+ * The summary is serialized once per exchange, and only if there are subscribers. Each subscriber has a bounded
+ * buffer: If a subscriber cannot keep up, its oldest events are dropped, so a slow client never blocks the thread
+ * completing the exchange.
+ *
+ * Each subscriber is served by one worker thread blocked in {@link Subscriber#take(long)} for the lifetime of its
+ * stream ({@link EventStreamBody#MAX_LIFETIME} at most), so the number of subscribers is limited.
+ */
+public class ExchangeEventStream implements IExchangesStoreListener {
+	private static final Logger log = LoggerFactory.getLogger(ExchangeEventStream.class.getName());
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+	private final int maxSubscribers;
+	private final int bufferSize;
+
+	public ExchangeEventStream(int maxSubscribers, int bufferSize) {
+		this.maxSubscribers = maxSubscribers;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @return a new subscriber, or null if there are already too many
+	 */
+	public synchronized Subscriber subscribe() {
+		// subscribers whose response was never written did not poll for a long time
+		long stale = System.currentTimeMillis() - 2 * EventStreamBody.KEEP_ALIVE;
+		for (Subscriber subscriber : subscribers)
+			if (subscriber.lastSeen < stale)
+				subscribers.remove(subscriber);
+
+		if (subscribers.size() >= maxSubscribers)
+			return null;
+		Subscriber subscriber = new Subscriber(bufferSize);
+		subscribers.add(subscriber);
+		return subscriber;
+	}
+
+	public void unsubscribe(Subscriber subscriber) {
+		subscribers.remove(subscriber);
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	@Override
+	public void addExchange(Rule rule, AbstractExchange exc) {
+		if (subscribers.isEmpty())
+			return;
+		String event;
+		try {
+			event = "event: exchange\ndata: " + toJSON(exc) + "\n\n";
+		} catch (Exception e) {
+			log.debug("Could not serialize exchange " + exc.getId() + ": " + e.getMessage());
+			return;
+		}
+		for (Subscriber subscriber : subscribers)
+			subscriber.offer(event);
+	}
+
+	private String toJSON(AbstractExchange exc) throws IOException {
+		StringWriter sw = new StringWriter();
+		JsonGenerator gen = jsonFactory.createGenerator(sw);
+		gen.writeStartObject();
+		gen.writeNumberField("id", exc.getId());
+		gen.writeStringField("time", ExchangesUtil.getTime(exc));
+		gen.writeStringField("proxy", exc.getRule() == null ? null : exc.getRule().toString());
+		gen.writeStringField("method", exc.getRequest() == null ? null : exc.getRequest().getMethod());
+		gen.writeStringField("path", exc.getRequest() == null ? null : exc.getRequest().getUri());
+		if (exc.getResponse() != null)
+			gen.writeNumberField("statusCode", exc.getResponse().getStatusCode());
+		else
+			gen.writeNullField("statusCode");
+		gen.writeStringField("client", exc.getRemoteAddr());
+		// the remaining columns of the console's exchange table, which inserts the summaries directly
+		if (exc.getRule() != null)
+			gen.writeNumberField("listenPort", exc.getRule().getKey().getPort());
+		gen.writeStringField("server", exc.getServer());
+		if (exc.getRequest() != null) {
+			gen.writeStringField("reqContentType", exc.getRequestContentType());
+			writeLength(gen, "reqContentLength", exc.getRequestContentLength());
+		}
+		if (exc.getResponse() != null) {
+			gen.writeStringField("respContentType", exc.getResponseContentType());
+			writeLength(gen, "respContentLength", exc.getResponseContentLength());
+		}
+		gen.writeNumberField("duration", exc.getTimeResReceived() - exc.getTimeReqSent());
+		gen.writeEndObject();
+		gen.close();
+		return sw.toString();
+	}
+
+	private void writeLength(JsonGenerator gen, String name, int length) throws IOException {
+		if (length != -1)
+			gen.writeNumberField(name, length);
+		else
+			gen.writeNullField(name);
+	}
+
+	@Override
+	public void removeExchange(AbstractExchange exchange) {
+	}
+
+	@Override
+	public void removeExchanges(Rule parent, AbstractExchange[] exchanges) {
+	}
+
+	@Override
+	public void removeExchanges(AbstractExchange[] exchanges) {
+	}
+
+	@Override
+	public void setExchangeFinished(AbstractExchange exchange) {
+	}
+
+	@Override
+	public void setExchangeStopped(AbstractExchange exchange) {
+	}
+
+	@Override
+	public void refresh() {
+	}
+
+	/**
+	 * The pending events of one client.
+	 *
+	 * A lock and condition are used instead of the monitor, so that a virtual thread waiting for events does not
+	 * pin its carrier thread.
+	 */
+	public static class Subscriber {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notEmpty = lock.newCondition();
+		private final ArrayDeque<String> events = new ArrayDeque<String>();
+		private final int capacity;
+		private long dropped;
+		private volatile long lastSeen = System.currentTimeMillis();
+
+		Subscriber(int capacity) {
+			this.capacity = capacity;
+		}
+
+		void offer(String event) {
+			lock.lock();
+			try {
+				if (events.size() >= capacity) {
+					events.poll();
+					dropped++;
+				}
+				events.add(event);
+				notEmpty.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Waits until events are available and removes them.
+		 *
+		 * If events were dropped since the last call, a "dropped" event is returned first: The client should then
+		 * reload the exchange list.
+		 *
+		 * @return the pending events, or null if none arrived within <code>timeout</code> milliseconds
+		 */
+		public String take(long timeout) throws InterruptedException {
+			lock.lock();
+			try {
+				lastSeen = System.currentTimeMillis();
+				long rest = TimeUnit.MILLISECONDS.toNanos(timeout);
+				while (events.isEmpty()) {
+					if (rest <= 0)
+						return null;
+					rest = notEmpty.awaitNanos(rest);
+				}
+				lastSeen = System.currentTimeMillis();
+				StringBuilder sb = new StringBuilder();
+				if (dropped > 0) {
+					sb.append("event: dropped\ndata: {\"count\":").append(dropped).append("}\n\n");
+					dropped = 0;
+				}
+				while (!events.isEmpty())
+					sb.append(events.poll());
+				return sb.toString();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
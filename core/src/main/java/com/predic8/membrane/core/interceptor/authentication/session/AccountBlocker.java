@@ -13,11 +13,6 @@
    limitations under the License. */
 package com.predic8.membrane.core.interceptor.authentication.session;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.lang.StringUtils;
@@ -28,6 +23,7 @@ import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.config.AbstractXmlElement;
 import com.predic8.membrane.core.interceptor.authentication.session.CleanupThread.Cleaner;
+import com.predic8.membrane.core.util.ExpiringMap;
 
 /**
  * @description Keeps track of blocked user accounts (accounts become blocked after too many failed logins).
@@ -71,10 +67,16 @@ public class AccountBlocker extends AbstractXmlElement implements Cleaner {
 	private long afterFailedLoginsWithin = Long.MAX_VALUE;
 	private long blockFor = 3600000;
 
-	private HashMap<String, Info> users = new HashMap<String, Info>();
+	private final ExpiringMap<String, Info> users = new ExpiringMap<String, Info>(new ExpiringMap.Expiry<Info>() {
+		@Override
+		public long getExpiresAt(Info info) {
+			return info.getExpiresAt();
+		}
+	});
 
 	private class Info {
 		private final long tries[];
+		private final long created = System.currentTimeMillis();
 		private int current = 0;
 		private long blockedUntil;
 
@@ -98,8 +100,13 @@ public class AccountBlocker extends AbstractXmlElement implements Cleaner {
 				blockedUntil = now + blockFor;
 		}
 
-		public synchronized boolean hasRelevantInformation(long death) {
-			return tries[current] > death;
+		/**
+		 * @return when the failed logins become irrelevant and the account is not blocked anymore
+		 */
+		public synchronized long getExpiresAt() {
+			long lastFail = Math.max(tries[current], created);
+			long expiresAt = lastFail > Long.MAX_VALUE - afterFailedLoginsWithin ? Long.MAX_VALUE : lastFail + afterFailedLoginsWithin;
+			return Math.max(expiresAt, blockedUntil);
 		}
 	}
 
@@ -112,48 +119,35 @@ public class AccountBlocker extends AbstractXmlElement implements Cleaner {
 	}
 
 	public boolean isBlocked(String username) {
-		Info info;
-		synchronized (users) {
-			if (users.size() == blockWholeSystemAfter) {
-				log.error("There are " + blockWholeSystemAfter + " blocked user accounts. To avoid on OutOfMemoryError all accounts have been blocked.");
-				return true;
-			}
-			info = users.get(username);
+		if (users.size() >= blockWholeSystemAfter) {
+			log.error("There are " + blockWholeSystemAfter + " blocked user accounts. To avoid on OutOfMemoryError all accounts have been blocked.");
+			return true;
 		}
+		Info info = users.get(username);
 		if (info == null)
 			return false;
 		return info.isBlocked();
 	}
 
 	public void unblock(String username) {
-		synchronized (users) {
-			users.remove(username);
-		}
+		users.remove(username);
 	}
 
 	public void fail(String username) {
-		Info info, info2 = new Info();
-		synchronized (users) {
-			info = users.get(username);
-			if (info == null) {
-				info = info2;
-				if (users.size() < blockWholeSystemAfter)
-					users.put(username, info);
+		Info info = users.get(username);
+		if (info == null) {
+			info = new Info();
+			if (users.size() < blockWholeSystemAfter) {
+				Info existing = users.putIfAbsent(username, info);
+				if (existing != null)
+					info = existing;
 			}
 		}
 		info.fail();
 	}
 
 	public void cleanup() {
-		List<String> removeUs = new ArrayList<String>();
-		long death = System.currentTimeMillis() - afterFailedLoginsWithin;
-		synchronized (users) {
-			for (Map.Entry<String, Info> e : users.entrySet())
-				if (!e.getValue().hasRelevantInformation(death))
-					removeUs.add(e.getKey());
-			for (String username : removeUs)
-				users.remove(username);
-		}
+		users.expire(System.currentTimeMillis());
 	}
 
 	public int getBlockWholeSystemAfter() {
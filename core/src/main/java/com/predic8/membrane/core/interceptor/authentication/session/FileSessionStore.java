@@ -0,0 +1,228 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.interceptor.authentication.session.SessionManager.Session;
+import com.predic8.membrane.core.resolver.FileSchemaResolver;
+import com.predic8.membrane.core.resolver.ResolverMap;
+import com.predic8.membrane.core.util.FileUtil;
+
+/**
+ * @description Keeps the sessions in memory and saves them to a file, so they survive a restart.
+ * @explanation <p>
+ *              The sessions are saved every minute (if they have been used since they have last been saved) and
+ *              loaded when Membrane starts. Sessions created or modified shortly before Membrane stops might
+ *              therefore be lost.
+ *              </p>
+ *              <p>
+ *              The file is written as JSON and only readable by the user running Membrane, as it contains the
+ *              attributes of authenticated users.
+ *              </p>
+ */
+@MCElement(name="fileSessionStore", topLevel=false)
+public class FileSessionStore extends InMemorySessionStore {
+	private static Logger log = LoggerFactory.getLogger(FileSessionStore.class.getName());
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private String file;
+	/** the file, resolved relative to the router's base location */
+	private File location;
+	private volatile boolean dirty;
+
+	@Override
+	public void init(Router router, SessionManager sessionManager) throws Exception {
+		super.init(router, sessionManager);
+		location = new File(router == null ? file : FileSchemaResolver.normalize(ResolverMap.combine(router.getBaseLocation(), file)));
+		load();
+	}
+
+	@Override
+	public Session get(String id) {
+		Session s = super.get(id);
+		if (s != null)
+			dirty = true; // the session will be touched
+		return s;
+	}
+
+	@Override
+	public void put(String id, Session session) {
+		super.put(id, session);
+		dirty = true;
+	}
+
+	@Override
+	public void remove(String id) {
+		super.remove(id);
+		dirty = true;
+	}
+
+	@Override
+	public void cleanup() {
+		super.cleanup();
+		if (!dirty)
+			return;
+		dirty = false;
+		try {
+			save();
+		} catch (IOException e) {
+			dirty = true;
+			log.error("Could not save sessions to " + location + ".", e);
+		}
+	}
+
+	private void load() throws IOException {
+		if (!location.exists())
+			return;
+		Map<String, Session> saved;
+		InputStream is = new FileInputStream(location);
+		try {
+			saved = read(jsonFactory.createParser(is));
+		} catch (JsonParseException e) {
+			log.warn("Could not read sessions from " + location + ", starting without them.", e);
+			return;
+		} finally {
+			is.close();
+		}
+		for (Map.Entry<String, Session> e : saved.entrySet())
+			sessions.putIfAbsent(e.getKey(), e.getValue());
+		log.info("Loaded " + sessions.size() + " sessions from " + location + ".");
+	}
+
+	private void save() throws IOException {
+		File f = location;
+		File tmp = new File(f.getPath() + ".tmp");
+		if (tmp.exists() && !tmp.delete())
+			throw new IOException("Could not delete " + tmp + ".");
+		OutputStream os = FileUtil.createOwnerOnlyFile(tmp);
+		try {
+			write(jsonFactory.createGenerator(os, JsonEncoding.UTF8), sessions.asMap());
+		} finally {
+			os.close();
+		}
+		if (!tmp.renameTo(f)) {
+			// Windows does not replace existing files
+			if (!f.delete() || !tmp.renameTo(f))
+				throw new IOException("Could not rename " + tmp + " to " + f + ".");
+		}
+	}
+
+	/**
+	 * Writes the sessions as a JSON object mapping the session IDs to the session states.
+	 */
+	static void write(JsonGenerator jg, Map<String, Session> sessions) throws IOException {
+		jg.writeStartObject();
+		for (Map.Entry<String, Session> e : sessions.entrySet()) {
+			Session session = e.getValue();
+			synchronized (session) {
+				jg.writeObjectFieldStart(e.getKey());
+				jg.writeStringField("userName", session.getUserName());
+				jg.writeNumberField("level", session.getLevel());
+				jg.writeNumberField("lastUse", session.getLastUse());
+				jg.writeObjectFieldStart("userAttributes");
+				for (Map.Entry<String, String> a : session.getUserAttributes().entrySet())
+					jg.writeStringField(a.getKey(), a.getValue());
+				jg.writeEndObject();
+				jg.writeEndObject();
+			}
+		}
+		jg.writeEndObject();
+		jg.flush();
+	}
+
+	/**
+	 * Reads sessions written by {@link #write(JsonGenerator, Map)}. Only strings and numbers are read, so the file
+	 * cannot instantiate arbitrary classes.
+	 */
+	static Map<String, Session> read(JsonParser jp) throws IOException {
+		Map<String, Session> result = new HashMap<String, Session>();
+		expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+		while (jp.nextToken() == JsonToken.FIELD_NAME) {
+			String id = jp.getCurrentName();
+			expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+			String userName = null;
+			int level = 0;
+			long lastUse = 0;
+			Map<String, String> userAttributes = new HashMap<String, String>();
+			while (jp.nextToken() == JsonToken.FIELD_NAME) {
+				String field = jp.getCurrentName();
+				JsonToken value = jp.nextToken();
+				if ("userName".equals(field)) {
+					userName = value == JsonToken.VALUE_NULL ? null : jp.getValueAsString();
+				} else if ("level".equals(field)) {
+					expect(jp, value, JsonToken.VALUE_NUMBER_INT);
+					level = jp.getIntValue();
+				} else if ("lastUse".equals(field)) {
+					expect(jp, value, JsonToken.VALUE_NUMBER_INT);
+					lastUse = jp.getLongValue();
+				} else if ("userAttributes".equals(field)) {
+					expect(jp, value, JsonToken.START_OBJECT);
+					while (jp.nextToken() == JsonToken.FIELD_NAME) {
+						String key = jp.getCurrentName();
+						jp.nextToken();
+						userAttributes.put(key, jp.getValueAsString());
+					}
+				} else {
+					jp.skipChildren();
+				}
+			}
+			Session session = new Session();
+			session.restore(userName, level, lastUse, userAttributes);
+			result.put(id, session);
+		}
+		return result;
+	}
+
+	private static void expect(JsonParser jp, JsonToken actual, JsonToken expected) throws JsonParseException {
+		if (actual != expected)
+			throw new JsonParseException("Expected " + expected + ", found " + actual + ".", jp.getCurrentLocation());
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * @description The file the sessions are saved to. A relative path is resolved relative to the location of
+	 *              the configuration file.
+	 * @example sessions.json
+	 */
+	@Required
+	@MCAttribute
+	public void setFile(String file) {
+		this.file = file;
+	}
+}
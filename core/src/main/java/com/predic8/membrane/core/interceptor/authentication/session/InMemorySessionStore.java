@@ -0,0 +1,75 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.interceptor.authentication.session.SessionManager.Session;
+import com.predic8.membrane.core.util.ExpiringMap;
+
+/**
+ * @description Keeps the sessions in memory. This is the default session store.
+ * @explanation <p>
+ *              Expired sessions are removed without scanning all sessions and without blocking other requests.
+ *              </p>
+ */
+@MCElement(name="inMemorySessionStore", topLevel=false)
+public class InMemorySessionStore implements SessionStore {
+	private static Logger log = LoggerFactory.getLogger(InMemorySessionStore.class.getName());
+
+	protected ExpiringMap<String, Session> sessions;
+
+	@Override
+	public void init(Router router, SessionManager sessionManager) throws Exception {
+		final long timeout = sessionManager.getTimeout();
+		sessions = new ExpiringMap<String, Session>(new ExpiringMap.Expiry<Session>() {
+			@Override
+			public long getExpiresAt(Session session) {
+				long lastUse = session.getLastUse();
+				return lastUse > Long.MAX_VALUE - timeout ? Long.MAX_VALUE : lastUse + timeout;
+			}
+		});
+	}
+
+	@Override
+	public Session get(String id) {
+		return sessions.get(id);
+	}
+
+	@Override
+	public void put(String id, Session session) {
+		sessions.put(id, session);
+	}
+
+	@Override
+	public void remove(String id) {
+		sessions.remove(id);
+	}
+
+	@Override
+	public int size() {
+		return sessions.size();
+	}
+
+	@Override
+	public void cleanup() {
+		int removed = sessions.expire(System.currentTimeMillis());
+		if (removed > 0)
+			log.debug("removed " + removed + " expired sessions, " + sessions.size() + " remaining");
+	}
+}
@@ -0,0 +1,219 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import java.util.Hashtable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One LDAP server used by an {@link LDAPUserDataProvider}: Pools the contexts bound as the service account, keeps
+ * track of the server's availability and collects latency statistics.
+ *
+ * A pooled context is only used by one thread at a time. Contexts which have been idle for some time are checked
+ * (by reading the root DSE) before they are handed out again.
+ */
+public class LDAPServer {
+	private static Logger log = LoggerFactory.getLogger(LDAPServer.class.getName());
+
+	/** how long a server is skipped after a connection to it failed */
+	static final long RETRY_AFTER = 30000;
+	/** idle contexts are validated before they are used again */
+	static final long VALIDATE_AFTER = 30000;
+
+	static final class PooledContext {
+		final LDAPServer server;
+		final DirContext ctx;
+		long lastUse;
+
+		PooledContext(LDAPServer server, DirContext ctx) {
+			this.server = server;
+			this.ctx = ctx;
+		}
+	}
+
+	private final String url;
+	private final int maxIdle;
+	private final ConcurrentLinkedQueue<PooledContext> idle = new ConcurrentLinkedQueue<PooledContext>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private volatile long downUntil;
+	private volatile boolean shutdown;
+
+	private final AtomicLong connects = new AtomicLong();
+	private final AtomicLong operations = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	LDAPServer(String url, int maxIdle) {
+		this.url = url;
+		this.maxIdle = maxIdle;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public boolean isAvailable() {
+		return System.currentTimeMillis() >= downUntil;
+	}
+
+	void markDown() {
+		log.warn("LDAP server " + url + " is not available, trying other servers for the next " + RETRY_AFTER / 1000 + " seconds.");
+		downUntil = System.currentTimeMillis() + RETRY_AFTER;
+	}
+
+	/**
+	 * Opens a new context.
+	 *
+	 * @param env the environment, without {@link Context#PROVIDER_URL}
+	 */
+	DirContext connect(Hashtable<String, String> env) throws NamingException {
+		Hashtable<String, String> e = new Hashtable<String, String>(env);
+		e.put(Context.PROVIDER_URL, url);
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			DirContext ctx = new InitialDirContext(e);
+			connects.incrementAndGet();
+			failed = false;
+			return ctx;
+		} catch (AuthenticationException ex) {
+			failed = false; // the server is fine, the credentials are not
+			throw ex;
+		} finally {
+			record(start, failed);
+		}
+	}
+
+	/**
+	 * @return an idle context bound as the service account, or null if there is none
+	 */
+	PooledContext poll() {
+		PooledContext pc;
+		while ((pc = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			if (System.currentTimeMillis() - pc.lastUse < VALIDATE_AFTER || isValid(pc))
+				return pc;
+			close(pc);
+		}
+		return null;
+	}
+
+	private boolean isValid(PooledContext pc) {
+		long start = System.nanoTime();
+		try {
+			pc.ctx.getAttributes("", new String[] { "objectClass" });
+			record(start, false);
+			return true;
+		} catch (NamingException e) {
+			record(start, true);
+			log.debug("Discarding stale connection to " + url + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	void release(PooledContext pc) {
+		pc.lastUse = System.currentTimeMillis();
+		if (!shutdown) {
+			if (idleCount.incrementAndGet() <= maxIdle) {
+				idle.add(pc);
+				if (shutdown)
+					shutdown(); // raced with shutdown()
+				return;
+			}
+			idleCount.decrementAndGet();
+		}
+		close(pc);
+	}
+
+	/**
+	 * Closes all idle contexts. Contexts in use are closed when they are released.
+	 */
+	void shutdown() {
+		shutdown = true;
+		PooledContext pc;
+		while ((pc = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			close(pc);
+		}
+	}
+
+	static void close(PooledContext pc) {
+		try {
+			pc.ctx.close();
+		} catch (NamingException e) {
+			log.debug("", e);
+		}
+	}
+
+	void record(long startNanos, boolean failed) {
+		long nanos = System.nanoTime() - startNanos;
+		operations.incrementAndGet();
+		if (failed)
+			failures.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long current;
+		while ((current = maxNanos.get()) < nanos)
+			if (maxNanos.compareAndSet(current, nanos))
+				break;
+	}
+
+	public long getConnects() {
+		return connects.get();
+	}
+
+	/**
+	 * @return the number of connects, searches and validations
+	 */
+	public long getOperations() {
+		return operations.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	public long getAverageMillis() {
+		long count = getOperations();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count);
+	}
+
+	public long getMaxMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+	}
+
+	public int getIdleConnections() {
+		return idleCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return url + (isAvailable() ? "" : " (unavailable)") + ": " + getOperations() + " operations (" +
+				getFailures() + " failed), " + getConnects() + " connects, average " + getAverageMillis() + "ms, max " +
+				getMaxMillis() + "ms, " + getIdleConnections() + " idle connections";
+	}
+}
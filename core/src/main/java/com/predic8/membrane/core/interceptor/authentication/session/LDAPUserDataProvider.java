@@ -14,28 +14,42 @@
 package com.predic8.membrane.core.interceptor.authentication.session;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import javax.naming.AuthenticationException;
 import javax.naming.CommunicationException;
 import javax.naming.Context;
+import javax.naming.InterruptedNamingException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.DirContext;
-import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Required;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCChildElement;
 import com.predic8.membrane.annot.MCElement;
@@ -83,9 +97,24 @@ import com.predic8.membrane.core.Router;
  *              it is set, an additional request is made after the second successful binding to retrieve the node's
  *              attributes.
  *              </p>
+ *              <p>
+ *              <i>url</i> may contain several LDAP server URLs separated by spaces. A server which cannot be reached
+ *              is skipped for 30 seconds. If a new connection to the first available server has not been established
+ *              within <i>failoverDelay</i> milliseconds, the next server is tried in parallel, and so on: The first
+ *              connection established is used.
+ *              </p>
+ *              <p>
+ *              The connections bound as <i>binddn</i> are pooled (up to <i>maxIdleConnections</i> per server).
+ *              Connections which have been idle for 30 seconds are checked before they are used again.
+ *              </p>
+ *              <p>
+ *              The search results (the user's node and its attributes) are cached for <i>cacheTTL</i> milliseconds.
+ *              The user's password is still checked by the LDAP server on every login. If <i>passwordAttribute</i> is
+ *              used, the search results contain the password and are therefore not cached.
+ *              </p>
  */
 @MCElement(name="ldapUserDataProvider", topLevel=false)
-public class LDAPUserDataProvider implements UserDataProvider {
+public class LDAPUserDataProvider implements UserDataProvider, DisposableBean {
 
 	private static Logger log = LoggerFactory.getLogger(LDAPUserDataProvider.class.getName());
 
@@ -101,6 +130,30 @@ public class LDAPUserDataProvider implements UserDataProvider {
 	boolean readAttributesAsSelf = true; // whether reading the user's attributes requires authentication
 	HashMap<String, String> attributeMap = new HashMap<String, String>(); // maps LDAP attributes to TokenGenerator attributes
 	AttributeMap map;
+	int maxIdleConnections = 8;
+	long failoverDelay = 200;
+	int cacheSize = 1000;
+	long cacheTTL = 60000;
+	String contextFactory = "com.sun.jndi.ldap.LdapCtxFactory";
+
+	private List<LDAPServer> servers;
+	private ExecutorService connector;
+	private Cache<String, SearchResultEntry> searchResults;
+
+	/**
+	 * The result of the search for a user.
+	 */
+	private static class SearchResultEntry {
+		final LDAPServer server;
+		final String uid;
+		final Map<String, String> userAttrs;
+
+		SearchResultEntry(LDAPServer server, String uid, Map<String, String> userAttrs) {
+			this.server = server;
+			this.uid = uid;
+			this.userAttrs = userAttrs;
+		}
+	}
 
 	@MCElement(name="map", topLevel=false, id="ldapUserDataProvider-map")
 	public static class AttributeMap {
@@ -151,26 +204,15 @@ public class LDAPUserDataProvider implements UserDataProvider {
 	 * @throws NamingException on any other LDAP error
 	 */
 	private HashMap<String, String> auth(String login, String password) throws NamingException {
-		Hashtable<String, String> env = new Hashtable<String, String>();
-		env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-		env.put(Context.PROVIDER_URL, url);
-		env.put("com.sun.jndi.ldap.read.timeout", timeout);
-		env.put("com.sun.jndi.ldap.connect.timeout", connectTimeout);
-		if (binddn != null) {
-			env.put(Context.SECURITY_AUTHENTICATION, "simple");
-			env.put(Context.SECURITY_PRINCIPAL, binddn);
-			env.put(Context.SECURITY_CREDENTIALS, bindpw);
+		SearchResultEntry user = searchResults == null ? null : searchResults.getIfPresent(login);
+		boolean cached = user != null;
+		if (!cached) {
+			user = search(login);
+			if (searchResults != null)
+				searchResults.put(login, user);
 		}
 
-		HashMap<String, String> userAttrs = new HashMap<String, String>();
-		String uid;
-
-		DirContext ctx = new InitialDirContext(env);
-		try {
-			uid = searchUser(login, userAttrs, ctx);
-		} finally {
-			ctx.close();
-		}
+		HashMap<String, String> userAttrs = new HashMap<String, String>(user.userAttrs);
 
 		if (passwordAttribute != null) {
 			if (!userAttrs.containsKey("_pass"))
@@ -184,13 +226,24 @@ public class LDAPUserDataProvider implements UserDataProvider {
 				throw new NoSuchElementException();
 			userAttrs.remove("_pass");
 		} else {
+			Hashtable<String, String> env = createEnvironment();
 			env.put(Context.SECURITY_AUTHENTICATION, "simple");
-			env.put(Context.SECURITY_PRINCIPAL, uid + "," + base);
+			env.put(Context.SECURITY_PRINCIPAL, user.uid + "," + base);
 			env.put(Context.SECURITY_CREDENTIALS, password);
-			DirContext ctx2 = new InitialDirContext(env);
+			DirContext ctx2;
+			try {
+				ctx2 = user.server.connect(env);
+			} catch (NamingException e) {
+				if (!cached || !isConnectionFailure(e))
+					throw e;
+				// the server the user has been found on is not available anymore
+				user.server.markDown();
+				searchResults.invalidate(login);
+				return auth(login, password);
+			}
 			try {
 				if (readAttributesAsSelf)
-					searchUser(login, userAttrs, ctx2);
+					searchUser(login, userAttrs, ctx2, user.server);
 			} finally {
 				ctx2.close();
 			}
@@ -198,15 +251,166 @@ public class LDAPUserDataProvider implements UserDataProvider {
 		return userAttrs;
 	}
 
+	private static boolean isConnectionFailure(NamingException e) {
+		return e instanceof CommunicationException || e instanceof ServiceUnavailableException;
+	}
+
+	private Hashtable<String, String> createEnvironment() {
+		Hashtable<String, String> env = new Hashtable<String, String>();
+		env.put(Context.INITIAL_CONTEXT_FACTORY, contextFactory);
+		env.put("com.sun.jndi.ldap.read.timeout", timeout);
+		env.put("com.sun.jndi.ldap.connect.timeout", connectTimeout);
+		return env;
+	}
+
+	private Hashtable<String, String> createServiceEnvironment() {
+		Hashtable<String, String> env = createEnvironment();
+		if (binddn != null) {
+			env.put(Context.SECURITY_AUTHENTICATION, "simple");
+			env.put(Context.SECURITY_PRINCIPAL, binddn);
+			env.put(Context.SECURITY_CREDENTIALS, bindpw);
+		}
+		return env;
+	}
+
+	/**
+	 * Searches the user using a pooled service account connection. A pooled connection which turns out to be
+	 * broken is discarded and the search is retried once.
+	 */
+	private SearchResultEntry search(String login) throws NamingException {
+		for (int attempt = 0; ; attempt++) {
+			LDAPServer.PooledContext pc = getServiceContext();
+			boolean reusable = false;
+			try {
+				HashMap<String, String> userAttrs = new HashMap<String, String>();
+				String uid = searchUser(login, userAttrs, pc.ctx, pc.server);
+				reusable = true;
+				return new SearchResultEntry(pc.server, uid, Collections.unmodifiableMap(userAttrs));
+			} catch (NoSuchElementException e) {
+				reusable = true;
+				throw e;
+			} catch (NamingException e) {
+				if (attempt > 0 || !isConnectionFailure(e))
+					throw e;
+				log.debug("Retrying search after failure on " + pc.server.getUrl() + ": " + e.getMessage());
+			} finally {
+				if (reusable)
+					pc.server.release(pc);
+				else
+					LDAPServer.close(pc);
+			}
+		}
+	}
+
+	/**
+	 * @return an idle service account connection to the first available server having one, or else a new
+	 *         connection
+	 */
+	private LDAPServer.PooledContext getServiceContext() throws NamingException {
+		for (LDAPServer server : servers) {
+			if (!server.isAvailable())
+				continue;
+			LDAPServer.PooledContext pc = server.poll();
+			if (pc != null)
+				return pc;
+		}
+		return connectToAnyServer();
+	}
+
+	/**
+	 * Connects to the available servers in order, starting the next attempt after {@link #failoverDelay}
+	 * milliseconds (or as soon as the previous attempt failed). The first connection established is returned,
+	 * connections established later are added to their server's pool.
+	 */
+	private LDAPServer.PooledContext connectToAnyServer() throws NamingException {
+		List<LDAPServer> candidates = new ArrayList<LDAPServer>();
+		for (LDAPServer server : servers)
+			if (server.isAvailable())
+				candidates.add(server);
+		if (candidates.isEmpty())
+			candidates.addAll(servers);
+
+		final Hashtable<String, String> env = createServiceEnvironment();
+		if (candidates.size() == 1)
+			return connect(candidates.get(0), env);
+
+		AtomicBoolean established = new AtomicBoolean();
+		ExecutorCompletionService<LDAPServer.PooledContext> ecs = new ExecutorCompletionService<LDAPServer.PooledContext>(connector);
+		int submitted = 0, failed = 0;
+		submitConnect(ecs, candidates.get(submitted++), env, established);
+		try {
+			while (true) {
+				Future<LDAPServer.PooledContext> f;
+				if (submitted < candidates.size()) {
+					f = ecs.poll(failoverDelay, TimeUnit.MILLISECONDS);
+					if (f == null) {
+						submitConnect(ecs, candidates.get(submitted++), env, established);
+						continue;
+					}
+				} else {
+					f = ecs.take();
+				}
+				try {
+					LDAPServer.PooledContext pc = f.get();
+					if (pc != null)
+						return pc;
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof NamingException))
+						throw new RuntimeException(e.getCause());
+					if (++failed == candidates.size())
+						throw (NamingException) e.getCause();
+					if (failed == submitted)
+						submitConnect(ecs, candidates.get(submitted++), env, established);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedNamingException("Interrupted while connecting to LDAP.");
+		}
+	}
+
+	private void submitConnect(ExecutorCompletionService<LDAPServer.PooledContext> ecs, final LDAPServer server,
+			final Hashtable<String, String> env, final AtomicBoolean established) {
+		ecs.submit(new Callable<LDAPServer.PooledContext>() {
+			@Override
+			public LDAPServer.PooledContext call() throws Exception {
+				LDAPServer.PooledContext pc = connect(server, env);
+				if (established.compareAndSet(false, true))
+					return pc;
+				// another server has been faster
+				server.release(pc);
+				return null;
+			}
+		});
+	}
+
+	private LDAPServer.PooledContext connect(LDAPServer server, Hashtable<String, String> env) throws NamingException {
+		try {
+			return new LDAPServer.PooledContext(server, server.connect(env));
+		} catch (NamingException e) {
+			if (isConnectionFailure(e))
+				server.markDown();
+			throw e;
+		}
+	}
+
 	private String searchUser(String login, HashMap<String, String> userAttrs,
-			DirContext ctx) throws NamingException {
+			DirContext ctx, LDAPServer server) throws NamingException {
 		String uid;
 		SearchControls ctls = new SearchControls();
 		ctls.setReturningObjFlag(true);
 		ctls.setSearchScope(searchScope);
 		String search = searchPattern.replaceAll(Pattern.quote("%LOGIN%"), escapeLDAPSearchFilter(login));
 		log.debug("Searching LDAP for " + search);
-		NamingEnumeration<SearchResult> answer = ctx.search(base, search, ctls);
+		long start = System.nanoTime();
+		NamingEnumeration<SearchResult> answer;
+		try {
+			answer = ctx.search(base, search, ctls);
+		} catch (NamingException e) {
+			server.record(start, true);
+			throw e;
+		}
+		server.record(start, false);
 		try {
 			if (!answer.hasMore())
 				throw new NoSuchElementException();
@@ -407,6 +611,90 @@ public class LDAPUserDataProvider implements UserDataProvider {
 		if (passwordAttribute != null) {
 			attributeMap.put(passwordAttribute, "_pass");
 		}
+
+		servers = new ArrayList<LDAPServer>();
+		for (String u : url.trim().split("\\s+"))
+			servers.add(new LDAPServer(u, maxIdleConnections));
+		connector = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "LDAP Connector");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// search results are not cached if they contain the password
+		if (cacheSize > 0 && cacheTTL > 0 && passwordAttribute == null)
+			searchResults = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTTL, TimeUnit.MILLISECONDS).build();
+	}
+
+	@Override
+	public void destroy() {
+		if (connector != null)
+			connector.shutdownNow();
+		if (servers != null)
+			for (LDAPServer server : servers)
+				server.shutdown();
+	}
+
+	/**
+	 * @return the LDAP servers, including their statistics
+	 */
+	public List<LDAPServer> getServers() {
+		return servers;
+	}
+
+	public int getMaxIdleConnections() {
+		return maxIdleConnections;
+	}
+
+	/**
+	 * @description The maximum number of idle connections bound as <i>binddn</i> kept per LDAP server.
+	 * @default 8
+	 */
+	@MCAttribute
+	public void setMaxIdleConnections(int maxIdleConnections) {
+		this.maxIdleConnections = maxIdleConnections;
+	}
+
+	public long getFailoverDelay() {
+		return failoverDelay;
+	}
+
+	/**
+	 * @description Milliseconds to wait for a connection to an LDAP server before the next server is tried in
+	 *              parallel.
+	 * @default 200
+	 */
+	@MCAttribute
+	public void setFailoverDelay(long failoverDelay) {
+		this.failoverDelay = failoverDelay;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * @description The maximum number of cached search results. 0 disables the cache.
+	 * @default 1000
+	 */
+	@MCAttribute
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public long getCacheTTL() {
+		return cacheTTL;
+	}
+
+	/**
+	 * @description Milliseconds a search result is cached. 0 disables the cache.
+	 * @default 60000
+	 */
+	@MCAttribute
+	public void setCacheTTL(long cacheTTL) {
+		this.cacheTTL = cacheTTL;
 	}
 
 	public AttributeMap getMap() {
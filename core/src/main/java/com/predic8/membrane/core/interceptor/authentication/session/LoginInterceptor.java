@@ -15,6 +15,7 @@ package com.predic8.membrane.core.interceptor.authentication.session;
 
 import java.util.Map;
 
+import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
@@ -169,6 +170,23 @@ public class LoginInterceptor extends AbstractInterceptor {
 		return super.handleResponse(exc);
 	}
 
+	@Override
+	public String getShortDescription() {
+		return "Authenticates users using a login dialog.";
+	}
+
+	@Override
+	public String getLongDescription() {
+		StringBuilder sb = new StringBuilder(getShortDescription());
+		if (userDataProvider instanceof LDAPUserDataProvider && ((LDAPUserDataProvider) userDataProvider).getServers() != null) {
+			sb.append("<br/>LDAP servers:<ul>");
+			for (LDAPServer server : ((LDAPUserDataProvider) userDataProvider).getServers())
+				sb.append("<li>").append(StringEscapeUtils.escapeHtml(server.toString())).append("</li>");
+			sb.append("</ul>");
+		}
+		return sb.toString();
+	}
+
 	public String getLocation() {
 		return location;
 	}
@@ -13,18 +13,16 @@
    limitations under the License. */
 package com.predic8.membrane.core.interceptor.authentication.session;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import javax.xml.stream.XMLStreamReader;
 
-import com.github.fge.jsonschema.core.keyword.syntax.checkers.common.ExclusiveMaximumSyntaxChecker;
 import org.apache.commons.lang.StringUtils;
 
 import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCChildElement;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.Router;
 import com.predic8.membrane.core.config.AbstractXmlElement;
@@ -44,6 +42,9 @@ import com.predic8.membrane.core.interceptor.authentication.session.CleanupThrea
  *              The session timeout can be specified in milliseconds using the <i>timeout</i> attribute. The default
  *              timeout is 5 minutes.
  *              </p>
+ *              <p>
+ *              The sessions are kept in a <i>sessionStore</i>. By default, they are kept in memory.
+ *              </p>
  */
 @MCElement(name="sessionManager", topLevel=false)
 public class SessionManager extends AbstractXmlElement implements Cleaner {
@@ -52,7 +53,7 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	private String domain;
 
 	// TODO: bind session also to remote IP (for public Membrane release)
-	HashMap<String, Session> sessions = new HashMap<String, SessionManager.Session>();
+	private SessionStore sessionStore;
 	private final static String SESSION_ID = "SESSION_ID";
 	private final static String SESSION = "SESSION";
 
@@ -63,9 +64,12 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 		domain = token.getAttributeValue("", "domain");
 	}
 
-	public void init(Router router) {
+	public void init(Router router) throws Exception {
 		cookieName = StringUtils.defaultIfEmpty(cookieName, "SESSIONID");
 		timeout = timeout == 0 ? 300000 : timeout;
+		if (sessionStore == null)
+			sessionStore = new InMemorySessionStore();
+		sessionStore.init(router, this);
 	}
 
 	/**
@@ -88,7 +92,7 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	public static class Session {
 		private Map<String, String> userAttributes = new HashMap<String, String>();
 		private int level = 0;
-		private long lastUse;
+		private long lastUse = System.currentTimeMillis();
 		private String userName;
 
 		public synchronized boolean isAuthorized() {
@@ -133,6 +137,20 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
             getUserAttributes().remove("password");
             getUserAttributes().remove("client_secret");
         }
+
+		synchronized int getLevel() {
+			return level;
+		}
+
+		/**
+		 * Restores the state of a session saved by a {@link SessionStore}.
+		 */
+		synchronized void restore(String userName, int level, long lastUse, Map<String, String> userAttributes) {
+			this.userName = userName;
+			this.level = level;
+			this.lastUse = lastUse;
+			this.userAttributes = userAttributes;
+		}
 	}
 
 	private String generateSessionID() {
@@ -151,10 +169,7 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	}
 
 	private Session getSession(String id){
-		Session s;
-		synchronized (sessions) {
-			s = sessions.get(id);
-		}
+		Session s = sessionStore.get(id);
 		if (s != null) {
 			s.touch();
 		}
@@ -169,9 +184,7 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	private Session createSession(Exchange exc, String id)
 	{
 		Session s = new Session();
-		synchronized (sessions) {
-			sessions.put(id, s);
-		}
+		sessionStore.put(id, s);
 		String cookieValue = id + "; " +
 				(domain != null ? "Domain=" + domain + "; " : "") +
 				"Path=/" +
@@ -185,15 +198,7 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	}
 
 	public void cleanup() {
-		long death = System.currentTimeMillis() - timeout;
-		List<String> removeUs = new ArrayList<String>();
-		synchronized (sessions) {
-			for (Map.Entry<String, Session> e : sessions.entrySet())
-				if (e.getValue().getLastUse() < death)
-					removeUs.add(e.getKey());
-			for (String sessionId : removeUs)
-				sessions.remove(sessionId);
-		}
+		sessionStore.cleanup();
 	}
 
 	public String getCookieName() {
@@ -222,4 +227,16 @@ public class SessionManager extends AbstractXmlElement implements Cleaner {
 	public void setDomain(String domain) {
 		this.domain = domain;
 	}
+
+	public SessionStore getSessionStore() {
+		return sessionStore;
+	}
+
+	/**
+	 * @description Where the sessions are kept. (By default, they are kept in memory.)
+	 */
+	@MCChildElement
+	public void setSessionStore(SessionStore sessionStore) {
+		this.sessionStore = sessionStore;
+	}
 }
@@ -0,0 +1,52 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.interceptor.authentication.session.SessionManager.Session;
+
+/**
+ * Stores the sessions of a {@link SessionManager}.
+ *
+ * Implementations have to be thread-safe. A session expires, if it has not been used (see
+ * {@link Session#getLastUse()}) within the session manager's timeout. Expired sessions must not be returned.
+ *
+ * Sessions are modified after they have been stored (when the user logs in and every time they are used). A store
+ * shared by several Membrane instances therefore has to return instances of a subclass of {@link Session} which
+ * write their changes through to the shared backend.
+ */
+public interface SessionStore {
+
+	public void init(Router router, SessionManager sessionManager) throws Exception;
+
+	/**
+	 * @return the session, or null if there is no such session or it has expired
+	 */
+	public Session get(String id);
+
+	public void put(String id, Session session);
+
+	public void remove(String id);
+
+	/**
+	 * @return the number of sessions (which may include expired sessions not removed yet)
+	 */
+	public int size();
+
+	/**
+	 * Called periodically to remove expired sessions.
+	 */
+	public void cleanup();
+}
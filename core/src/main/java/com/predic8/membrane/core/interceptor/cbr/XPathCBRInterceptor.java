@@ -20,12 +20,21 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
+import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
 import com.googlecode.jatl.Html;
@@ -48,10 +57,23 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 	private List<Case> cases = new ArrayList<Case>();
 	private Map<String, String> namespaces;
 
+	/**
+	 * Pool of compiled case expressions (XPathExpression is not thread-safe), one array per concurrent request.
+	 * Replaced when the cases or namespaces change.
+	 */
+	private volatile ConcurrentLinkedQueue<XPathExpression[]> compiledCases = new ConcurrentLinkedQueue<XPathExpression[]>();
+	private final ConcurrentLinkedQueue<DocumentBuilder> documentBuilders = new ConcurrentLinkedQueue<DocumentBuilder>();
+
 	public XPathCBRInterceptor() {
 		name = "Content Based Router";
 	}
 
+	@Override
+	public void init() throws Exception {
+		super.init();
+		compiledCases.offer(compileCases()); // to throw XPathExpressionException early
+	}
+
 	@Override
 	public Outcome handleRequest(Exchange exc) throws Exception {
 		if (exc.getRequest().isBodyEmpty()) {
@@ -75,15 +97,59 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 	}
 
 	private Case findRoute(Request request) throws Exception {
-		for (Case r : cases) {
-			//TODO getBodyAsStream creates ByteArray each call. That could be a performance issue. Using BufferedInputStream did't work, because stream got closed.
-			InputSource is = new InputSource(request.getBodyAsStreamDecoded());
-			is.setEncoding(request.getCharset());
-			if ( (Boolean) newXPath(namespaces).evaluate(r.getxPath(), is, XPathConstants.BOOLEAN) )
-				return r;
-			log.debug("no match found for xpath {"+r.getxPath()+"}");
+		if (cases.isEmpty())
+			return null;
+
+		// the body is parsed only once for all cases
+		InputSource is = new InputSource(request.getBodyAsStreamDecoded());
+		is.setEncoding(request.getCharset());
+		DocumentBuilder db = documentBuilders.poll();
+		if (db == null)
+			db = createDocumentBuilder();
+		Document doc;
+		try {
+			doc = db.parse(is);
+		} finally {
+			db.reset();
+			documentBuilders.offer(db);
 		}
-		return null;
+
+		ConcurrentLinkedQueue<XPathExpression[]> pool = compiledCases;
+		XPathExpression[] expressions = pool.poll();
+		if (expressions == null)
+			expressions = compileCases();
+		try {
+			for (int i = 0; i < expressions.length; i++) {
+				if ((Boolean) expressions[i].evaluate(doc, XPathConstants.BOOLEAN))
+					return cases.get(i);
+				log.debug("no match found for xpath {"+cases.get(i).getxPath()+"}");
+			}
+			return null;
+		} finally {
+			pool.offer(expressions);
+		}
+	}
+
+	private XPathExpression[] compileCases() throws XPathExpressionException {
+		XPath xPath = newXPath(namespaces);
+		XPathExpression[] res = new XPathExpression[cases.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = xPath.compile(cases.get(i).getxPath());
+		return res;
+	}
+
+	private static DocumentBuilder createDocumentBuilder() throws ParserConfigurationException {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		dbf.setExpandEntityReferences(false);
+		// request bodies are untrusted: no DTDs, so no external or recursive entities
+		dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+		dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+		dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		dbf.setXIncludeAware(false);
+		return dbf.newDocumentBuilder();
 	}
 
 	public Map<String, String> getNamespaces() {
@@ -92,6 +158,7 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 
 	public void setNamespaces(Map<String, String> namespaces) {
 		this.namespaces = namespaces;
+		compiledCases = new ConcurrentLinkedQueue<XPathExpression[]>();
 	}
 
 	/**
@@ -101,6 +168,7 @@ public class XPathCBRInterceptor extends AbstractInterceptor {
 	@MCChildElement
 	public void setCases(List<Case> cases) {
 		this.cases = cases;
+		compiledCases = new ConcurrentLinkedQueue<XPathExpression[]>();
 	}
 
 	public List<Case> getCases() {
@@ -30,7 +30,8 @@ import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.interceptor.InterceptorFlowController;
 import com.predic8.membrane.core.interceptor.Outcome;
 import com.predic8.membrane.core.lang.LanguageSupport;
-import com.predic8.membrane.core.lang.groovy.GroovyLanguageSupport;
+import com.predic8.membrane.core.lang.ScriptExecutorPool;
+import com.predic8.membrane.core.lang.simple.SimpleLanguageSupport;
 
 /**
  * @description
@@ -46,6 +47,11 @@ import com.predic8.membrane.core.lang.groovy.GroovyLanguageSupport;
  * <li>'evaluate condition always during request handling already' (even when 'if' is nested in 'response')</li>
  * <li>What happens to ABORT handling of interceptor A in <code>&lt;request&gt;&lt;if test="..."&gt;&lt;A /&gt;&lt;/if&gt;&lt;/response&gt;</code></li>
  * </ul>
+ * <p>
+ * Simple conditions (comparisons of properties, method results and literals combined by <code>&amp;&amp;</code>,
+ * <code>||</code> and <code>!</code>) are evaluated without invoking Groovy. The functions
+ * <code>jsonPath('$.a.b')</code> and <code>xpath('/a/b')</code> return values from the body of the current message.
+ * </p>
  */
 @MCElement(name="if")
 public class ConditionalInterceptor extends AbstractFlowInterceptor {
@@ -70,7 +76,8 @@ public class ConditionalInterceptor extends AbstractFlowInterceptor {
 	@Override
 	public void init(Router router) throws Exception {
 		super.init(router);
-		LanguageSupport ls = new GroovyLanguageSupport();
+		// simple conditions are evaluated without Groovy
+		LanguageSupport ls = new SimpleLanguageSupport();
 		condition = ls.compileExpression(router, test);
 	}
 
@@ -130,4 +137,12 @@ public class ConditionalInterceptor extends AbstractFlowInterceptor {
 		return ret;
 	}
 
+	@Override
+	public String getLongDescription() {
+		String ret = getShortDescription();
+		if (condition instanceof ScriptExecutorPool)
+			ret += "<br/>Condition statistics: " + ((ScriptExecutorPool<?, ?>) condition).getStatistics();
+		return ret;
+	}
+
 }
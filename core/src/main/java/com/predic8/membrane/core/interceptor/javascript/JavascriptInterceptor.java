@@ -21,6 +21,7 @@ import com.predic8.membrane.core.http.Request;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
 import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.lang.ScriptExecutorPool;
 import com.predic8.membrane.core.lang.javascript.JavascriptLanguageSupport;
 import com.predic8.membrane.core.util.ClassFinder;
 import com.predic8.membrane.core.util.TextUtil;
@@ -163,6 +164,8 @@ public class JavascriptInterceptor extends AbstractInterceptor {
         sb.append(":<br/><pre style=\"overflow-x:auto\">");
         sb.append(StringEscapeUtils.escapeHtml(TextUtil.removeCommonLeadingIndentation(src)));
         sb.append("</pre>");
+        if (script instanceof ScriptExecutorPool)
+            sb.append("Statistics: " + ((ScriptExecutorPool<?, ?>) script).getStatistics());
         return sb.toString();
     }
 }
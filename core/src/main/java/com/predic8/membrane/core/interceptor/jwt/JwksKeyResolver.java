@@ -0,0 +1,281 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.jwt;
+
+import java.io.IOException;
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.VerificationJwkSelector;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.transport.http.HttpClient;
+
+/**
+ * Resolves the keys verifying JWS signatures from a JSON Web Key Set published at a URL.
+ *
+ * One instance is shared by all threads verifying tokens for an interceptor. The key set is fetched with the
+ * interceptor's {@link HttpClient} (so its configuration, e.g. proxies and TLS settings, applies) and kept for the
+ * <tt>max-age</tt> of its <tt>Cache-Control</tt> header (one hour, if there is none). Shortly before it goes stale,
+ * it is refreshed in the background while the current keys are still used. If a signature refers to an unknown
+ * key, the key set is refetched immediately (the provider might have rotated its keys).
+ *
+ * Fetches are rate-limited: No matter how many requests carry unknown key IDs, the key set is fetched at most once
+ * every {@link #MIN_REFRESH_INTERVAL} milliseconds. If a fetch fails, the previous keys are kept.
+ *
+ * Only one thread fetches at a time, and it holds no lock while doing so: Other threads keep using the previous keys
+ * in the meantime; only if there are none yet, they wait for the fetch to complete.
+ */
+public class JwksKeyResolver implements VerificationKeyResolver {
+	private static final Logger log = LoggerFactory.getLogger(JwksKeyResolver.class.getName());
+
+	static final long DEFAULT_MAX_AGE = 60 * 60 * 1000;
+	static final long MIN_REFRESH_INTERVAL = 30 * 1000;
+
+	private static final ExecutorService refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "JWKS Refresher");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	static final class KeySet {
+		final List<JsonWebKey> keys;
+		final long fetched;
+		/** when the key set should be refreshed in the background */
+		final long refreshAt;
+
+		KeySet(List<JsonWebKey> keys, long fetched, long maxAge) {
+			this.keys = keys;
+			this.fetched = fetched;
+			this.refreshAt = fetched + maxAge / 10 * 9;
+		}
+	}
+
+	private final String url;
+	private final HttpClient client;
+	private final long minRefreshInterval;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicReference<KeySet> keySet = new AtomicReference<KeySet>();
+	/** the fetch in progress */
+	private final AtomicReference<FutureTask<KeySet>> pending = new AtomicReference<FutureTask<KeySet>>();
+	/** written by the thread running the pending fetch only */
+	private volatile long lastAttempt;
+	private final AtomicLong fetches = new AtomicLong();
+
+	public JwksKeyResolver(String url, HttpClient client) {
+		this(url, client, MIN_REFRESH_INTERVAL);
+	}
+
+	JwksKeyResolver(String url, HttpClient client, long minRefreshInterval) {
+		this.url = url;
+		this.client = client;
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the number of times the key set has been fetched (successfully or not)
+	 */
+	public long getFetches() {
+		return fetches.get();
+	}
+
+	@Override
+	public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException {
+		KeySet ks = keySet.get();
+		if (ks == null)
+			ks = refresh(null);
+		else if (System.currentTimeMillis() >= ks.refreshAt)
+			refreshInBackground(ks);
+
+		JsonWebKey key = select(jws, ks);
+		if (key == null) {
+			KeySet fresh = refresh(ks);
+			if (fresh != ks)
+				key = select(jws, fresh);
+		}
+		if (key == null)
+			throw new UnresolvableKeyException("No key in " + url + " matches the signature (kid=" + jws.getKeyIdHeaderValue() + ").");
+		return key.getKey();
+	}
+
+	private JsonWebKey select(JsonWebSignature jws, KeySet ks) throws UnresolvableKeyException {
+		try {
+			return new VerificationJwkSelector().select(jws, ks.keys);
+		} catch (JoseException e) {
+			throw new UnresolvableKeyException("Could not select a key from " + url + ".", e);
+		}
+	}
+
+	private void refreshInBackground(final KeySet known) {
+		if (!mayFetch(System.currentTimeMillis()) || !refreshing.compareAndSet(false, true))
+			return;
+		refresher.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					refresh(known);
+				} catch (UnresolvableKeyException e) {
+					// already logged
+				} finally {
+					refreshing.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fetches the key set, unless another thread already did since <tt>known</tt> was fetched or the last attempt
+	 * was too recent.
+	 *
+	 * @param known the key set the caller is unhappy with, or null if there is none
+	 * @return the current key set
+	 * @throws UnresolvableKeyException if there is no key set at all
+	 */
+	KeySet refresh(final KeySet known) throws UnresolvableKeyException {
+		KeySet current = keySet.get();
+		if (current != null && current != known)
+			return current;
+		FutureTask<KeySet> task = pending.get();
+		if (task == null && mayFetch(System.currentTimeMillis())) {
+			FutureTask<KeySet> mine = new FutureTask<KeySet>(new Callable<KeySet>() {
+				@Override
+				public KeySet call() throws Exception {
+					return fetchKeySet(known);
+				}
+			});
+			if (pending.compareAndSet(null, mine)) {
+				try {
+					mine.run();
+				} finally {
+					pending.set(null);
+				}
+				return await(mine);
+			}
+			task = pending.get();
+		}
+		// another thread is fetching or the last attempt was too recent
+		if (current != null)
+			return current;
+		if (task != null)
+			return await(task);
+		current = keySet.get();
+		if (current == null)
+			throw new UnresolvableKeyException("The key set " + url + " is not available.");
+		return current;
+	}
+
+	private boolean mayFetch(long now) {
+		return lastAttempt == 0 || now - lastAttempt >= minRefreshInterval;
+	}
+
+	/**
+	 * Runs in the thread owning {@link #pending}.
+	 */
+	private KeySet fetchKeySet(KeySet known) throws UnresolvableKeyException {
+		// another fetch might have completed since the caller looked
+		KeySet current = keySet.get();
+		if (current != null && current != known)
+			return current;
+		long now = System.currentTimeMillis();
+		if (!mayFetch(now)) {
+			if (current == null)
+				throw new UnresolvableKeyException("The key set " + url + " is not available.");
+			return current;
+		}
+		lastAttempt = now;
+		fetches.incrementAndGet();
+		try {
+			Response response = fetch();
+			if (response.getStatusCode() != 200)
+				throw new IOException("Status code " + response.getStatusCode() + ".");
+			List<JsonWebKey> keys = new JsonWebKeySet(response.getBodyAsStringDecoded()).getJsonWebKeys();
+			KeySet fresh = new KeySet(keys, now, getMaxAge(response));
+			if (!keySet.compareAndSet(current, fresh))
+				return keySet.get();
+			log.debug("Fetched " + keys.size() + " keys from " + url + ".");
+			return fresh;
+		} catch (Exception e) {
+			log.warn("Could not fetch the key set " + url + ": " + e.getMessage());
+			if (current == null)
+				throw new UnresolvableKeyException("The key set " + url + " is not available.", e);
+			return current;
+		}
+	}
+
+	private KeySet await(FutureTask<KeySet> task) throws UnresolvableKeyException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UnresolvableKeyException("Interrupted while fetching the key set " + url + ".", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UnresolvableKeyException)
+				throw (UnresolvableKeyException) e.getCause();
+			throw new UnresolvableKeyException("The key set " + url + " is not available.", e.getCause());
+		}
+	}
+
+	protected Response fetch() throws Exception {
+		Response response = client.call(new Request.Builder().get(url).buildExchange()).getResponse();
+		response.readBody();
+		return response;
+	}
+
+	static long getMaxAge(Response response) {
+		String cacheControl = response.getHeader().getFirstValue(Header.CACHE_CONTROL);
+		if (cacheControl == null)
+			return DEFAULT_MAX_AGE;
+		for (String directive : cacheControl.split(",")) {
+			directive = directive.trim().toLowerCase();
+			if (directive.equals("no-cache") || directive.equals("no-store"))
+				return MIN_REFRESH_INTERVAL;
+			if (directive.startsWith("max-age=")) {
+				try {
+					return Math.max(Long.parseLong(directive.substring(8).trim()) * 1000, MIN_REFRESH_INTERVAL);
+				} catch (NumberFormatException e) {
+					return DEFAULT_MAX_AGE;
+				}
+			}
+		}
+		return DEFAULT_MAX_AGE;
+	}
+}
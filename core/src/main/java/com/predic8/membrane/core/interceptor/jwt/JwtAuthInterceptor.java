@@ -0,0 +1,175 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.jwt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.AbstractInterceptor;
+import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.transport.http.HttpClient;
+import com.predic8.membrane.core.transport.http.client.HttpClientConfiguration;
+
+/**
+ * @description Grants access to requests carrying a valid JSON Web Token as bearer token. Tokens are verified
+ *              locally using the keys published by the issuer: No request is sent to the issuer per token.
+ * @explanation <p>
+ *              The token must be signed by one of the keys of the JSON Web Key Set <i>jwks</i> and must not have
+ *              expired. If <i>issuer</i> or <i>audience</i> are set, the token's 'iss' and 'aud' claims must match.
+ *              </p>
+ *              <p>
+ *              The key set is fetched once and cached according to its Cache-Control header. It is refreshed in
+ *              the background and whenever a token refers to an unknown key (at most every 30 seconds). It is
+ *              fetched using the router's HTTP client, unless <i>httpClientConfiguration</i> is set.
+ *              </p>
+ *              <p>
+ *              The claims of a valid token are stored in the exchange property 'jwt' (a map). Requests without a
+ *              valid token are answered with "401 Unauthorized".
+ *              </p>
+ * @topic 6. Security
+ */
+@MCElement(name="jwtAuth")
+public class JwtAuthInterceptor extends AbstractInterceptor {
+	private static final Logger log = LoggerFactory.getLogger(JwtAuthInterceptor.class.getName());
+
+	public static final String JWT = "jwt";
+
+	private String jwks;
+	private String issuer;
+	private String audience;
+	private HttpClientConfiguration httpClientConfiguration;
+
+	private JwksKeyResolver resolver;
+	private JwtConsumer consumer;
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	public JwtAuthInterceptor() {
+		name = "JWT Authentication";
+		setFlow(Flow.Set.REQUEST);
+	}
+
+	@Override
+	public void init(Router router) throws Exception {
+		super.init(router);
+		HttpClient client = httpClientConfiguration == null ? router.getResolverMap().getHTTPSchemaResolver().getHttpClient()
+				: new HttpClient(httpClientConfiguration);
+		resolver = new JwksKeyResolver(jwks, client);
+		consumer = JwtConsumerFactory.create(resolver, issuer, audience, false);
+	}
+
+	@Override
+	public Outcome handleRequest(Exchange exc) throws Exception {
+		String token = getBearerToken(exc);
+		if (token == null) {
+			rejected.incrementAndGet();
+			exc.setResponse(Response.unauthorized().header(Header.WWW_AUTHENTICATE, "Bearer").build());
+			return Outcome.RETURN;
+		}
+		try {
+			JwtClaims claims = consumer.processToClaims(token);
+			exc.setProperty(JWT, claims.getClaimsMap());
+			accepted.incrementAndGet();
+			return Outcome.CONTINUE;
+		} catch (InvalidJwtException e) {
+			log.debug("Rejected token: " + e.getMessage());
+			rejected.incrementAndGet();
+			exc.setResponse(Response.unauthorized().header(Header.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"").build());
+			return Outcome.RETURN;
+		}
+	}
+
+	private String getBearerToken(Exchange exc) {
+		String authorization = exc.getRequest().getHeader().getFirstValue(Header.AUTHORIZATION);
+		if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7))
+			return null;
+		String token = authorization.substring(7).trim();
+		return token.length() == 0 ? null : token;
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Grants access to requests carrying a valid JSON Web Token.";
+	}
+
+	@Override
+	public String getLongDescription() {
+		return getShortDescription() + "<br/>Keys: " + jwks + "<br/>" + accepted.get() + " tokens accepted, " +
+				rejected.get() + " requests rejected, " + (resolver == null ? 0 : resolver.getFetches()) + " key set fetches.";
+	}
+
+	public String getJwks() {
+		return jwks;
+	}
+
+	/**
+	 * @description the URL of the JSON Web Key Set containing the keys tokens are signed with
+	 * @example https://www.googleapis.com/oauth2/v3/certs
+	 */
+	@Required
+	@MCAttribute
+	public void setJwks(String jwks) {
+		this.jwks = jwks;
+	}
+
+	public String getIssuer() {
+		return issuer;
+	}
+
+	/**
+	 * @description the expected 'iss' claim. If not set, any issuer is accepted.
+	 */
+	@MCAttribute
+	public void setIssuer(String issuer) {
+		this.issuer = issuer;
+	}
+
+	public String getAudience() {
+		return audience;
+	}
+
+	/**
+	 * @description the expected 'aud' claim. If not set, tokens carrying an 'aud' claim are rejected.
+	 */
+	@MCAttribute
+	public void setAudience(String audience) {
+		this.audience = audience;
+	}
+
+	public HttpClientConfiguration getHttpClientConfiguration() {
+		return httpClientConfiguration;
+	}
+
+	/**
+	 * @description the configuration of the HTTP client fetching the key set. By default, the router's shared client
+	 *              is used.
+	 */
+	@MCAttribute
+	public void setHttpClientConfiguration(HttpClientConfiguration httpClientConfiguration) {
+		this.httpClientConfiguration = httpClientConfiguration;
+	}
+}
@@ -0,0 +1,54 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.jwt;
+
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+
+/**
+ * Builds the {@link JwtConsumer}s verifying tokens signed by the keys of a JSON Web Key Set.
+ *
+ * A {@link JwtConsumer} is immutable once built, so an interceptor builds one during init and uses it from all
+ * threads. The keys are resolved by the interceptor's {@link JwksKeyResolver}, which caches them.
+ *
+ * Key sets are not shared between interceptors: Each one fetches and refreshes its key set with its own
+ * {@link JwksKeyResolver}, even if another interceptor uses the same URL. This costs one fetch per interceptor and
+ * refresh interval, but the keys never outlive the interceptor (e.g. after a hot deployment) and each interceptor's
+ * HTTP client configuration applies to its own fetches.
+ */
+public class JwtConsumerFactory {
+
+	/**
+	 * Returns a consumer requiring an expiration time (allowing 30 seconds of clock skew).
+	 *
+	 * @param issuer
+	 *            the expected issuer, or null if the issuer should not be checked
+	 * @param audience
+	 *            the expected audience, or null if tokens carrying an audience should be rejected
+	 */
+	public static JwtConsumer create(JwksKeyResolver resolver, String issuer, String audience, boolean requireSubject) {
+		JwtConsumerBuilder builder = new JwtConsumerBuilder()
+				.setRequireExpirationTime()
+				.setAllowedClockSkewInSeconds(30)
+				.setVerificationKeyResolver(resolver);
+		if (requireSubject)
+			builder.setRequireSubject();
+		if (issuer != null)
+			builder.setExpectedIssuer(issuer);
+		if (audience != null)
+			builder.setExpectedAudience(audience);
+		return builder.build();
+	}
+}
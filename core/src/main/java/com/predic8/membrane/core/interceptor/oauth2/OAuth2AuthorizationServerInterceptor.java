@@ -85,7 +85,7 @@ public class OAuth2AuthorizationServerInterceptor extends AbstractInterceptor {
         sessionManager.init(router);
         statistics = new OAuth2Statistics();
         addDefaultProcessors();
-        new CleanupThread(sessionManager, accountBlocker).start();
+        new CleanupThread(sessionManager, accountBlocker, sessionFinder).start();
     }
 
     private void addDefaultProcessors() {
@@ -31,6 +31,7 @@ import com.predic8.membrane.core.interceptor.LogInterceptor;
 import com.predic8.membrane.core.interceptor.Outcome;
 import com.predic8.membrane.core.interceptor.authentication.session.SessionManager;
 import com.predic8.membrane.core.interceptor.authentication.session.SessionManager.Session;
+import com.predic8.membrane.core.interceptor.jwt.JwksKeyResolver;
 import com.predic8.membrane.core.interceptor.oauth2.authorizationservice.AuthorizationService;
 import com.predic8.membrane.core.interceptor.oauth2.tokengenerators.JwtGenerator;
 import com.predic8.membrane.core.interceptor.server.WebServerInterceptor;
@@ -75,6 +76,7 @@ public class OAuth2ResourceInterceptor extends AbstractInterceptor {
     private URIFactory uriFactory;
     private boolean firstInitWhenDynamicAuthorizationService;
     private boolean initPublicURLOnFirstExchange = false;
+    private volatile JwksKeyResolver jwksKeyResolver;
 
     public String getLoginLocation() {
         return loginLocation;
@@ -504,10 +506,23 @@ public class OAuth2ResourceInterceptor extends AbstractInterceptor {
         return false;
     }
 
+    /**
+     * @return the resolver caching the keys of the authorization service, fetching them with its HTTP client
+     */
+    private JwksKeyResolver getJwksKeyResolver() throws Exception {
+        String url = getAuthService().getJwksEndpoint();
+        JwksKeyResolver resolver = jwksKeyResolver;
+        if (resolver == null || !resolver.getUrl().equals(url)) {
+            resolver = new JwksKeyResolver(url, getAuthService().getHttpClient());
+            jwksKeyResolver = resolver;
+        }
+        return resolver;
+    }
+
     private boolean idTokenIsValid(String idToken) throws Exception {
         //TODO maybe change this to return claims and also save them in the oauth2AnswerParameters
         try {
-            JwtGenerator.getClaimsFromSignedIdToken(idToken, getAuthService().getIssuer(), getAuthService().getClientId(), getAuthService().getJwksEndpoint());
+            JwtGenerator.getClaimsFromSignedIdToken(idToken, getAuthService().getIssuer(), getAuthService().getClientId(), getJwksKeyResolver());
             return true;
         }catch(Exception e){
             return false;
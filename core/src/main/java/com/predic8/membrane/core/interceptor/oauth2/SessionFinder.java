@@ -13,60 +13,80 @@
 
 package com.predic8.membrane.core.interceptor.oauth2;
 
+import com.predic8.membrane.core.interceptor.authentication.session.CleanupThread;
 import com.predic8.membrane.core.interceptor.authentication.session.SessionManager;
+import com.predic8.membrane.core.util.ExpiringMap;
 
 import java.util.concurrent.ConcurrentHashMap;
 
-public class SessionFinder {
+/**
+ * Finds the sessions for authorization codes and tokens.
+ *
+ * Authorization codes which have not been used expire after {@link #CODE_LIFETIME} milliseconds.
+ */
+public class SessionFinder implements CleanupThread.Cleaner {
+
+    public static final long CODE_LIFETIME = 10 * 60 * 1000;
+
+    private static class Code {
+        private final SessionManager.Session session;
+        private final long expiresAt = System.currentTimeMillis() + CODE_LIFETIME;
 
-    private ConcurrentHashMap<String, SessionManager.Session> authCodesToSession = new ConcurrentHashMap<String, SessionManager.Session>();
+        private Code(SessionManager.Session session) {
+            this.session = session;
+        }
+    }
+
+    private ExpiringMap<String, Code> authCodesToSession = new ExpiringMap<String, Code>(new ExpiringMap.Expiry<Code>() {
+        @Override
+        public long getExpiresAt(Code code) {
+            return code.expiresAt;
+        }
+    });
     private ConcurrentHashMap<String, SessionManager.Session> tokensToSession = new ConcurrentHashMap<String, SessionManager.Session>();
 
     public void addSessionForCode(String code, SessionManager.Session session){
-        synchronized (authCodesToSession) {
-            authCodesToSession.put(code, session);
-        }
+        authCodesToSession.put(code, new Code(session));
     }
 
     public void addSessionForToken(String token, SessionManager.Session session){
-        synchronized (tokensToSession){
-            tokensToSession.put(token,session);
-        }
+        tokensToSession.put(token,session);
     }
 
     public boolean hasSessionForCode(String code){
-        synchronized (authCodesToSession){
-            return authCodesToSession.containsKey(code);
-        }
+        return authCodesToSession.containsKey(code);
     }
 
     public boolean hasSessionForToken(String token){
-        synchronized (tokensToSession){
-            return tokensToSession.containsKey(token);
-        }
+        return tokensToSession.containsKey(token);
     }
 
     public SessionManager.Session getSessionForCode(String code){
-        synchronized(authCodesToSession){
-            return authCodesToSession.get(code);
-        }
+        Code c = authCodesToSession.get(code);
+        return c == null ? null : c.session;
     }
 
     public SessionManager.Session getSessionForToken(String token){
-        synchronized(tokensToSession){
-            return tokensToSession.get(token);
-        }
+        return tokensToSession.get(token);
     }
 
-    public void removeSessionForCode(String code){
-        synchronized(authCodesToSession){
-            authCodesToSession.remove(code);
-        }
+    /**
+     * Removes the code, so it can only be used once.
+     *
+     * @return the session the code was issued for, or null if the code is unknown, has expired or has already been
+     *         used
+     */
+    public SessionManager.Session removeSessionForCode(String code){
+        Code c = authCodesToSession.remove(code);
+        return c == null ? null : c.session;
     }
 
     public void removeSessionForToken(String token){
-        synchronized(tokensToSession){
-            tokensToSession.remove(token);
-        }
+        tokensToSession.remove(token);
+    }
+
+    @Override
+    public void cleanup() {
+        authCodesToSession.expire(System.currentTimeMillis());
     }
 }
@@ -41,10 +41,10 @@ public class AuthorizationCodeFlow extends TokenRequest {
 
     @Override
     protected Response processWithParameters() throws Exception {
-        if(!authServer.getSessionFinder().hasSessionForCode(getCode()))
+        // removing the code atomically ensures that concurrent requests cannot both redeem it
+        SessionManager.Session session = authServer.getSessionFinder().removeSessionForCode(getCode());
+        if(session == null)
             return OAuth2Util.createParameterizedJsonErrorResponse(exc, jsonGen,"error", "invalid_request");
-        SessionManager.Session session = authServer.getSessionFinder().getSessionForCode(getCode());
-        authServer.getSessionFinder().removeSessionForCode(getCode());
 
         String username;
         synchronized (session) {
@@ -13,7 +13,7 @@
 
 package com.predic8.membrane.core.interceptor.oauth2.tokengenerators;
 
-import org.jose4j.jwk.HttpsJwks;
+import com.predic8.membrane.core.interceptor.jwt.JwksKeyResolver;
 import org.jose4j.jwk.RsaJsonWebKey;
 import org.jose4j.jwk.RsaJwkGenerator;
 import org.jose4j.jws.AlgorithmIdentifiers;
@@ -22,7 +22,6 @@ import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
-import org.jose4j.keys.resolvers.HttpsJwksVerificationKeyResolver;
 import org.jose4j.keys.resolvers.VerificationKeyResolver;
 import org.jose4j.lang.JoseException;
 
@@ -128,16 +127,13 @@ public class JwtGenerator {
         return getClaimsFromClaimsMap(claims);
     }
 
+    /**
+     * Verifies the token using the resolver's keys. A {@link JwksKeyResolver} caches the keys published at a URL, so
+     * they are only fetched when needed.
+     */
     public static List<Claim> getClaimsFromSignedIdToken(String idToken, String iss, String aud, VerificationKeyResolver resolver) throws InvalidJwtException {
 
-        JwtClaims claims = processIdTokenToClaims(idToken,iss,aud,resolver);
-
-        return getClaimsFromClaimsMap(claims);
-    }
-
-    public static List<Claim> getClaimsFromSignedIdToken(String idToken, String iss, String aud, String jwksUrl) throws InvalidJwtException {
-
-        JwtClaims claims = processIdTokenToClaims(idToken,iss,aud,new HttpsJwksVerificationKeyResolver(new HttpsJwks(jwksUrl)));
+        JwtClaims claims = createConsumerBuilder(iss,aud).setVerificationKeyResolver(resolver).build().processToClaims(idToken);
 
         return getClaimsFromClaimsMap(claims);
     }
@@ -156,28 +152,22 @@ public class JwtGenerator {
     }
 
     private static JwtClaims processIdTokenToClaims(String idToken, String iss, String aud, Key key) throws InvalidJwtException {
-        JwtConsumer jwtConsumer = new JwtConsumerBuilder()
-                .setRequireExpirationTime()
-                .setAllowedClockSkewInSeconds(30)
-                .setRequireSubject()
-                .setExpectedIssuer(iss)
-                .setExpectedAudience(aud)
+        JwtConsumer jwtConsumer = createConsumerBuilder(iss,aud)
                 .setVerificationKey(key)
                 .build();
 
         return jwtConsumer.processToClaims(idToken);
     }
 
-    private static JwtClaims processIdTokenToClaims(String idToken, String iss, String aud, VerificationKeyResolver resolver) throws InvalidJwtException {
-        JwtConsumer jwtConsumer = new JwtConsumerBuilder()
+    /**
+     * The 'iss' claim is always required. If <tt>iss</tt> is null, any issuer is accepted.
+     */
+    private static JwtConsumerBuilder createConsumerBuilder(String iss, String aud) {
+        return new JwtConsumerBuilder()
                 .setRequireExpirationTime()
                 .setAllowedClockSkewInSeconds(30)
                 .setRequireSubject()
                 .setExpectedIssuer(iss)
-                .setExpectedAudience(aud)
-                .setVerificationKeyResolver(resolver)
-                .build();
-
-        return jwtConsumer.processToClaims(idToken);
+                .setExpectedAudience(aud);
     }
 }
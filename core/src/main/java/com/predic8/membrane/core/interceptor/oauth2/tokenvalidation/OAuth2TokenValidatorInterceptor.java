@@ -13,6 +13,10 @@
 
 package com.predic8.membrane.core.interceptor.oauth2.tokenvalidation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.Router;
@@ -22,22 +26,89 @@ import com.predic8.membrane.core.http.Request;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
 import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.interceptor.jwt.JwksKeyResolver;
+import com.predic8.membrane.core.interceptor.jwt.JwtConsumerFactory;
 import com.predic8.membrane.core.transport.http.HttpClient;
+import com.predic8.membrane.core.transport.http.client.HttpClientConfiguration;
+import org.apache.commons.codec.binary.Base64;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
 
-import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * @description Grants access to resources with valid access tokens. Tokens are validated by calling the endpoint
+ *              (typically the userinfo endpoint of the authorization server): Any response with status code 200
+ *              means the token is valid.
+ * @explanation <p>
+ *              Validation results are cached: Valid tokens for <i>cacheTTL</i> milliseconds (but not beyond the
+ *              token's own expiry, if the token is a JWT carrying an 'exp' claim), invalid tokens for
+ *              <i>negativeCacheTTL</i> milliseconds. Concurrent requests carrying the same token wait for one
+ *              validation. Errors of the endpoint (status codes 5xx) are not cached.
+ *              </p>
+ *              <p>
+ *              If <i>jwks</i> is set, self-contained tokens (JWTs) are verified locally using the keys published
+ *              there, without calling the endpoint. Tokens which cannot be verified locally are validated by the
+ *              endpoint.
+ *              </p>
+ */
 @MCElement(name="tokenValidator")
 public class OAuth2TokenValidatorInterceptor extends AbstractInterceptor {
 
+    private static final Logger log = LoggerFactory.getLogger(OAuth2TokenValidatorInterceptor.class.getName());
+    private static final ObjectMapper om = new ObjectMapper();
+
+    static final class Validation {
+        final boolean valid;
+        final long created;
+        /** until when the result may be used, a time in the past means it must not be cached */
+        final long expiresAt;
+
+        Validation(boolean valid, long created, long expiresAt) {
+            this.valid = valid;
+            this.created = created;
+            this.expiresAt = expiresAt;
+        }
+    }
+
     private String endpoint;
+    private HttpClientConfiguration httpClientConfiguration;
+    private int cacheSize = 10000;
+    private long cacheTTL = 300000;
+    private long negativeCacheTTL = 10000;
+    private String jwks;
+    private String issuer;
+    private String audience;
 
-    HttpClient client = new HttpClient();
+    private HttpClient client;
+    private Cache<String, Validation> cache;
+    private JwtConsumer jwtConsumer;
+
+    private final AtomicLong remoteValidations = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong offlineValidations = new AtomicLong();
 
     @Override
     public void init(Router router) throws Exception {
         setFlow(Flow.Set.REQUEST);
         name = "Token validator";
+        if (client == null)
+            client = httpClientConfiguration == null ? router.getResolverMap().getHTTPSchemaResolver().getHttpClient()
+                    : new HttpClient(httpClientConfiguration);
+        if (cacheSize > 0)
+            cache = CacheBuilder.newBuilder()
+                    .maximumSize(cacheSize)
+                    .expireAfterWrite(Math.max(cacheTTL, negativeCacheTTL), TimeUnit.MILLISECONDS)
+                    .build();
+        if (jwks != null)
+            jwtConsumer = JwtConsumerFactory.create(new JwksKeyResolver(jwks, client), issuer, audience, false);
     }
 
     @Override
@@ -45,26 +116,136 @@ public class OAuth2TokenValidatorInterceptor extends AbstractInterceptor {
         return "The token validator grants access to resources with valid access tokens.";
     }
 
+    @Override
+    public String getLongDescription() {
+        return getShortDescription() + "<br/>" + remoteValidations.get() + " validations by the endpoint, " +
+                cacheHits.get() + " cache hits, " + offlineValidations.get() + " tokens verified locally.";
+    }
+
     @Override
     public Outcome handleRequest(Exchange exc) throws Exception {
-        synchronized (client){
-            if(callExchangeAndCheckFor200(buildAccessTokenValidationExchange(exc)))
-                return Outcome.CONTINUE;
-        }
+        String authorization = getAuthorizationHeaderValue(exc);
+        if (authorization != null && isValid(authorization))
+            return Outcome.CONTINUE;
         setResponseToBadRequest(exc);
         return Outcome.RETURN;
     }
 
-    private boolean callExchangeAndCheckFor200(Exchange e) throws Exception {
-        return client.call(e).getResponse().getStatusCode() == 200;
+    private boolean isValid(final String authorization) throws Exception {
+        if (jwtConsumer != null && isVerifiedLocally(authorization))
+            return true;
+        if (cache == null)
+            return validate(authorization).valid;
+
+        long start = System.currentTimeMillis();
+        while (true) {
+            Validation v = getCached(authorization);
+            long now = System.currentTimeMillis();
+            if (v.expiresAt <= now)
+                cache.asMap().remove(authorization, v);
+            // a result created after we started has been computed for us, even if it may not be cached
+            if (v.created >= start)
+                return v.valid;
+            if (v.expiresAt > now) {
+                cacheHits.incrementAndGet();
+                return v.valid;
+            }
+        }
+    }
+
+    /**
+     * Returns the cached result or validates the token. Concurrent callers for the same token wait for the same
+     * validation.
+     */
+    private Validation getCached(final String authorization) throws Exception {
+        try {
+            return cache.get(authorization, new Callable<Validation>() {
+                @Override
+                public Validation call() throws Exception {
+                    return validate(authorization);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (UncheckedExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static Exception unwrap(Exception e) {
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    private Validation validate(String authorization) throws Exception {
+        remoteValidations.incrementAndGet();
+        Response response = callExchange(buildAccessTokenValidationExchange(authorization));
+        long now = System.currentTimeMillis();
+        int status = response.getStatusCode();
+        if (status == 200)
+            return new Validation(true, now, Math.min(now + cacheTTL, getTokenExpiry(authorization)));
+        if (status >= 500) {
+            log.warn("Token validation endpoint " + endpoint + " returned status code " + status + ".");
+            return new Validation(false, now, 0);
+        }
+        return new Validation(false, now, now + negativeCacheTTL);
+    }
+
+    private Response callExchange(Exchange e) throws Exception {
+        Response response = client.call(e).getResponse();
+        // consume the body, so the connection can be reused
+        response.readBody();
+        return response;
+    }
+
+    private boolean isVerifiedLocally(String authorization) {
+        String token = getToken(authorization);
+        if (!isJwt(token))
+            return false;
+        try {
+            jwtConsumer.processToClaims(token);
+            offlineValidations.incrementAndGet();
+            return true;
+        } catch (InvalidJwtException e) {
+            log.debug("Could not verify token locally: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the value of the token's 'exp' claim (in milliseconds), or {@link Long#MAX_VALUE} if the token is not a
+     *         JWT or does not expire
+     */
+    static long getTokenExpiry(String authorization) {
+        String token = getToken(authorization);
+        if (!isJwt(token))
+            return Long.MAX_VALUE;
+        try {
+            Map<?, ?> claims = om.readValue(Base64.decodeBase64(token.substring(token.indexOf('.') + 1, token.lastIndexOf('.'))), Map.class);
+            Object exp = claims.get("exp");
+            if (exp instanceof Number)
+                return ((Number) exp).longValue() * 1000;
+        } catch (Exception e) {
+            // not a JWT after all
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static String getToken(String authorization) {
+        int space = authorization.indexOf(' ');
+        return space == -1 ? authorization : authorization.substring(space + 1).trim();
+    }
+
+    private static boolean isJwt(String token) {
+        int first = token.indexOf('.');
+        return first != -1 && token.indexOf('.', first + 1) == token.lastIndexOf('.') && token.lastIndexOf('.') > first;
     }
 
     private void setResponseToBadRequest(Exchange exc) {
         exc.setResponse(new Response().badRequest().build());
     }
 
-    private Exchange buildAccessTokenValidationExchange(Exchange exc) throws URISyntaxException {
-        return new Request.Builder().get(endpoint).header(Header.AUTHORIZATION, getAuthorizationHeaderValue(exc)).buildExchange();
+    private Exchange buildAccessTokenValidationExchange(String authorization) throws Exception {
+        return new Request.Builder().get(endpoint).header(Header.AUTHORIZATION, authorization).buildExchange();
     }
 
     private String getAuthorizationHeaderValue(Exchange exc) {
@@ -84,4 +265,101 @@ public class OAuth2TokenValidatorInterceptor extends AbstractInterceptor {
     public void setEndpoint(String endpoint) {
         this.endpoint = endpoint;
     }
+
+    public HttpClient getHttpClient() {
+        return client;
+    }
+
+    public void setHttpClient(HttpClient client) {
+        this.client = client;
+    }
+
+    public HttpClientConfiguration getHttpClientConfiguration() {
+        return httpClientConfiguration;
+    }
+
+    /**
+     * @description the configuration of the HTTP client calling the endpoint. By default, the router's shared client
+     *              (and its connection pool) is used.
+     */
+    @MCAttribute
+    public void setHttpClientConfiguration(HttpClientConfiguration httpClientConfiguration) {
+        this.httpClientConfiguration = httpClientConfiguration;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @description the maximum number of cached validation results. 0 disables the cache.
+     * @default 10000
+     */
+    @MCAttribute
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public long getCacheTTL() {
+        return cacheTTL;
+    }
+
+    /**
+     * @description how long (in milliseconds) a token is considered valid after it has been validated by the endpoint
+     * @default 300000
+     */
+    @MCAttribute
+    public void setCacheTTL(long cacheTTL) {
+        this.cacheTTL = cacheTTL;
+    }
+
+    public long getNegativeCacheTTL() {
+        return negativeCacheTTL;
+    }
+
+    /**
+     * @description how long (in milliseconds) a token is considered invalid after it has been rejected by the endpoint
+     * @default 10000
+     */
+    @MCAttribute
+    public void setNegativeCacheTTL(long negativeCacheTTL) {
+        this.negativeCacheTTL = negativeCacheTTL;
+    }
+
+    public String getJwks() {
+        return jwks;
+    }
+
+    /**
+     * @description the URL of the JSON Web Key Set of the authorization server. If set, JWTs are verified locally.
+     * @example http://localhost:2000/oauth2/certs
+     */
+    @MCAttribute
+    public void setJwks(String jwks) {
+        this.jwks = jwks;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * @description the expected 'iss' claim of JWTs verified locally
+     */
+    @MCAttribute
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    public String getAudience() {
+        return audience;
+    }
+
+    /**
+     * @description the expected 'aud' claim of JWTs verified locally
+     */
+    @MCAttribute
+    public void setAudience(String audience) {
+        this.audience = audience;
+    }
 }
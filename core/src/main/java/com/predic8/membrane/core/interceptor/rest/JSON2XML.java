@@ -0,0 +1,184 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Converts JSON documents to XML in a single streaming pass.
+ *
+ * Objects and arrays become elements named after the member (the top-level value is named {@link #setRootName(String)}),
+ * array items become elements named {@link #setArrayItemName(String)}. Unless disabled, each element carries a
+ * <tt>type</tt> attribute (<tt>o</tt>bject, <tt>a</tt>rray, <tt>s</tt>tring, <tt>i</tt>nteger, <tt>f</tt>loat,
+ * <tt>b</tt>oolean or <tt>n</tt>ull), which allows {@link XML2JSON#convertTyped(java.io.Reader, java.io.OutputStream)}
+ * to restore the original document.
+ *
+ * If {@link #setMapAttributes(boolean)} is set, the reverse mapping of {@link XML2JSON} is applied: Members named
+ * <tt>@name</tt> become attributes (or elements, if they do not precede all other members of their object), and members named
+ * <tt>#text</tt> become text.
+ *
+ * Instances are thread-safe once configured.
+ */
+public class JSON2XML {
+
+	private String rootName = "root";
+	private String arrayItemName = "item";
+	private boolean typeAttributes = true;
+	private boolean mapAttributes;
+
+	public void convert(JsonParser jp, XMLStreamWriter out) throws IOException, XMLStreamException {
+		final List<String> stack = new ArrayList<String>();
+		String name = rootName;
+		// whether attributes may still be written to the current element
+		boolean startTagOpen = false;
+		OUTER:
+			while (jp.nextToken() != null) {
+				switch (jp.getCurrentToken()) {
+				case START_OBJECT:
+					if (name != null) {
+						stack.add(name);
+						out.writeStartElement(name);
+						writeType(out, "o");
+						startTagOpen = true;
+						name = null;
+					}
+					break;
+				case END_OBJECT:
+					out.writeEndElement();
+					startTagOpen = false;
+					name = stack.remove(stack.size()-1);
+					if (stack.isEmpty())
+						break OUTER;
+					break;
+				case FIELD_NAME:
+					name = jp.getCurrentName();
+					break;
+				case START_ARRAY:
+					if (name != null) {
+						stack.add(name);
+						out.writeStartElement(name);
+						writeType(out, "a");
+						startTagOpen = false;
+					}
+					name = arrayItemName;
+					break;
+				case END_ARRAY:
+					out.writeEndElement();
+					startTagOpen = false;
+					name = stack.remove(stack.size()-1);
+					if (stack.isEmpty())
+						break OUTER;
+					break;
+				case VALUE_TRUE:
+				case VALUE_FALSE:
+				case VALUE_NULL:
+				case VALUE_STRING:
+				case VALUE_NUMBER_INT:
+				case VALUE_NUMBER_FLOAT:
+					if (mapAttributes && name.startsWith(XML2JSON.ATTRIBUTE_PREFIX) && name.length() > 1) {
+						if (startTagOpen) {
+							if (jp.getCurrentToken() != JsonToken.VALUE_NULL)
+								out.writeAttribute(name.substring(1), jp.getText());
+							break;
+						}
+						// too late for an attribute
+						name = name.substring(1);
+					}
+					startTagOpen = false;
+					if (mapAttributes && XML2JSON.TEXT_MEMBER.equals(name)) {
+						if (jp.getCurrentToken() != JsonToken.VALUE_NULL)
+							out.writeCharacters(jp.getText());
+						break;
+					}
+					writeValue(jp, out, name);
+					if (stack.isEmpty())
+						break OUTER;
+					break;
+				case VALUE_EMBEDDED_OBJECT:
+				case NOT_AVAILABLE:
+					throw new RuntimeException(jp.getCurrentToken().toString());
+				}
+			}
+	}
+
+	private void writeValue(JsonParser jp, XMLStreamWriter out, String name) throws XMLStreamException, IOException {
+		out.writeStartElement(name);
+		switch (jp.getCurrentToken()) {
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			writeType(out, "b");
+			out.writeCharacters(Boolean.toString(jp.getBooleanValue()));
+			break;
+		case VALUE_NULL:
+			if (typeAttributes) {
+				writeType(out, "n");
+				out.writeAttribute("isNull", "true");
+			}
+			break;
+		default:
+			writeType(out,
+					jp.getCurrentToken() == JsonToken.VALUE_STRING ? "s" :
+						jp.getCurrentToken() == JsonToken.VALUE_NUMBER_INT ? "i" :
+					"f");
+			out.writeCharacters(jp.getText());
+		}
+		out.writeEndElement();
+	}
+
+	private void writeType(XMLStreamWriter out, String type) throws XMLStreamException {
+		if (typeAttributes)
+			out.writeAttribute("type", type);
+	}
+
+	public String getRootName() {
+		return rootName;
+	}
+
+	public void setRootName(String rootName) {
+		this.rootName = rootName;
+	}
+
+	public String getArrayItemName() {
+		return arrayItemName;
+	}
+
+	public void setArrayItemName(String arrayItemName) {
+		this.arrayItemName = arrayItemName;
+	}
+
+	public boolean isTypeAttributes() {
+		return typeAttributes;
+	}
+
+	public void setTypeAttributes(boolean typeAttributes) {
+		this.typeAttributes = typeAttributes;
+	}
+
+	public boolean isMapAttributes() {
+		return mapAttributes;
+	}
+
+	public void setMapAttributes(boolean mapAttributes) {
+		this.mapAttributes = mapAttributes;
+	}
+}
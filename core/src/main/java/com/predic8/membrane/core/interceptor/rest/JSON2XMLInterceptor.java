@@ -0,0 +1,143 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rest;
+
+import java.io.InputStreamReader;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.Constants;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.BodyOutputStream;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.http.MimeType;
+import com.predic8.membrane.core.interceptor.AbstractInterceptor;
+import com.predic8.membrane.core.interceptor.Outcome;
+
+/**
+ * @description <p>
+ *              Converts JSON message bodies into XML. The conversion is the same as the one used for JSON bodies by
+ *              <tt>http2xml</tt>.
+ *              </p>
+ * @topic 3. Enterprise Integration Patterns
+ */
+@MCElement(name="json2xml")
+public class JSON2XMLInterceptor extends AbstractInterceptor {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+	private final JSON2XML json2xml = new JSON2XML();
+
+	public JSON2XMLInterceptor() {
+		name = "JSON 2 XML";
+	}
+
+	@Override
+	public Outcome handleRequest(Exchange exc) throws Exception {
+		convert(exc.getRequest());
+		return Outcome.CONTINUE;
+	}
+
+	@Override
+	public Outcome handleResponse(Exchange exc) throws Exception {
+		convert(exc.getResponse());
+		return Outcome.CONTINUE;
+	}
+
+	private void convert(Message msg) throws Exception {
+		if (msg.isBodyEmpty() || !msg.isJSON())
+			return;
+		JsonParser jp = jsonFactory.createParser(new InputStreamReader(msg.getBodyAsStreamDecoded(), msg.getCharset()));
+		BodyOutputStream out = new BodyOutputStream();
+		XMLStreamWriter writer;
+		synchronized (xmlOutputFactory) {
+			writer = xmlOutputFactory.createXMLStreamWriter(out, Constants.UTF_8);
+		}
+		writer.writeStartDocument(Constants.UTF_8, "1.0");
+		json2xml.convert(jp, writer);
+		writer.writeEndDocument();
+		writer.close();
+		msg.setBodyContent(out.createBody());
+		msg.getHeader().removeFields(Header.CONTENT_TYPE);
+		msg.getHeader().setContentType(MimeType.TEXT_XML_UTF8);
+	}
+
+	public String getRootName() {
+		return json2xml.getRootName();
+	}
+
+	/**
+	 * @description Name of the root element.
+	 * @default root
+	 */
+	@MCAttribute
+	public void setRootName(String rootName) {
+		json2xml.setRootName(rootName);
+	}
+
+	public String getArrayItemName() {
+		return json2xml.getArrayItemName();
+	}
+
+	/**
+	 * @description Name of the elements representing array items.
+	 * @default item
+	 */
+	@MCAttribute
+	public void setArrayItemName(String arrayItemName) {
+		json2xml.setArrayItemName(arrayItemName);
+	}
+
+	public boolean isTypeAttributes() {
+		return json2xml.isTypeAttributes();
+	}
+
+	/**
+	 * @description Whether each element gets a <tt>type</tt> attribute holding the JSON type (<tt>o</tt>,
+	 *              <tt>a</tt>, <tt>s</tt>, <tt>i</tt>, <tt>f</tt>, <tt>b</tt> or <tt>n</tt>).
+	 * @default true
+	 */
+	@MCAttribute
+	public void setTypeAttributes(boolean typeAttributes) {
+		json2xml.setTypeAttributes(typeAttributes);
+	}
+
+	public boolean isAttributes() {
+		return json2xml.isMapAttributes();
+	}
+
+	/**
+	 * @description Whether members named <tt>@name</tt> become XML attributes and members named <tt>#text</tt>
+	 *              become text (the reverse of the <tt>attributes</tt> setting of <tt>xml2json</tt>).
+	 * @default false
+	 */
+	@MCAttribute
+	public void setAttributes(boolean attributes) {
+		json2xml.setMapAttributes(attributes);
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Converts JSON message bodies into XML.";
+	}
+
+}
@@ -16,8 +16,8 @@ package com.predic8.membrane.core.interceptor.rest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.xml.stream.XMLEventReader;
@@ -40,6 +40,8 @@ import com.predic8.membrane.core.Constants;
 import com.predic8.membrane.core.config.AbstractXmlElement;
 import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Body;
+import com.predic8.membrane.core.http.BodyOutputStream;
 import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.http.Response;
@@ -154,6 +156,8 @@ public class REST2SOAPInterceptor extends SOAPRESTHelper {
 
 	private static Logger log = LoggerFactory.getLogger(REST2SOAPInterceptor.class.getName());
 
+	private static final XML2JSON xml2json = new XML2JSON();
+
 	private List<Mapping> mappings = new ArrayList<Mapping>();
 	private Boolean isSOAP12;
 
@@ -188,31 +192,32 @@ public class REST2SOAPInterceptor extends SOAPRESTHelper {
 			log.debug("response: " + new String(getTransformer(null).transform(getBodySource(exc), exc.getStringProperties()), Constants.UTF_8_CHARSET));
 
 		exc.getResponse().setBodyContent(getTransformer(mapping.responseXSLT).
-				transform(getBodySource(exc)));
+				transformToBody(getBodySource(exc), new HashMap<String, String>()));
 		Header header = exc.getResponse().getHeader();
 		header.removeFields(Header.CONTENT_TYPE);
 		header.setContentType(MimeType.TEXT_XML_UTF8);
 
 		XML2HTTP.unwrapMessageIfNecessary(exc.getResponse());
-		convertResponseToJSONIfNecessary(exc.getRequest().getHeader(), mapping, exc.getResponse(), exc.getStringProperties());
+		convertResponseToJSONIfNecessary(exc.getRequest().getHeader(), mapping, exc.getResponse());
 
 		return Outcome.CONTINUE;
 	}
 
 	private static MediaType[] supportedTypes = Header.convertStringsToMediaType(new String[] { MimeType.TEXT_XML, MimeType.APPLICATION_JSON_UTF8 });
 
-	private void convertResponseToJSONIfNecessary(Header requestHeader, Mapping mapping, Response response, Map<String, String> properties) throws IOException, Exception {
+	private void convertResponseToJSONIfNecessary(Header requestHeader, Mapping mapping, Response response) throws IOException, Exception {
 		boolean inputIsXml = response.isXML();
 		int wantedType = requestHeader.getBestAcceptedType(supportedTypes);
 		if (inputIsXml && wantedType >= 1) {
-			response.setBodyContent(xml2json(response.getBodyAsStreamDecoded(), properties));
+			response.setBodyContent(xml2json(response.getBodyAsStreamDecoded()));
 			setJSONContentType(response.getHeader());
 		}
 	}
 
-	private byte[] xml2json(InputStream xmlResp, Map<String, String> properties) throws Exception {
-		return getTransformer("classpath:/com/predic8/membrane/core/interceptor/rest/xml2json.xsl").
-				transform(new StreamSource(xmlResp), properties);
+	private Body xml2json(InputStream xmlResp) throws Exception {
+		BodyOutputStream out = new BodyOutputStream();
+		xml2json.convert(xmlResp, out);
+		return out.createBody();
 	}
 
 	private StreamSource getBodySource(Exchange exc) {
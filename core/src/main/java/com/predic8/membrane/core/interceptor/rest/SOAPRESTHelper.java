@@ -41,8 +41,7 @@ abstract class SOAPRESTHelper extends AbstractInterceptor {
 		String key = ss == null ? "null" : ss;
 		XSLTTransformer t = xsltTransformers.get(key);
 		if (t == null) {
-			int concurrency = 2 * Runtime.getRuntime().availableProcessors();
-			t = new XSLTTransformer(ss, router, concurrency);
+			t = new XSLTTransformer(ss, router);
 			XSLTTransformer t2 = xsltTransformers.putIfAbsent(key, t);
 			if (t2 != null)
 				return t2;
@@ -70,10 +69,9 @@ abstract class SOAPRESTHelper extends AbstractInterceptor {
 
 	protected void transformAndReplaceBody(Message msg, String ss, Source src, Map<String, String> properties)
 			throws Exception {
-		byte[] soapEnv = getTransformer(ss).transform(src, properties);
+		msg.setBodyContent(getTransformer(ss).transformToBody(src, properties));
 		if (log.isDebugEnabled())
-			log.debug("soap-env: " + new String(soapEnv, Constants.UTF_8_CHARSET));
-		msg.setBodyContent(soapEnv);
+			log.debug("soap-env: " + new String(msg.getBody().getContent(), Constants.UTF_8_CHARSET));
 	}
 
 }
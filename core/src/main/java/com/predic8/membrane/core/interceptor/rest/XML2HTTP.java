@@ -13,7 +13,9 @@
    limitations under the License. */
 package com.predic8.membrane.core.interceptor.rest;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 
 import javax.xml.namespace.QName;
@@ -132,8 +134,12 @@ public class XML2HTTP {
 									message.setBodyContent(slurpCharacterData(parser, event.asStartElement()).getBytes(Constants.UTF_8_CHARSET));
 								} else if ("xml".equals(type)) {
 									message.setBodyContent(slurpXMLData(parser, event.asStartElement()).getBytes(Constants.UTF_8_CHARSET));
+								} else if ("json".equals(type)) {
+									ByteArrayOutputStream json = new ByteArrayOutputStream();
+									XML2JSON.convertTyped(new StringReader(slurpXMLData(parser, event.asStartElement())), json);
+									message.setBodyContent(json.toByteArray());
 								} else {
-									throw new XML2HTTPException("XML-HTTP doc body type '" + type + "' is not supported (only 'plain' or 'xml').");
+									throw new XML2HTTPException("XML-HTTP doc body type '" + type + "' is not supported (only 'plain', 'xml' or 'json').");
 								}
 							}
 						}
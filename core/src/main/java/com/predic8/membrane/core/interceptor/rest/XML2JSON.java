@@ -0,0 +1,330 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Converts XML documents to JSON.
+ *
+ * The output is the same as the one of <tt>classpath:/com/predic8/membrane/core/interceptor/rest/xml2json.xsl</tt>:
+ * <ul>
+ * <li>The root element becomes the only member of the top-level object.</li>
+ * <li>Elements become members named after the element (including the prefix); empty elements become
+ * <tt>null</tt> members named after the element's local name.</li>
+ * <li>If all children of an element have the same name and there is more than one (or the name is listed in
+ * {@link #setArrayElements(Set)}), they become an array.</li>
+ * <li>Text becomes a number (no leading zeros), a boolean (case-insensitive), or a string. Text in mixed
+ * content is ignored.</li>
+ * <li>Attributes are ignored, unless {@link #setMapAttributes(boolean)} is set: Then they become members named
+ * <tt>@name</tt>, and the element's text becomes the member <tt>#text</tt>.</li>
+ * </ul>
+ *
+ * Deviating from the stylesheet, the output is always valid JSON: Comments are ignored, and numbers which JSON
+ * does not allow (e.g. <tt>.5</tt>) become strings.
+ *
+ * Since whether the children of an element become an array or an object can only be decided after all of them have
+ * been seen, the document is read in one StAX pass into a compact tree of names and texts, which is then written
+ * using a {@link JsonGenerator}.
+ *
+ * Instances are thread-safe once configured.
+ */
+public class XML2JSON {
+
+	public static final String ATTRIBUTE_PREFIX = "@";
+	public static final String TEXT_MEMBER = "#text";
+
+	private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+	private static final JsonFactory jsonFactory = new JsonFactory();
+	static {
+		xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private static final Pattern JSON_NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?");
+
+	private boolean mapAttributes;
+	private Set<String> arrayElements = Collections.emptySet();
+
+	public boolean isMapAttributes() {
+		return mapAttributes;
+	}
+
+	public void setMapAttributes(boolean mapAttributes) {
+		this.mapAttributes = mapAttributes;
+	}
+
+	public Set<String> getArrayElements() {
+		return arrayElements;
+	}
+
+	/**
+	 * @param arrayElements local names of elements which always become array items, even if there is only one
+	 */
+	public void setArrayElements(Set<String> arrayElements) {
+		this.arrayElements = new HashSet<String>(arrayElements);
+	}
+
+	public void convert(InputStream xml, OutputStream json) throws XMLStreamException, IOException {
+		XMLStreamReader reader;
+		synchronized (xmlInputFactory) {
+			reader = xmlInputFactory.createXMLStreamReader(xml);
+		}
+		write(read(reader, false, mapAttributes), json);
+	}
+
+	public void convert(Reader xml, OutputStream json) throws XMLStreamException, IOException {
+		XMLStreamReader reader;
+		synchronized (xmlInputFactory) {
+			reader = xmlInputFactory.createXMLStreamReader(xml);
+		}
+		write(read(reader, false, mapAttributes), json);
+	}
+
+	/**
+	 * Converts the XML representation of a JSON document (as created by {@link JSON2XML} with type attributes)
+	 * back to JSON. The name of the root element is ignored.
+	 */
+	public static void convertTyped(Reader xml, OutputStream json) throws XMLStreamException, IOException {
+		XMLStreamReader reader;
+		synchronized (xmlInputFactory) {
+			reader = xmlInputFactory.createXMLStreamReader(xml);
+		}
+		Element root = read(reader, true, false);
+		JsonGenerator g = jsonFactory.createGenerator(json, JsonEncoding.UTF8);
+		if (root != null)
+			writeTyped(g, root);
+		g.close();
+	}
+
+	private static final class Element {
+		final String name;
+		final String localName;
+		List<Element> children;
+		StringBuilder text;
+		List<String> attributes; // name, value, name, value, ...
+		String type;
+
+		Element(String name, String localName) {
+			this.name = name;
+			this.localName = localName;
+		}
+
+		boolean isEmpty() {
+			return children == null && text == null && attributes == null;
+		}
+	}
+
+	private static Element read(XMLStreamReader reader, boolean typed, boolean mapAttributes) throws XMLStreamException {
+		Element root = null;
+		ArrayList<Element> stack = new ArrayList<Element>();
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String prefix = reader.getPrefix();
+					String localName = reader.getLocalName();
+					Element e = new Element(prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName, localName);
+					if (typed) {
+						e.type = reader.getAttributeValue(null, "type");
+					} else if (mapAttributes && reader.getAttributeCount() > 0) {
+						e.attributes = new ArrayList<String>(2 * reader.getAttributeCount());
+						for (int i = 0; i < reader.getAttributeCount(); i++) {
+							String attributePrefix = reader.getAttributePrefix(i);
+							String attributeName = reader.getAttributeLocalName(i);
+							e.attributes.add(attributePrefix == null || attributePrefix.length() == 0 ? attributeName : attributePrefix + ":" + attributeName);
+							e.attributes.add(reader.getAttributeValue(i));
+						}
+					}
+					if (stack.isEmpty()) {
+						root = e;
+					} else {
+						Element parent = stack.get(stack.size() - 1);
+						if (parent.children == null)
+							parent.children = new ArrayList<Element>();
+						parent.children.add(e);
+						// text in mixed content is ignored
+						parent.text = null;
+					}
+					stack.add(e);
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (stack.isEmpty())
+						break;
+					Element current = stack.get(stack.size() - 1);
+					if (current.children != null)
+						break;
+					if (current.text == null)
+						current.text = new StringBuilder(reader.getTextLength());
+					current.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					Element ended = stack.remove(stack.size() - 1);
+					// whitespace-only text is stripped (as by <xsl:strip-space elements="*"/>)
+					if (!typed && ended.text != null && isWhitespace(ended.text))
+						ended.text = null;
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return root;
+	}
+
+	private static boolean isWhitespace(CharSequence s) {
+		for (int i = 0; i < s.length(); i++)
+			if (!Character.isWhitespace(s.charAt(i)))
+				return false;
+		return true;
+	}
+
+	private void write(Element root, OutputStream json) throws IOException {
+		JsonGenerator g = jsonFactory.createGenerator(json, JsonEncoding.UTF8);
+		if (root != null) {
+			g.writeStartObject();
+			writeMember(g, root);
+			g.writeEndObject();
+		}
+		g.close();
+	}
+
+	private void writeMember(JsonGenerator g, Element e) throws IOException {
+		g.writeFieldName(e.isEmpty() ? e.localName : e.name);
+		writeValue(g, e);
+	}
+
+	private void writeValue(JsonGenerator g, Element e) throws IOException {
+		if (e.attributes != null) {
+			writeObjectWithAttributes(g, e);
+		} else if (e.children != null) {
+			if (isArray(e.children)) {
+				g.writeStartArray();
+				for (Element child : e.children)
+					writeValue(g, child);
+				g.writeEndArray();
+			} else {
+				g.writeStartObject();
+				for (Element child : e.children)
+					writeMember(g, child);
+				g.writeEndObject();
+			}
+		} else if (e.text != null) {
+			writeText(g, e.text.toString());
+		} else {
+			g.writeNull();
+		}
+	}
+
+	private void writeObjectWithAttributes(JsonGenerator g, Element e) throws IOException {
+		g.writeStartObject();
+		for (int i = 0; i < e.attributes.size(); i += 2)
+			g.writeStringField(ATTRIBUTE_PREFIX + e.attributes.get(i), e.attributes.get(i + 1));
+		if (e.children != null) {
+			if (isArray(e.children)) {
+				g.writeArrayFieldStart(e.children.get(0).name);
+				for (Element child : e.children)
+					writeValue(g, child);
+				g.writeEndArray();
+			} else {
+				for (Element child : e.children)
+					writeMember(g, child);
+			}
+		} else if (e.text != null) {
+			g.writeFieldName(TEXT_MEMBER);
+			writeText(g, e.text.toString());
+		}
+		g.writeEndObject();
+	}
+
+	private boolean isArray(List<Element> children) {
+		String name = children.get(0).name;
+		if (children.size() == 1)
+			return arrayElements.contains(children.get(0).localName);
+		for (int i = 1; i < children.size(); i++)
+			if (!name.equals(children.get(i).name))
+				return false;
+		return true;
+	}
+
+	private static void writeText(JsonGenerator g, String text) throws IOException {
+		String trimmed = text.trim();
+		if ("true".equalsIgnoreCase(text)) {
+			g.writeBoolean(true);
+		} else if ("false".equalsIgnoreCase(text)) {
+			g.writeBoolean(false);
+		} else if (JSON_NUMBER.matcher(trimmed).matches() && !(text.startsWith("0") && !text.equals("0"))) {
+			g.writeNumber(trimmed);
+		} else {
+			g.writeString(text);
+		}
+	}
+
+	private static void writeTyped(JsonGenerator g, Element e) throws IOException {
+		String type = e.type == null ? "s" : e.type;
+		String text = e.text == null ? "" : e.text.toString();
+		switch (type.length() == 1 ? type.charAt(0) : ' ') {
+		case 'o':
+			g.writeStartObject();
+			if (e.children != null)
+				for (Element child : e.children) {
+					g.writeFieldName(child.localName);
+					writeTyped(g, child);
+				}
+			g.writeEndObject();
+			break;
+		case 'a':
+			g.writeStartArray();
+			if (e.children != null)
+				for (Element child : e.children)
+					writeTyped(g, child);
+			g.writeEndArray();
+			break;
+		case 'b':
+			g.writeBoolean(Boolean.parseBoolean(text.trim()));
+			break;
+		case 'n':
+			g.writeNull();
+			break;
+		case 'i':
+		case 'f':
+			g.writeNumber(text.trim());
+			break;
+		default:
+			g.writeString(text);
+		}
+	}
+
+}
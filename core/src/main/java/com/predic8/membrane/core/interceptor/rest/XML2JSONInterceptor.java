@@ -0,0 +1,104 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import com.predic8.membrane.annot.MCAttribute;
+import com.predic8.membrane.annot.MCElement;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.BodyOutputStream;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.http.MimeType;
+import com.predic8.membrane.core.interceptor.AbstractInterceptor;
+import com.predic8.membrane.core.interceptor.Outcome;
+
+/**
+ * @description <p>
+ *              Converts XML message bodies into JSON. The conversion is the same as the one used by
+ *              <tt>rest2Soap</tt>: The root element becomes the only member of the top-level object, repeated
+ *              elements become arrays and text becomes strings, numbers or booleans.
+ *              </p>
+ * @topic 3. Enterprise Integration Patterns
+ */
+@MCElement(name="xml2json")
+public class XML2JSONInterceptor extends AbstractInterceptor {
+
+	private final XML2JSON xml2json = new XML2JSON();
+	private String arrayElements;
+
+	public XML2JSONInterceptor() {
+		name = "XML 2 JSON";
+	}
+
+	@Override
+	public Outcome handleRequest(Exchange exc) throws Exception {
+		convert(exc.getRequest());
+		return Outcome.CONTINUE;
+	}
+
+	@Override
+	public Outcome handleResponse(Exchange exc) throws Exception {
+		convert(exc.getResponse());
+		return Outcome.CONTINUE;
+	}
+
+	private void convert(Message msg) throws Exception {
+		if (msg.isBodyEmpty() || !msg.isXML())
+			return;
+		BodyOutputStream out = new BodyOutputStream();
+		xml2json.convert(msg.getBodyAsStreamDecoded(), out);
+		msg.setBodyContent(out.createBody());
+		msg.getHeader().removeFields(Header.CONTENT_TYPE);
+		msg.getHeader().setContentType(MimeType.APPLICATION_JSON_UTF8);
+	}
+
+	public boolean isAttributes() {
+		return xml2json.isMapAttributes();
+	}
+
+	/**
+	 * @description Whether XML attributes become members named <tt>@name</tt> (the element's text then becomes the
+	 *              member <tt>#text</tt>). If not set, attributes are dropped.
+	 * @default false
+	 */
+	@MCAttribute
+	public void setAttributes(boolean attributes) {
+		xml2json.setMapAttributes(attributes);
+	}
+
+	public String getArrayElements() {
+		return arrayElements;
+	}
+
+	/**
+	 * @description Comma-separated list of element names (without prefix) which always become array items, even
+	 *              if an element contains only one of them.
+	 * @example item,entry
+	 */
+	@MCAttribute
+	public void setArrayElements(String arrayElements) {
+		this.arrayElements = arrayElements;
+		xml2json.setArrayElements(new HashSet<String>(Arrays.asList(arrayElements.trim().split("\\s*,\\s*"))));
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Converts XML message bodies into JSON.";
+	}
+
+}
@@ -0,0 +1,224 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rewrite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.predic8.membrane.core.interceptor.rewrite.RewriteInterceptor.Mapping;
+
+/**
+ * The mappings of a {@link RewriteInterceptor}, compiled for fast lookup of the first mapping matching a URI.
+ *
+ * Mappings anchored at the beginning (<tt>^/literal/prefix...</tt>) can only match URIs starting with their literal
+ * prefix. They are stored in a trie, so only the mappings whose prefix matches the URI are tried. If the whole
+ * expression is a literal prefix, no regular expression is evaluated at all. All other mappings are tried using
+ * their compiled pattern. Either way, the mappings are tried in the configured order.
+ *
+ * The replacement is computed from the matcher which found the match, with the semantics of
+ * {@link String#replaceAll(String, String)}. Recent results are kept in a bounded cache.
+ */
+class CompiledMappings {
+
+	static final class Result {
+		final Mapping mapping;
+		final String uri;
+
+		Result(Mapping mapping, String uri) {
+			this.mapping = mapping;
+			this.uri = uri;
+		}
+	}
+
+	private static final Result NO_MATCH = new Result(null, null);
+
+	private static final class Node {
+		Map<Character, Node> children;
+		/** indexes of the mappings whose literal prefix ends at this node, in ascending order */
+		int[] mappings;
+	}
+
+	private final Mapping[] mappings;
+	/** the literal prefix of each mapping anchored at the beginning, otherwise null */
+	private final String[] prefixes;
+	/** whether the mapping's expression consists of its literal prefix only */
+	private final boolean[] literalOnly;
+	private final Node root = new Node();
+	/** indexes of the mappings which are not stored in the trie */
+	private final int[] unindexed;
+	private final Cache<String, Result> cache;
+
+	CompiledMappings(List<Mapping> mappings, int cacheSize) {
+		this.mappings = mappings.toArray(new Mapping[mappings.size()]);
+		prefixes = new String[this.mappings.length];
+		literalOnly = new boolean[this.mappings.length];
+		List<Integer> unindexed = new ArrayList<Integer>();
+		for (int i = 0; i < this.mappings.length; i++) {
+			Mapping m = this.mappings[i];
+			m.getDo(); // resolve the default
+			String from = m.getFrom();
+			int end = getLiteralPrefixEnd(from);
+			if (end == -1) {
+				unindexed.add(i);
+				continue;
+			}
+			prefixes[i] = unescape(from.substring(1, end));
+			literalOnly[i] = end == from.length();
+			add(prefixes[i], i);
+		}
+		this.unindexed = new int[unindexed.size()];
+		for (int i = 0; i < this.unindexed.length; i++)
+			this.unindexed[i] = unindexed.get(i);
+		cache = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).<String, Result>build() : null;
+	}
+
+	private void add(String prefix, int index) {
+		Node node = root;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (node.children == null)
+				node.children = new HashMap<Character, Node>();
+			Node child = node.children.get(prefix.charAt(i));
+			if (child == null) {
+				child = new Node();
+				node.children.put(prefix.charAt(i), child);
+			}
+			node = child;
+		}
+		if (node.mappings == null) {
+			node.mappings = new int[] { index };
+		} else {
+			node.mappings = Arrays.copyOf(node.mappings, node.mappings.length + 1);
+			node.mappings[node.mappings.length - 1] = index;
+		}
+	}
+
+	/**
+	 * @return the end of the literal prefix of an expression starting with '^', or -1 if the expression does not
+	 *         start with '^' or might match elsewhere (because it contains an alternation)
+	 */
+	static int getLiteralPrefixEnd(String regex) {
+		if (!regex.startsWith("^") || regex.indexOf('|') != -1)
+			return -1;
+		int i = 1;
+		int lastLiteralStart = 1;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1)))
+					break; // character classes, back references, \Q...\E
+				lastLiteralStart = i;
+				i += 2;
+			} else if ("^$.?*+()[]{}".indexOf(c) != -1) {
+				if (c == '?' || c == '*' || c == '+' || c == '{')
+					return lastLiteralStart; // the quantifier applies to the last literal
+				break;
+			} else {
+				lastLiteralStart = i;
+				i++;
+			}
+		}
+		return i;
+	}
+
+	private static String unescape(String literal) {
+		if (literal.indexOf('\\') == -1)
+			return literal;
+		StringBuilder sb = new StringBuilder(literal.length());
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if (c == '\\')
+				c = literal.charAt(++i);
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the first matching mapping and the rewritten URI, or null if no mapping matches
+	 */
+	Result rewrite(String uri) {
+		if (cache == null) {
+			Result r = compute(uri);
+			return r == NO_MATCH ? null : r;
+		}
+		Result r = cache.getIfPresent(uri);
+		if (r == null) {
+			r = compute(uri);
+			cache.put(uri, r);
+		}
+		return r == NO_MATCH ? null : r;
+	}
+
+	private Result compute(String uri) {
+		int[] candidates = getCandidates(uri);
+		for (int i : candidates) {
+			Mapping m = mappings[i];
+			if (literalOnly[i]) {
+				if (m.getTo().indexOf('$') == -1 && m.getTo().indexOf('\\') == -1)
+					return new Result(m, m.getTo() + uri.substring(prefixes[i].length()));
+				return replace(m, uri);
+			}
+			Result r = replace(m, uri);
+			if (r != null)
+				return r;
+		}
+		return NO_MATCH;
+	}
+
+	/**
+	 * @return the indexes of the mappings which might match, in ascending order
+	 */
+	private int[] getCandidates(String uri) {
+		int[] candidates = new int[mappings.length];
+		int n = 0;
+		for (int i : unindexed)
+			candidates[n++] = i;
+		Node node = root;
+		for (int i = 0; node != null; i++) {
+			if (node.mappings != null)
+				for (int m : node.mappings)
+					candidates[n++] = m;
+			if (i == uri.length() || node.children == null)
+				break;
+			node = node.children.get(uri.charAt(i));
+		}
+		Arrays.sort(candidates, 0, n);
+		return n == candidates.length ? candidates : Arrays.copyOf(candidates, n);
+	}
+
+	/**
+	 * Replaces all matches, continuing from the first match (as {@link Matcher#replaceAll(String)} would do after
+	 * finding it again).
+	 *
+	 * @return the result, or null if the mapping does not match
+	 */
+	private static Result replace(Mapping m, String uri) {
+		Matcher matcher = m.getPattern().matcher(uri);
+		if (!matcher.find())
+			return null;
+		StringBuffer sb = new StringBuffer(uri.length() + m.getTo().length());
+		do {
+			matcher.appendReplacement(sb, m.getTo());
+		} while (matcher.find());
+		matcher.appendTail(sb);
+		return new Result(m, sb.toString());
+	}
+}
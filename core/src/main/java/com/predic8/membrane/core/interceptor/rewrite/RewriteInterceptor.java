@@ -84,6 +84,10 @@ public class RewriteInterceptor extends AbstractInterceptor {
 			return pattern.matcher(uri).find();
 		}
 
+		Pattern getPattern() {
+			return pattern;
+		}
+
 		public String getFrom() {
 			return from;
 		}
@@ -138,6 +142,9 @@ public class RewriteInterceptor extends AbstractInterceptor {
 	private static Logger log = LoggerFactory.getLogger(RewriteInterceptor.class.getName());
 
 	private List<Mapping> mappings = new ArrayList<Mapping>();
+	private int cacheSize = 1000;
+
+	private volatile CompiledMappings compiledMappings;
 
 	public RewriteInterceptor() {
 		name = "URL Rewriter";
@@ -145,9 +152,24 @@ public class RewriteInterceptor extends AbstractInterceptor {
 	}
 
 	@Override
-	public Outcome handleRequest(Exchange exc) throws Exception {
+	public void init() throws Exception {
+		super.init();
+		compiledMappings = new CompiledMappings(mappings, cacheSize);
+	}
 
-		logMappings();
+	private CompiledMappings getCompiledMappings() {
+		CompiledMappings cm = compiledMappings;
+		if (cm == null)
+			compiledMappings = cm = new CompiledMappings(mappings, cacheSize);
+		return cm;
+	}
+
+	@Override
+	public Outcome handleRequest(Exchange exc) throws Exception {
+		boolean logDebug = log.isDebugEnabled();
+		if (logDebug)
+			logMappings();
+		CompiledMappings compiledMappings = getCompiledMappings();
 
 		ListIterator<String>  it = exc.getDestinations().listIterator();
 		while ( it.hasNext() ) {
@@ -160,20 +182,26 @@ public class RewriteInterceptor extends AbstractInterceptor {
 				pathBegin = dest.indexOf("/", authorityBegin + 2);
 			String schemaHostPort = pathBegin == -1 ? null : dest.substring(0, pathBegin);
 
-			log.debug("pathQuery: " + pathQuery);
-			log.debug("schemaHostPort: " + schemaHostPort);
+			if (logDebug) {
+				log.debug("pathQuery: " + pathQuery);
+				log.debug("schemaHostPort: " + schemaHostPort);
+			}
 
-			Mapping mapping = findFirstMatchingRegEx(pathQuery);
-			if (mapping == null)
+			CompiledMappings.Result result = compiledMappings.rewrite(pathQuery);
+			if (result == null)
 				continue;
 
+			Mapping mapping = result.mapping;
 			Type do_ = mapping.getDo();
 
-			log.debug("match found: " + mapping.from);
-			log.debug("replacing with: " + mapping.to);
-			log.debug("for type: " + do_);
+			if (logDebug) {
+				log.debug("match found: " + mapping.from);
+				log.debug("replacing with: " + mapping.to);
+				log.debug("for type: " + do_);
+				log.debug("replaced URI: " + result.uri);
+			}
 
-			String newDest = replace(pathQuery, mapping);
+			String newDest = result.uri;
 
 			if (do_ == Type.REDIRECT_PERMANENT || do_ == Type.REDIRECT_TEMPORARY) {
 				exc.setResponse(Response.redirect(newDest, do_ == Type.REDIRECT_PERMANENT).build());
@@ -188,9 +216,9 @@ public class RewriteInterceptor extends AbstractInterceptor {
 			it.set(newDest);
 		}
 
-		Mapping mapping = findFirstMatchingRegEx(exc.getRequest().getUri());
-		if (mapping != null && mapping.do_ == Type.REWRITE) {
-			String newDest = replace(exc.getRequest().getUri(), mapping);
+		CompiledMappings.Result result = compiledMappings.rewrite(exc.getRequest().getUri());
+		if (result != null && result.mapping.getDo() == Type.REWRITE) {
+			String newDest = result.uri;
 			if (newDest.contains("://")) {
 				newDest = URLUtil.getPathQuery(router.getUriFactory(), newDest);
 			}
@@ -206,22 +234,6 @@ public class RewriteInterceptor extends AbstractInterceptor {
 		}
 	}
 
-	private String replace(String uri, Mapping mapping) {
-		String replaced = uri.replaceAll(mapping.from, mapping.to);
-
-		log.debug("replaced URI: " + replaced);
-
-		return replaced;
-	}
-
-	private Mapping findFirstMatchingRegEx(String uri) {
-		for (Mapping m : mappings) {
-			if (m.matches(uri))
-				return m;
-		}
-		return null;
-	}
-
 	public List<Mapping> getMappings() {
 		return mappings;
 	}
@@ -233,6 +245,21 @@ public class RewriteInterceptor extends AbstractInterceptor {
 	@MCChildElement
 	public void setMappings(List<Mapping> mappings) {
 		this.mappings = mappings;
+		compiledMappings = null;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * @description Number of recently rewritten URIs whose result is cached. 0 disables the cache.
+	 * @default 1000
+	 */
+	@MCAttribute
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+		compiledMappings = null;
 	}
 
 	@Override
@@ -18,7 +18,8 @@ import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.Source;
@@ -40,10 +41,15 @@ import com.predic8.membrane.core.multipart.XOPReconstitutor;
 import com.predic8.membrane.core.resolver.ResolverMap;
 import com.predic8.schema.Schema;
 
+/**
+ * The schemas are compiled only once per router (see {@link SchemaCache}). Each validation uses {@link Validator}s
+ * taken from an unbounded pool, so that concurrent validations never wait for each other.
+ */
 public abstract class AbstractXMLSchemaValidator implements IValidator {
 	private static Logger log = LoggerFactory.getLogger(AbstractXMLSchemaValidator.class.getName());
 
-	private final ArrayBlockingQueue<List<Validator>> validators;
+	private final ConcurrentLinkedQueue<List<Validator>> validators = new ConcurrentLinkedQueue<List<Validator>>();
+	private volatile List<javax.xml.validation.Schema> compiledSchemas;
 	protected final XOPReconstitutor xopr;
 	protected final String location;
 	protected final ResolverMap resourceResolver;
@@ -58,23 +64,31 @@ public abstract class AbstractXMLSchemaValidator implements IValidator {
 	}
 
 	public AbstractXMLSchemaValidator(ResolverMap resourceResolver, String location, ValidatorInterceptor.FailureHandler failureHandler, boolean skipFaults) throws Exception {
+		this(resourceResolver, location, failureHandler, skipFaults, true);
+	}
+
+	/**
+	 * @param warmUp whether to compile the schemas now (failing if they cannot be retrieved or are invalid), or on
+	 *        first use
+	 */
+	public AbstractXMLSchemaValidator(ResolverMap resourceResolver, String location, ValidatorInterceptor.FailureHandler failureHandler, boolean skipFaults, boolean warmUp) throws Exception {
 		this.location = location;
 		this.resourceResolver = resourceResolver;
 		this.failureHandler = failureHandler;
 		this.skipFaults = skipFaults;
-		int concurrency = Runtime.getRuntime().availableProcessors() * 2;
-		validators = new ArrayBlockingQueue<List<Validator>>(concurrency);
-		for (int i = 0; i < concurrency; i++)
-			validators.add(createValidators());
 		xopr = new XOPReconstitutor();
+		if (warmUp)
+			validators.add(createValidators());
 	}
 
 	public Outcome validateMessage(Exchange exc, Message msg, String source) throws Exception {
 		List<Exception> exceptions = new ArrayList<Exception>();
 		String preliminaryError = getPreliminaryError(xopr, msg);
 		if (preliminaryError == null) {
-			List<Validator> vals = validators.take();
+			List<Validator> vals = validators.poll();
 			try {
+				if (vals == null)
+					vals = createValidators();
 				// the message must be valid for one schema embedded into WSDL
 				for (Validator validator: vals) {
 					SchemaValidatorErrorHandler handler = (SchemaValidatorErrorHandler)validator.getErrorHandler();
@@ -92,7 +106,8 @@ public abstract class AbstractXMLSchemaValidator implements IValidator {
 			} catch (Exception e) {
 				exceptions.add(e);
 			} finally {
-				validators.put(vals);
+				if (vals != null)
+					validators.offer(vals);
 			}
 		} else {
 			exceptions.add(new Exception(preliminaryError));
@@ -114,15 +129,10 @@ public abstract class AbstractXMLSchemaValidator implements IValidator {
 		return Outcome.ABORT;
 	}
 
-	protected List<Validator> createValidators() throws Exception {
-		SchemaFactory sf = SchemaFactory.newInstance(Constants.XSD_NS);
+	private List<Validator> createValidators() throws Exception {
 		List<Validator> validators = new ArrayList<Validator>();
-		for (Schema schema : getSchemas()) {
-			log.debug("Creating validator for schema: " + schema);
-			StreamSource ss = new StreamSource(new StringReader(schema.getAsString()));
-			ss.setSystemId(location);
-			sf.setResourceResolver(resourceResolver.toLSResourceResolver());
-			Validator validator = sf.newSchema(ss).newValidator();
+		for (javax.xml.validation.Schema schema : getCompiledSchemas()) {
+			Validator validator = schema.newValidator();
 			validator.setResourceResolver(resourceResolver.toLSResourceResolver());
 			validator.setErrorHandler(new SchemaValidatorErrorHandler());
 			validators.add(validator);
@@ -130,6 +140,33 @@ public abstract class AbstractXMLSchemaValidator implements IValidator {
 		return validators;
 	}
 
+	List<javax.xml.validation.Schema> getCompiledSchemas() throws Exception {
+		List<javax.xml.validation.Schema> schemas = compiledSchemas;
+		if (schemas == null) {
+			schemas = SchemaCache.get(resourceResolver, getClass().getName() + ":" + location, new Callable<List<javax.xml.validation.Schema>>() {
+				@Override
+				public List<javax.xml.validation.Schema> call() throws Exception {
+					return compileSchemas();
+				}
+			});
+			compiledSchemas = schemas;
+		}
+		return schemas;
+	}
+
+	protected List<javax.xml.validation.Schema> compileSchemas() throws Exception {
+		SchemaFactory sf = SchemaFactory.newInstance(Constants.XSD_NS);
+		sf.setResourceResolver(resourceResolver.toLSResourceResolver());
+		List<javax.xml.validation.Schema> schemas = new ArrayList<javax.xml.validation.Schema>();
+		for (Schema schema : getSchemas()) {
+			log.debug("Compiling schema: " + schema);
+			StreamSource ss = new StreamSource(new StringReader(schema.getAsString()));
+			ss.setSystemId(location);
+			schemas.add(sf.newSchema(ss));
+		}
+		return schemas;
+	}
+
 	private String getErrorMsg(List<Exception> excs) {
 		StringBuilder buf = new StringBuilder();
 		buf.append("Validation failed: ");
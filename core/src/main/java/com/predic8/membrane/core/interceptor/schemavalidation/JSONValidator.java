@@ -21,11 +21,13 @@ import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.JsonLoader;
@@ -41,10 +43,31 @@ import com.predic8.membrane.core.interceptor.Outcome;
 import com.predic8.membrane.core.interceptor.schemavalidation.ValidatorInterceptor.FailureHandler;
 import com.predic8.membrane.core.resolver.ResolverMap;
 
+/**
+ * Validates JSON documents against a JSON Schema.
+ *
+ * If the schema only uses keywords supported by {@link StreamingJSONSchema}, documents are validated while they
+ * are parsed, stopping at the first violation. Otherwise, the document is loaded into a tree and validated using
+ * the complete implementation, which reports all violations.
+ *
+ * Compiled schemas are shared by all validators of the router (see {@link SchemaCache}).
+ */
 public class JSONValidator implements IValidator {
 	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private static final class CompiledSchema {
+		final JsonSchema schema;
+		final StreamingJSONSchema streamingSchema;
+
+		CompiledSchema(JsonSchema schema, StreamingJSONSchema streamingSchema) {
+			this.schema = schema;
+			this.streamingSchema = streamingSchema;
+		}
+	}
 
 	private JsonSchema schema;
+	private StreamingJSONSchema streamingSchema;
 	private final ResolverMap resourceResolver;
 	private final String jsonSchema;
 	private final ValidatorInterceptor.FailureHandler failureHandler;
@@ -67,12 +90,26 @@ public class JSONValidator implements IValidator {
 		List<String> errors;
 		boolean success = true;
 		try {
-			JsonNode node = JsonLoader.fromReader(new InputStreamReader(body, charset));
-			ProcessingReport report = schema.validateUnchecked(node);
-			success = report.isSuccess();
-			errors = new ArrayList<String>();
-			for (ProcessingMessage message : report)
-				errors.add(message.getMessage());
+			if (streamingSchema != null) {
+				errors = new ArrayList<String>();
+				JsonParser jp = jsonFactory.createParser(new InputStreamReader(body, charset));
+				try {
+					String error = streamingSchema.validate(jp);
+					if (error != null) {
+						success = false;
+						errors.add(error);
+					}
+				} finally {
+					jp.close();
+				}
+			} else {
+				JsonNode node = JsonLoader.fromReader(new InputStreamReader(body, charset));
+				ProcessingReport report = schema.validateUnchecked(node);
+				success = report.isSuccess();
+				errors = new ArrayList<String>();
+				for (ProcessingMessage message : report)
+					errors.add(message.getMessage());
+			}
 		} catch (JsonParseException e) {
 			success = false;
 			errors = new ArrayList<String>();
@@ -126,13 +163,26 @@ public class JSONValidator implements IValidator {
 
 
 	private void createValidators() throws IOException {
-		JsonSchemaFactory factory = JsonSchemaFactory.byDefault();
-		JsonNode schemaNode = JsonLoader.fromReader(new InputStreamReader(resourceResolver.resolve(jsonSchema)));
+		CompiledSchema compiled;
 		try {
-			schema = factory.getJsonSchema(schemaNode);
+			compiled = SchemaCache.get(resourceResolver, getClass().getName() + ":" + jsonSchema, new Callable<CompiledSchema>() {
+				@Override
+				public CompiledSchema call() throws Exception {
+					JsonNode schemaNode = JsonLoader.fromReader(new InputStreamReader(resourceResolver.resolve(jsonSchema)));
+					return new CompiledSchema(JsonSchemaFactory.byDefault().getJsonSchema(schemaNode), StreamingJSONSchema.compile(schemaNode));
+				}
+			});
+		} catch (IOException e) {
+			throw e;
 		} catch (ProcessingException e) {
 			throw new IOException(e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
 		}
+		schema = compiled.schema;
+		streamingSchema = compiled.streamingSchema;
 	}
 
 	@Override
@@ -0,0 +1,54 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.schemavalidation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.predic8.membrane.core.resolver.ResolverMap;
+
+/**
+ * Compiled (and therefore immutable and thread-safe) XML and JSON Schemas, shared by all validators using the
+ * same {@link ResolverMap}, which means the same router. Keys must therefore determine the type of the value.
+ *
+ * As a hot deployment creates a new router (and resolver map), changed schemas are picked up then.
+ */
+class SchemaCache {
+
+	private static final Cache<ResolverMap, Cache<String, Object>> caches = CacheBuilder.newBuilder().weakKeys().build();
+
+	/**
+	 * Returns the schemas compiled for the key, compiling them if necessary. Concurrent requests for the same key
+	 * wait for a single compilation. Failures are not cached.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T get(ResolverMap resolverMap, String key, Callable<T> compiler) throws Exception {
+		try {
+			return (T) caches.get(resolverMap, new Callable<Cache<String, Object>>() {
+				@Override
+				public Cache<String, Object> call() throws Exception {
+					return CacheBuilder.newBuilder().build();
+				}
+			}).get(key, (Callable<Object>) compiler);
+		} catch (ExecutionException e) {
+			throw (Exception) e.getCause();
+		} catch (UncheckedExecutionException e) {
+			throw (RuntimeException) e.getCause();
+		}
+	}
+}
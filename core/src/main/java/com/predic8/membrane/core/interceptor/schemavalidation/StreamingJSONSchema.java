@@ -0,0 +1,424 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.schemavalidation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A JSON Schema (draft 4) validating documents while they are parsed by a {@link JsonParser}, without building a
+ * tree of the document. Validation stops at the first violation.
+ *
+ * Only a subset of the keywords is supported: <tt>type</tt>, <tt>enum</tt> (with primitive values),
+ * <tt>required</tt>, <tt>properties</tt>, <tt>additionalProperties</tt>, <tt>minProperties</tt>,
+ * <tt>maxProperties</tt>, <tt>items</tt> (with a single schema), <tt>minItems</tt>, <tt>maxItems</tt>,
+ * <tt>minimum</tt>, <tt>maximum</tt>, <tt>exclusiveMinimum</tt>, <tt>exclusiveMaximum</tt>, <tt>minLength</tt>,
+ * <tt>maxLength</tt> and <tt>pattern</tt>. {@link #compile(JsonNode)} returns null for schemas using other keywords.
+ *
+ * Instances are immutable and thread-safe.
+ */
+final class StreamingJSONSchema {
+
+	private static final Set<String> ANNOTATIONS = new HashSet<String>(Arrays.asList(
+			"$schema", "id", "title", "description", "default", "definitions"));
+
+	private static final int NULL = 1, BOOLEAN = 2, INTEGER = 4, NUMBER = 8, STRING = 16, ARRAY = 32, OBJECT = 64;
+	private static final Object NULL_VALUE = new Object();
+
+	private static final class Node {
+		int types; // 0 = any
+		String typesText;
+		List<Object> enumValues;
+		String enumText;
+
+		Set<String> required;
+		Map<String, Node> properties;
+		boolean additionalPropertiesAllowed = true;
+		Node additionalProperties;
+		int minProperties = -1, maxProperties = -1;
+
+		Node items;
+		int minItems = -1, maxItems = -1;
+
+		BigDecimal minimum, maximum;
+		boolean exclusiveMinimum, exclusiveMaximum;
+
+		int minLength = -1, maxLength = -1;
+		Pattern pattern;
+		String patternText;
+	}
+
+	private static class UnsupportedSchemaException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private final Node root;
+
+	private StreamingJSONSchema(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the compiled schema, or null if the schema uses keywords which are not supported
+	 */
+	public static StreamingJSONSchema compile(JsonNode schema) {
+		try {
+			return new StreamingJSONSchema(compileNode(schema));
+		} catch (UnsupportedSchemaException e) {
+			return null;
+		}
+	}
+
+	private static Node compileNode(JsonNode schema) throws UnsupportedSchemaException {
+		if (!schema.isObject())
+			throw new UnsupportedSchemaException();
+		Node node = new Node();
+		Iterator<Map.Entry<String, JsonNode>> fields = schema.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			String keyword = field.getKey();
+			JsonNode value = field.getValue();
+			if (ANNOTATIONS.contains(keyword))
+				continue;
+			if (keyword.equals("type")) {
+				if (value.isTextual()) {
+					node.types = getType(value.asText());
+				} else if (value.isArray()) {
+					for (JsonNode type : value)
+						node.types |= getType(type.asText());
+				} else {
+					throw new UnsupportedSchemaException();
+				}
+				node.typesText = value.isArray() ? value.toString() : "[" + value.toString() + "]";
+			} else if (keyword.equals("enum")) {
+				node.enumValues = new ArrayList<Object>();
+				for (JsonNode v : value) {
+					if (v.isTextual())
+						node.enumValues.add(v.asText());
+					else if (v.isNumber())
+						node.enumValues.add(v.decimalValue());
+					else if (v.isBoolean())
+						node.enumValues.add(v.asBoolean());
+					else if (v.isNull())
+						node.enumValues.add(NULL_VALUE);
+					else
+						throw new UnsupportedSchemaException();
+				}
+				node.enumText = value.toString();
+			} else if (keyword.equals("required")) {
+				if (!value.isArray())
+					throw new UnsupportedSchemaException(); // draft 3
+				node.required = new HashSet<String>();
+				for (JsonNode name : value)
+					node.required.add(name.asText());
+			} else if (keyword.equals("properties")) {
+				node.properties = new HashMap<String, Node>();
+				Iterator<Map.Entry<String, JsonNode>> properties = value.fields();
+				while (properties.hasNext()) {
+					Map.Entry<String, JsonNode> property = properties.next();
+					node.properties.put(property.getKey(), compileNode(property.getValue()));
+				}
+			} else if (keyword.equals("additionalProperties")) {
+				if (value.isBoolean())
+					node.additionalPropertiesAllowed = value.asBoolean();
+				else
+					node.additionalProperties = compileNode(value);
+			} else if (keyword.equals("items")) {
+				node.items = compileNode(value); // tuple validation is not supported
+			} else if (keyword.equals("minimum")) {
+				node.minimum = getNumber(value);
+			} else if (keyword.equals("maximum")) {
+				node.maximum = getNumber(value);
+			} else if (keyword.equals("exclusiveMinimum")) {
+				node.exclusiveMinimum = getBoolean(value);
+			} else if (keyword.equals("exclusiveMaximum")) {
+				node.exclusiveMaximum = getBoolean(value);
+			} else if (keyword.equals("minLength")) {
+				node.minLength = getInt(value);
+			} else if (keyword.equals("maxLength")) {
+				node.maxLength = getInt(value);
+			} else if (keyword.equals("minItems")) {
+				node.minItems = getInt(value);
+			} else if (keyword.equals("maxItems")) {
+				node.maxItems = getInt(value);
+			} else if (keyword.equals("minProperties")) {
+				node.minProperties = getInt(value);
+			} else if (keyword.equals("maxProperties")) {
+				node.maxProperties = getInt(value);
+			} else if (keyword.equals("pattern")) {
+				try {
+					node.pattern = Pattern.compile(value.asText());
+				} catch (PatternSyntaxException e) {
+					throw new UnsupportedSchemaException(); // ECMA 262 syntax not understood by java.util.regex
+				}
+				node.patternText = value.asText();
+			} else {
+				throw new UnsupportedSchemaException();
+			}
+		}
+		return node;
+	}
+
+	private static int getType(String type) throws UnsupportedSchemaException {
+		if (type.equals("null"))
+			return NULL;
+		if (type.equals("boolean"))
+			return BOOLEAN;
+		if (type.equals("integer"))
+			return INTEGER;
+		if (type.equals("number"))
+			return INTEGER | NUMBER;
+		if (type.equals("string"))
+			return STRING;
+		if (type.equals("array"))
+			return ARRAY;
+		if (type.equals("object"))
+			return OBJECT;
+		throw new UnsupportedSchemaException();
+	}
+
+	private static BigDecimal getNumber(JsonNode value) throws UnsupportedSchemaException {
+		if (!value.isNumber())
+			throw new UnsupportedSchemaException();
+		return value.decimalValue();
+	}
+
+	private static boolean getBoolean(JsonNode value) throws UnsupportedSchemaException {
+		if (!value.isBoolean())
+			throw new UnsupportedSchemaException();
+		return value.asBoolean();
+	}
+
+	private static int getInt(JsonNode value) throws UnsupportedSchemaException {
+		if (!value.isIntegralNumber() || !value.canConvertToInt())
+			throw new UnsupportedSchemaException();
+		return value.asInt();
+	}
+
+	/**
+	 * Reads the document from the parser and validates it.
+	 *
+	 * @return null, if the document is valid, or a description of the first violation found
+	 * @throws com.fasterxml.jackson.core.JsonParseException if the document is not well-formed
+	 */
+	public String validate(JsonParser jp) throws IOException {
+		if (jp.nextToken() == null)
+			return "no JSON document found";
+		ArrayList<Object> path = new ArrayList<Object>();
+		String error = validate(jp, root, path);
+		if (error != null)
+			return error;
+		if (jp.nextToken() != null)
+			return "unexpected content after the JSON document";
+		return null;
+	}
+
+	private String validate(JsonParser jp, Node s, ArrayList<Object> path) throws IOException {
+		JsonToken token = jp.getCurrentToken();
+		int type = getType(token);
+		if (s.types != 0 && (s.types & type) == 0) {
+			jp.skipChildren();
+			return error(path, "instance type (" + getTypeName(type) + ") does not match any allowed primitive type (allowed: " + s.typesText + ")");
+		}
+		switch (type) {
+		case OBJECT:
+			return validateObject(jp, s, path);
+		case ARRAY:
+			return validateArray(jp, s, path);
+		case STRING:
+			String text = jp.getText();
+			if (s.enumValues != null && !s.enumValues.contains(text))
+				return error(path, "instance value (\"" + text + "\") not found in enum (possible values: " + s.enumText + ")");
+			if (s.minLength != -1 || s.maxLength != -1) {
+				int length = text.codePointCount(0, text.length());
+				if (s.minLength != -1 && length < s.minLength)
+					return error(path, "string \"" + text + "\" is too short (length: " + length + ", required minimum: " + s.minLength + ")");
+				if (s.maxLength != -1 && length > s.maxLength)
+					return error(path, "string \"" + text + "\" is too long (length: " + length + ", maximum allowed: " + s.maxLength + ")");
+			}
+			if (s.pattern != null && !s.pattern.matcher(text).find())
+				return error(path, "ECMA 262 regex \"" + s.patternText + "\" does not match input string \"" + text + "\"");
+			return null;
+		case INTEGER:
+		case NUMBER:
+			if (s.enumValues == null && s.minimum == null && s.maximum == null)
+				return null;
+			BigDecimal value = jp.getDecimalValue();
+			if (s.enumValues != null && !containsNumber(s.enumValues, value))
+				return error(path, "instance value (" + jp.getText() + ") not found in enum (possible values: " + s.enumText + ")");
+			if (s.minimum != null) {
+				int c = value.compareTo(s.minimum);
+				if (c < 0)
+					return error(path, "numeric instance is lower than the required minimum (minimum: " + s.minimum + ", found: " + jp.getText() + ")");
+				if (c == 0 && s.exclusiveMinimum)
+					return error(path, "numeric instance is not strictly greater than the required minimum " + s.minimum);
+			}
+			if (s.maximum != null) {
+				int c = value.compareTo(s.maximum);
+				if (c > 0)
+					return error(path, "numeric instance is greater than the required maximum (maximum: " + s.maximum + ", found: " + jp.getText() + ")");
+				if (c == 0 && s.exclusiveMaximum)
+					return error(path, "numeric instance is not strictly lower than the required maximum " + s.maximum);
+			}
+			return null;
+		case BOOLEAN:
+			if (s.enumValues != null && !s.enumValues.contains(jp.getBooleanValue()))
+				return error(path, "instance value (" + jp.getText() + ") not found in enum (possible values: " + s.enumText + ")");
+			return null;
+		default:
+			if (s.enumValues != null && !s.enumValues.contains(NULL_VALUE))
+				return error(path, "instance value (null) not found in enum (possible values: " + s.enumText + ")");
+			return null;
+		}
+	}
+
+	private String validateObject(JsonParser jp, Node s, ArrayList<Object> path) throws IOException {
+		if (s.enumValues != null) {
+			jp.skipChildren();
+			return error(path, "instance value not found in enum (possible values: " + s.enumText + ")");
+		}
+		Set<String> missing = s.required == null ? null : new HashSet<String>(s.required);
+		int count = 0;
+		while (jp.nextToken() == JsonToken.FIELD_NAME) {
+			String name = jp.getCurrentName();
+			jp.nextToken();
+			if (++count > s.maxProperties && s.maxProperties != -1) {
+				jp.skipChildren();
+				return error(path, "object has too many properties (found " + count + " but schema requires at most " + s.maxProperties + ")");
+			}
+			if (missing != null)
+				missing.remove(name);
+			Node child = s.properties == null ? null : s.properties.get(name);
+			if (child == null) {
+				if (!s.additionalPropertiesAllowed) {
+					jp.skipChildren();
+					return error(path, "object instance has properties which are not allowed by the schema: [\"" + name + "\"]");
+				}
+				child = s.additionalProperties;
+			}
+			if (child == null) {
+				jp.skipChildren();
+				continue;
+			}
+			path.add(name);
+			String error = validate(jp, child, path);
+			if (error != null)
+				return error;
+			path.remove(path.size() - 1);
+		}
+		if (missing != null && !missing.isEmpty()) {
+			StringBuilder sb = new StringBuilder();
+			for (String name : new TreeSet<String>(missing))
+				sb.append(sb.length() == 0 ? "[\"" : ",\"").append(name).append("\"");
+			sb.append("]");
+			return error(path, "object has missing required properties (" + sb + ")");
+		}
+		if (count < s.minProperties)
+			return error(path, "object has too few properties (found " + count + " but schema requires at least " + s.minProperties + ")");
+		return null;
+	}
+
+	private String validateArray(JsonParser jp, Node s, ArrayList<Object> path) throws IOException {
+		if (s.enumValues != null) {
+			jp.skipChildren();
+			return error(path, "instance value not found in enum (possible values: " + s.enumText + ")");
+		}
+		int count = 0;
+		while (jp.nextToken() != JsonToken.END_ARRAY) {
+			if (++count > s.maxItems && s.maxItems != -1) {
+				jp.skipChildren();
+				return error(path, "array is too long: must have at most " + s.maxItems + " elements but instance has more");
+			}
+			if (s.items == null) {
+				jp.skipChildren();
+				continue;
+			}
+			path.add(count - 1);
+			String error = validate(jp, s.items, path);
+			if (error != null)
+				return error;
+			path.remove(path.size() - 1);
+		}
+		if (count < s.minItems)
+			return error(path, "array is too short: must have at least " + s.minItems + " elements but instance has " + count + " elements");
+		return null;
+	}
+
+	private static boolean containsNumber(List<Object> values, BigDecimal value) {
+		for (Object v : values)
+			if (v instanceof BigDecimal && ((BigDecimal) v).compareTo(value) == 0)
+				return true;
+		return false;
+	}
+
+	private static int getType(JsonToken token) {
+		switch (token) {
+		case START_OBJECT:
+			return OBJECT;
+		case START_ARRAY:
+			return ARRAY;
+		case VALUE_STRING:
+			return STRING;
+		case VALUE_NUMBER_INT:
+			return INTEGER;
+		case VALUE_NUMBER_FLOAT:
+			return NUMBER;
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			return BOOLEAN;
+		case VALUE_NULL:
+			return NULL;
+		default:
+			throw new IllegalStateException("Unexpected token " + token);
+		}
+	}
+
+	private static String getTypeName(int type) {
+		switch (type) {
+		case OBJECT: return "object";
+		case ARRAY: return "array";
+		case STRING: return "string";
+		case INTEGER: return "integer";
+		case NUMBER: return "number";
+		case BOOLEAN: return "boolean";
+		default: return "null";
+		}
+	}
+
+	/**
+	 * The JSON pointer is only built if there actually is an error.
+	 */
+	private static String error(List<Object> path, String message) {
+		StringBuilder pointer = new StringBuilder();
+		for (Object element : path)
+			pointer.append('/').append(element.toString().replace("~", "~0").replace("/", "~1"));
+		return message + " (pointer: \"" + pointer + "\")";
+	}
+}
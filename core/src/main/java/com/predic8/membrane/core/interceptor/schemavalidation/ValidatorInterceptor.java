@@ -47,6 +47,7 @@ public class ValidatorInterceptor extends AbstractInterceptor implements Applica
 	private String schematron;
 	private String failureHandler;
 	private boolean skipFaults;
+	private boolean warmUp = true;
 
 	private IValidator validator;
 	private ResolverMap resourceResolver;
@@ -71,11 +72,11 @@ public class ValidatorInterceptor extends AbstractInterceptor implements Applica
 
 		if (wsdl != null) {
 			name="SOAP Validator";
-			setValidator(new WSDLValidator(resourceResolver, ResolverMap.combine(baseLocation, wsdl), createFailureHandler(), skipFaults));
+			setValidator(new WSDLValidator(resourceResolver, ResolverMap.combine(baseLocation, wsdl), createFailureHandler(), skipFaults, warmUp));
 		}
 		if (schema != null) {
 			name="XML Schema Validator";
-			setValidator(new XMLSchemaValidator(resourceResolver, ResolverMap.combine(baseLocation, schema), createFailureHandler()));
+			setValidator(new XMLSchemaValidator(resourceResolver, ResolverMap.combine(baseLocation, schema), createFailureHandler(), warmUp));
 		}
 		if (jsonSchema != null) {
 			name="JSON Schema Validator";
@@ -91,7 +92,7 @@ public class ValidatorInterceptor extends AbstractInterceptor implements Applica
 			if (parent instanceof SOAPProxy) {
 				wsdl = ((SOAPProxy)parent).getWsdl();
 				name = "SOAP Validator";
-				setValidator(new WSDLValidator(resourceResolver, ResolverMap.combine(baseLocation, wsdl), createFailureHandler(), skipFaults));
+				setValidator(new WSDLValidator(resourceResolver, ResolverMap.combine(baseLocation, wsdl), createFailureHandler(), skipFaults, warmUp));
 			}
 			if (validator == null)
 				throw new Exception("<validator> must have an attribute specifying the validator.");
@@ -197,6 +198,22 @@ public class ValidatorInterceptor extends AbstractInterceptor implements Applica
 		this.skipFaults = skipFaults;
 	}
 
+	public boolean isWarmUp() {
+		return warmUp;
+	}
+
+	/**
+	 * @description Whether a WSDL or XML Schema is compiled during initialization. Compiled schemas are shared by
+	 *              all validators of the router using the same location. If set to false, the schema is compiled
+	 *              when the first message is validated: This speeds up the startup, but a missing or broken schema
+	 *              is then only noticed by the first message.
+	 * @default true
+	 */
+	@MCAttribute
+	public void setWarmUp(boolean warmUp) {
+		this.warmUp = warmUp;
+	}
+
 	@Override
 	public void init(Router router) throws Exception {
 		resourceResolver = router.getResolverMap();
@@ -39,6 +39,10 @@ import com.predic8.wsdl.WSDLParserContext;
 public class WSDLValidator extends AbstractXMLSchemaValidator {
 	static Logger log = LoggerFactory.getLogger(WSDLValidator.class.getName());
 
+	public WSDLValidator(ResolverMap resourceResolver, String location, ValidatorInterceptor.FailureHandler failureHandler, boolean skipFaults, boolean warmUp) throws Exception {
+		super(resourceResolver, location, failureHandler, skipFaults, warmUp);
+	}
+
 	public WSDLValidator(ResolverMap resourceResolver, String location, ValidatorInterceptor.FailureHandler failureHandler, boolean skipFaults) throws Exception {
 		super(resourceResolver, location, failureHandler, skipFaults);
 	}
@@ -21,7 +21,6 @@ import java.util.List;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
@@ -42,24 +41,25 @@ public class XMLSchemaValidator extends AbstractXMLSchemaValidator {
 		super(resourceResolver, location, failureHandler);
 	}
 
+	public XMLSchemaValidator(ResolverMap resourceResolver, String location, ValidatorInterceptor.FailureHandler failureHandler, boolean warmUp) throws Exception {
+		super(resourceResolver, location, failureHandler, false, warmUp);
+	}
+
 	@Override
 	protected List<Schema> getSchemas() {
 		return null; // never gets called
 	}
 
 	@Override
-	protected List<Validator> createValidators() throws Exception {
+	protected List<javax.xml.validation.Schema> compileSchemas() throws Exception {
 		SchemaFactory sf = SchemaFactory.newInstance(Constants.XSD_NS);
 		sf.setResourceResolver(resourceResolver.toLSResourceResolver());
-		List<Validator> validators = new ArrayList<Validator>();
-		log.debug("Creating validator for schema: " + location);
+		log.debug("Compiling schema: " + location);
 		StreamSource ss = new StreamSource(resourceResolver.resolve(location));
 		ss.setSystemId(location);
-		Validator validator = sf.newSchema(ss).newValidator();
-		validator.setResourceResolver(resourceResolver.toLSResourceResolver());
-		validator.setErrorHandler(new SchemaValidatorErrorHandler());
-		validators.add(validator);
-		return validators;
+		List<javax.xml.validation.Schema> schemas = new ArrayList<javax.xml.validation.Schema>();
+		schemas.add(sf.newSchema(ss));
+		return schemas;
 	}
 
 	@Override
@@ -13,6 +13,7 @@
    limitations under the License. */
 package com.predic8.membrane.core.interceptor.server;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -26,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import com.predic8.membrane.annot.MCAttribute;
 import com.predic8.membrane.annot.MCElement;
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.interceptor.AbstractInterceptor;
@@ -63,13 +65,16 @@ public class WSDLPublisherInterceptor extends AbstractInterceptor {
 	 *
 	 * * During later runs (as well as the initial run, but that's result is discarded),
 	 * the documents are rewritten.
+	 *
+	 * Two instances are equal, if they create the same paths. (The relocated documents
+	 * can therefore be cached, as the initial run has registered their paths.)
 	 */
 	private final class RelativePathRewriter implements PathRewriter {
-		private final Exchange exc;
+		private final String name;
 		private final String resource;
 
-		private RelativePathRewriter(Exchange exc, String resource) {
-			this.exc = exc;
+		private RelativePathRewriter(Exchange exc, String resource) throws Exception {
+			this.name = URLUtil.getName(router.getUriFactory(), exc.getDestinations().get(0));
 			this.resource = resource;
 		}
 
@@ -90,12 +95,29 @@ public class WSDLPublisherInterceptor extends AbstractInterceptor {
 						path = Integer.toString(n);
 					}
 				}
-				path = "./" + URLUtil.getName(router.getUriFactory(), exc.getDestinations().get(0)) + "?xsd=" + path;
+				path = "./" + name + "?xsd=" + path;
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
 			return path;
 		}
+
+		private WSDLPublisherInterceptor getPublisher() {
+			return WSDLPublisherInterceptor.this;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RelativePathRewriter))
+				return false;
+			RelativePathRewriter other = (RelativePathRewriter) obj;
+			return getPublisher() == other.getPublisher() && name.equals(other.name) && resource.equals(other.resource);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + resource.hashCode();
+		}
 	}
 
 	@GuardedBy("paths")
@@ -191,9 +213,11 @@ public class WSDLPublisherInterceptor extends AbstractInterceptor {
 				}
 			}
 			if (resource != null) {
+				setLastModified(exc.getResponse(), resource);
 				WSDLInterceptor wi = new WSDLInterceptor();
 				wi.setRewriteEndpoint(false);
 				wi.setPathRewriter(new RelativePathRewriter(exc, resource));
+				wi.setRelocationCache(router.getRelocationCache());
 				wi.handleResponse(exc);
 				return Outcome.RETURN;
 			}
@@ -208,6 +232,20 @@ public class WSDLPublisherInterceptor extends AbstractInterceptor {
 		return Outcome.CONTINUE;
 	}
 
+	/**
+	 * Sets the <tt>Last-Modified</tt> header, if the resolver knows when the document was modified. (This
+	 * allows the relocated document to be cached.)
+	 */
+	private void setLastModified(Response response, String resource) {
+		try {
+			long timestamp = router.getResolverMap().getTimestamp(resource);
+			if (timestamp > 0)
+				response.getHeader().setValue(Header.LAST_MODIFIED, HttpUtil.createGMTDateFormat().format(new Date(timestamp)));
+		} catch (Exception e) {
+			log.debug("Could not determine the timestamp of " + resource, e);
+		}
+	}
+
 	@Override
 	public String getShortDescription() {
 		return "Publishes the WSDL at " + wsdl + " under \"?wsdl\" (as well as its dependent schemas under similar URLs).";
@@ -14,9 +14,13 @@
 package com.predic8.membrane.core.interceptor.xmlcontentfilter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
 
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathParser.ContainerNode;
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathParser.Node;
@@ -136,6 +140,160 @@ public class SimpleXPathAnalyzer {
 		return "*".equals(elementName) ? null : new QName(elementName);
 	}
 
+	/**
+	 * Describes an element path of the form "//foo", optionally followed by one predicate restricting the element's
+	 * namespace ("[namespace-uri()='...']", "//*[local-name()='foo' and namespace-uri()='...']") or one of its
+	 * attributes ("[@bar]", "[@bar='baz']").
+	 *
+	 * Matching elements can be determined by looking only at the start element (e.g. using a StAX parser).
+	 */
+	public static class ElementPath {
+		/** null means 'any namespace' */
+		public final String namespaceURI;
+		public final String localName;
+		/** null means 'no attribute predicate' */
+		public final String attributeName;
+		/** null means 'any value' */
+		public final String attributeValue;
+
+		public ElementPath(String namespaceURI, String localName, String attributeName, String attributeValue) {
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.attributeName = attributeName;
+			this.attributeValue = attributeValue;
+		}
+
+		public boolean matches(StartElement element) {
+			QName name = element.getName();
+			if (!localName.equals(name.getLocalPart()))
+				return false;
+			if (namespaceURI != null && !namespaceURI.equals(name.getNamespaceURI()))
+				return false;
+			if (attributeName == null)
+				return true;
+			Attribute a = element.getAttributeByName(new QName(attributeName));
+			return a != null && (attributeValue == null || attributeValue.equals(a.getValue()));
+		}
+	}
+
+	/**
+	 * Checks whether a given expression exactly describes a set of elements in the simple way described by
+	 * {@link ElementPath}.
+	 *
+	 * In contrast to {@link #getElement(ContainerNode)}, the whole expression has to be understood.
+	 *
+	 * @return The element path, or null if the expression is more complex.
+	 */
+	public ElementPath getElementPath(ContainerNode intersectExceptExpr) {
+		Node[] nodes = intersectExceptExpr.nodes;
+		if (nodes.length == 0 || nodes.length > 3 || !(nodes[0] instanceof UnparsedStringNode))
+			return null;
+		if (nodes.length == 3 && !isWhitespaceOnly(nodes[2]))
+			return null;
+		Marker m = new Marker(((UnparsedStringNode)nodes[0]).s);
+		skipWhitespace(m);
+		if (eatChar(m) != '/' || eatChar(m) != '/')
+			return null;
+		skipWhitespace(m);
+		String elementName = getName(m);
+		if (elementName == null) {
+			if (eatChar(m) != '*')
+				return null;
+			elementName = "*";
+		}
+		if (elementName.contains(":"))
+			return null;
+		skipWhitespace(m);
+		if (!m.isAtEnd())
+			return null;
+
+		if (nodes.length == 1 || isWhitespaceOnly(nodes[1]))
+			return "*".equals(elementName) ? null : new ElementPath(XMLConstants.NULL_NS_URI, elementName, null, null);
+
+		if (!(nodes[1] instanceof SquareBracketNode))
+			return null;
+		Node[] predicate = ((SquareBracketNode)nodes[1]).node.nodes;
+		if (predicate.length > 0 && isWhitespaceOnly(predicate[predicate.length - 1]))
+			predicate = Arrays.copyOf(predicate, predicate.length - 1);
+
+		// "@bar" or "@bar = 'baz'"
+		if ((predicate.length == 1 || predicate.length == 2 && predicate[1] instanceof StringNode) &&
+				predicate[0] instanceof UnparsedStringNode && !"*".equals(elementName)) {
+			Marker m2 = new Marker(((UnparsedStringNode)predicate[0]).s);
+			skipWhitespace(m2);
+			if (eatChar(m2) != '@')
+				return null;
+			String attributeName = getName(m2);
+			if (attributeName == null || attributeName.contains(":"))
+				return null;
+			skipWhitespace(m2);
+			if (predicate.length == 1)
+				return m2.isAtEnd() ? new ElementPath(XMLConstants.NULL_NS_URI, elementName, attributeName, null) : null;
+			if (eatChar(m2) != '=')
+				return null;
+			skipWhitespace(m2);
+			if (!m2.isAtEnd())
+				return null;
+			return new ElementPath(XMLConstants.NULL_NS_URI, elementName, attributeName, ((StringNode)predicate[1]).s);
+		}
+
+		// "namespace-uri() = '...'" or "local-name() = '...'" or "local-name() = '...' and namespace-uri() = '...'"
+		if (predicate.length != 4 && predicate.length != 8)
+			return null;
+		String function1 = getFunctionName(predicate, 0);
+		if (function1 == null)
+			return null;
+		String string1 = ((StringNode)predicate[3]).s;
+		if (predicate.length == 4) {
+			if ("namespace-uri".equals(function1) && !"*".equals(elementName))
+				return new ElementPath(string1, elementName, null, null);
+			if ("local-name".equals(function1) && "*".equals(elementName))
+				return new ElementPath(null, string1, null, null);
+			return null;
+		}
+		if (!"local-name".equals(function1) || !"*".equals(elementName))
+			return null;
+		Marker m3 = new Marker(((UnparsedStringNode)predicate[4]).s);
+		skipWhitespace(m3);
+		if (!"and".equals(getName(m3)))
+			return null;
+		skipWhitespace(m3);
+		String function2 = getName(m3);
+		if (!m3.isAtEnd() || !"namespace-uri".equals(function2) || !isEquals(predicate, 6) || !(predicate[7] instanceof StringNode))
+			return null;
+		return new ElementPath(((StringNode)predicate[7]).s, string1, null, null);
+	}
+
+	/**
+	 * Checks that predicate[start..start+3] has the form "function() = 'string'" (where the function name is
+	 * not necessarily at the start of the first node) and returns the function name.
+	 */
+	private String getFunctionName(Node[] predicate, int start) {
+		if (!(predicate[start] instanceof UnparsedStringNode) ||
+				!(predicate[start+1] instanceof RoundBracketNode) ||
+				((RoundBracketNode)predicate[start+1]).node.nodes.length != 0 ||
+				!isEquals(predicate, start+2) ||
+				!(predicate[start+3] instanceof StringNode))
+			return null;
+		Marker m = new Marker(((UnparsedStringNode)predicate[start]).s);
+		skipWhitespace(m);
+		String function = getName(m);
+		skipWhitespace(m);
+		return m.isAtEnd() ? function : null;
+	}
+
+	private boolean isEquals(Node[] nodes, int i) {
+		return nodes[i] instanceof UnparsedStringNode && ((UnparsedStringNode)nodes[i]).s.trim().equals("=");
+	}
+
+	private boolean isWhitespaceOnly(Node node) {
+		if (!(node instanceof UnparsedStringNode))
+			return false;
+		Marker m = new Marker(((UnparsedStringNode)node).s);
+		skipWhitespace(m);
+		return m.isAtEnd();
+	}
+
 	private String getName(Marker m) {
 		StringBuilder sb = new StringBuilder();
 		while(true) {
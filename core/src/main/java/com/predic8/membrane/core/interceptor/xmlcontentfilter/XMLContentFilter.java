@@ -25,7 +25,14 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -48,6 +55,7 @@ import org.xml.sax.SAXException;
 
 import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.Message;
+import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathAnalyzer.ElementPath;
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathParser.ContainerNode;
 import com.predic8.membrane.core.multipart.XOPReconstitutor;
 import com.predic8.membrane.core.util.EndOfStreamException;
@@ -63,6 +71,14 @@ public class XMLContentFilter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(XMLContentFilter.class);
 
+	private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+	static {
+		xmlInputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
 	private final ThreadLocal<XPathExpression> xpe = new ThreadLocal<XPathExpression>();
 	private final ThreadLocal<DocumentBuilder> db = new ThreadLocal<DocumentBuilder>();
 	private final ThreadLocal<Transformer> t = new ThreadLocal<Transformer>();
@@ -83,6 +99,12 @@ public class XMLContentFilter {
 	 */
 	private final XMLElementFinder elementFinder;
 
+	/**
+	 * If the XPath expression is simple enough (see {@link #createElementPaths(String)}), matching elements are
+	 * removed in a single StAX pass without building a DOM. Otherwise null.
+	 */
+	private final List<ElementPath> elementPaths;
+
 	/**
 	 * @param xPath XPath 1.0 expression
 	 */
@@ -90,7 +112,8 @@ public class XMLContentFilter {
 		this.xPath = xPath;
 		createXPathExpression(); // to throw XPathExpressionException early
 		elementFinder = createElementFinder(xPath);
-		if (elementFinder == null)
+		elementPaths = createElementPaths(xPath);
+		if (elementFinder == null && elementPaths == null)
 			LOG.warn("The XPath expression \"" + xPath + "\" could not be optimized to use a StAX parser as a first check. This means that for every SOAP message, a DOM tree has to be built to execute the XPath expression. This might degrade performance significantly.");
 	}
 
@@ -121,6 +144,27 @@ public class XMLContentFilter {
 		return new XMLElementFinder(rootElements);
 	}
 
+	/**
+	 * Analyzes whether the XPath expression is a UnionExpr consisting only of simple element paths as described by
+	 * {@link ElementPath}, which can be evaluated by looking at each start element in isolation.
+	 *
+	 * @return the element paths, or null if the XPath expression is too complex.
+	 */
+	static List<ElementPath> createElementPaths(String xPath) {
+		SimpleXPathAnalyzer a = new SimpleXPathAnalyzer();
+		List<ContainerNode> intersectExceptExprs = a.getIntersectExceptExprs(xPath);
+		if (intersectExceptExprs == null)
+			return null;
+		List<ElementPath> res = new ArrayList<ElementPath>();
+		for (ContainerNode node : intersectExceptExprs) {
+			ElementPath p = a.getElementPath(node);
+			if (p == null)
+				return null;
+			res.add(p);
+		}
+		return res;
+	}
+
 	private XPathExpression createXPathExpression() throws XPathExpressionException {
 		XPathExpression res = xpe.get();
 		if (res != null)
@@ -168,6 +212,10 @@ public class XMLContentFilter {
 			} catch (FactoryConfigurationError e) {
 			}
 
+			if (elementPaths != null) {
+				removeMatchingElementsStreaming(message, xop);
+				return;
+			}
 			if (elementFinder != null &&
 					!elementFinder.matches(xop != null ? xop.getBodyAsStream() : message.getBodyAsStream())) {
 				return;
@@ -199,6 +247,70 @@ public class XMLContentFilter {
 		}
 	}
 
+	/**
+	 * Copies the message using a StAX reader and writer, leaving out all elements matching any of
+	 * {@link #elementPaths} (together with their content). The message is only changed, if any element was removed.
+	 */
+	private void removeMatchingElementsStreaming(Message originalMessage, Message xopDecodedMessage) throws XMLStreamException {
+		XMLEventReader reader;
+		synchronized (xmlInputFactory) {
+			reader = xmlInputFactory.createXMLEventReader(xopDecodedMessage != null ? xopDecodedMessage.getBodyAsStream() : originalMessage.getBodyAsStream());
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		XMLEventWriter writer = null;
+		boolean removed = false;
+		int skipDepth = 0; // > 0 while inside a removed element
+		try {
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (writer == null) {
+					String encoding = "UTF-8";
+					if (event.isStartDocument() && ((StartDocument)event).encodingSet())
+						encoding = ((StartDocument)event).getCharacterEncodingScheme();
+					synchronized (xmlOutputFactory) {
+						writer = xmlOutputFactory.createXMLEventWriter(baos, encoding);
+					}
+				}
+				if (skipDepth > 0) {
+					if (event.isStartElement())
+						skipDepth++;
+					else if (event.isEndElement())
+						skipDepth--;
+					continue;
+				}
+				if (event.isStartElement() && matches(event.asStartElement())) {
+					removed = true;
+					skipDepth = 1;
+					continue;
+				}
+				writer.add(event);
+			}
+			if (writer != null)
+				writer.flush();
+		} finally {
+			reader.close();
+			if (writer != null)
+				writer.close();
+		}
+		if (!removed)
+			return;
+
+		originalMessage.getHeader().removeFields(Header.CONTENT_ENCODING);
+		if (xopDecodedMessage != null) {
+			originalMessage.getHeader().removeFields(Header.CONTENT_TYPE);
+			if (xopDecodedMessage.getHeader().getContentType() != null)
+				originalMessage.getHeader().setContentType(xopDecodedMessage.getHeader().getContentType());
+		}
+		originalMessage.setBodyContent(baos.toByteArray());
+	}
+
+	private boolean matches(StartElement element) {
+		for (ElementPath p : elementPaths)
+			if (p.matches(element))
+				return true;
+		return false;
+	}
+
 	/**
 	 * @param originalMessage
 	 * @param xopDecodedMessage
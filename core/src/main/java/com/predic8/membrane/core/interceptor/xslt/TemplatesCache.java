@@ -0,0 +1,78 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.xslt;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.predic8.membrane.core.resolver.ResolverMap;
+import com.predic8.membrane.core.resolver.ResourceRetrievalException;
+
+/**
+ * Compiled XSLT stylesheets of one {@link com.predic8.membrane.core.Router}, keyed by their resolved location.
+ *
+ * {@link Templates} are thread-safe: Every transformation gets its own cheap {@link Transformer} from
+ * {@link Templates#newTransformer()}, so there is no need to pool transformers.
+ *
+ * As a hot deployment creates a new router, changed stylesheets are picked up then.
+ */
+public class TemplatesCache {
+	private static final Logger log = LoggerFactory.getLogger(TemplatesCache.class.getName());
+
+	// TransformerFactory is not thread-safe: guarded by 'this'
+	private final TransformerFactory fac = TransformerFactory.newInstance();
+	private final ConcurrentHashMap<String, Templates> templates = new ConcurrentHashMap<String, Templates>();
+
+	/**
+	 * @param location the resolved location of the stylesheet, see {@link ResolverMap#combine(String...)}
+	 */
+	public Templates get(ResolverMap resolverMap, String location) throws TransformerConfigurationException, ResourceRetrievalException {
+		Templates t = templates.get(location);
+		if (t != null)
+			return t;
+		synchronized (this) {
+			// the stylesheet is only compiled once, even if several threads ask for it at the same time
+			t = templates.get(location);
+			if (t == null) {
+				log.debug("compiling stylesheet " + location);
+				StreamSource source = new StreamSource(resolverMap.resolve(location));
+				source.setSystemId(location);
+				t = fac.newTemplates(source);
+				templates.put(location, t);
+			}
+		}
+		return t;
+	}
+
+	public synchronized Transformer newIdentityTransformer() throws TransformerConfigurationException {
+		return fac.newTransformer();
+	}
+
+	public int size() {
+		return templates.size();
+	}
+
+	public void clear() {
+		templates.clear();
+	}
+}
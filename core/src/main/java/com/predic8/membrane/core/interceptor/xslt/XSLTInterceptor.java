@@ -59,14 +59,13 @@ public class XSLTInterceptor extends AbstractInterceptor {
 	private void transformMsg(Message msg, String ss, Map<String, String> parameter) throws Exception {
 		if (msg.isBodyEmpty())
 			return;
-		msg.setBodyContent(xsltTransformer.transform(
+		msg.setBodyContent(xsltTransformer.transformToBody(
 				new StreamSource(xopr.reconstituteIfNecessary(msg)), parameter));
 	}
 
 	@Override
 	public void init() throws Exception {
-		int concurrency = Runtime.getRuntime().availableProcessors() * 2;
-		xsltTransformer = new XSLTTransformer(xslt, router, concurrency);
+		xsltTransformer = new XSLTTransformer(xslt, router);
 	}
 
 	public String getXslt() {
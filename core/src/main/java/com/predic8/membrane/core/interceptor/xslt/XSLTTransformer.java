@@ -16,61 +16,49 @@ package com.predic8.membrane.core.interceptor.xslt;
 import static com.predic8.membrane.core.util.TextUtil.isNullOrEmpty;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.http.Body;
+import com.predic8.membrane.core.http.BodyOutputStream;
 import com.predic8.membrane.core.resolver.ResolverMap;
-import com.predic8.membrane.core.resolver.ResourceRetrievalException;
 
+/**
+ * Applies an XSLT stylesheet. The stylesheet is compiled only once per router (see {@link TemplatesCache}), each
+ * transformation uses its own {@link Transformer}: There is no limit on the number of concurrent transformations.
+ */
 public class XSLTTransformer {
 	private static Logger log = LoggerFactory.getLogger(XSLTTransformer.class.getName());
 
-	private final TransformerFactory fac;
-	private final ArrayBlockingQueue<Transformer> transformers;
+	private final TemplatesCache templatesCache;
+	private final Templates templates;
 	private final String styleSheet;
 
-	public XSLTTransformer(String styleSheet, final Router router, final int concurrency) throws Exception {
-		fac = TransformerFactory.newInstance();
-
+	public XSLTTransformer(String styleSheet, Router router) throws Exception {
 		this.styleSheet = styleSheet;
-		log.debug("using " + concurrency + " parallel transformer instances for " + styleSheet);
-		transformers = new ArrayBlockingQueue<Transformer>(concurrency);
-		createOneTransformer(router.getResolverMap(), router.getBaseLocation());
-		router.getBackgroundInitializator().execute(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					for (int i = 1; i < concurrency; i++)
-						createOneTransformer(router.getResolverMap(), router.getBaseLocation());
-				} catch (Exception e) {
-					log.error("Error creating XSLT transformer:", e);
-				}
-			}
-		});
+		templatesCache = router.getTemplatesCache();
+		if (isNullOrEmpty(styleSheet))
+			templates = null;
+		else
+			templates = templatesCache.get(router.getResolverMap(), ResolverMap.combine(router.getBaseLocation(), styleSheet));
 	}
 
-	private void createOneTransformer(ResolverMap rr, String baseLocation) throws TransformerConfigurationException, InterruptedException, ResourceRetrievalException {
-		Transformer t;
-		if (isNullOrEmpty(styleSheet))
-			t = fac.newTransformer();
-		else {
-			StreamSource source = new StreamSource(rr.resolve(ResolverMap.combine(baseLocation, styleSheet)));
-			source.setSystemId(styleSheet);
-			t = fac.newTransformer(source);
+	private Transformer createTransformer(Map<String, String> parameters) throws Exception {
+		Transformer t = templates == null ? templatesCache.newIdentityTransformer() : templates.newTransformer();
+		for (Map.Entry<String, String> e : parameters.entrySet()) {
+			t.setParameter(e.getKey(), e.getValue());
 		}
-		transformers.put(t);
+		return t;
 	}
 
 	public byte[] transform(Source xml) throws Exception {
@@ -79,24 +67,23 @@ public class XSLTTransformer {
 
 	public byte[] transform(Source xml, Map<String, String> parameters)
 			throws Exception {
-		log.debug("applying transformation: " + styleSheet);
-
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		Transformer t = transformers.take();
-		try {
-			try {
-				t.clearParameters();
-			} catch (NullPointerException e) {
-				// do nothing
-			}
-			for (Map.Entry<String, String> e : parameters.entrySet()) {
-				t.setParameter(e.getKey(), e.getValue());
-			}
-			t.transform(xml, new StreamResult(baos));
-		} finally {
-			transformers.put(t);
-		}
+		transform(xml, parameters, baos);
 		return baos.toByteArray();
 	}
 
+	/**
+	 * Transforms into a new body without copying the result into one big array.
+	 */
+	public Body transformToBody(Source xml, Map<String, String> parameters) throws Exception {
+		BodyOutputStream out = new BodyOutputStream();
+		transform(xml, parameters, out);
+		return out.createBody();
+	}
+
+	public void transform(Source xml, Map<String, String> parameters, OutputStream out) throws Exception {
+		log.debug("applying transformation: " + styleSheet);
+		createTransformer(parameters).transform(xml, new StreamResult(out));
+	}
+
 }
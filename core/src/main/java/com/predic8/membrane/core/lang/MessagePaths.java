@@ -0,0 +1,241 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang;
+
+import static com.predic8.membrane.core.util.SynchronizedXPathFactory.newXPath;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.http.Message;
+
+/**
+ * Evaluates JSON and XPath expressions on message bodies, as offered to expressions by the functions
+ * <tt>jsonPath('...')</tt> and <tt>xpath('...')</tt>.
+ *
+ * JSON paths consist of <tt>$</tt> followed by member names (<tt>.name</tt> or <tt>['name']</tt>) and array indexes
+ * (<tt>[0]</tt>). They are evaluated while parsing the body, which stops as soon as the value has been found. The result
+ * is a string, number, boolean or null; objects and arrays are returned as JSON text. If the body is not well-formed or
+ * the path does not exist, the result is null.
+ *
+ * XPath expressions are evaluated as strings on the namespace-aware DOM of the body (prefixes are not bound, use
+ * <tt>local-name()</tt> instead). If the body is not well-formed, the result is null.
+ *
+ * Document builders and compiled XPath expressions are not thread-safe. They are pooled instead of being kept per
+ * thread, as with <tt>&lt;transport executor="virtual"&gt;</tt> every connection runs on a new thread.
+ */
+public class MessagePaths {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private static final ConcurrentLinkedQueue<DocumentBuilder> documentBuilders = new ConcurrentLinkedQueue<DocumentBuilder>();
+	private static final ConcurrentHashMap<String, ConcurrentLinkedQueue<XPathExpression>> xpathExpressions =
+			new ConcurrentHashMap<String, ConcurrentLinkedQueue<XPathExpression>>();
+
+	/**
+	 * @return the response, if the exchange already has one, otherwise the request
+	 */
+	public static Message getCurrentMessage(AbstractExchange exc) {
+		return exc.getResponse() != null ? exc.getResponse() : exc.getRequest();
+	}
+
+	/**
+	 * @return the steps of the path: member names (as String) and array indexes (as Integer)
+	 * @throws IllegalArgumentException if the path is not supported
+	 */
+	public static Object[] parseJsonPath(String path) {
+		if (!path.startsWith("$"))
+			throw new IllegalArgumentException("JSON path does not start with '$': " + path);
+		List<Object> steps = new ArrayList<Object>();
+		int i = 1;
+		while (i < path.length()) {
+			char c = path.charAt(i);
+			if (c == '.') {
+				int end = i + 1;
+				while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[')
+					end++;
+				if (end == i + 1)
+					throw new IllegalArgumentException("Empty member name in JSON path: " + path);
+				steps.add(path.substring(i + 1, end));
+				i = end;
+			} else if (c == '[') {
+				int end = path.indexOf(']', i);
+				if (end == -1)
+					throw new IllegalArgumentException("Missing ']' in JSON path: " + path);
+				String step = path.substring(i + 1, end);
+				if (step.length() >= 2 && step.startsWith("'") && step.endsWith("'")) {
+					steps.add(step.substring(1, step.length() - 1));
+				} else {
+					try {
+						steps.add(Integer.parseInt(step));
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Unsupported step '" + step + "' in JSON path: " + path);
+					}
+				}
+				i = end + 1;
+			} else {
+				throw new IllegalArgumentException("Unexpected '" + c + "' in JSON path: " + path);
+			}
+		}
+		return steps.toArray();
+	}
+
+	public static Object jsonPath(Message msg, Object[] steps) throws IOException {
+		if (msg == null || msg.isBodyEmpty())
+			return null;
+		JsonParser jp = jsonFactory.createParser(new InputStreamReader(msg.getBodyAsStreamDecoded(), msg.getCharset()));
+		try {
+			return jsonPath(jp, steps);
+		} catch (JsonParseException e) {
+			return null;
+		} finally {
+			jp.close();
+		}
+	}
+
+	private static Object jsonPath(JsonParser jp, Object[] steps) throws IOException {
+		JsonToken token = jp.nextToken();
+		for (Object step : steps) {
+			boolean found = false;
+			if (step instanceof String) {
+				if (token != JsonToken.START_OBJECT)
+					return null;
+				while ((token = jp.nextToken()) == JsonToken.FIELD_NAME) {
+					String name = jp.getCurrentName();
+					token = jp.nextToken();
+					if (name.equals(step)) {
+						found = true;
+						break;
+					}
+					jp.skipChildren();
+				}
+			} else {
+				if (token != JsonToken.START_ARRAY)
+					return null;
+				int index = (Integer) step;
+				for (int i = 0; (token = jp.nextToken()) != JsonToken.END_ARRAY; i++) {
+					if (i == index) {
+						found = true;
+						break;
+					}
+					jp.skipChildren();
+				}
+			}
+			if (!found)
+				return null;
+		}
+		if (token == null)
+			return null;
+		switch (token) {
+		case VALUE_STRING:
+			return jp.getText();
+		case VALUE_NUMBER_INT:
+			return jp.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return jp.getDecimalValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case START_OBJECT:
+		case START_ARRAY:
+			StringWriter sw = new StringWriter();
+			JsonGenerator jg = jsonFactory.createGenerator(sw);
+			jg.copyCurrentStructure(jp);
+			jg.close();
+			return sw.toString();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @throws XPathExpressionException if the expression is not valid
+	 */
+	public static XPathExpression compileXPath(String expression) throws XPathExpressionException {
+		return newXPath(null).compile(expression);
+	}
+
+	public static String xpath(Message msg, String expression) throws XPathExpressionException, IOException, ParserConfigurationException {
+		ConcurrentLinkedQueue<XPathExpression> pool = xpathExpressions.get(expression);
+		if (pool == null) {
+			pool = new ConcurrentLinkedQueue<XPathExpression>();
+			ConcurrentLinkedQueue<XPathExpression> existing = xpathExpressions.putIfAbsent(expression, pool);
+			if (existing != null)
+				pool = existing;
+		}
+		XPathExpression xpath = pool.poll();
+		if (xpath == null)
+			xpath = compileXPath(expression);
+		try {
+			if (msg == null || msg.isBodyEmpty())
+				return null;
+			InputSource is = new InputSource(msg.getBodyAsStreamDecoded());
+			is.setEncoding(msg.getCharset());
+			DocumentBuilder db = documentBuilders.poll();
+			if (db == null)
+				db = createDocumentBuilder();
+			Document doc;
+			try {
+				doc = db.parse(is);
+			} catch (SAXException e) {
+				return null;
+			} finally {
+				db.reset();
+				documentBuilders.offer(db);
+			}
+			return (String) xpath.evaluate(doc, XPathConstants.STRING);
+		} finally {
+			pool.offer(xpath);
+		}
+	}
+
+	private static DocumentBuilder createDocumentBuilder() throws ParserConfigurationException {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		dbf.setExpandEntityReferences(false);
+		// message bodies are untrusted: no DTDs, so no external or recursive entities
+		dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+		dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+		dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		dbf.setXIncludeAware(false);
+		return dbf.newDocumentBuilder();
+	}
+}
@@ -0,0 +1,96 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution counters and times of one compiled script.
+ *
+ * The wait time is the time spent obtaining a script instance, which includes creating a new instance if all
+ * existing ones are busy.
+ */
+public class ScriptExecutionStatistics {
+
+	private final AtomicLong executions = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong instances = new AtomicLong();
+	private final AtomicLong totalExecutionNanos = new AtomicLong();
+	private final AtomicLong maxExecutionNanos = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	void recordInstanceCreated() {
+		instances.incrementAndGet();
+	}
+
+	void record(long waitNanos, long executionNanos, boolean failed) {
+		executions.incrementAndGet();
+		if (failed)
+			failures.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		totalExecutionNanos.addAndGet(executionNanos);
+		updateMax(maxWaitNanos, waitNanos);
+		updateMax(maxExecutionNanos, executionNanos);
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while ((current = max.get()) < value)
+			if (max.compareAndSet(current, value))
+				break;
+	}
+
+	public long getExecutions() {
+		return executions.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return the number of script instances created so far, which is the peak number of concurrent executions
+	 */
+	public long getInstances() {
+		return instances.get();
+	}
+
+	public long getAverageExecutionMicros() {
+		long count = getExecutions();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalExecutionNanos.get() / count);
+	}
+
+	public long getMaxExecutionMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxExecutionNanos.get());
+	}
+
+	public long getAverageWaitMicros() {
+		long count = getExecutions();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / count);
+	}
+
+	public long getMaxWaitMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		return "executions: " + getExecutions() + ", failures: " + getFailures() + ", instances: " + getInstances() +
+				", avg: " + getAverageExecutionMicros() + "us, max: " + getMaxExecutionMicros() + "us" +
+				", avg wait: " + getAverageWaitMicros() + "us, max wait: " + getMaxWaitMicros() + "us";
+	}
+}
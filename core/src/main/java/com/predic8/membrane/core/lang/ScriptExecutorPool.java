@@ -15,7 +15,7 @@
 package com.predic8.membrane.core.lang;
 
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,20 +23,28 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.predic8.membrane.core.Router;
 
+/**
+ * Executes a compiled script using one of several script instances, as a script instance may only be used by one
+ * thread at a time.
+ *
+ * The pool never blocks: If all instances are busy, a new one is created. Instances are kept for reuse, so their
+ * number grows up to the peak number of concurrent executions.
+ */
 public abstract class ScriptExecutorPool<T, R> implements Function<Map<String, Object>, R> {
 	private static final Logger log = LoggerFactory.getLogger(ScriptExecutorPool.class);
 
 	private static final int concurrency = Runtime.getRuntime().availableProcessors() * 2;
-	ArrayBlockingQueue<T> scripts = new ArrayBlockingQueue<T>(concurrency);
+	private final ConcurrentLinkedQueue<T> scripts = new ConcurrentLinkedQueue<T>();
+	private final ScriptExecutionStatistics statistics = new ScriptExecutionStatistics();
 
 	public void init(Router router) {
-		scripts.add(createOneScript());
+		scripts.add(newScript());
 		router.getBackgroundInitializator().execute(new Runnable() {
 			@Override
 			public void run() {
 				try {
 					for (int i = 1; i < concurrency; i++)
-						scripts.add(createOneScript());
+						scripts.add(newScript());
 				} catch (Exception e) {
 					log.error("Error compiling script:", e);
 				}
@@ -45,19 +53,32 @@ public abstract class ScriptExecutorPool<T, R> implements Function<Map<String, O
 	}
 
 	public final Object execute(Map<String, Object> parameters) {
+		long start = System.nanoTime();
+		T script = scripts.poll();
+		if (script == null)
+			script = newScript();
+		long invoked = System.nanoTime();
+		boolean failed = true;
 		try {
-			T script = scripts.take();
-			try {
-				return invoke(script, parameters);
-			} finally {
-				scripts.put(script);
-			}
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			return null;
+			Object result = invoke(script, parameters);
+			failed = false;
+			return result;
+		} finally {
+			scripts.offer(script);
+			statistics.record(invoked - start, System.nanoTime() - invoked, failed);
 		}
 	}
 
+	private T newScript() {
+		T script = createOneScript();
+		statistics.recordInstanceCreated();
+		return script;
+	}
+
+	public ScriptExecutionStatistics getStatistics() {
+		return statistics;
+	}
+
 	protected abstract Object invoke(T script, Map<String, Object> parameters);
 	protected abstract T createOneScript();
 
@@ -0,0 +1,111 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang.groovy;
+
+import groovy.lang.Binding;
+import groovy.lang.Closure;
+import groovy.lang.MissingPropertyException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.lang.MessagePaths;
+
+/**
+ * A {@link Binding} reading the script parameters directly from the parameter map instead of copying them.
+ * Variables set by the script are kept separately, so the parameter map is never modified.
+ *
+ * If the parameter <tt>exc</tt> is an exchange, the variables <tt>request</tt>, <tt>response</tt> and
+ * <tt>properties</tt> (unless passed as parameters) are read from it when the script uses them. The functions
+ * <tt>jsonPath('...')</tt> and <tt>xpath('...')</tt> are then available as well (see {@link MessagePaths}).
+ */
+class ExchangeBinding extends Binding {
+
+	private final Map<String, Object> parameters;
+	private Map<String, Object> scriptVariables;
+
+	ExchangeBinding(Map<String, Object> parameters) {
+		this.parameters = parameters;
+	}
+
+	@Override
+	public Object getVariable(String name) {
+		if (scriptVariables != null && scriptVariables.containsKey(name))
+			return scriptVariables.get(name);
+		if (parameters.containsKey(name))
+			return parameters.get(name);
+		Object exc = parameters.get("exc");
+		if (exc instanceof AbstractExchange) {
+			if (name.equals("request"))
+				return ((AbstractExchange) exc).getRequest();
+			if (name.equals("response"))
+				return ((AbstractExchange) exc).getResponse();
+			if (name.equals("properties"))
+				return ((AbstractExchange) exc).getProperties();
+			if (name.equals("jsonPath") || name.equals("xpath"))
+				return new PathFunction((AbstractExchange) exc, name.equals("xpath"));
+		}
+		throw new MissingPropertyException(name, getClass());
+	}
+
+	@Override
+	public void setVariable(String name, Object value) {
+		if (scriptVariables == null)
+			scriptVariables = new HashMap<String, Object>();
+		scriptVariables.put(name, value);
+	}
+
+	@Override
+	public boolean hasVariable(String name) {
+		if ((scriptVariables != null && scriptVariables.containsKey(name)) || parameters.containsKey(name))
+			return true;
+		return parameters.get("exc") instanceof AbstractExchange &&
+				(name.equals("request") || name.equals("response") || name.equals("properties") ||
+						name.equals("jsonPath") || name.equals("xpath"));
+	}
+
+	/**
+	 * @return a copy of the parameters and the variables set by the script
+	 */
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Map getVariables() {
+		Map<String, Object> variables = new LinkedHashMap<String, Object>(parameters);
+		if (scriptVariables != null)
+			variables.putAll(scriptVariables);
+		return variables;
+	}
+
+	private static final class PathFunction extends Closure<Object> {
+		private static final long serialVersionUID = 1L;
+
+		private final AbstractExchange exc;
+		private final boolean xpath;
+
+		PathFunction(AbstractExchange exc, boolean xpath) {
+			super(exc);
+			this.exc = exc;
+			this.xpath = xpath;
+		}
+
+		public Object doCall(String path) throws Exception {
+			if (xpath)
+				return MessagePaths.xpath(MessagePaths.getCurrentMessage(exc), path);
+			return MessagePaths.jsonPath(MessagePaths.getCurrentMessage(exc), MessagePaths.parseJsonPath(path));
+		}
+	}
+}
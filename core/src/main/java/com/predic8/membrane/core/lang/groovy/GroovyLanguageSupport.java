@@ -14,12 +14,14 @@
 
 package com.predic8.membrane.core.lang.groovy;
 
-import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
 import groovy.lang.Script;
 
+import java.util.Collections;
 import java.util.Map;
 
+import org.codehaus.groovy.runtime.InvokerHelper;
+
 import com.google.common.base.Function;
 import com.predic8.membrane.core.Router;
 import com.predic8.membrane.core.lang.LanguageSupport;
@@ -27,34 +29,40 @@ import com.predic8.membrane.core.lang.ScriptExecutorPool;
 
 public class GroovyLanguageSupport extends LanguageSupport {
 
+	/**
+	 * The script is compiled only once. Script instances (which are cheap to create) are used by one thread at a
+	 * time, as they hold the binding.
+	 */
 	private abstract class GroovyScriptExecutorPool<R> extends
 	ScriptExecutorPool<Script, R> {
-		private final String groovyCode;
+		private final Class<? extends Script> scriptClass;
 
 		private GroovyScriptExecutorPool(Router router, String expression) {
-			this.groovyCode = expression;
+			synchronized (shell) {
+				scriptClass = shell.parse(expression).getClass();
+			}
 			init(router);
 		}
 
 		@Override
 		protected Script createOneScript() {
-			synchronized (shell) {
-				return shell.parse(groovyCode);
-			}
+			return InvokerHelper.createScript(scriptClass, EMPTY_BINDING);
 		}
 
 		@Override
 		protected Object invoke(Script script, Map<String, Object> parameters) {
-			Binding b = new Binding();
-			for (Map.Entry<String, Object> parameter : parameters.entrySet())
-				b.setVariable(parameter.getKey(), parameter.getValue());
-			script.setBinding(b);
-			return script.run();
+			script.setBinding(new ExchangeBinding(parameters));
+			try {
+				return script.run();
+			} finally {
+				script.setBinding(EMPTY_BINDING);
+			}
 		}
 
 	}
 
 	private static final GroovyShell shell = new GroovyShell();
+	private static final ExchangeBinding EMPTY_BINDING = new ExchangeBinding(Collections.<String, Object>emptyMap());
 
 	@Override
 	public Function<Map<String, Object>, Boolean> compileExpression(Router router, String src) {
@@ -0,0 +1,437 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang.simple;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.lang.MessagePaths;
+
+/**
+ * A node of a compiled expression.
+ *
+ * The nodes implement Groovy's semantics for the values they can handle (property access via getters or map
+ * lookups, method calls with an unambiguous target method, equality and comparison of numbers, strings and
+ * objects of the same class, and Groovy truth). For anything else, {@link #evaluate(Map)} throws
+ * {@link Unsupported}, and the whole expression is evaluated using Groovy instead.
+ */
+abstract class Expression {
+
+	/**
+	 * Thrown if the expression cannot be evaluated without Groovy. Preallocated, as it is used for control flow.
+	 */
+	@SuppressWarnings("serial")
+	static final class Unsupported extends RuntimeException {
+		static final Unsupported INSTANCE = new Unsupported();
+
+		private Unsupported() {
+			super(null, null, false, false);
+		}
+	}
+
+	abstract Object evaluate(Map<String, Object> parameters) throws Exception;
+
+	static boolean isTrue(Object value) {
+		if (value instanceof Boolean)
+			return (Boolean) value;
+		if (value == null)
+			return false;
+		if (value instanceof CharSequence)
+			return ((CharSequence) value).length() > 0;
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			return ((Number) value).longValue() != 0;
+		if (value instanceof BigDecimal)
+			return ((BigDecimal) value).signum() != 0;
+		if (value instanceof BigInteger)
+			return ((BigInteger) value).signum() != 0;
+		if (value instanceof Double || value instanceof Float)
+			return ((Number) value).doubleValue() != 0;
+		if (value instanceof Number || value instanceof Collection || value instanceof Map || value instanceof Iterator ||
+				value instanceof Character || value.getClass().isArray() || value instanceof java.util.Enumeration ||
+				value instanceof java.util.regex.Matcher)
+			throw Unsupported.INSTANCE;
+		return true;
+	}
+
+	static final class Literal extends Expression {
+		final Object value;
+
+		Literal(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) {
+			return value;
+		}
+	}
+
+	static final class Variable extends Expression {
+		final String name;
+
+		Variable(String name) {
+			this.name = name;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) {
+			Object value = parameters.get(name);
+			if (value != null || parameters.containsKey(name))
+				return value;
+			// as offered by the Groovy binding
+			Object exc = parameters.get("exc");
+			if (exc instanceof AbstractExchange) {
+				if (name.equals("request"))
+					return ((AbstractExchange) exc).getRequest();
+				if (name.equals("response"))
+					return ((AbstractExchange) exc).getResponse();
+				if (name.equals("properties"))
+					return ((AbstractExchange) exc).getProperties();
+			}
+			throw Unsupported.INSTANCE;
+		}
+	}
+
+	/**
+	 * <tt>jsonPath('...')</tt> or <tt>xpath('...')</tt>, evaluated on the current message.
+	 */
+	static final class PathFunction extends Expression {
+		final String path;
+		final Object[] jsonPath;
+
+		PathFunction(String path, boolean xpath) {
+			this.path = path;
+			this.jsonPath = xpath ? null : MessagePaths.parseJsonPath(path);
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			Object exc = parameters.get("exc");
+			if (!(exc instanceof AbstractExchange) || parameters.containsKey(jsonPath == null ? "xpath" : "jsonPath"))
+				throw Unsupported.INSTANCE;
+			if (jsonPath == null)
+				return MessagePaths.xpath(MessagePaths.getCurrentMessage((AbstractExchange) exc), path);
+			return MessagePaths.jsonPath(MessagePaths.getCurrentMessage((AbstractExchange) exc), jsonPath);
+		}
+	}
+
+	/**
+	 * A method resolved for a receiver class. Replaced when the expression is evaluated for another class.
+	 */
+	private static final class ResolvedMethod {
+		final Class<?> receiverClass;
+		final Method method;
+
+		ResolvedMethod(Class<?> receiverClass, Method method) {
+			this.receiverClass = receiverClass;
+			this.method = method;
+		}
+	}
+
+	private static abstract class Invocation extends Expression {
+		final Expression target;
+		final boolean nullSafe;
+		private volatile ResolvedMethod resolved;
+
+		Invocation(Expression target, boolean nullSafe) {
+			this.target = target;
+			this.nullSafe = nullSafe;
+		}
+
+		/**
+		 * @return the method to invoke, or null if there is none or its choice is ambiguous
+		 */
+		abstract Method resolve(Class<?> receiverClass);
+
+		Object invoke(Object receiver, Object[] args) throws Exception {
+			Class<?> receiverClass = receiver.getClass();
+			ResolvedMethod r = resolved;
+			if (r == null || r.receiverClass != receiverClass) {
+				Method m = resolve(receiverClass);
+				if (m != null)
+					m = getPublicMethod(receiverClass, m);
+				if (m == null)
+					throw Unsupported.INSTANCE;
+				resolved = r = new ResolvedMethod(receiverClass, m);
+			}
+			try {
+				return r.method.invoke(receiver, args);
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * @return the method as declared by a public class or interface (so that it can be invoked), or null
+	 */
+	private static Method getPublicMethod(Class<?> type, Method m) {
+		if (Modifier.isPublic(m.getDeclaringClass().getModifiers()))
+			return m;
+		List<Class<?>> supertypes = new ArrayList<Class<?>>(Arrays.asList(type.getInterfaces()));
+		if (type.getSuperclass() != null)
+			supertypes.add(type.getSuperclass());
+		for (Class<?> supertype : supertypes) {
+			try {
+				Method res = getPublicMethod(supertype, supertype.getMethod(m.getName(), m.getParameterTypes()));
+				if (res != null)
+					return res;
+			} catch (NoSuchMethodException e) {
+				// not declared by this supertype
+			}
+		}
+		return null;
+	}
+
+	static final class Property extends Invocation {
+		private static final Object[] NO_ARGS = new Object[0];
+
+		final String name;
+		final String getter, isGetter;
+
+		Property(Expression target, String name, boolean nullSafe) {
+			super(target, nullSafe);
+			this.name = name;
+			String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			getter = "get" + capitalized;
+			isGetter = "is" + capitalized;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			Object receiver = target.evaluate(parameters);
+			if (receiver == null) {
+				if (nullSafe)
+					return null;
+				throw Unsupported.INSTANCE;
+			}
+			if (receiver instanceof Map)
+				return ((Map<?, ?>) receiver).get(name);
+			if (receiver instanceof Collection || receiver.getClass().isArray())
+				throw Unsupported.INSTANCE; // spread property access
+			return invoke(receiver, NO_ARGS);
+		}
+
+		@Override
+		Method resolve(Class<?> receiverClass) {
+			try {
+				return receiverClass.getMethod(getter);
+			} catch (NoSuchMethodException e) {
+				// fall through
+			}
+			try {
+				Method m = receiverClass.getMethod(isGetter);
+				return m.getReturnType() == boolean.class ? m : null;
+			} catch (NoSuchMethodException e) {
+				return null;
+			}
+		}
+	}
+
+	static final class MethodCall extends Invocation {
+		final String name;
+		final Object[] args;
+
+		MethodCall(Expression target, String name, Object[] args, boolean nullSafe) {
+			super(target, nullSafe);
+			this.name = name;
+			this.args = args;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			Object receiver = target.evaluate(parameters);
+			if (receiver == null) {
+				if (nullSafe)
+					return null;
+				throw Unsupported.INSTANCE;
+			}
+			return invoke(receiver, args);
+		}
+
+		@Override
+		Method resolve(Class<?> receiverClass) {
+			Method result = null;
+			for (Method m : receiverClass.getMethods()) {
+				if (!m.getName().equals(name) || m.isBridge() || m.getParameterTypes().length != args.length)
+					continue;
+				if (!isApplicable(m.getParameterTypes()))
+					continue;
+				if (result != null)
+					return null; // ambiguous: leave the choice to Groovy
+				result = m;
+			}
+			return result;
+		}
+
+		private boolean isApplicable(Class<?>[] parameterTypes) {
+			for (int i = 0; i < args.length; i++) {
+				Class<?> type = parameterTypes[i];
+				if (args[i] == null) {
+					if (type.isPrimitive())
+						return false;
+				} else if (!(type.isInstance(args[i]) || type.isPrimitive() && getWrapper(type) == args[i].getClass())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static Class<?> getWrapper(Class<?> primitive) {
+			if (primitive == int.class)
+				return Integer.class;
+			if (primitive == long.class)
+				return Long.class;
+			if (primitive == boolean.class)
+				return Boolean.class;
+			if (primitive == double.class)
+				return Double.class;
+			if (primitive == char.class)
+				return Character.class;
+			return null;
+		}
+	}
+
+	static final class Not extends Expression {
+		final Expression operand;
+
+		Not(Expression operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			return !isTrue(operand.evaluate(parameters));
+		}
+	}
+
+	static final class And extends Expression {
+		final Expression left, right;
+
+		And(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			return isTrue(left.evaluate(parameters)) && isTrue(right.evaluate(parameters));
+		}
+	}
+
+	static final class Or extends Expression {
+		final Expression left, right;
+
+		Or(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			return isTrue(left.evaluate(parameters)) || isTrue(right.evaluate(parameters));
+		}
+	}
+
+	static final class Comparison extends Expression {
+		enum Operator { EQ, NE, LT, LE, GT, GE }
+
+		final Operator operator;
+		final Expression left, right;
+
+		Comparison(Operator operator, Expression left, Expression right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		Object evaluate(Map<String, Object> parameters) throws Exception {
+			Object l = left.evaluate(parameters);
+			Object r = right.evaluate(parameters);
+			switch (operator) {
+			case EQ:
+				return isEqual(l, r);
+			case NE:
+				return !isEqual(l, r);
+			case LT:
+				return compare(l, r) < 0;
+			case LE:
+				return compare(l, r) <= 0;
+			case GT:
+				return compare(l, r) > 0;
+			default:
+				return compare(l, r) >= 0;
+			}
+		}
+
+		private static boolean isEqual(Object l, Object r) {
+			if (l == r)
+				return true;
+			if (l == null || r == null)
+				return false;
+			if (l instanceof Number && r instanceof Number)
+				return compareNumbers((Number) l, (Number) r) == 0;
+			if (l.getClass() != r.getClass() || l instanceof Collection || l instanceof Map || l.getClass().isArray())
+				throw Unsupported.INSTANCE;
+			if (l instanceof Comparable)
+				return compareSameClass(l, r) == 0;
+			return l.equals(r);
+		}
+
+		private static int compare(Object l, Object r) {
+			if (l == null || r == null)
+				throw Unsupported.INSTANCE;
+			if (l instanceof Number && r instanceof Number)
+				return compareNumbers((Number) l, (Number) r);
+			if (l.getClass() != r.getClass() || !(l instanceof Comparable))
+				throw Unsupported.INSTANCE;
+			return compareSameClass(l, r);
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static int compareSameClass(Object l, Object r) {
+			return ((Comparable) l).compareTo(r);
+		}
+
+		private static int compareNumbers(Number l, Number r) {
+			if (l instanceof Double || l instanceof Float || r instanceof Double || r instanceof Float)
+				return Double.compare(l.doubleValue(), r.doubleValue());
+			return toBigDecimal(l).compareTo(toBigDecimal(r));
+		}
+
+		private static BigDecimal toBigDecimal(Number n) {
+			if (n instanceof BigDecimal)
+				return (BigDecimal) n;
+			if (n instanceof BigInteger)
+				return new BigDecimal((BigInteger) n);
+			if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte)
+				return BigDecimal.valueOf(n.longValue());
+			throw Unsupported.INSTANCE;
+		}
+	}
+}
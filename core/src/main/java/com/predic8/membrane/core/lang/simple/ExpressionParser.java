@@ -0,0 +1,328 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang.simple;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.predic8.membrane.core.lang.simple.Expression.Comparison.Operator;
+
+/**
+ * Parses the subset of Groovy supported by {@link SimpleLanguageSupport}:
+ *
+ * <pre>
+ * expression := and ( '||' and )*
+ * and        := comparison ( '&amp;&amp;' comparison )*
+ * comparison := unary ( ( '==' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=' ) unary )?
+ * unary      := '!' unary | primary ( ( '.' | '?.' ) name ( '(' literals ')' )? )*
+ * primary    := literal | variable | ( 'jsonPath' | 'xpath' ) '(' string ')' | '(' expression ')'
+ * literal    := string | integer | decimal | 'true' | 'false' | 'null'
+ * </pre>
+ *
+ * Everything else (including line breaks and double-quoted strings containing <tt>$</tt>) is rejected with an
+ * {@link UnsupportedExpressionException}.
+ */
+class ExpressionParser {
+
+	@SuppressWarnings("serial")
+	static class UnsupportedExpressionException extends Exception {
+		UnsupportedExpressionException(String message) {
+			super(message);
+		}
+	}
+
+	private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+			"as", "assert", "break", "case", "catch", "class", "const", "continue", "def", "default", "do", "else",
+			"enum", "extends", "finally", "for", "goto", "if", "implements", "import", "in", "instanceof",
+			"interface", "new", "package", "return", "super", "switch", "this", "throw", "throws", "trait", "try",
+			"var", "while", "metaClass"));
+
+	private enum TokenType { EOF, NAME, LITERAL, OPERATOR }
+
+	private final String src;
+	private int pos;
+
+	private TokenType type;
+	private String text;
+	private Object value;
+
+	private ExpressionParser(String src) {
+		this.src = src;
+	}
+
+	static Expression parse(String src) throws UnsupportedExpressionException {
+		ExpressionParser parser = new ExpressionParser(src);
+		parser.next();
+		Expression e = parser.parseOr();
+		if (parser.type != TokenType.EOF)
+			throw parser.unsupported();
+		return e;
+	}
+
+	private Expression parseOr() throws UnsupportedExpressionException {
+		Expression e = parseAnd();
+		while (isOperator("||")) {
+			next();
+			e = new Expression.Or(e, parseAnd());
+		}
+		return e;
+	}
+
+	private Expression parseAnd() throws UnsupportedExpressionException {
+		Expression e = parseComparison();
+		while (isOperator("&&")) {
+			next();
+			e = new Expression.And(e, parseComparison());
+		}
+		return e;
+	}
+
+	private Expression parseComparison() throws UnsupportedExpressionException {
+		Expression left = parseUnary();
+		if (type != TokenType.OPERATOR)
+			return left;
+		Operator operator;
+		if (text.equals("=="))
+			operator = Operator.EQ;
+		else if (text.equals("!="))
+			operator = Operator.NE;
+		else if (text.equals("<"))
+			operator = Operator.LT;
+		else if (text.equals("<="))
+			operator = Operator.LE;
+		else if (text.equals(">"))
+			operator = Operator.GT;
+		else if (text.equals(">="))
+			operator = Operator.GE;
+		else
+			return left;
+		next();
+		return new Expression.Comparison(operator, left, parseUnary());
+	}
+
+	private Expression parseUnary() throws UnsupportedExpressionException {
+		if (isOperator("!")) {
+			next();
+			return new Expression.Not(parseUnary());
+		}
+		Expression e = parsePrimary();
+		while (isOperator(".") || isOperator("?.")) {
+			boolean nullSafe = text.equals("?.");
+			next();
+			String name = parseName();
+			if (isOperator("(")) {
+				next();
+				List<Object> args = new ArrayList<Object>();
+				if (!isOperator(")")) {
+					args.add(parseLiteral());
+					while (isOperator(",")) {
+						next();
+						args.add(parseLiteral());
+					}
+				}
+				expect(")");
+				e = new Expression.MethodCall(e, name, args.toArray(), nullSafe);
+			} else {
+				e = new Expression.Property(e, name, nullSafe);
+			}
+		}
+		return e;
+	}
+
+	private Expression parsePrimary() throws UnsupportedExpressionException {
+		if (type == TokenType.LITERAL) {
+			Object v = value;
+			next();
+			return new Expression.Literal(v);
+		}
+		if (isOperator("(")) {
+			next();
+			Expression e = parseOr();
+			expect(")");
+			return e;
+		}
+		String name = parseName();
+		if (isOperator("(")) {
+			if (!name.equals("jsonPath") && !name.equals("xpath"))
+				throw unsupported();
+			next();
+			Object path = parseLiteral();
+			if (!(path instanceof String))
+				throw unsupported();
+			expect(")");
+			try {
+				return new Expression.PathFunction((String) path, name.equals("xpath"));
+			} catch (IllegalArgumentException e) {
+				throw new UnsupportedExpressionException(e.getMessage());
+			}
+		}
+		// names starting with an upper case letter might be classes (or statically imported constants)
+		if (Character.isUpperCase(name.charAt(0)))
+			throw unsupported();
+		return new Expression.Variable(name);
+	}
+
+	private String parseName() throws UnsupportedExpressionException {
+		if (type != TokenType.NAME || KEYWORDS.contains(text))
+			throw unsupported();
+		String name = text;
+		next();
+		return name;
+	}
+
+	private Object parseLiteral() throws UnsupportedExpressionException {
+		if (type != TokenType.LITERAL)
+			throw unsupported();
+		Object v = value;
+		next();
+		return v;
+	}
+
+	private void expect(String operator) throws UnsupportedExpressionException {
+		if (!isOperator(operator))
+			throw unsupported();
+		next();
+	}
+
+	private boolean isOperator(String operator) {
+		return type == TokenType.OPERATOR && text.equals(operator);
+	}
+
+	private UnsupportedExpressionException unsupported() {
+		return new UnsupportedExpressionException("Unsupported " + (type == TokenType.EOF ? "end" : "'" + text + "'") +
+				" at position " + pos + " of: " + src);
+	}
+
+	private static final String[] OPERATORS = { "==", "!=", "<=", ">=", "&&", "||", "?.", "<", ">", "!", "(", ")", ".", "," };
+
+	private void next() throws UnsupportedExpressionException {
+		while (pos < src.length() && (src.charAt(pos) == ' ' || src.charAt(pos) == '\t'))
+			pos++;
+		value = null;
+		if (pos == src.length()) {
+			type = TokenType.EOF;
+			text = null;
+			return;
+		}
+		char c = src.charAt(pos);
+		int start = pos;
+		if (Character.isJavaIdentifierStart(c)) {
+			while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)))
+				pos++;
+			text = src.substring(start, pos);
+			type = TokenType.NAME;
+			if (text.equals("true") || text.equals("false")) {
+				type = TokenType.LITERAL;
+				value = Boolean.valueOf(text);
+			} else if (text.equals("null")) {
+				type = TokenType.LITERAL;
+			}
+		} else if (c >= '0' && c <= '9') {
+			readNumber();
+		} else if (c == '\'' || c == '"') {
+			readString(c);
+		} else {
+			for (String operator : OPERATORS) {
+				if (src.startsWith(operator, pos)) {
+					pos += operator.length();
+					type = TokenType.OPERATOR;
+					text = operator;
+					return;
+				}
+			}
+			text = String.valueOf(c);
+			type = TokenType.OPERATOR;
+			throw unsupported();
+		}
+	}
+
+	private void readNumber() throws UnsupportedExpressionException {
+		int start = pos;
+		while (pos < src.length() && Character.isDigit(src.charAt(pos)))
+			pos++;
+		boolean decimal = false;
+		if (pos + 1 < src.length() && src.charAt(pos) == '.' && Character.isDigit(src.charAt(pos + 1))) {
+			decimal = true;
+			pos++;
+			while (pos < src.length() && Character.isDigit(src.charAt(pos)))
+				pos++;
+		}
+		text = src.substring(start, pos);
+		type = TokenType.LITERAL;
+		// suffixes, exponents, hex and octal numbers
+		if (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)) || !decimal && text.length() > 1 && text.startsWith("0"))
+			throw unsupported();
+		if (decimal) {
+			value = new BigDecimal(text);
+		} else {
+			BigInteger i = new BigInteger(text);
+			if (i.bitLength() < 32)
+				value = i.intValue();
+			else if (i.bitLength() < 64)
+				value = i.longValue();
+			else
+				value = i;
+		}
+	}
+
+	private void readString(char quote) throws UnsupportedExpressionException {
+		int start = pos++;
+		StringBuilder sb = new StringBuilder();
+		while (true) {
+			if (pos >= src.length()) {
+				text = src.substring(start);
+				throw unsupported();
+			}
+			char c = src.charAt(pos++);
+			if (c == quote)
+				break;
+			if (c == '\n' || c == '\r' || c == '$' && quote == '"') {
+				text = String.valueOf(c);
+				throw unsupported();
+			}
+			if (c == '\\') {
+				if (pos >= src.length())
+					throw unsupported();
+				c = src.charAt(pos++);
+				switch (c) {
+				case 'n': sb.append('\n'); break;
+				case 't': sb.append('\t'); break;
+				case 'r': sb.append('\r'); break;
+				case 'b': sb.append('\b'); break;
+				case 'f': sb.append('\f'); break;
+				case '\\':
+				case '\'':
+				case '"':
+				case '$':
+					sb.append(c);
+					break;
+				default:
+					text = "\\" + c;
+					throw unsupported();
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		text = src.substring(start, pos);
+		type = TokenType.LITERAL;
+		value = sb.toString();
+	}
+}
@@ -0,0 +1,108 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang.simple;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.lang.LanguageSupport;
+import com.predic8.membrane.core.lang.groovy.GroovyLanguageSupport;
+import com.predic8.membrane.core.lang.simple.ExpressionParser.UnsupportedExpressionException;
+
+/**
+ * Compiles simple Groovy expressions (comparisons of properties, method results and literals, combined by
+ * <tt>&amp;&amp;</tt>, <tt>||</tt> and <tt>!</tt>, see {@link ExpressionParser}) into a tree of nodes, which is
+ * evaluated without Groovy.
+ *
+ * Other expressions are compiled by Groovy. Values the tree cannot handle with Groovy's semantics (see
+ * {@link Expression}) are detected at runtime, the expression is then evaluated by Groovy as well. Expressions
+ * are assumed to be free of side effects, as they may have been partially evaluated before.
+ */
+public class SimpleLanguageSupport extends LanguageSupport {
+	private static final Logger log = LoggerFactory.getLogger(SimpleLanguageSupport.class);
+
+	private final LanguageSupport fallback = new GroovyLanguageSupport();
+
+	private class CompiledExpression implements Function<Map<String, Object>, Boolean> {
+		private final Router router;
+		private final String src;
+		private final Expression expression;
+		private volatile Function<Map<String, Object>, Boolean> fallbackExpression;
+
+		public CompiledExpression(Router router, String src, Expression expression) {
+			this.router = router;
+			this.src = src;
+			this.expression = expression;
+		}
+
+		@Override
+		public Boolean apply(Map<String, Object> parameters) {
+			Object result;
+			try {
+				result = expression.evaluate(parameters);
+			} catch (Expression.Unsupported e) {
+				return getFallbackExpression().apply(parameters);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return result instanceof Boolean ? (Boolean) result : false;
+		}
+
+		private Function<Map<String, Object>, Boolean> getFallbackExpression() {
+			Function<Map<String, Object>, Boolean> f = fallbackExpression;
+			if (f == null) {
+				synchronized (this) {
+					f = fallbackExpression;
+					if (f == null)
+						fallbackExpression = f = fallback.compileExpression(router, src);
+				}
+			}
+			return f;
+		}
+	}
+
+	@Override
+	public Function<Map<String, Object>, Boolean> compileExpression(Router router, String src) {
+		try {
+			return new CompiledExpression(router, src, ExpressionParser.parse(src.trim()));
+		} catch (UnsupportedExpressionException e) {
+			log.debug("Using Groovy for expression: " + e.getMessage());
+			return fallback.compileExpression(router, src);
+		}
+	}
+
+	@Override
+	public Function<Map<String, Object>, Object> compileScript(Router router, String script) {
+		return fallback.compileScript(router, script);
+	}
+
+	/**
+	 * @return whether the expression will be evaluated without Groovy (unless values it cannot handle occur)
+	 */
+	public static boolean isSimple(String src) {
+		try {
+			ExpressionParser.parse(src.trim());
+			return true;
+		} catch (UnsupportedExpressionException e) {
+			return false;
+		}
+	}
+}
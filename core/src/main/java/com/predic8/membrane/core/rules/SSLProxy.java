@@ -24,7 +24,9 @@ import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.transport.http.Connection;
 import com.predic8.membrane.core.transport.http.ConnectionManager;
+import com.predic8.membrane.core.transport.http.HttpTransport;
 import com.predic8.membrane.core.transport.http.StreamPump;
+import com.predic8.membrane.core.transport.http.VirtualThreads;
 import com.predic8.membrane.core.transport.http.client.ConnectionConfiguration;
 import com.predic8.membrane.core.transport.ssl.StaticSSLContext;
 import com.predic8.membrane.core.transport.ssl.SSLContext;
@@ -197,13 +199,20 @@ public class SSLProxy implements Rule {
 
                 String source = socket.getRemoteSocketAddress().toString();
                 String dest = con.toString();
-                final StreamPump a = new StreamPump(con.in, socket.getOutputStream(), streamPumpStats, protocol + " " + source + " <- " + dest, SSLProxy.this);
-                final StreamPump b = new StreamPump(socket.getInputStream(), con.out, streamPumpStats, protocol + " " + source + " -> " + dest, SSLProxy.this);
-
-                socket.setSoTimeout(0);
+                int idleTimeout = router.getTransport() instanceof HttpTransport ? ((HttpTransport) router.getTransport()).getTunnelIdleTimeout() : 0;
+                StreamPump[] pumps = StreamPump.createTunnel(
+                        con.in, socket.getOutputStream(), protocol + " " + source + " <- " + dest,
+                        socket.getInputStream(), con.out, protocol + " " + source + " -> " + dest,
+                        streamPumpStats, SSLProxy.this, idleTimeout);
+                final StreamPump a = pumps[0];
+                final StreamPump b = pumps[1];
+
+                socket.setSoTimeout(idleTimeout);
+                if (idleTimeout > 0)
+                    con.socket.setSoTimeout(idleTimeout);
 
                 String threadName = Thread.currentThread().getName();
-                new Thread(a, threadName + " " + protocol + " Backward Thread").start();
+                VirtualThreads.newThread(a, threadName + " " + protocol + " Backward Thread").start();
                 try {
                     Thread.currentThread().setName(threadName + " " + protocol + " Onward Thread");
                     b.run();
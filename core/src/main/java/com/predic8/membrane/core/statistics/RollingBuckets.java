@@ -0,0 +1,164 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A ring of fixed-width time buckets counting exchanges, errors and latencies.
+ *
+ * A bucket covering the time [n*width, (n+1)*width) lives in slot n % size. Buckets are allocated when the first
+ * exchange of their interval is recorded and replace the old bucket of the slot, so series of rarely seen clients
+ * only hold the few buckets they have used. Latencies are counted in the histogram bins defined by {@link #BOUNDS}.
+ *
+ * No locks are taken: The counters of a bucket are {@link LongAdder}s and atomic arrays, so concurrent exchanges
+ * (e.g. of the same status code) do not serialize. An exchange recorded concurrently with the replacement of its
+ * slot's bucket may be lost; sums are therefore approximations, just like the percentiles.
+ */
+public class RollingBuckets {
+
+	/**
+	 * Upper bounds (inclusive, in milliseconds) of the latency histogram bins: 1, 2, 3, 4, 6, 8, 12, 16, ...
+	 * The last bin is unbounded.
+	 */
+	static final long[] BOUNDS;
+
+	static {
+		long[] bounds = new long[51];
+		bounds[0] = 1;
+		bounds[1] = 2;
+		bounds[2] = 3;
+		int i = 3;
+		for (long p = 4; i < bounds.length - 1; p *= 2) {
+			bounds[i++] = p;
+			bounds[i++] = p + p / 2;
+		}
+		bounds[bounds.length - 1] = Long.MAX_VALUE;
+		BOUNDS = bounds;
+	}
+
+	static final int BINS = BOUNDS.length;
+
+	static class Bucket {
+		final long n;
+		final LongAdder count = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder totalMillis = new LongAdder();
+		final AtomicLong maxMillis = new AtomicLong();
+		final AtomicIntegerArray latency = new AtomicIntegerArray(BINS);
+
+		Bucket(long n) {
+			this.n = n;
+		}
+
+		void record(long millis, boolean error) {
+			count.increment();
+			if (error)
+				errors.increment();
+			totalMillis.add(millis);
+			long max = maxMillis.get();
+			while (millis > max && !maxMillis.compareAndSet(max, millis))
+				max = maxMillis.get();
+			latency.incrementAndGet(getBin(millis));
+		}
+	}
+
+	private final long width;
+	private final int size;
+	private final AtomicReferenceArray<Bucket> buckets;
+
+	public RollingBuckets(long width, int size) {
+		this.width = width;
+		this.size = size;
+		buckets = new AtomicReferenceArray<Bucket>(size);
+	}
+
+	static int getBin(long millis) {
+		int i = Arrays.binarySearch(BOUNDS, millis);
+		return i >= 0 ? i : -i - 1;
+	}
+
+	public void record(long now, long millis, boolean error) {
+		long n = now / width;
+		int slot = (int) (n % size);
+		Bucket b = buckets.get(slot);
+		while (b == null || b.n < n) {
+			Bucket next = new Bucket(n);
+			if (buckets.compareAndSet(slot, b, next)) {
+				b = next;
+				break;
+			}
+			b = buckets.get(slot);
+		}
+		if (b.n == n)
+			b.record(millis, error);
+	}
+
+	/**
+	 * Adds the buckets of the last <code>buckets</code> intervals up to <code>now</code> to <code>window</code>.
+	 */
+	public void sum(long now, int buckets, WindowStatistics window) {
+		long last = now / width;
+		long first = last - Math.min(buckets, size) + 1;
+		for (int slot = 0; slot < size; slot++) {
+			Bucket b = this.buckets.get(slot);
+			if (b == null || b.n < first || b.n > last)
+				continue;
+			window.add(b.count.sum(), b.errors.sum(), b.totalMillis.sum(), b.maxMillis.get(), b.latency);
+		}
+	}
+
+	/**
+	 * @return the number of exchanges in each of the last <code>buckets</code> intervals up to <code>now</code>,
+	 *         oldest first
+	 */
+	public long[] getCounts(long now, int buckets) {
+		buckets = Math.min(buckets, size);
+		long[] result = new long[buckets];
+		long first = now / width - buckets + 1;
+		for (int slot = 0; slot < size; slot++) {
+			Bucket b = this.buckets.get(slot);
+			if (b == null)
+				continue;
+			long i = b.n - first;
+			if (i >= 0 && i < buckets)
+				result[(int) i] = b.count.sum();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of buckets currently allocated
+	 */
+	int getAllocated() {
+		int allocated = 0;
+		for (int slot = 0; slot < size; slot++)
+			if (buckets.get(slot) != null)
+				allocated++;
+		return allocated;
+	}
+
+	public long getWidth() {
+		return width;
+	}
+
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,70 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.statistics;
+
+/**
+ * Exchange counts and latencies of one proxy, client or status code over time, kept in three resolutions: 60
+ * one-second buckets, 60 one-minute buckets and 24 one-hour buckets.
+ *
+ * Queries use the finest resolution covering the requested window, so their cost depends on the number of
+ * buckets only, not on the number of exchanges.
+ */
+public class TimeSeries {
+
+	public static final long SECOND = 1000;
+	public static final long MINUTE = 60 * SECOND;
+	public static final long HOUR = 60 * MINUTE;
+
+	private final RollingBuckets[] resolutions = new RollingBuckets[] {
+			new RollingBuckets(SECOND, 60),
+			new RollingBuckets(MINUTE, 60),
+			new RollingBuckets(HOUR, 24)
+	};
+
+	public void record(long now, long millis, boolean error) {
+		for (RollingBuckets r : resolutions)
+			r.record(now, millis, error);
+	}
+
+	private RollingBuckets getResolution(long windowMillis) {
+		for (RollingBuckets r : resolutions)
+			if (r.getWidth() * r.getSize() >= windowMillis)
+				return r;
+		return resolutions[resolutions.length - 1];
+	}
+
+	private static int getBuckets(RollingBuckets r, long windowMillis) {
+		return (int) Math.max(1, Math.min(r.getSize(), (windowMillis + r.getWidth() - 1) / r.getWidth()));
+	}
+
+	/**
+	 * Sums up the last <code>windowMillis</code> milliseconds (rounded up to whole buckets, at most 24 hours).
+	 */
+	public WindowStatistics query(long now, long windowMillis) {
+		RollingBuckets r = getResolution(windowMillis);
+		int buckets = getBuckets(r, windowMillis);
+		WindowStatistics window = new WindowStatistics(buckets * r.getWidth(), r.getWidth());
+		r.sum(now, buckets, window);
+		return window;
+	}
+
+	/**
+	 * @return the exchange counts per bucket within the last <code>windowMillis</code> milliseconds, oldest first
+	 */
+	public long[] getCounts(long now, long windowMillis) {
+		RollingBuckets r = getResolution(windowMillis);
+		return r.getCounts(now, getBuckets(r, windowMillis));
+	}
+}
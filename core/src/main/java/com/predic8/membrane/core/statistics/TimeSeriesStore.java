@@ -0,0 +1,100 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.statistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.exchange.ExchangeState;
+
+/**
+ * Aggregates completed exchanges into {@link TimeSeries} per proxy, per client and per status code.
+ *
+ * The number of clients tracked individually is limited: Once {@link #getMaxClients()} is reached, exchanges of
+ * new clients are counted for the client {@link #OTHER_CLIENTS}. As buckets are allocated on use only, a client
+ * seen once costs about 2KB instead of the 50KB a series used every second for a day reaches.
+ */
+public class TimeSeriesStore {
+
+	public enum Dimension {
+		PROXY,
+		CLIENT,
+		STATUS
+	}
+
+	public static final String OTHER_CLIENTS = "other";
+
+	private final ConcurrentHashMap<String, TimeSeries> proxies = new ConcurrentHashMap<String, TimeSeries>();
+	private final ConcurrentHashMap<String, TimeSeries> clients = new ConcurrentHashMap<String, TimeSeries>();
+	private final ConcurrentHashMap<String, TimeSeries> statuses = new ConcurrentHashMap<String, TimeSeries>();
+
+	private int maxClients = 1000;
+
+	public void collectFrom(AbstractExchange exc) {
+		long now = System.currentTimeMillis();
+		int status = exc.getResponse() == null ? 0 : exc.getResponse().getStatusCode();
+		boolean error = status >= 500 || exc.getStatus() == ExchangeState.FAILED;
+		long millis = exc.getTimeReqReceived() == 0 ? 0 : Math.max(0, now - exc.getTimeReqReceived());
+
+		if (exc.getRule() != null)
+			getOrCreate(proxies, exc.getRule().toString()).record(now, millis, error);
+		if (exc.getRemoteAddr() != null)
+			getClient(exc.getRemoteAddr()).record(now, millis, error);
+		getOrCreate(statuses, String.valueOf(status)).record(now, millis, error);
+	}
+
+	private TimeSeries getClient(String client) {
+		TimeSeries series = clients.get(client);
+		if (series != null)
+			return series;
+		if (clients.size() >= maxClients)
+			client = OTHER_CLIENTS;
+		return getOrCreate(clients, client);
+	}
+
+	private static TimeSeries getOrCreate(ConcurrentHashMap<String, TimeSeries> map, String key) {
+		TimeSeries series = map.get(key);
+		if (series == null) {
+			series = new TimeSeries();
+			TimeSeries existing = map.putIfAbsent(key, series);
+			if (existing != null)
+				series = existing;
+		}
+		return series;
+	}
+
+	/**
+	 * @return the time series of all proxies, clients or status codes, by name
+	 */
+	public Map<String, TimeSeries> getSeries(Dimension dimension) {
+		switch (dimension) {
+		case PROXY:
+			return proxies;
+		case CLIENT:
+			return clients;
+		default:
+			return statuses;
+		}
+	}
+
+	public int getMaxClients() {
+		return maxClients;
+	}
+
+	public void setMaxClients(int maxClients) {
+		this.maxClients = maxClients;
+	}
+}
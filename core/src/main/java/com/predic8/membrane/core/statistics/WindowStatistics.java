@@ -0,0 +1,100 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.statistics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The sum of the buckets of one {@link TimeSeries} within a time window.
+ *
+ * Percentiles are read from the latency histogram and are therefore approximations: The upper bound of the
+ * histogram bin is returned, which is at most 50% above the actual value.
+ */
+public class WindowStatistics {
+
+	private final long windowMillis;
+	private final long resolution;
+
+	private long count;
+	private long errors;
+	private long totalMillis;
+	private long maxMillis;
+	private final long[] latency = new long[RollingBuckets.BINS];
+
+	public WindowStatistics(long windowMillis, long resolution) {
+		this.windowMillis = windowMillis;
+		this.resolution = resolution;
+	}
+
+	void add(long count, long errors, long totalMillis, long maxMillis, AtomicIntegerArray latency) {
+		this.count += count;
+		this.errors += errors;
+		this.totalMillis += totalMillis;
+		this.maxMillis = Math.max(this.maxMillis, maxMillis);
+		for (int i = 0; i < this.latency.length; i++)
+			this.latency[i] += latency.get(i);
+	}
+
+	public long getWindow() {
+		return windowMillis;
+	}
+
+	/**
+	 * @return the width of the buckets the window was summed up from
+	 */
+	public long getResolution() {
+		return resolution;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return exchanges per second
+	 */
+	public double getRate() {
+		return windowMillis == 0 ? 0 : count * 1000.0 / windowMillis;
+	}
+
+	public long getAverage() {
+		return count == 0 ? 0 : totalMillis / count;
+	}
+
+	public long getMax() {
+		return maxMillis;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < latency.length; i++) {
+			seen += latency[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(RollingBuckets.BOUNDS[i], maxMillis);
+		}
+		return maxMillis;
+	}
+}
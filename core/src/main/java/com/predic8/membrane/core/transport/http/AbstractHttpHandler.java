@@ -20,6 +20,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.InetAddress;
 import java.net.URISyntaxException;
+import java.util.List;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
@@ -33,7 +34,11 @@ import com.predic8.membrane.core.http.MimeType;
 import com.predic8.membrane.core.http.Request;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.http.Response.ResponseBuilder;
+import com.predic8.membrane.core.interceptor.AbstractAsyncInterceptor;
+import com.predic8.membrane.core.interceptor.AsyncInterceptor;
+import com.predic8.membrane.core.interceptor.Interceptor;
 import com.predic8.membrane.core.interceptor.InterceptorFlowController;
+import com.predic8.membrane.core.interceptor.UserFeatureInterceptor;
 import com.predic8.membrane.core.transport.Transport;
 import com.predic8.membrane.core.util.ContentTypeDetector;
 import com.predic8.membrane.core.util.EndOfStreamException;
@@ -67,7 +72,12 @@ public abstract class AbstractHttpHandler  {
 
 	protected void invokeHandlers() throws IOException, EndOfStreamException, AbortException, NoMoreRequestsException, EOFWhileReadingFirstLineException {
 		try {
-			flowController.invokeHandlers(exchange, transport.getInterceptors());
+			if (hasAsyncInterceptors(transport.getInterceptors())) {
+				// the connection is served by this thread, so it waits for asynchronous interceptors
+				AbstractAsyncInterceptor.await(flowController.invokeHandlersAsync(exchange, transport.getInterceptors()));
+			} else {
+				flowController.invokeHandlers(exchange, transport.getInterceptors());
+			}
 			if (exchange.getResponse() == null)
 				throw new AbortException("No response was generated by the interceptor chain.");
 		} catch (Exception e) {
@@ -90,6 +100,17 @@ public abstract class AbstractHttpHandler  {
 		}
 	}
 
+	/**
+	 * The {@link UserFeatureInterceptor} is not counted: As this thread waits for the exchange anyway, the
+	 * asynchronous interceptors of a proxy may as well be awaited one by one by the synchronous chain.
+	 */
+	private static boolean hasAsyncInterceptors(List<Interceptor> interceptors) {
+		for (Interceptor i : interceptors)
+			if (i instanceof AsyncInterceptor && !(i instanceof UserFeatureInterceptor))
+				return true;
+		return false;
+	}
+
 	private Response generateErrorResponse(Exception e) {
 		String msg;
 		boolean printStackTrace = transport.isPrintStackTrace();
@@ -71,6 +71,9 @@ public class Connection implements MessageObserver {
 	private Exchange exchange;
 	private boolean keepAttachedToExchange;
 
+	private long handshakeMillis = -1;
+	private boolean sessionResumed;
+
 	public static Connection open(String host, int port, String localHost, SSLProvider sslProvider, int connectTimeout) throws UnknownHostException, IOException {
 		return open(host, port, localHost, sslProvider, null, connectTimeout);
 	}
@@ -93,6 +96,25 @@ public class Connection implements MessageObserver {
 			con.socket.connect(new InetSocketAddress(host, port), connectTimeout);
 		}
 
+		if (con.socket instanceof SSLSocket) {
+			// handshake now (instead of lazily on the first write) to measure it
+			SSLSocket sslSocket = (SSLSocket) con.socket;
+			long start = System.currentTimeMillis();
+			try {
+				// the connect timeout also bounds the handshake: a backend might accept, but never answer
+				int soTimeout = sslSocket.getSoTimeout();
+				if (connectTimeout > 0)
+					sslSocket.setSoTimeout(connectTimeout);
+				sslSocket.startHandshake();
+				sslSocket.setSoTimeout(soTimeout);
+			} catch (IOException e) {
+				sslSocket.close();
+				throw e;
+			}
+			con.handshakeMillis = System.currentTimeMillis() - start;
+			con.sessionResumed = sslSocket.getSession().getCreationTime() < start;
+		}
+
 		log.debug("Opened connection on localPort: " + con.socket.getLocalPort());
 		//Creating output stream before input stream is suggested.
 		con.out = new BufferedOutputStream(con.socket.getOutputStream(), 2048);
@@ -191,6 +213,20 @@ public class Connection implements MessageObserver {
 
 
 
+	/**
+	 * @return the duration of the TLS handshake in milliseconds, or -1 if this is not a TLS connection
+	 */
+	public long getHandshakeMillis() {
+		return handshakeMillis;
+	}
+
+	/**
+	 * @return whether the TLS handshake resumed a previous session
+	 */
+	public boolean isSessionResumed() {
+		return sessionResumed;
+	}
+
 	public final void setTimeout(long timeout) {
 		this.timeout = timeout;
 	}
@@ -21,6 +21,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -55,6 +61,7 @@ public class ConnectionManager {
 
 	private final long keepAliveTimeout;
 	private final long autoCloseInterval;
+	private final int spareConnections;
 
 	private static class ConnectionKey {
 		public final String host;
@@ -121,9 +128,42 @@ public class ConnectionManager {
 	private Timer timer;
 	private volatile boolean shutdownWhenDone = false;
 
+	private final ConcurrentHashMap<ConnectionKey, HandshakeLatencyStatistics> handshakeStatistics =
+			new ConcurrentHashMap<ConnectionKey, HandshakeLatencyStatistics>();
+	private final ConcurrentHashMap<ConnectionKey, SpareConnections> spareConnectionState =
+			new ConcurrentHashMap<ConnectionKey, SpareConnections>();
+	private ThreadPoolExecutor spareConnectionOpener; // guarded by this
+
+	/**
+	 * Bounds the threads (and thereby the concurrent handshakes) used to open spare connections.
+	 */
+	private static final int MAX_SPARE_CONNECTION_OPENERS = 2;
+	private static final int MAX_PENDING_SPARE_CONNECTIONS = 100;
+
+	private static class SpareConnections {
+		/**
+		 * The number of spare connections being opened.
+		 */
+		public final AtomicInteger pending = new AtomicInteger();
+		/**
+		 * The time of the previous connection request.
+		 */
+		public volatile long lastDemand;
+	}
+
 	public ConnectionManager(long keepAliveTimeout) {
+		this(keepAliveTimeout, 0);
+	}
+
+	/**
+	 * @param spareConnections
+	 *            the number of idle TLS connections to keep open in advance
+	 *            for each backend (host, port, SNI) recently connected to
+	 */
+	public ConnectionManager(long keepAliveTimeout, int spareConnections) {
 		this.keepAliveTimeout = keepAliveTimeout;
 		this.autoCloseInterval = keepAliveTimeout * 2;
+		this.spareConnections = spareConnections;
 		timer = new Timer("Connection Closer", true);
 		timer.schedule(new TimerTask() {
 			@Override
@@ -141,6 +181,19 @@ public class ConnectionManager {
 		log.debug("Number of connections in pool: " + numberInPool.get());
 
 		ConnectionKey key = new ConnectionKey(host, port,sniServerName);
+
+		if (sslProvider != null && spareConnections > 0)
+			openSpareConnections(key, localHost, sslProvider, connectTimeout);
+
+		Connection result = getIdleConnection(key);
+		if (result != null)
+			return result;
+
+		result = open(key, localHost, sslProvider, connectTimeout);
+		return result;
+	}
+
+	private Connection getIdleConnection(ConnectionKey key) {
 		long now = System.currentTimeMillis();
 
 		synchronized(this) {
@@ -158,12 +211,96 @@ public class ConnectionManager {
 				}
 			}
 		}
+		return null;
+	}
 
-		Connection result = Connection.open(host, port, localHost, sslProvider, this, connectTimeout,sniServerName);
+	private Connection open(ConnectionKey key, String localHost, SSLProvider sslProvider, int connectTimeout) throws UnknownHostException, IOException {
+		Connection result = Connection.open(key.host, key.port, localHost, sslProvider, this, connectTimeout, key.serverName);
 		numberInPool.incrementAndGet();
+		if (result.getHandshakeMillis() >= 0)
+			getHandshakeStatistics(key).record(result.getHandshakeMillis(), result.isSessionResumed());
 		return result;
 	}
 
+	private HandshakeLatencyStatistics getHandshakeStatistics(ConnectionKey key) {
+		HandshakeLatencyStatistics stats = handshakeStatistics.get(key);
+		if (stats == null) {
+			HandshakeLatencyStatistics newStats = new HandshakeLatencyStatistics();
+			stats = handshakeStatistics.putIfAbsent(key, newStats);
+			if (stats == null)
+				stats = newStats;
+		}
+		return stats;
+	}
+
+	/**
+	 * Opens TLS connections in the background until {@link #spareConnections} idle connections to the backend are
+	 * available (not counting the one about to be handed out), so the handshake latency is not on the critical path.
+	 *
+	 * Spare connections expire like any other idle connection after the keep-alive timeout. They are therefore only
+	 * opened if connections to the backend are requested often enough for them to be used before they expire.
+	 */
+	private void openSpareConnections(final ConnectionKey key, final String localHost, final SSLProvider sslProvider, final int connectTimeout) {
+		SpareConnections state = spareConnectionState.get(key);
+		if (state == null) {
+			SpareConnections newState = new SpareConnections();
+			state = spareConnectionState.putIfAbsent(key, newState);
+			if (state == null)
+				state = newState;
+		}
+		final AtomicInteger pending = state.pending;
+
+		long now = System.currentTimeMillis();
+		long previousDemand = state.lastDemand;
+		state.lastDemand = now;
+		if (now - previousDemand > keepAliveTimeout / 2)
+			return;
+
+		int idle;
+		synchronized (this) {
+			if (shutdownWhenDone)
+				return;
+			ArrayList<OldConnection> l = availableConnections.get(key);
+			idle = l == null ? 0 : l.size();
+			if (spareConnectionOpener == null) {
+				spareConnectionOpener = new ThreadPoolExecutor(MAX_SPARE_CONNECTION_OPENERS, MAX_SPARE_CONNECTION_OPENERS,
+						60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(MAX_PENDING_SPARE_CONNECTIONS), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "Connection Opener");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+				spareConnectionOpener.allowCoreThreadTimeOut(true);
+			}
+		}
+
+		// the idle connection taken by the caller does not count as spare
+		int missing = spareConnections - Math.max(idle - 1, 0) - pending.get();
+		for (int i = 0; i < missing; i++) {
+			pending.incrementAndGet();
+			try {
+				spareConnectionOpener.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							open(key, localHost, sslProvider, connectTimeout).release();
+						} catch (Exception e) {
+							log.debug("Could not open spare connection to " + key + ": " + e.getMessage());
+						} finally {
+							pending.decrementAndGet();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// shut down or too many pending: the request itself is not affected
+				pending.decrementAndGet();
+				break;
+			}
+		}
+	}
+
 	public Connection getConnection(String host, int port, String localHost, SSLProvider sslProvider, int connectTimeout) throws UnknownHostException, IOException {
 		return getConnection(host,port,localHost,sslProvider,connectTimeout,null);
 	}
@@ -234,6 +371,20 @@ public class ConnectionManager {
 
 	public void shutdownWhenDone() {
 		shutdownWhenDone = true;
+		synchronized (this) {
+			if (spareConnectionOpener != null)
+				spareConnectionOpener.shutdown();
+		}
+	}
+
+	/**
+	 * @return handshake statistics of outbound TLS connections, by backend ("host:port" or "host:port/SNI name")
+	 */
+	public Map<String, HandshakeLatencyStatistics> getHandshakeStatistics() {
+		HashMap<String, HandshakeLatencyStatistics> result = new HashMap<String, HandshakeLatencyStatistics>();
+		for (Map.Entry<ConnectionKey, HandshakeLatencyStatistics> e : handshakeStatistics.entrySet())
+			result.put(e.getKey().serverName == null ? e.getKey().toString() : e.getKey() + "/" + e.getKey().serverName, e.getValue());
+		return result;
 	}
 
 	public int getNumberInPool() {
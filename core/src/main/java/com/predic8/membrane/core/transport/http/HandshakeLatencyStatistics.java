@@ -0,0 +1,62 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handshake counters and latencies of outbound TLS connections to one backend.
+ */
+public class HandshakeLatencyStatistics {
+
+	private final AtomicLong fullHandshakes = new AtomicLong();
+	private final AtomicLong resumedHandshakes = new AtomicLong();
+	private final AtomicLong totalMillis = new AtomicLong();
+	private final AtomicLong maxMillis = new AtomicLong();
+
+	void record(long millis, boolean resumed) {
+		if (resumed)
+			resumedHandshakes.incrementAndGet();
+		else
+			fullHandshakes.incrementAndGet();
+		totalMillis.addAndGet(millis);
+		long max;
+		while ((max = maxMillis.get()) < millis)
+			if (maxMillis.compareAndSet(max, millis))
+				break;
+	}
+
+	public long getFullHandshakes() {
+		return fullHandshakes.get();
+	}
+
+	public long getResumedHandshakes() {
+		return resumedHandshakes.get();
+	}
+
+	public long getAverageMillis() {
+		long count = getFullHandshakes() + getResumedHandshakes();
+		return count == 0 ? 0 : totalMillis.get() / count;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis.get();
+	}
+
+	@Override
+	public String toString() {
+		return "full: " + getFullHandshakes() + ", resumed: " + getResumedHandshakes() + ", avg: " + getAverageMillis() + "ms, max: " + getMaxMillis() + "ms";
+	}
+}
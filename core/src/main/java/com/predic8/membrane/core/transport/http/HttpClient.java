@@ -22,6 +22,7 @@ import java.net.SocketException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.util.Map;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -93,7 +94,7 @@ public class HttpClient {
 		connectTimeout = configuration.getConnection().getTimeout();
 		localAddr = configuration.getConnection().getLocalAddr();
 
-		conMgr = new ConnectionManager(configuration.getConnection().getKeepAliveTimeout());
+		conMgr = new ConnectionManager(configuration.getConnection().getKeepAliveTimeout(), configuration.getConnection().getSpareConnections());
 	}
 
 	public void setStreamPumpStats(StreamPump.StreamPumpStats streamPumpStats) {
@@ -358,17 +359,24 @@ public class HttpClient {
 		final HttpServerHandler hsr = (HttpServerHandler)exc.getHandler();
 		String source = hsr.getSourceSocket().getRemoteSocketAddress().toString();
 		String dest = con.toString();
-		final StreamPump a = new StreamPump(con.in, hsr.getSrcOut(), streamPumpStats, protocol + " " + source + " <- " + dest, exc.getRule());
-		final StreamPump b = new StreamPump(hsr.getSrcIn(), con.out, streamPumpStats, protocol + " " + source + " -> " + dest, exc.getRule());
-
-		hsr.getSourceSocket().setSoTimeout(0);
+		int idleTimeout = hsr.getTransport().getTunnelIdleTimeout();
+		StreamPump[] pumps = StreamPump.createTunnel(
+				con.in, hsr.getSrcOut(), protocol + " " + source + " <- " + dest,
+				hsr.getSrcIn(), con.out, protocol + " " + source + " -> " + dest,
+				streamPumpStats, exc.getRule(), idleTimeout);
+		final StreamPump a = pumps[0];
+		final StreamPump b = pumps[1];
+
+		hsr.getSourceSocket().setSoTimeout(idleTimeout);
+		if (idleTimeout > 0)
+			con.socket.setSoTimeout(idleTimeout);
 
 		exc.addExchangeViewerListener(new AbstractExchangeViewerListener() {
 
 			@Override
 			public void setExchangeFinished() {
 				String threadName = Thread.currentThread().getName();
-				new Thread(a, threadName + " " + protocol + " Backward Thread").start();
+				VirtualThreads.newThread(a, threadName + " " + protocol + " Backward Thread").start();
 				try {
 					Thread.currentThread().setName(threadName + " " + protocol + " Onward Thread");
 					b.run();
@@ -413,4 +421,11 @@ public class HttpClient {
 	ConnectionManager getConnectionManager() {
 		return conMgr;
 	}
+
+	/**
+	 * @see ConnectionManager#getHandshakeStatistics()
+	 */
+	public Map<String, HandshakeLatencyStatistics> getHandshakeStatistics() {
+		return conMgr.getHandshakeStatistics();
+	}
 }
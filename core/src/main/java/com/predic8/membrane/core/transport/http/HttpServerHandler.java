@@ -282,6 +282,7 @@ public class HttpServerHandler extends AbstractHttpHandler implements Runnable {
 		srcOut.flush();
 		exchange.setTimeResSent(System.currentTimeMillis());
 		exchange.collectStatistics();
+		getTransport().getRouter().getStatistics().getTimeSeries().collectFrom(exchange);
 	}
 
 	@Override
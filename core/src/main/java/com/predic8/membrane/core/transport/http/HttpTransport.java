@@ -47,26 +47,47 @@ public class HttpTransport extends Transport {
 
 	private static Logger log = LoggerFactory.getLogger(HttpTransport.class.getName());
 
+	public enum Executor {
+		/**
+		 * A pool of platform threads, one per connection.
+		 */
+		POOL,
+		/**
+		 * A new virtual thread per connection (Java 21 and later).
+		 */
+		VIRTUAL
+	}
+
 	public static final String SOURCE_HOSTNAME = "com.predic8.membrane.transport.http.source.Hostname";
 	public static final String HEADER_HOST = "com.predic8.membrane.transport.http.header.Host";
 	public static final String SOURCE_IP = "com.predic8.membrane.transport.http.source.Ip";
 
 	private int socketTimeout = 30000;
+	private int tunnelIdleTimeout = 0;
 	private int forceSocketCloseOnHotDeployAfter = 30000;
 	private boolean tcpNoDelay = true;
 
 	public Hashtable<IpPort, HttpEndpointListener> portListenerMapping = new Hashtable<IpPort, HttpEndpointListener>();
 	public List<WeakReference<HttpEndpointListener>> stillRunning = new ArrayList<WeakReference<HttpEndpointListener>>();
 
-	private ThreadPoolExecutor executorService = new ThreadPoolExecutor(20,
+	private Executor executor = Executor.POOL;
+	private final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(20,
 			Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
 			new SynchronousQueue<Runnable>(), new HttpServerThreadFactory());
+	private ExecutorService executorService = threadPool;
 
 	@Override
 	public void init(Router router) throws Exception {
 		super.init(router);
 
-
+		if (executor == Executor.VIRTUAL) {
+			if (VirtualThreads.isSupported()) {
+				threadPool.shutdown();
+				executorService = VirtualThreads.newExecutor(HttpServerThreadFactory.DEFAULT_THREAD_NAME + " ");
+			} else {
+				log.warn("<transport executor=\"virtual\"> requires Java 21 or later. Using a thread pool instead.");
+			}
+		}
 	}
 
 	public boolean isAnyThreadListeningAt(String ip, int port) {
@@ -180,7 +201,7 @@ public class HttpTransport extends Transport {
 	}
 
 	public int getCoreThreadPoolSize() {
-		return executorService.getCorePoolSize();
+		return threadPool.getCorePoolSize();
 	}
 
 	/**
@@ -190,11 +211,11 @@ public class HttpTransport extends Transport {
 	 */
 	@MCAttribute
 	public void setCoreThreadPoolSize(int corePoolSize) {
-		executorService.setCorePoolSize(corePoolSize);
+		threadPool.setCorePoolSize(corePoolSize);
 	}
 
 	public int getMaxThreadPoolSize() {
-		return executorService.getMaximumPoolSize();
+		return threadPool.getMaximumPoolSize();
 	}
 
 	/**
@@ -204,7 +225,27 @@ public class HttpTransport extends Transport {
 	 */
 	@MCAttribute
 	public void setMaxThreadPoolSize(int value) {
-		executorService.setMaximumPoolSize(value);
+		threadPool.setMaximumPoolSize(value);
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @description <p>How incoming connections are served. POOL uses a pool of threads (see <i>coreThreadPoolSize</i>
+	 *              and <i>maxThreadPoolSize</i>). VIRTUAL uses a new virtual thread per connection, so that a large
+	 *              number of idle or long-polling connections does not need as many operating system threads. The
+	 *              pool size attributes are then ignored.</p>
+	 *              <p>Caches kept per thread (like the parsers of <i>xmlContentFilter</i>) are
+	 *              then rebuilt for every connection.</p>
+	 *              <p>VIRTUAL requires Java 21 or later. On older JVMs, the pool is used and a warning is logged.</p>
+	 * @default POOL
+	 * @example VIRTUAL
+	 */
+	@MCAttribute
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
 	}
 
 	public ExecutorService getExecutorService() {
@@ -224,6 +265,21 @@ public class HttpTransport extends Transport {
 		this.socketTimeout = timeout;
 	}
 
+	public int getTunnelIdleTimeout() {
+		return tunnelIdleTimeout;
+	}
+
+	/**
+	 * @description Time in ms after which a tunnel (WebSocket, CONNECT, STOMP) is closed if no data was transferred
+	 *              in either direction. 0 keeps idle tunnels open until one of the peers closes the connection.
+	 * @default 0
+	 * @example 3600000
+	 */
+	@MCAttribute
+	public void setTunnelIdleTimeout(int tunnelIdleTimeout) {
+		this.tunnelIdleTimeout = tunnelIdleTimeout;
+	}
+
 	public boolean isTcpNoDelay() {
 		return tcpNoDelay;
 	}
@@ -19,8 +19,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -34,22 +38,35 @@ public class StreamPump implements Runnable {
 
 	private static Logger log = LoggerFactory.getLogger(StreamPump.class.getName());
 
+	/**
+	 * The running pumps. Pumps start and end without waiting for each other.
+	 */
 	public static class StreamPumpStats {
-		private static ArrayList<StreamPump> pumps = new ArrayList<StreamPump>();
+		private final Set<StreamPump> pumps = Collections.newSetFromMap(new ConcurrentHashMap<StreamPump, Boolean>());
 
-		public synchronized int getRunning() {
+		public int getRunning() {
 			return pumps.size();
 		}
-		public synchronized void registerPump(StreamPump pump) {
+		public void registerPump(StreamPump pump) {
 			pumps.add(pump);
 		}
-		public synchronized void unregisterPump(StreamPump pump) {
+		public void unregisterPump(StreamPump pump) {
 			pumps.remove(pump);
 		}
-		public synchronized List<StreamPump> getStreamPumps() {
-			return new ArrayList<StreamPump>(pumps);
+		/**
+		 * @return the running pumps, oldest first
+		 */
+		public List<StreamPump> getStreamPumps() {
+			ArrayList<StreamPump> result = new ArrayList<StreamPump>(pumps);
+			Collections.sort(result, new Comparator<StreamPump>() {
+				@Override
+				public int compare(StreamPump o1, StreamPump o2) {
+					return Long.compare(o1.creationTime, o2.creationTime);
+				}
+			});
+			return result;
 		}
-		public synchronized void closeAllStreamPumps() {
+		public void closeAllStreamPumps() {
 			for (StreamPump p : pumps) {
 				p.close();
 			}
@@ -65,8 +82,15 @@ public class StreamPump implements Runnable {
 	private String pumpName;
 	private final long creationTime;
 	private Rule rule;
+	// idle detection, shared by both directions of a tunnel
+	private final long idleTimeout;
+	private final AtomicLong lastActivity;
 
 	public StreamPump(InputStream in, OutputStream out, StreamPumpStats stats, String name, Rule rule) {
+		this(in, out, stats, name, rule, 0, new AtomicLong(System.currentTimeMillis()));
+	}
+
+	private StreamPump(InputStream in, OutputStream out, StreamPumpStats stats, String name, Rule rule, long idleTimeout, AtomicLong lastActivity) {
 		this.in = in;
 		this.out = out;
 		this.stats = stats;
@@ -74,6 +98,24 @@ public class StreamPump implements Runnable {
 		this.pumpName = name;
 		this.creationTime = System.currentTimeMillis();
 		this.rule = rule;
+		this.idleTimeout = idleTimeout;
+		this.lastActivity = lastActivity;
+	}
+
+	/**
+	 * Creates the pumps of both directions of a tunnel: [0] reads <code>in1</code> and writes <code>out1</code>, [1]
+	 * reads <code>in2</code> and writes <code>out2</code>.
+	 *
+	 * If <code>idleTimeout</code> is positive, the tunnel is closed once neither direction transferred data for that
+	 * many milliseconds. For this to work, the read timeouts of both sockets have to be set to
+	 * <code>idleTimeout</code>: A read timeout of one direction only ends the tunnel if the other one was idle, too.
+	 */
+	public static StreamPump[] createTunnel(InputStream in1, OutputStream out1, String name1, InputStream in2, OutputStream out2, String name2,
+			StreamPumpStats stats, Rule rule, long idleTimeout) {
+		AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+		return new StreamPump[] {
+				new StreamPump(in1, out1, stats, name1, rule, idleTimeout, lastActivity),
+				new StreamPump(in2, out2, stats, name2, rule, idleTimeout, lastActivity) };
 	}
 
 	@Override
@@ -83,9 +125,22 @@ public class StreamPump implements Runnable {
 		if (stats != null)
 			stats.registerPump(this);
 		try {
-			while ((length = in.read(buffer)) > 0) {
+			while (true) {
+				try {
+					length = in.read(buffer);
+				} catch (SocketTimeoutException e) {
+					if (idleTimeout > 0 && System.currentTimeMillis() - lastActivity.get() < idleTimeout)
+						continue;
+					// closing our output ends the other direction, too
+					log.debug("Stream Pump '" + pumpName + "' is idle.");
+					break;
+				}
+				if (length <= 0)
+					break;
 				out.write(buffer, 0, length);
 				out.flush();
+				if (idleTimeout > 0)
+					lastActivity.set(System.currentTimeMillis());
 				if (stats != null)
 					bytesTransferred.addAndGet(length);
 			}
@@ -114,10 +169,10 @@ public class StreamPump implements Runnable {
 	public String getServiceProxyName() {
 		return rule.getName();
 	}
-	public synchronized long getTransferredBytes() {
+	public long getTransferredBytes() {
 		return bytesTransferred.get();
 	}
-	public synchronized long getCreationTime() {
+	public long getCreationTime() {
 		return creationTime;
 	}
 
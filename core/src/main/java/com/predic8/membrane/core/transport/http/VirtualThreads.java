@@ -0,0 +1,110 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads (Java 21 and later) from code compiled for Java 8.
+ *
+ * The methods are looked up by reflection once. On older JVMs, {@link #isSupported()} returns false and platform
+ * threads are used instead.
+ */
+public class VirtualThreads {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class.getName());
+
+	private static final Method ofVirtual, name, factory, isVirtual, newThreadPerTaskExecutor;
+
+	static {
+		Method ov = null, n = null, f = null, iv = null, ntpte = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ov = Thread.class.getMethod("ofVirtual");
+			n = builder.getMethod("name", String.class, long.class);
+			f = builder.getMethod("factory");
+			iv = Thread.class.getMethod("isVirtual");
+			ntpte = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+		} catch (Exception e) {
+			ov = null;
+			log.debug("Virtual threads are not supported by this JVM.");
+		}
+		ofVirtual = ov;
+		name = n;
+		factory = f;
+		isVirtual = iv;
+		newThreadPerTaskExecutor = ntpte;
+	}
+
+	public static boolean isSupported() {
+		return ofVirtual != null;
+	}
+
+	/**
+	 * @return a factory for virtual threads named <code>prefix</code> followed by a counter
+	 */
+	public static ThreadFactory newThreadFactory(String prefix) {
+		if (!isSupported())
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+		try {
+			return (ThreadFactory) factory.invoke(name.invoke(ofVirtual.invoke(null), prefix, 0L));
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return an executor starting a new virtual thread for each task
+	 */
+	public static ExecutorService newExecutor(String prefix) {
+		try {
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null, newThreadFactory(prefix));
+		} catch (UnsupportedOperationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static boolean isVirtual(Thread thread) {
+		if (!isSupported())
+			return false;
+		try {
+			return (Boolean) isVirtual.invoke(thread);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a thread of the same kind as the current one: Work split off a connection handled by a virtual thread
+	 * (like the second direction of a tunnel) runs on a virtual thread, too.
+	 */
+	public static Thread newThread(Runnable r, String threadName) {
+		Thread t;
+		if (isVirtual(Thread.currentThread()))
+			t = newThreadFactory(threadName).newThread(r);
+		else
+			t = new Thread(r);
+		t.setName(threadName);
+		return t;
+	}
+}
@@ -22,6 +22,7 @@ public class ConnectionConfiguration {
 	private long keepAliveTimeout = 4000;
 	private int connectTimeout = 10000;
 	private String localAddr;
+	private int spareConnections;
 
 	public long getKeepAliveTimeout() {
 		return keepAliveTimeout;
@@ -64,5 +65,22 @@ public class ConnectionConfiguration {
 		this.localAddr = localAddr;
 	}
 
+	public int getSpareConnections() {
+		return spareConnections;
+	}
+
+	/**
+	 * @description Number of idle TLS connections opened in advance for each backend recently connected to. This
+	 *              moves the TLS handshake off the critical path of requests to TLS backends. Spare connections
+	 *              are only opened while requests to the backend arrive more often than every half
+	 *              <i>keepAliveTimeout</i>, as unused connections are closed after the keep-alive timeout.
+	 * @default 0
+	 * @example 2
+	 */
+	@MCAttribute
+	public void setSpareConnections(int spareConnections) {
+		this.spareConnections = spareConnections;
+	}
+
 
 }
@@ -20,8 +20,10 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.oracle.util.ssl.SSLCapabilities;
 import com.oracle.util.ssl.SSLExplorer;
+import com.predic8.membrane.core.config.security.KeyGenerator;
 import com.predic8.membrane.core.config.security.SSLParser;
 import com.predic8.membrane.core.resolver.ResolverMap;
+import com.predic8.membrane.core.util.FileUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
@@ -40,8 +42,11 @@ import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
 import javax.annotation.Nullable;
 import javax.net.ssl.*;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.ServerSocket;
@@ -57,13 +62,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class GeneratingSSLContext extends SSLContext {
     private static final Logger log = LoggerFactory.getLogger(GeneratingSSLContext.class.getName());
+    private static final Pattern VALID_HOSTNAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9.-]*");
 
     private final PrivateKey caPrivate;
     private final SSLParser sslParser;
     private final X509Certificate caPublic;
+    private final KeyPairPool keyPairPool;
+    private final File persistDirectory;
+    private final char[] persistPassword;
 
     LoadingCache<String, SSLContext> cache;
 
@@ -103,10 +115,33 @@ public class GeneratingSSLContext extends SSLContext {
                 keyPassword = sslParser.getKeyGenerator().getKey().getPassword();
             kmf.init(ks, keyPassword.toCharArray());
 
-            cache = CacheBuilder.newBuilder().maximumSize(100).build(new CacheLoader<String, SSLContext>() {
+            KeyGenerator keyGenerator = sslParser.getKeyGenerator();
+            String keyAlgorithm = keyGenerator.getKeyAlgorithm();
+            int keySize = keyGenerator.getKeySize();
+            if (keySize <= 0)
+                keySize = "EC".equalsIgnoreCase(keyAlgorithm) ? 256 : 2048;
+            keyPairPool = new KeyPairPool(keyAlgorithm, keySize, keyGenerator.getPoolSize());
+
+            if (keyGenerator.getPersistDirectory() != null) {
+                persistDirectory = new File(keyGenerator.getPersistDirectory());
+                if (!persistDirectory.exists() && !persistDirectory.mkdirs())
+                    throw new RuntimeException("Could not create directory " + persistDirectory.getAbsolutePath());
+            } else {
+                persistDirectory = null;
+            }
+            if (keyGenerator.getPersistPassword() != null)
+                persistPassword = keyGenerator.getPersistPassword().toCharArray();
+            else
+                persistPassword = derivePassword(caPrivate);
+
+            // LoadingCache.get() only loads once per key, even if many connections for a new host name arrive at
+            // the same time: the other threads wait for the result.
+            CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(keyGenerator.getCacheSize());
+            if (keyGenerator.getCacheExpiry() > 0)
+                cacheBuilder.expireAfterWrite(keyGenerator.getCacheExpiry(), TimeUnit.SECONDS);
+            cache = cacheBuilder.build(new CacheLoader<String, SSLContext>() {
                 @Override
                 public SSLContext load(String s) throws Exception {
-                    log.info("Generating certificate for " + s);
                     return getSSLContextForHostname(s);
                 }
             });
@@ -165,7 +200,7 @@ public class GeneratingSSLContext extends SSLContext {
                 for (SNIServerName snisn : serverNames) {
                     String hostname = new String(snisn.getEncoded(), "UTF-8");
                     try {
-                        return cache.get(hostname).wrap(socket, buffer, position);
+                        return handshakeStatistics.register(cache.get(hostname).wrap(socket, buffer, position));
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -187,22 +222,26 @@ public class GeneratingSSLContext extends SSLContext {
 
     public SSLContext getSSLContextForHostname(String hostname) {
         try {
-            KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-            kpg.initialize(2048);
-            KeyPair kp = kpg.generateKeyPair();
+            KeyStore ks = loadPersisted(hostname);
+            if (ks == null) {
+                log.info("Generating certificate for " + hostname);
+                KeyPair kp = keyPairPool.take();
 
-            org.bouncycastle.asn1.x500.X500Name xn = new org.bouncycastle.asn1.x500.X500Name("CN="+hostname);
+                org.bouncycastle.asn1.x500.X500Name xn = new org.bouncycastle.asn1.x500.X500Name("CN="+hostname);
 
-            X509Certificate[] chain = new X509Certificate[]{
-                    sign(xn.toString(), caPublic, caPrivate, kp.getPublic())
-            };
+                X509Certificate[] chain = new X509Certificate[]{
+                        sign(xn.toString(), caPublic, caPrivate, kp.getPublic())
+                };
 
-            KeyStore ks = KeyStore.getInstance("JKS");
-            ks.load(null, null);
-            ks.setKeyEntry("alias", kp.getPrivate(), new char[0], chain);
+                ks = KeyStore.getInstance("JKS");
+                ks.load(null, null);
+                ks.setKeyEntry("alias", kp.getPrivate(), persistPassword, chain);
+
+                persist(hostname, ks);
+            }
 
             KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-            kmf.init(ks, new char[0]);
+            kmf.init(ks, persistPassword);
 
             javax.net.ssl.SSLContext sslc = javax.net.ssl.SSLContext.getInstance("TLS");
             sslc.init(kmf.getKeyManagers(), null, null);
@@ -214,6 +253,78 @@ public class GeneratingSSLContext extends SSLContext {
         }
     }
 
+    private File getPersistFile(String hostname) {
+        if (persistDirectory == null || !VALID_HOSTNAME.matcher(hostname).matches())
+            return null;
+        return new File(persistDirectory, hostname.toLowerCase(Locale.US) + ".jks");
+    }
+
+    /**
+     * @return the persisted key store for the hostname, or null if there is none, if it expired or if it was not
+     *         signed by the current root CA key.
+     */
+    private KeyStore loadPersisted(String hostname) {
+        File f = getPersistFile(hostname);
+        if (f == null || !f.exists())
+            return null;
+        try {
+            KeyStore ks = KeyStore.getInstance("JKS");
+            FileInputStream fis = new FileInputStream(f);
+            try {
+                ks.load(fis, persistPassword);
+            } finally {
+                fis.close();
+            }
+            X509Certificate cert = (X509Certificate) ks.getCertificate("alias");
+            cert.checkValidity(new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L));
+            cert.verify(caPublic.getPublicKey());
+            log.debug("Using persisted certificate for " + hostname);
+            return ks;
+        } catch (Exception e) {
+            log.info("Not using persisted certificate " + f.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void persist(String hostname, KeyStore ks) {
+        File f = getPersistFile(hostname);
+        if (f == null)
+            return;
+        try {
+            File tmp = new File(f.getPath() + ".tmp");
+            if (tmp.exists() && !tmp.delete())
+                throw new IOException("Could not delete " + tmp.getAbsolutePath());
+            OutputStream fos = FileUtil.createOwnerOnlyFile(tmp);
+            try {
+                ks.store(fos, persistPassword);
+            } finally {
+                fos.close();
+            }
+            if (f.exists() && !f.delete() || !tmp.renameTo(f))
+                log.warn("Could not persist certificate to " + f.getAbsolutePath());
+        } catch (Exception e) {
+            log.warn("Could not persist certificate to " + f.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * The password of persisted key stores, if none is configured: Whoever can read the CA key can issue
+     * certificates anyway.
+     */
+    private static char[] derivePassword(PrivateKey caPrivate) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(caPrivate.getEncoded());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest)
+            sb.append(String.format("%02x", b & 0xFF));
+        return sb.toString().toCharArray();
+    }
+
+    @Override
+    public void stop() {
+        keyPairPool.stop();
+        cache.invalidateAll();
+    }
+
     public static X509Certificate sign(String subjectName, X509Certificate caPublic, PrivateKey caPrivate, PublicKey keyPublic)
             throws InvalidKeyException, NoSuchAlgorithmException,
             NoSuchProviderException, SignatureException, IOException,
@@ -0,0 +1,62 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Counts full and abbreviated (resumed) TLS handshakes of the sockets accepted by one listener.
+ *
+ * A handshake is considered resumed, if the negotiated session was created before the socket was registered.
+ */
+public class HandshakeStatistics {
+
+	private final AtomicLong fullHandshakes = new AtomicLong();
+	private final AtomicLong resumedHandshakes = new AtomicLong();
+
+	public Socket register(Socket socket) {
+		if (socket instanceof SSLSocket) {
+			final long registered = System.currentTimeMillis();
+			((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+				@Override
+				public void handshakeCompleted(HandshakeCompletedEvent event) {
+					if (event.getSession().getCreationTime() < registered)
+						resumedHandshakes.incrementAndGet();
+					else
+						fullHandshakes.incrementAndGet();
+				}
+			});
+		}
+		return socket;
+	}
+
+	public long getFullHandshakes() {
+		return fullHandshakes.get();
+	}
+
+	public long getResumedHandshakes() {
+		return resumedHandshakes.get();
+	}
+
+	@Override
+	public String toString() {
+		return "full handshakes: " + getFullHandshakes() + ", resumed handshakes: " + getResumedHandshakes();
+	}
+}
@@ -0,0 +1,99 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.predic8.membrane.core.rules.ServiceProxyKey;
+
+/**
+ * Maps host names to the index of the first matching entry in a list of host name patterns (same syntax as
+ * {@link ServiceProxyKey#setHost(String)}).
+ *
+ * Plain host names are looked up in a hash map, patterns of the form "*.example.com" by walking the labels of the
+ * host name through a suffix map. Only patterns using '*' elsewhere fall back to a regular expression scan.
+ *
+ * The result is always the same as testing the patterns one after another and returning the first match.
+ */
+class HostNameIndex {
+
+	private final HashMap<String, Integer> exact = new HashMap<String, Integer>();
+	/** maps a suffix like ".example.com" to the index of the first "*.example.com" pattern */
+	private final HashMap<String, Integer> wildcardSuffixes = new HashMap<String, Integer>();
+	private final List<Pattern> otherPatterns = new ArrayList<Pattern>();
+	private final List<Integer> otherIndices = new ArrayList<Integer>();
+
+	/**
+	 * @param hostPatterns
+	 *            space separated lists of host names, optionally containing '*'
+	 */
+	public HostNameIndex(List<String> hostPatterns) {
+		for (int i = 0; i < hostPatterns.size(); i++)
+			for (String host : hostPatterns.get(i).split(" ")) {
+				if (host.length() == 0)
+					continue;
+				host = host.toLowerCase(Locale.US);
+				int star = host.indexOf('*');
+				if (star == -1) {
+					putIfAbsent(exact, host, i);
+				} else if (star == 0 && host.length() > 2 && host.charAt(1) == '.' && host.indexOf('*', 1) == -1) {
+					putIfAbsent(wildcardSuffixes, host.substring(1), i);
+				} else {
+					otherPatterns.add(Pattern.compile(ServiceProxyKey.createHostPattern(host), Pattern.CASE_INSENSITIVE));
+					otherIndices.add(i);
+				}
+			}
+	}
+
+	private static void putIfAbsent(HashMap<String, Integer> map, String key, int index) {
+		if (!map.containsKey(key))
+			map.put(key, index);
+	}
+
+	/**
+	 * @return the index of the first pattern matching the host name, or -1 if none matches
+	 */
+	public int lookup(String hostname) {
+		hostname = hostname.toLowerCase(Locale.US);
+		int best = Integer.MAX_VALUE;
+
+		Integer i = exact.get(hostname);
+		if (i != null)
+			best = i;
+
+		if (!wildcardSuffixes.isEmpty()) {
+			// '*' matches at least one character (possibly including dots), so the suffix must not start at 0
+			for (int dot = hostname.indexOf('.', 1); dot != -1; dot = hostname.indexOf('.', dot + 1)) {
+				i = wildcardSuffixes.get(hostname.substring(dot));
+				if (i != null && i < best)
+					best = i;
+			}
+		}
+
+		for (int j = 0; j < otherPatterns.size(); j++) {
+			int index = otherIndices.get(j);
+			if (index >= best)
+				continue;
+			if (otherPatterns.get(j).matcher(hostname).matches())
+				best = index;
+		}
+
+		return best == Integer.MAX_VALUE ? -1 : best;
+	}
+}
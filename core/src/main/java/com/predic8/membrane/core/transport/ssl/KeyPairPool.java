@@ -0,0 +1,137 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a number of pre-generated key pairs, so that key generation (which takes several milliseconds for RSA) does
+ * not happen on the thread performing the TLS handshake.
+ *
+ * The pool is refilled after each {@link #take()} by a task on a background thread shared by all pools. The thread
+ * ends when no pool needs refilling, so no thread is left behind when a pool is discarded (for example on hot
+ * deployment). If the pool is empty, {@link #take()} generates the key pair on the calling thread.
+ */
+public class KeyPairPool {
+	private static final Logger log = LoggerFactory.getLogger(KeyPairPool.class.getName());
+
+	private static final ThreadPoolExecutor filler = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "KeyPair Generator");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+
+	static {
+		filler.allowCoreThreadTimeOut(true);
+	}
+
+	private final String algorithm;
+	private final int keySize;
+	private final ArrayBlockingQueue<KeyPair> pool;
+	private final AtomicBoolean filling = new AtomicBoolean();
+	private volatile boolean stopped;
+
+	/**
+	 * @param algorithm "RSA" or "EC"
+	 * @param poolSize the number of key pairs to pre-generate, 0 to disable pre-generation
+	 */
+	public KeyPairPool(String algorithm, int keySize, int poolSize) {
+		this.algorithm = algorithm;
+		this.keySize = keySize;
+		try {
+			// fail early on unsupported algorithms
+			KeyPairGenerator.getInstance(algorithm).initialize(keySize);
+		} catch (Exception e) {
+			throw new RuntimeException("Could not initialize " + algorithm + " key pair generator with key size " + keySize + ".", e);
+		}
+		pool = poolSize > 0 ? new ArrayBlockingQueue<KeyPair>(poolSize) : null;
+		refill();
+	}
+
+	public KeyPair take() throws NoSuchAlgorithmException {
+		if (pool != null) {
+			KeyPair kp = pool.poll();
+			refill();
+			if (kp != null)
+				return kp;
+			log.debug("Key pair pool exhausted, generating key pair on the calling thread.");
+		}
+		return generate();
+	}
+
+	/**
+	 * @return the number of pre-generated key pairs available
+	 */
+	public int size() {
+		return pool == null ? 0 : pool.size();
+	}
+
+	/**
+	 * Discards the pre-generated key pairs and stops refilling the pool. {@link #take()} still works, generating key
+	 * pairs on the calling thread.
+	 */
+	public void stop() {
+		stopped = true;
+		if (pool != null)
+			pool.clear();
+	}
+
+	private void refill() {
+		if (pool == null || stopped || pool.remainingCapacity() == 0 || !filling.compareAndSet(false, true))
+			return;
+		filler.execute(new Runnable() {
+			@Override
+			public void run() {
+				boolean failed = false;
+				try {
+					while (!stopped && pool.remainingCapacity() > 0)
+						pool.offer(generate());
+				} catch (Exception e) {
+					log.error("Key pair pre-generation failed.", e);
+					failed = true;
+				} finally {
+					filling.set(false);
+				}
+				if (stopped)
+					pool.clear();
+				else if (!failed)
+					// a key pair might have been taken after the loop ended
+					refill();
+			}
+		});
+	}
+
+	private KeyPair generate() throws NoSuchAlgorithmException {
+		KeyPairGenerator kpg = KeyPairGenerator.getInstance(algorithm);
+		kpg.initialize(keySize);
+		return kpg.generateKeyPair();
+	}
+}
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.ByteArrayInputStream;
@@ -38,6 +39,7 @@ public abstract class SSLContext implements SSLProvider {
     protected String[] protocols;
     protected boolean wantClientAuth, needClientAuth;
     protected String endpointIdentificationAlgorithm;
+    protected final HandshakeStatistics handshakeStatistics = new HandshakeStatistics();
 
     public void init(SSLParser sslParser, javax.net.ssl.SSLContext sslc) {
         if (sslParser.getCiphers() != null) {
@@ -80,11 +82,25 @@ public abstract class SSLContext implements SSLProvider {
         }
 
         endpointIdentificationAlgorithm = sslParser.getEndpointIdentificationAlgorithm();
+
+        // outbound sessions are resumed from the client session context, keyed by (host, port)
+        for (SSLSessionContext sessionContext : new SSLSessionContext[] { sslc.getServerSessionContext(), sslc.getClientSessionContext() }) {
+            if (sslParser.getSessionCacheSize() >= 0)
+                sessionContext.setSessionCacheSize(sslParser.getSessionCacheSize());
+            if (sslParser.getSessionTimeout() >= 0)
+                sessionContext.setSessionTimeout(sslParser.getSessionTimeout());
+        }
     }
 
     abstract String getLocation();
     abstract List<String> getDnsNames();
 
+    /**
+     * Releases resources held by this context. Called when the router shuts down.
+     */
+    public void stop() {
+    }
+
     public Socket wrap(Socket socket, byte[] buffer, int position) throws IOException {
         SSLSocketFactory serviceSocketFac = getSocketFactory();
 
@@ -142,6 +158,10 @@ public abstract class SSLContext implements SSLProvider {
         return wantClientAuth;
     }
 
+    public HandshakeStatistics getHandshakeStatistics() {
+        return handshakeStatistics;
+    }
+
     private void sortCiphers(ArrayList<String> ciphers) {
         ArrayList<SSLContext.CipherInfo> cipherInfos = new ArrayList<SSLContext.CipherInfo>(ciphers.size());
 
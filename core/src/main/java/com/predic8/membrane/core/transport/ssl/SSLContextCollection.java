@@ -22,7 +22,6 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SNIServerName;
@@ -87,7 +86,8 @@ public class SSLContextCollection implements SSLProvider {
 	}
 
 	private final List<SSLContext> sslContexts;
-	private final List<Pattern> dnsNames;
+	private final HostNameIndex dnsNames;
+	private final HandshakeStatistics handshakeStatistics = new HandshakeStatistics();
 
 	/**
 	 * @param sslContexts
@@ -98,9 +98,7 @@ public class SSLContextCollection implements SSLProvider {
 	 *            {@link ServiceProxyKey#setHost(String)})
 	 */
 	private SSLContextCollection(List<SSLContext> sslContexts, List<String> dnsNames) {
-		this.dnsNames = new ArrayList<Pattern>();
-		for (String dnsName : dnsNames)
-			this.dnsNames.add(Pattern.compile(ServiceProxyKey.createHostPattern(dnsName), Pattern.CASE_INSENSITIVE));
+		this.dnsNames = new HostNameIndex(dnsNames);
 		this.sslContexts = sslContexts;
 	}
 
@@ -153,12 +151,11 @@ public class SSLContextCollection implements SSLProvider {
 			if (serverNames != null && serverNames.size() > 0) {
 				OUTER:
 					for (SNIServerName snisn : serverNames) {
-						String hostname = new String(snisn.getEncoded(), "UTF-8");
-						for (int i = 0; i < dnsNames.size(); i++)
-							if (dnsNames.get(i).matcher(hostname).matches()) {
-								sslContext = sslContexts.get(i);
-								break OUTER;
-							}
+						int i = dnsNames.lookup(new String(snisn.getEncoded(), "UTF-8"));
+						if (i != -1) {
+							sslContext = sslContexts.get(i);
+							break OUTER;
+						}
 					}
 			if (sslContext == null) {
 				// no hostname matched: send 'unrecognized_name' alert and close socket
@@ -190,19 +187,16 @@ public class SSLContextCollection implements SSLProvider {
 		if (sslContext == null)
 			sslContext = sslContexts.get(0);
 
-		return sslContext.wrap(socket, buffer, position);
+		return handshakeStatistics.register(sslContext.wrap(socket, buffer, position));
 	}
 
 	private SSLContext getSSLContextForHostname(String hostname) {
-		SSLContext sslContext = null;
-		for (int i = 0; i < dnsNames.size(); i++)
-			if (dnsNames.get(i).matcher(hostname).matches()) {
-				sslContext = sslContexts.get(i);
-				break;
-			}
-		if (sslContext == null)
-			sslContext = sslContexts.get(0);
-		return sslContext;
+		int i = dnsNames.lookup(hostname);
+		return sslContexts.get(i == -1 ? 0 : i);
+	}
+
+	public HandshakeStatistics getHandshakeStatistics() {
+		return handshakeStatistics;
 	}
 
 	@Override
@@ -26,4 +26,10 @@ public interface SSLProvider {
 	public Socket createSocket(String host, int port, int connectTimeout, @Nullable String sniServerName) throws IOException;
 	public Socket createSocket(String host, int port, InetAddress addr, int localPort, int connectTimeout, @Nullable String sniServerName) throws IOException;
 
+	/**
+	 * @return the handshake counters of the sockets accepted by {@link #wrapAcceptedSocket(Socket)} and the server
+	 *         sockets created by {@link #createServerSocket(int, int, InetAddress)}
+	 */
+	public HandshakeStatistics getHandshakeStatistics();
+
 }
@@ -276,7 +276,7 @@ public class StaticSSLContext extends SSLContext {
     }
 
     public Socket wrapAcceptedSocket(Socket socket) throws IOException {
-        return socket;
+        return handshakeStatistics.register(socket);
     }
 
     public Socket createSocket(String host, int port, int connectTimeout, @Nullable String sniServerName) throws IOException {
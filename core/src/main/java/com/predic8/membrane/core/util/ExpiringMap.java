@@ -0,0 +1,213 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A concurrent map whose values expire.
+ *
+ * When a value expires is determined by {@link Expiry#getExpiresAt(Object)} every time it is needed, so values may
+ * extend their lifetime (e.g. sessions by being used). Expired values are never returned.
+ *
+ * Expired values are removed by {@link #expire(long)}, which should be called periodically: Every value is
+ * scheduled in a hashed timer wheel at the time it is expected to expire. Only the values scheduled since the last
+ * call are checked (values which are still alive are scheduled again), so there is no need to scan the whole map.
+ *
+ * Reading and writing never block: The map is a {@link ConcurrentHashMap}, the slots of the wheel are lock-free
+ * queues.
+ */
+public class ExpiringMap<K, V> {
+
+	public interface Expiry<V> {
+		/**
+		 * @return the time (in milliseconds since the epoch) when the value expires, or {@link Long#MAX_VALUE} if it
+		 *         never expires
+		 */
+		long getExpiresAt(V value);
+	}
+
+	private static final class Timeout<K, V> {
+		final K key;
+		final V value;
+		final long tick;
+
+		Timeout(K key, V value, long tick) {
+			this.key = key;
+			this.value = value;
+			this.tick = tick;
+		}
+	}
+
+	private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<K, V>();
+	private final Expiry<V> expiry;
+	private final long tickMillis;
+	private final ConcurrentLinkedQueue<Timeout<K, V>>[] wheel;
+	private final int mask;
+
+	/** the last tick processed by {@link #expire(long)}, guarded by 'this' for writing */
+	private volatile long lastTick;
+
+	public ExpiringMap(Expiry<V> expiry) {
+		this(expiry, 1000, 1024);
+	}
+
+	/**
+	 * @param tickMillis the resolution of the timer wheel
+	 * @param wheelSize the number of slots of the wheel (rounded up to a power of two)
+	 */
+	@SuppressWarnings("unchecked")
+	public ExpiringMap(Expiry<V> expiry, long tickMillis, int wheelSize) {
+		this.expiry = expiry;
+		this.tickMillis = tickMillis;
+		int size = Integer.highestOneBit(Math.max(wheelSize, 1) * 2 - 1);
+		wheel = new ConcurrentLinkedQueue[size];
+		for (int i = 0; i < size; i++)
+			wheel[i] = new ConcurrentLinkedQueue<Timeout<K, V>>();
+		mask = size - 1;
+		lastTick = System.currentTimeMillis() / tickMillis;
+	}
+
+	public V get(K key) {
+		V value = map.get(key);
+		if (value == null)
+			return null;
+		if (isExpired(value, System.currentTimeMillis())) {
+			map.remove(key, value);
+			return null;
+		}
+		return value;
+	}
+
+	public boolean containsKey(K key) {
+		return get(key) != null;
+	}
+
+	public V put(K key, V value) {
+		V old = map.put(key, value);
+		schedule(key, value);
+		return old;
+	}
+
+	/**
+	 * @return the current value, or null if the value has been added
+	 */
+	public V putIfAbsent(K key, V value) {
+		while (true) {
+			V old = map.putIfAbsent(key, value);
+			if (old == null) {
+				schedule(key, value);
+				return null;
+			}
+			if (!isExpired(old, System.currentTimeMillis()))
+				return old;
+			if (map.replace(key, old, value)) {
+				schedule(key, value);
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return the removed value, or null if there was none or it has expired
+	 */
+	public V remove(K key) {
+		V value = map.remove(key);
+		if (value != null && isExpired(value, System.currentTimeMillis()))
+			return null;
+		return value;
+	}
+
+	/**
+	 * @return the number of values, including expired values which have not been removed yet
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	/**
+	 * @return a live view of the map, which may contain expired values
+	 */
+	public Map<K, V> asMap() {
+		return map;
+	}
+
+	public Collection<V> values() {
+		return map.values();
+	}
+
+	private boolean isExpired(V value, long now) {
+		return expiry.getExpiresAt(value) <= now;
+	}
+
+	private void schedule(K key, V value) {
+		long expiresAt = expiry.getExpiresAt(value);
+		if (expiresAt == Long.MAX_VALUE)
+			return;
+		long tick = Math.max(expiresAt / tickMillis, lastTick + 1);
+		wheel[(int) (tick & mask)].add(new Timeout<K, V>(key, value, tick));
+	}
+
+	/**
+	 * Removes the values which expired until <tt>now</tt> and have been scheduled since the last call.
+	 *
+	 * @return the number of removed values
+	 */
+	public synchronized int expire(long now) {
+		long nowTick = now / tickMillis;
+		long from = lastTick + 1;
+		if (nowTick < from)
+			return 0;
+		// visit every slot at most once
+		long to = Math.min(nowTick, from + mask);
+		lastTick = nowTick;
+
+		int removed = 0;
+		List<Timeout<K, V>> due = new ArrayList<Timeout<K, V>>();
+		List<Timeout<K, V>> later = new ArrayList<Timeout<K, V>>();
+		for (long tick = from; tick <= to; tick++) {
+			ConcurrentLinkedQueue<Timeout<K, V>> slot = wheel[(int) (tick & mask)];
+			Timeout<K, V> t;
+			while ((t = slot.poll()) != null) {
+				if (t.tick <= nowTick)
+					due.add(t);
+				else
+					later.add(t); // a later round of the wheel
+			}
+			slot.addAll(later);
+			later.clear();
+		}
+		for (Timeout<K, V> t : due) {
+			if (map.get(t.key) != t.value)
+				continue; // the value has been removed or replaced (and scheduled again)
+			if (isExpired(t.value, now)) {
+				if (map.remove(t.key, t.value))
+					removed++;
+			} else {
+				schedule(t.key, t.value);
+			}
+		}
+		return removed;
+	}
+}
@@ -15,6 +15,11 @@
 package com.predic8.membrane.core.util;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
 public class FileUtil {
 	public static File prefixMembraneHomeIfNeeded(File f) {
@@ -24,4 +29,22 @@ public class FileUtil {
 		return new File(System.getenv("MEMBRANE_HOME"), f.getPath());
 
 	}
+
+	/**
+	 * Creates a file readable and writable by its owner only. On file systems without POSIX permissions, the
+	 * permissions are restricted as far as {@link File} supports it.
+	 */
+	public static OutputStream createOwnerOnlyFile(File f) throws IOException {
+		try {
+			Files.createFile(f.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			if (!f.createNewFile())
+				throw new IOException("Could not create " + f.getAbsolutePath());
+			f.setReadable(false, false);
+			f.setWritable(false, false);
+			f.setReadable(true, true);
+			f.setWritable(true, true);
+		}
+		return new FileOutputStream(f);
+	}
 }
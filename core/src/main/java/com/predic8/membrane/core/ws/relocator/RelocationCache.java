@@ -0,0 +1,187 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.ws.relocator;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.ws.relocator.Relocator.PathRewriter;
+
+/**
+ * Relocated WSDL, XSD and WADL documents of one {@link com.predic8.membrane.core.Router}.
+ *
+ * A document is cached for the combination of its location, the public protocol, host and port, the
+ * {@link PathRewriter} and the attributes which are relocated. An entry is only used if the validator of the
+ * original document (its strong <tt>ETag</tt>, or else its <tt>Last-Modified</tt> date) did not change. Documents
+ * without a validator are not cached.
+ *
+ * The cache is bounded by the total size of the relocated documents.
+ */
+public class RelocationCache {
+
+	public static final long DEFAULT_MAXIMUM_SIZE = 32 * 1024 * 1024;
+
+	public static final class Key {
+		private final String location;
+		private final String protocol;
+		private final String host;
+		private final int port;
+		private final PathRewriter pathRewriter;
+		private final Map<QName, String> relocatingAttributes;
+		private final String charset;
+
+		/**
+		 * @param pathRewriter
+		 *            is compared using {@link Object#equals(Object)}: Path rewriters creating the same paths for
+		 *            different requests should implement it accordingly.
+		 */
+		public Key(String location, String protocol, String host, int port, PathRewriter pathRewriter,
+				Map<QName, String> relocatingAttributes, String charset) {
+			this.location = location;
+			this.protocol = protocol;
+			this.host = host;
+			this.port = port;
+			this.pathRewriter = pathRewriter;
+			this.relocatingAttributes = relocatingAttributes;
+			this.charset = charset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return port == other.port && location.equals(other.location) && equal(protocol, other.protocol) &&
+					equal(host, other.host) && equal(pathRewriter, other.pathRewriter) &&
+					relocatingAttributes.equals(other.relocatingAttributes) && equal(charset, other.charset);
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = location.hashCode();
+			h = 31 * h + (protocol == null ? 0 : protocol.hashCode());
+			h = 31 * h + (host == null ? 0 : host.hashCode());
+			h = 31 * h + port;
+			h = 31 * h + (pathRewriter == null ? 0 : pathRewriter.hashCode());
+			h = 31 * h + relocatingAttributes.hashCode();
+			h = 31 * h + (charset == null ? 0 : charset.hashCode());
+			return h;
+		}
+
+		@Override
+		public String toString() {
+			return protocol + "://" + host + ":" + port + " " + location;
+		}
+	}
+
+	public static final class Entry {
+		private final String validator;
+		private final byte[] content;
+		private final boolean wsdlFound;
+
+		public Entry(String validator, byte[] content, boolean wsdlFound) {
+			this.validator = validator;
+			this.content = content;
+			this.wsdlFound = wsdlFound;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		public boolean isWsdlFound() {
+			return wsdlFound;
+		}
+	}
+
+	private final Cache<Key, Entry> cache;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public RelocationCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param maximumSize the maximum total size of the cached documents in bytes
+	 */
+	public RelocationCache(long maximumSize) {
+		cache = CacheBuilder.newBuilder().maximumWeight(maximumSize).weigher(new Weigher<Key, Entry>() {
+			@Override
+			public int weigh(Key key, Entry entry) {
+				return entry.content.length;
+			}
+		}).build();
+	}
+
+	/**
+	 * @return the validator of the document contained in the response, or null if it has none
+	 */
+	public static String getValidator(Response response) {
+		String etag = response.getHeader().getFirstValue(Header.ETAG);
+		if (etag != null && !etag.startsWith("W/"))
+			return etag;
+		String lastModified = response.getHeader().getFirstValue(Header.LAST_MODIFIED);
+		if (lastModified != null)
+			return "Last-Modified: " + lastModified;
+		return null;
+	}
+
+	/**
+	 * @return the cached relocated document, or null if there is none for the validator
+	 */
+	public Entry get(Key key, String validator) {
+		Entry entry = cache.getIfPresent(key);
+		if (entry == null || !entry.validator.equals(validator)) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry;
+	}
+
+	public void put(Key key, Entry entry) {
+		cache.put(key, entry);
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public void purge() {
+		cache.invalidateAll();
+	}
+}
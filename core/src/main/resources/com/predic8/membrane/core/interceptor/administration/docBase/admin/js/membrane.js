@@ -169,6 +169,39 @@ $(function() {
 	// initialize at the beginning
 	membrane.lastMod = 0;
 
+	// with Server-Sent Events, the summaries of added exchanges are inserted into the exchange table directly
+	// ('received', null if the table has to be reloaded from the server)
+	membrane.events = null;
+	membrane.modified = false;
+	membrane.received = null;
+	membrane.page = null;
+	if (window.EventSource && $('#message-stat-table').length) {
+		membrane.events = new EventSource(relativeRootPath + '/admin/rest/exchanges/stream');
+		membrane.events.addEventListener('exchange', function(e) {
+			if (membrane.received) {
+				membrane.received.push(JSON.parse(e.data));
+				if (membrane.received.length > 1000) {
+					// while reloading is paused: reload instead
+					membrane.received = null;
+				}
+			}
+			membrane.modified = true;
+		});
+		membrane.events.addEventListener('dropped', function() {
+			membrane.received = null;
+			membrane.modified = true;
+		});
+		membrane.events.addEventListener('error', function() {
+			// EventSource reconnects by itself unless the server refused the stream (e.g. too many subscribers):
+			// fall back to long polling then
+			if (membrane.events && membrane.events.readyState === EventSource.CLOSED) {
+				membrane.events = null;
+				membrane.received = null;
+				membrane.modified = true;
+			}
+		});
+	}
+
 	$('#proxy-rules-table, #interceptor-table, #statistics-table, #stream-pumps-table, #statuscode-table' ).dataTable({
 	  'bJQueryUI': true,
 	  'sPaginationType': 'full_numbers'
@@ -346,11 +379,17 @@ $(function() {
 		                { "mDataProp": "duration" }
 		              ],
           "fnServerData": function ( sSource, aoData, fnCallback ) {
+        	  if (insertReceived()) {
+        		  return;
+        	  }
+
         	  var queryData = [{name:'offset', value:getParam('iDisplayStart')}, 
                           {name:'max', value:getParam('iDisplayLength')},
                           {name:'sort', value:getParam('mDataProp_'+getParam('iSortCol_0'))},
-                          {name:'waitForModification', value:membrane.lastMod},
                           {name:'order', value:getParam('sSortDir_0')}];
+        	  if (!membrane.events) {
+        		  queryData.push({name:'waitForModification', value:membrane.lastMod});
+        	  }
         	  
         	  function addFilterProps(name) {
         		  if ($("#message-filter-"+name).val()!='*') {
@@ -364,7 +403,47 @@ $(function() {
         		  }
         		  return $.grep(aoData, byName)[0].value;
         	  }
-        	  
+
+        	  function isFiltered() {
+        		  return $('select[id^="message-filter-"]').filter(function() { return $(this).val() != '*'; }).length > 0;
+        	  }
+
+        	  // shows the received summaries on top of the current page, if that is the first page, newest first,
+        	  // without filters
+        	  function insertReceived() {
+        		  var page = membrane.page, received = membrane.received, ids = {}, exchanges = [], added = 0, i;
+        		  if (!received || !page || page.length != getParam('iDisplayLength') || getParam('iDisplayStart') != 0 ||
+        				  getParam('mDataProp_'+getParam('iSortCol_0')) != 'time' || getParam('sSortDir_0') != 'desc' ||
+        				  isFiltered()) {
+        			  return false;
+        		  }
+        		  for (i = received.length - 1; i >= 0; i--) {
+        			  if (!ids[received[i].id]) {
+        				  ids[received[i].id] = true;
+        				  exchanges.push(received[i]);
+        			  }
+        		  }
+        		  // exchanges still in flight are already listed
+        		  added = exchanges.length;
+        		  for (i = 0; i < page.exchanges.length; i++) {
+        			  if (ids[page.exchanges[i].id]) {
+        				  added--;
+        			  } else {
+        				  exchanges.push(page.exchanges[i]);
+        			  }
+        		  }
+        		  membrane.received = [];
+        		  membrane.page = page = {exchanges:exchanges.slice(0, page.length), total:page.total + added, length:page.length};
+        		  fnCallback({sEcho:getParam('sEcho'), exchanges:page.exchanges, iTotalRecords:page.total, iTotalDisplayRecords:page.total});
+        		  window.setTimeout(updateCallsTablePeriodically, 1000);
+        		  return true;
+        	  }
+
+        	  if (membrane.events) {
+        		  // summaries received while loading are inserted afterwards, if they are not on the page yet
+        		  membrane.received = [];
+        	  }
+
         	  addFilterProps('statuscode');
         	  addFilterProps('method');
         	  addFilterProps('proxy');
@@ -383,6 +462,7 @@ $(function() {
                 	data.iTotalRecords = data.total;
                 	data.iTotalDisplayRecords = data.total;
                 	membrane.lastMod = data.lastModified;
+                	membrane.page = {exchanges:data.exchanges, total:data.total, length:getParam('iDisplayLength')};
                 	fnCallback(data);
                 	window.setTimeout(updateCallsTablePeriodically, 1000);
                 }
@@ -402,6 +482,7 @@ $(function() {
     $('.mb-button').button();
 
 	$('#reload-data-button').click(function() {
+		membrane.received = null;
 		updateCallsTable();
 	});
 
@@ -418,6 +499,11 @@ $(function() {
 
 	function updateCallsTablePeriodically() {
 		if ($('#reload-data-checkbox').attr('checked')) {
+			if (membrane.events && !membrane.modified) {
+				window.setTimeout(updateCallsTablePeriodically, 1000);
+				return;
+			}
+			membrane.modified = false;
 			updateCallsTable();
 		} else {
 			return;
@@ -15,12 +15,16 @@
 package com.predic8.membrane.core;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.predic8.membrane.core.exchange.AbstractExchange;
 import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.exchangestore.ExchangeQuery;
+import com.predic8.membrane.core.exchangestore.ExchangeQueryResult;
 import com.predic8.membrane.core.exchangestore.LimitedMemoryExchangeStore;
 import com.predic8.membrane.core.http.Header;
 import com.predic8.membrane.core.http.Request;
@@ -59,6 +63,104 @@ public class LimitedMemoryExchangeStoreTest {
 
 	}
 
+	@Test
+	public void testQuery() throws Exception {
+		for (int i = 0; i < 5; i++)
+			store.snap(getExchange("" + i), Flow.RESPONSE);
+
+		ExchangeQuery query = new ExchangeQuery();
+		query.setMax(2);
+		ExchangeQueryResult result = store.query(query);
+		assertIds(result, "4", "3");
+		Assert.assertEquals(5, result.getTotal());
+
+		query.setBefore(result.getNext());
+		result = store.query(query);
+		assertIds(result, "2", "1");
+
+		query.setBefore(result.getNext());
+		result = store.query(query);
+		assertIds(result, "0");
+		Assert.assertEquals(-1, result.getNext());
+
+		// only exchanges added since the last query
+		query = new ExchangeQuery();
+		query.setAfter(result.getLatest());
+		assertIds(store.query(query));
+		store.snap(getExchange("5"), Flow.RESPONSE);
+		assertIds(store.query(query), "5");
+
+		query.setMethod("POST");
+		result = store.query(query);
+		assertIds(result);
+		Assert.assertEquals(-1, result.getTotal());
+	}
+
+	@Test
+	public void testInflightExchangesArePaged() throws Exception {
+		store.snap(getExchange("0"), Flow.RESPONSE);
+		Exchange exc = getExchange("1");
+		Response response = exc.getResponse();
+		exc.setResponse(null);
+		store.snap(exc, Flow.REQUEST);
+		exc.getRequest().getBody().read();
+		store.snap(getExchange("2"), Flow.RESPONSE);
+
+		// in flight exchanges count against max
+		ExchangeQuery query = new ExchangeQuery();
+		query.setMax(1);
+		ExchangeQueryResult result = store.query(query);
+		assertIds(result, "2");
+		Assert.assertEquals(3, result.getTotal());
+
+		query.setBefore(result.getNext());
+		result = store.query(query);
+		Assert.assertEquals(1, result.getExchanges().size());
+		Assert.assertSame(exc.getRequest(), result.getExchanges().get(0).getRequest());
+		Assert.assertNull(result.getExchanges().get(0).getResponse());
+
+		query.setBefore(result.getNext());
+		assertIds(store.query(query), "0");
+
+		// and are returned by delta polls when they are new or completed only
+		query = new ExchangeQuery();
+		query.setAfter(result.getLatest());
+		assertIds(store.query(query));
+		exc.setResponse(response);
+		store.snap(exc, Flow.RESPONSE);
+		assertIds(store.query(query), "1");
+		Assert.assertEquals(3, store.query(new ExchangeQuery()).getTotal());
+	}
+
+	@Test
+	public void testFilteredQueryScansInBatches() throws Exception {
+		store.setMaxSize(Integer.MAX_VALUE);
+		for (int i = 0; i < 2100; i++) {
+			Exchange exc = getExchange("" + i);
+			if (i == 0 || i == 1500 || i == 2050)
+				exc.getRequest().setMethod("POST");
+			store.snap(exc, Flow.RESPONSE);
+		}
+
+		ExchangeQuery query = new ExchangeQuery();
+		query.setMethod("POST");
+		query.setMax(2);
+		ExchangeQueryResult result = store.query(query);
+		assertIds(result, "2050", "1500");
+
+		query.setBefore(result.getNext());
+		result = store.query(query);
+		assertIds(result, "0");
+		Assert.assertEquals(-1, result.getNext());
+	}
+
+	private void assertIds(ExchangeQueryResult result, String... ids) {
+		List<AbstractExchange> exchanges = result.getExchanges();
+		Assert.assertEquals(ids.length, exchanges.size());
+		for (int i = 0; i < ids.length; i++)
+			Assert.assertEquals(ids[i], exchanges.get(i).getProperty("id"));
+	}
+
 	private void assertStore(int pos, String value) {
 		Assert.assertEquals(value, store.getAllExchangesAsList().get(pos).getProperty("id"));
 	}
@@ -14,6 +14,8 @@
 package com.predic8.membrane.core;
 
 import com.predic8.membrane.core.exchangestore.AbortExchangeTest;
+import com.predic8.membrane.core.exchangestore.RecordingPolicyTest;
+import com.predic8.membrane.core.exchangestore.SegmentExchangeStoreTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -26,6 +28,7 @@ import com.predic8.membrane.core.http.BodyTest;
 import com.predic8.membrane.core.http.HeaderTest;
 import com.predic8.membrane.core.http.RequestTest;
 import com.predic8.membrane.core.http.ResponseTest;
+import com.predic8.membrane.core.interceptor.AsyncFlowControllerTest;
 import com.predic8.membrane.core.interceptor.DispatchingInterceptorTest;
 import com.predic8.membrane.core.interceptor.HeaderFilterInterceptorTest;
 import com.predic8.membrane.core.interceptor.IndexInterceptorTest;
@@ -36,6 +39,9 @@ import com.predic8.membrane.core.interceptor.WADLInterceptorTest;
 import com.predic8.membrane.core.interceptor.WSDLInterceptorTest;
 import com.predic8.membrane.core.interceptor.acl.AccessControlInterceptorTest;
 import com.predic8.membrane.core.interceptor.acl.AccessControlParserTest;
+import com.predic8.membrane.core.interceptor.authentication.session.FileSessionStoreTest;
+import com.predic8.membrane.core.interceptor.authentication.session.LDAPUserDataProviderTest;
+import com.predic8.membrane.core.interceptor.administration.ExchangeEventStreamTest;
 import com.predic8.membrane.core.interceptor.balancer.ClusterBalancerTest;
 import com.predic8.membrane.core.interceptor.balancer.ClusterManagerTest;
 import com.predic8.membrane.core.interceptor.balancer.ClusterNotificationInterceptorTest;
@@ -46,7 +52,12 @@ import com.predic8.membrane.core.interceptor.balancer.XMLSessionIdExtractorTest;
 import com.predic8.membrane.core.interceptor.cbr.XPathCBRInterceptorTest;
 import com.predic8.membrane.core.interceptor.formvalidation.FormValidationInterceptorTest;
 import com.predic8.membrane.core.interceptor.groovy.GroovyInterceptorTest;
+import com.predic8.membrane.core.interceptor.jwt.JwksKeyResolverTest;
+import com.predic8.membrane.core.interceptor.jwt.JwtAuthInterceptorTest;
+import com.predic8.membrane.core.interceptor.oauth2.TokenValidatorCacheTest;
 import com.predic8.membrane.core.interceptor.rest.HTTP2XMLInterceptorTest;
+import com.predic8.membrane.core.interceptor.rest.XML2JSONTest;
+import com.predic8.membrane.core.interceptor.rewrite.CompiledMappingsTest;
 import com.predic8.membrane.core.interceptor.rewrite.ReverseProxyingInterceptorTest;
 import com.predic8.membrane.core.interceptor.rewrite.RewriteInterceptorTest;
 import com.predic8.membrane.core.interceptor.schemavalidation.JSONSchemaValidationTest;
@@ -59,19 +70,28 @@ import com.predic8.membrane.core.interceptor.xmlcontentfilter.SimpleXPathParserT
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.XMLContentFilterTest;
 import com.predic8.membrane.core.interceptor.xmlcontentfilter.XMLElementFinderTest;
 import com.predic8.membrane.core.interceptor.xslt.XSLTInterceptorTest;
+import com.predic8.membrane.core.lang.simple.SimpleLanguageSupportTest;
 import com.predic8.membrane.core.magic.MagicTest;
 import com.predic8.membrane.core.multipart.ReassembleTest;
 import com.predic8.membrane.core.resolver.SingleResolverTest;
 import com.predic8.membrane.core.rules.ProxyRuleTest;
 import com.predic8.membrane.core.rules.ServiceProxyKeyTest;
+import com.predic8.membrane.core.statistics.TimeSeriesTest;
 import com.predic8.membrane.core.transport.ExchangeTest;
+import com.predic8.membrane.core.transport.http.ConnectionManagerTest;
 import com.predic8.membrane.core.transport.http.HostColonPortTest;
 import com.predic8.membrane.core.transport.http.HttpKeepAliveTest;
 import com.predic8.membrane.core.transport.http.ServiceInvocationTest;
+import com.predic8.membrane.core.transport.http.StreamPumpTest;
+import com.predic8.membrane.core.transport.http.VirtualThreadsTest;
+import com.predic8.membrane.core.transport.ssl.GeneratingSSLContextTest;
+import com.predic8.membrane.core.transport.ssl.HostNameIndexTest;
+import com.predic8.membrane.core.transport.ssl.KeyPairPoolTest;
 import com.predic8.membrane.core.transport.ssl.SSLContextTest;
 import com.predic8.membrane.core.util.ByteUtilTest;
 import com.predic8.membrane.core.util.ContentTypeDetectorTest;
 import com.predic8.membrane.core.util.DNSCacheTest;
+import com.predic8.membrane.core.util.ExpiringMapTest;
 import com.predic8.membrane.core.util.HttpUtilTest;
 import com.predic8.membrane.core.util.TextUtilTest;
 import com.predic8.membrane.core.util.URITest;
@@ -87,7 +107,7 @@ import com.predic8.membrane.interceptor.MultipleLoadBalancersTest;
 	AccessControlParserTest.class, AccessControlInterceptorTest.class,
 	DispatchingInterceptorTest.class,
 	HostColonPortTest.class,
-	HTTP2XMLInterceptorTest.class, ReadRulesConfigurationTest.class,
+	HTTP2XMLInterceptorTest.class, XML2JSONTest.class, ReadRulesConfigurationTest.class,
 	ReadRulesWithInterceptorsConfigurationTest.class,
 	RuleManagerTest.class, ProxyTest.class, ServiceProxyKeyTest.class,
 	ProxyRuleTest.class, TextUtilTest.class, RelocatorTest.class,
@@ -96,13 +116,13 @@ import com.predic8.membrane.interceptor.MultipleLoadBalancersTest;
 	XMLSessionIdExtractorTest.class, ClusterBalancerTest.class,
 	LoadBalancingWithClusterManagerAndNoSessionTest.class,
 	LoadBalancingWithClusterManagerTest.class,
-	MultipleLoadBalancersTest.class, DNSCacheTest.class,
+	MultipleLoadBalancersTest.class, DNSCacheTest.class, ExpiringMapTest.class,
 	ValidatorInterceptorTest.class, XPathCBRInterceptorTest.class,
 	CustomSpringConfigurationTest.class, JSESSIONIDExtractorTest.class,
-	ThrottleInterceptorTest.class, GroovyInterceptorTest.class,
+	ThrottleInterceptorTest.class, GroovyInterceptorTest.class, SimpleLanguageSupportTest.class,
 	FormValidationInterceptorTest.class, ServiceInvocationTest.class,
 	HttpKeepAliveTest.class, ReverseProxyingInterceptorTest.class,
-	SSLContextTest.class, RelocatorWADLTest.class,
+	SSLContextTest.class, HostNameIndexTest.class, RelocatorWADLTest.class,
 	WADLInterceptorTest.class, ReassembleTest.class,
 	XMLContentFilterTest.class, XMLElementFinderTest.class,
 	SimpleXPathAnalyzerTest.class, SimpleXPathParserTest.class,
@@ -110,14 +130,18 @@ import com.predic8.membrane.interceptor.MultipleLoadBalancersTest;
 	SOAPUtilTest.class,	SoapOperationExtractorTest.class,
 	ContentTypeDetectorTest.class,
 	MessageAnalyserTest.class, ExchangeTest.class,
-	LimitedMemoryExchangeStoreTest.class,
+	LimitedMemoryExchangeStoreTest.class, SegmentExchangeStoreTest.class, RecordingPolicyTest.class,
 	IndexInterceptorTest.class,
 	SingleResolverTest.class,
 	JSONSchemaValidationTest.class,
 	SOAPMessageValidatorInterceptorTest.class,
 	URITest.class,
-	RewriteInterceptorTest.class,
-	AbortExchangeTest.class
+	RewriteInterceptorTest.class, CompiledMappingsTest.class,
+	AbortExchangeTest.class, TokenValidatorCacheTest.class, JwksKeyResolverTest.class, JwtAuthInterceptorTest.class,
+	TimeSeriesTest.class, ExchangeEventStreamTest.class,
+	AsyncFlowControllerTest.class, StreamPumpTest.class,
+	KeyPairPoolTest.class, GeneratingSSLContextTest.class, ConnectionManagerTest.class,
+	FileSessionStoreTest.class, LDAPUserDataProviderTest.class, VirtualThreadsTest.class
 })
 public class UnitTests {
 	/*
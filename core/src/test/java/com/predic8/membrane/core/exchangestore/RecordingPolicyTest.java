@@ -0,0 +1,150 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Interceptor.Flow;
+
+public class RecordingPolicyTest {
+
+	private final List<AbstractExchange> snapped = new ArrayList<AbstractExchange>();
+	private final List<Flow> flows = new ArrayList<Flow>();
+	private ExchangeStore store;
+	private RecordingPolicy policy;
+
+	@Before
+	public void setUp() {
+		store = new ForgetfulExchangeStore() {
+			@Override
+			public void snap(AbstractExchange exchange, Flow flow) {
+				snapped.add(exchange);
+				flows.add(flow);
+			}
+		};
+		policy = new RecordingPolicy();
+	}
+
+	private Exchange exchange(int status, String responseBody) throws Exception {
+		Exchange exc = new Request.Builder().post("http://localhost/orders").contentType("text/plain").body("0123456789").buildExchange();
+		exc.setId(1);
+		policy.snap(store, exc, Flow.REQUEST);
+		exc.setResponse(Response.ok().status(status, "Status").body(responseBody).build());
+		policy.snap(store, exc, Flow.RESPONSE);
+		return exc;
+	}
+
+	@Test
+	public void testRecordsEverythingByDefault() throws Exception {
+		Exchange exc = exchange(200, "ok");
+		assertEquals(2, snapped.size());
+		assertSame(exc, snapped.get(0));
+		assertEquals(Flow.REQUEST, flows.get(0));
+		assertEquals(Flow.RESPONSE, flows.get(1));
+	}
+
+	@Test
+	public void testSampling() throws Exception {
+		policy.setSampleRate(0);
+		exchange(200, "ok");
+		assertEquals(0, snapped.size());
+		assertEquals(1, policy.getSkipped());
+	}
+
+	@Test
+	public void testMaxPerSecond() throws Exception {
+		policy.setMaxPerSecond(2);
+		for (int i = 0; i < 5; i++)
+			exchange(200, "ok");
+		// the test might cross a second boundary
+		assertEquals(policy.getSampled() * 2, snapped.size());
+		assertEquals(5, policy.getSampled() + policy.getSkipped());
+	}
+
+	@Test
+	public void testErrorsAreAlwaysRecorded() throws Exception {
+		policy.setSampleRate(0);
+		exchange(502, "bad gateway");
+		assertEquals(2, snapped.size());
+		assertEquals(Flow.REQUEST, flows.get(0));
+		assertEquals(Flow.RESPONSE, flows.get(1));
+		assertEquals(1, policy.getForced());
+	}
+
+	@Test
+	public void testAbortIsAlwaysRecorded() throws Exception {
+		policy.setSampleRate(0);
+		Exchange exc = new Request.Builder().get("http://localhost/").buildExchange();
+		policy.snap(store, exc, Flow.REQUEST);
+		policy.snap(store, exc, Flow.ABORT);
+		assertEquals(2, snapped.size());
+		assertEquals(Flow.ABORT, flows.get(1));
+	}
+
+	@Test
+	public void testErrorsCanBeSkipped() throws Exception {
+		policy.setSampleRate(0);
+		policy.setRecordErrors(false);
+		exchange(500, "error");
+		assertEquals(0, snapped.size());
+	}
+
+	@Test
+	public void testTruncation() throws Exception {
+		policy.setMaxBodySize(4);
+		Exchange exc = exchange(200, "abcdefgh");
+		assertEquals(2, snapped.size());
+		AbstractExchange copy = snapped.get(1);
+		assertNotSame(exc, copy);
+		assertEquals(exc.getId(), copy.getId());
+		assertEquals("0123", copy.getRequest().getBodyAsStringDecoded());
+		assertEquals("abcd", copy.getResponse().getBodyAsStringDecoded());
+		assertEquals("POST", copy.getRequest().getMethod());
+		assertEquals(200, copy.getResponse().getStatusCode());
+		// the live messages are unchanged
+		assertEquals("0123456789", exc.getRequest().getBodyAsStringDecoded());
+		assertEquals("abcdefgh", exc.getResponse().getBodyAsStringDecoded());
+	}
+
+	@Test
+	public void testTailTruncation() throws Exception {
+		policy.setMaxBodySize(4);
+		policy.setTruncation(RecordingPolicy.Truncation.TAIL);
+		exchange(200, "abcdefgh");
+		assertEquals("6789", snapped.get(1).getRequest().getBodyAsStringDecoded());
+		assertEquals("efgh", snapped.get(1).getResponse().getBodyAsStringDecoded());
+	}
+
+	@Test
+	public void testHeadersOnly() throws Exception {
+		policy.setHeadersOnly(true);
+		exchange(200, "abcdefgh");
+		AbstractExchange copy = snapped.get(1);
+		assertEquals("", copy.getResponse().getBodyAsStringDecoded());
+		assertEquals("text/plain", copy.getRequest().getHeader().getContentType());
+	}
+}
@@ -0,0 +1,129 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.exchangestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.exchange.AbstractExchange;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Interceptor.Flow;
+
+public class SegmentExchangeStoreTest {
+
+	private File dir;
+	private SegmentExchangeStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir"), "segment-exchange-store-" + System.nanoTime());
+		store = createStore();
+	}
+
+	private SegmentExchangeStore createStore() {
+		SegmentExchangeStore store = new SegmentExchangeStore();
+		store.setDir(dir.getAbsolutePath());
+		return store;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.close();
+		FileUtils.deleteDirectory(dir);
+	}
+
+	private void snap(int id, String requestBody, String responseBody) throws Exception {
+		Exchange exc = snapRequest(id, requestBody);
+		exc.setResponse(Response.ok().body(responseBody).build());
+		store.snap(exc, Flow.RESPONSE);
+	}
+
+	private Exchange snapRequest(int id, String requestBody) throws Exception {
+		Exchange exc = new Request.Builder().post("http://localhost/orders/" + id).
+				header("Content-Type", "text/plain").body(requestBody).buildExchange();
+		exc.setId(id);
+		store.snap(exc, Flow.REQUEST);
+		return exc;
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		snap(1, "request 1", "response 1");
+		snap(2, "request 2", "response 2");
+		store.close();
+
+		AbstractExchange exc = store.getExchangeById(2);
+		assertNotNull(exc);
+		assertEquals("POST", exc.getRequest().getMethod());
+		assertTrue(exc.getRequest().getUri().endsWith("/orders/2"));
+		assertEquals("request 2", exc.getRequest().getBodyAsStringDecoded());
+		assertEquals(200, exc.getResponse().getStatusCode());
+		assertEquals("response 2", exc.getResponse().getBodyAsStringDecoded());
+		assertNull(store.getExchangeById(3));
+		assertEquals(4, store.getWritten());
+	}
+
+	@Test
+	public void testIndexIsReadOnStartup() throws Exception {
+		snap(1, "request 1", "response 1");
+		store.close();
+
+		store = createStore();
+		assertEquals("response 1", store.getExchangeById(1).getResponse().getBodyAsStringDecoded());
+	}
+
+	@Test
+	public void testOldSegmentsAreDeleted() throws Exception {
+		store.setMaxSegmentSize(1);
+		store.setMaxSegments(2);
+		store.setBatchSize(1);
+		for (int i = 1; i <= 5; i++)
+			snap(i, "request " + i, "response " + i);
+		store.close();
+
+		// every message has its own segment, only the last two are kept
+		assertNull(store.getExchangeById(4));
+		AbstractExchange exc = store.getExchangeById(5);
+		assertEquals("request 5", exc.getRequest().getBodyAsStringDecoded());
+		assertEquals("response 5", exc.getResponse().getBodyAsStringDecoded());
+	}
+
+	@Test
+	public void testCollidingIdsAreNotMixed() throws Exception {
+		snap(7, "request 1", "response 1");
+		snapRequest(7, "request 2");
+		store.close();
+		assertNewestExchange(store.getExchangeById(7));
+
+		store = createStore();
+		assertNewestExchange(store.getExchangeById(7));
+	}
+
+	private void assertNewestExchange(AbstractExchange exc) throws Exception {
+		assertEquals("request 2", exc.getRequest().getBodyAsStringDecoded());
+		assertNull(exc.getResponse());
+	}
+}
@@ -126,4 +126,41 @@ public class BodyTest {
 		assertTrue(Arrays.equals(ciob2.getContent(), ciob.getContent()));
 	}
 
+	@Test
+	public void testBodyOutputStream() throws Exception {
+		BodyOutputStream out = new BodyOutputStream();
+		out.write('d');
+		out.write(msg2, 0, msg2.length);
+		out.write(msg1);
+		Body body = out.createBody();
+
+		assertEquals(1 + msg2.length + msg1.length, body.getLength());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		body.write(new PlainBodyTransferrer(baos));
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write('d');
+		expected.write(msg2);
+		expected.write(msg1);
+		assertTrue(Arrays.equals(expected.toByteArray(), baos.toByteArray()));
+		assertTrue(Arrays.equals(expected.toByteArray(), body.getContent()));
+	}
+
+	@Test
+	public void testPartialContent() throws Exception {
+		Body body = new Body("abc".getBytes(Constants.UTF_8_CHARSET));
+		body.chunks.add(new Chunk("defg".getBytes(Constants.UTF_8_CHARSET)));
+		// like the chunks Body does not retain
+		body.chunks.add(new Chunk(new byte[0]) {
+			@Override
+			public byte[] getContent() {
+				throw new IllegalStateException();
+			}
+		});
+		assertEquals("abcde", new String(body.getContent(5, false), Constants.UTF_8_CHARSET));
+		assertEquals("cdefg", new String(body.getContent(5, true), Constants.UTF_8_CHARSET));
+		assertEquals("abcdefg", new String(body.getContent(100, true), Constants.UTF_8_CHARSET));
+		assertEquals("", new String(body.getContent(0, false), Constants.UTF_8_CHARSET));
+	}
+
 }
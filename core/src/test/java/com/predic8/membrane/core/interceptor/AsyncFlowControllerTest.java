@@ -0,0 +1,192 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.transport.http.AbortException;
+
+public class AsyncFlowControllerTest {
+
+	private final InterceptorFlowController flowController = new InterceptorFlowController();
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private Exchange exc;
+
+	@Before
+	public void setUp() {
+		calls.clear();
+		exc = new Exchange(null);
+	}
+
+	private class Sync extends AbstractInterceptor {
+		private final String label;
+		private final Outcome outcome;
+
+		Sync(String label, Outcome outcome) {
+			this.label = label;
+			this.outcome = outcome;
+		}
+
+		@Override
+		public Outcome handleRequest(Exchange exc) throws Exception {
+			calls.add("req " + label);
+			return outcome;
+		}
+
+		@Override
+		public Outcome handleResponse(Exchange exc) throws Exception {
+			calls.add("res " + label);
+			return Outcome.CONTINUE;
+		}
+
+		@Override
+		public void handleAbort(Exchange exchange) {
+			calls.add("abort " + label);
+		}
+	}
+
+	/**
+	 * Completes its stages on a new thread.
+	 */
+	private class Async extends AbstractAsyncInterceptor {
+		private final String label;
+		private final Exception failure;
+		volatile Thread thread;
+
+		Async(String label, Exception failure) {
+			this.label = label;
+			this.failure = failure;
+		}
+
+		private CompletionStage<Outcome> later(final String call) {
+			final CompletableFuture<Outcome> result = new CompletableFuture<Outcome>();
+			thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+					}
+					calls.add(call);
+					if (failure != null)
+						result.completeExceptionally(failure);
+					else
+						result.complete(Outcome.CONTINUE);
+				}
+			};
+			thread.start();
+			return result;
+		}
+
+		@Override
+		public CompletionStage<Outcome> handleRequestAsync(Exchange exc) {
+			return later("req " + label);
+		}
+
+		@Override
+		public CompletionStage<Outcome> handleResponseAsync(Exchange exc) {
+			return later("res " + label);
+		}
+
+		@Override
+		public void handleAbort(Exchange exchange) {
+			calls.add("abort " + label);
+		}
+	}
+
+	@Test
+	public void testSuspendsAndResumes() throws Exception {
+		Async b = new Async("b", null);
+		CompletionStage<Void> done = flowController.invokeHandlersAsync(exc, Arrays.<Interceptor>asList(
+				new Sync("a", Outcome.CONTINUE), b, new Sync("c", Outcome.RETURN)));
+
+		// the calling thread returns while "b" is pending
+		assertTrue(calls.size() <= 1);
+
+		AbstractAsyncInterceptor.await(done);
+		assertEquals(Arrays.asList("req a", "req b", "req c", "res b", "res a"), calls);
+		assertNotSame(Thread.currentThread(), b.thread);
+	}
+
+	@Test
+	public void testFailureInvokesAbortionHandlers() throws Exception {
+		Exception failure = new Exception("backend unavailable");
+		CompletionStage<Void> done = flowController.invokeHandlersAsync(exc, Arrays.<Interceptor>asList(
+				new Sync("a", Outcome.CONTINUE), new Async("b", failure), new Sync("c", Outcome.RETURN)));
+		try {
+			AbstractAsyncInterceptor.await(done);
+			fail();
+		} catch (Exception e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("req a", "req b", "abort a"), calls);
+		assertSame(failure, exc.getProperty(InterceptorFlowController.ABORTION_REASON));
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		try {
+			AbstractAsyncInterceptor.await(flowController.invokeHandlersAsync(exc, Arrays.<Interceptor>asList(
+					new Sync("a", Outcome.CONTINUE), new Async("b", null), new Sync("c", Outcome.ABORT))));
+			fail();
+		} catch (AbortException e) {
+		}
+		assertEquals(Arrays.asList("req a", "req b", "req c", "abort b", "abort a"), calls);
+	}
+
+	@Test
+	public void testErrorAfterResumeFailsTheStage() throws Exception {
+		final AssertionError error = new AssertionError("broken");
+		CompletionStage<Void> done = flowController.invokeHandlersAsync(exc, Arrays.<Interceptor>asList(
+				new Sync("a", Outcome.CONTINUE), new Async("b", null), new Sync("c", Outcome.RETURN) {
+					@Override
+					public Outcome handleRequest(Exchange exc) throws Exception {
+						super.handleRequest(exc);
+						throw error;
+					}
+				}));
+		try {
+			done.toCompletableFuture().get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertSame(error, e.getCause());
+		}
+		assertEquals(Arrays.asList("req a", "req b", "req c", "abort b", "abort a"), calls);
+	}
+
+	@Test
+	public void testSynchronousCallersWait() throws Exception {
+		flowController.invokeHandlers(exc, Arrays.<Interceptor>asList(
+				new Sync("a", Outcome.CONTINUE), new Async("b", null), new Sync("c", Outcome.RETURN)));
+		assertEquals(Arrays.asList("req a", "req b", "req c", "res b", "res a"), calls);
+	}
+}
@@ -17,6 +17,7 @@ import static com.predic8.membrane.core.Constants.WSDL_HTTP_NS;
 import static com.predic8.membrane.core.Constants.WSDL_SOAP11_NS;
 import static com.predic8.membrane.core.Constants.WSDL_SOAP12_NS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -39,6 +40,7 @@ import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Response;
 import com.predic8.membrane.core.transport.http.FakeHttpHandler;
 import com.predic8.membrane.core.util.MessageUtil;
+import com.predic8.membrane.core.ws.relocator.RelocationCache;
 
 public class WSDLInterceptorTest {
 
@@ -145,6 +147,35 @@ public class WSDLInterceptorTest {
 		assertTrue(matchHttp("http://thomas-bayer.com.*"));
 	}
 
+	@Test
+	public void testCache() throws Exception {
+		RelocationCache cache = new RelocationCache();
+		interceptor.setRelocationCache(cache);
+
+		exc.getResponse().getHeader().add("ETag", "\"1\"");
+		interceptor.handleResponse(exc);
+		byte[] relocated = exc.getResponse().getBody().getContent();
+		assertEquals(1, cache.size());
+
+		// the cached document is used, as the ETag did not change
+		exc.setResponse(Response.ok().contentType("text/xml; charset=utf-8").header("ETag", "\"1\"").body("<foo/>").build());
+		interceptor.handleResponse(exc);
+		assertArrayEquals(relocated, exc.getResponse().getBody().getContent());
+		assertEquals(1, cache.getHits());
+
+		// the document is relocated again, as the ETag changed
+		exc.setResponse(Response.ok().contentType("text/xml; charset=utf-8").header("ETag", "\"2\"").body("<foo/>").build());
+		interceptor.handleResponse(exc);
+		assertTrue(exc.getResponse().getBodyAsStringDecoded().contains("<foo"));
+
+		// the public host is part of the key
+		interceptor.setHost("abc.com");
+		exc.setResponse(Response.ok().contentType("text/xml; charset=utf-8").header("ETag", "\"2\"").body("<foo/>").build());
+		interceptor.handleResponse(exc);
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.size());
+	}
+
 	private XMLEventReader getParser() throws Exception {
 		return XMLInputFactory.newInstance().createXMLEventReader(
 				new InputStreamReader(exc.getResponse().getBodyAsStream(), exc
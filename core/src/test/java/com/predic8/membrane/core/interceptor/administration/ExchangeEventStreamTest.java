@@ -0,0 +1,117 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.administration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.exchangestore.LimitedMemoryExchangeStore;
+import com.predic8.membrane.core.http.AbstractBodyTransferrer;
+import com.predic8.membrane.core.http.Chunk;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Interceptor.Flow;
+import com.predic8.membrane.core.interceptor.administration.ExchangeEventStream.Subscriber;
+
+public class ExchangeEventStreamTest {
+
+	private LimitedMemoryExchangeStore store;
+	private ExchangeEventStream events;
+
+	@Before
+	public void setUp() {
+		store = new LimitedMemoryExchangeStore();
+		events = new ExchangeEventStream(2, 3);
+		store.addExchangesStoreListener(events);
+	}
+
+	private void complete(String path) throws Exception {
+		Exchange exc = new Request.Builder().get("http://localhost" + path).buildExchange();
+		exc.setResponse(Response.ok().body("ok").build());
+		store.snap(exc, Flow.RESPONSE);
+	}
+
+	@Test
+	public void testEventIsPublished() throws Exception {
+		Subscriber subscriber = events.subscribe();
+		complete("/a");
+
+		String event = subscriber.take(1000);
+		assertTrue(event.startsWith("event: exchange\ndata: {"));
+		assertTrue(event.contains("\"path\":\"/a\""));
+		assertTrue(event.contains("\"respContentLength\":2"));
+		assertTrue(event.endsWith("\n\n"));
+		assertNull(subscriber.take(10));
+	}
+
+	@Test
+	public void testOldestEventsAreDropped() throws Exception {
+		Subscriber subscriber = events.subscribe();
+		for (int i = 0; i < 5; i++)
+			complete("/" + i);
+
+		String pending = subscriber.take(1000);
+		assertTrue(pending.startsWith("event: dropped\ndata: {\"count\":2}\n\n"));
+		assertEquals(-1, pending.indexOf("/1\""));
+		assertTrue(pending.contains("/2\""));
+		assertTrue(pending.contains("/4\""));
+	}
+
+	@Test
+	public void testSubscribersAreLimited() throws Exception {
+		Subscriber subscriber = events.subscribe();
+		assertNotNull(events.subscribe());
+		assertNull(events.subscribe());
+		events.unsubscribe(subscriber);
+		assertNotNull(events.subscribe());
+	}
+
+	@Test
+	public void testStreamEndsAfterMaxLifetime() throws Exception {
+		Subscriber subscriber = events.subscribe();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final boolean[] finished = new boolean[1];
+		long start = System.currentTimeMillis();
+		new EventStreamBody(events, subscriber, 200).write(new AbstractBodyTransferrer() {
+			@Override
+			public void write(byte[] content, int i, int length) throws IOException {
+				baos.write(content, i, length);
+			}
+
+			@Override
+			public void write(Chunk chunk) throws IOException {
+				chunk.write(baos);
+			}
+
+			@Override
+			public void finish() throws IOException {
+				finished[0] = true;
+			}
+		});
+		assertTrue(System.currentTimeMillis() - start < EventStreamBody.KEEP_ALIVE);
+		assertTrue(finished[0]);
+		assertTrue(baos.toString("UTF-8").startsWith("retry: " + EventStreamBody.RETRY + "\n\n"));
+		assertEquals(0, events.getSubscriberCount());
+	}
+}
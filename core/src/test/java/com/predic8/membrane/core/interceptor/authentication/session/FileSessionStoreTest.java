@@ -0,0 +1,127 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.interceptor.authentication.session.SessionManager.Session;
+
+public class FileSessionStoreTest {
+
+	private File file;
+	private SessionManager sessionManager;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("sessions", ".json");
+		file.delete();
+		sessionManager = new SessionManager();
+		sessionManager.setTimeout(60000);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private FileSessionStore createStore() throws Exception {
+		FileSessionStore store = new FileSessionStore();
+		store.setFile(file.getAbsolutePath());
+		store.init(null, sessionManager);
+		return store;
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		FileSessionStore store = createStore();
+		Map<String, String> attributes = new HashMap<String, String>();
+		attributes.put("email", "alice@example.com");
+		attributes.put("quote", "\"\u00e4\"\n");
+		Session authorized = new Session();
+		authorized.preAuthorize("alice", attributes);
+		authorized.authorize();
+		store.put("a", authorized);
+		store.put("b", new Session());
+		store.cleanup();
+		assertTrue(file.exists());
+
+		FileSessionStore loaded = createStore();
+		assertEquals(2, loaded.size());
+		Session a = loaded.get("a");
+		assertNotNull(a);
+		assertEquals("alice", a.getUserName());
+		assertTrue(a.isAuthorized());
+		assertEquals(attributes, a.getUserAttributes());
+		assertEquals(authorized.getLastUse(), a.getLastUse());
+		Session b = loaded.get("b");
+		assertNotNull(b);
+		assertNull(b.getUserName());
+		assertFalse(b.isPreAuthorized());
+	}
+
+	@Test
+	public void fileIsOwnerOnly() throws Exception {
+		FileSessionStore store = createStore();
+		store.put("a", new Session());
+		store.cleanup();
+
+		if (Files.getFileStore(file.toPath()).supportsFileAttributeView("posix"))
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+	}
+
+	@Test
+	public void relativeFileIsResolvedAgainstBaseLocation() throws Exception {
+		Router router = new Router();
+		router.setBaseLocation(file.getParentFile().getAbsolutePath() + File.separator + "proxies.xml");
+		FileSessionStore store = new FileSessionStore();
+		store.setFile(file.getName());
+		store.init(router, sessionManager);
+		store.put("a", new Session());
+		store.cleanup();
+		assertTrue(file.exists());
+	}
+
+	@Test
+	public void serializedObjectsAreNotRead() throws Exception {
+		HashMap<String, String> sessions = new HashMap<String, String>();
+		sessions.put("a", "alice");
+		ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file));
+		try {
+			oos.writeObject(sessions);
+		} finally {
+			oos.close();
+		}
+
+		assertEquals(0, createStore().size());
+	}
+}
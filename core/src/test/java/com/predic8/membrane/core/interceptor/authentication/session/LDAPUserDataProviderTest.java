@@ -0,0 +1,367 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.authentication.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchResult;
+import javax.naming.spi.InitialContextFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LDAPUserDataProviderTest {
+
+	private static final String BASE = "dc=example,dc=com";
+	private static final String BINDDN = "cn=membrane," + BASE;
+
+	/**
+	 * An in-process LDAP server knowing the users "alice" (password "secret") and "bob" (password "secret2").
+	 */
+	public static class MockServer {
+		final AtomicInteger serviceBinds = new AtomicInteger();
+		final AtomicInteger userBinds = new AtomicInteger();
+		final AtomicInteger searches = new AtomicInteger();
+		final AtomicInteger validations = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		volatile boolean down;
+		volatile boolean broken; // existing connections fail
+		volatile long connectDelay;
+		final Map<String, String> passwords = new ConcurrentHashMap<String, String>();
+
+		MockServer() {
+			passwords.put("alice", "secret");
+			passwords.put("bob", "secret2");
+		}
+
+		DirContext connect(Hashtable<?, ?> env) throws Exception {
+			if (connectDelay > 0)
+				Thread.sleep(connectDelay);
+			if (down)
+				throw new CommunicationException("down");
+			String principal = (String) env.get(Context.SECURITY_PRINCIPAL);
+			if (BINDDN.equals(principal)) {
+				serviceBinds.incrementAndGet();
+			} else {
+				String uid = principal.substring(4, principal.indexOf(','));
+				if (!env.get(Context.SECURITY_CREDENTIALS).equals(passwords.get(uid)))
+					throw new AuthenticationException("invalid credentials");
+				userBinds.incrementAndGet();
+			}
+			return (DirContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DirContext.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("close")) {
+						closed.incrementAndGet();
+						return null;
+					}
+					if (broken)
+						throw new CommunicationException("connection reset");
+					if (method.getName().equals("getAttributes")) {
+						validations.incrementAndGet();
+						return new BasicAttributes();
+					}
+					if (method.getName().equals("search") && args.length == 3) {
+						searches.incrementAndGet();
+						String filter = (String) args[1];
+						String uid = filter.substring(filter.indexOf('=') + 1, filter.indexOf(')'));
+						HashMap<String, SearchResult> results = new HashMap<String, SearchResult>();
+						if (passwords.containsKey(uid)) {
+							BasicAttributes attributes = new BasicAttributes();
+							attributes.put("mail", uid + "@example.com");
+							attributes.put("userPassword", "{x-plain}" + passwords.get(uid));
+							results.put(uid, new SearchResult("uid=" + uid, null, attributes));
+						}
+						return new Results(results.values().iterator());
+					}
+					if (method.getName().equals("toString"))
+						return "MockServer context";
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+	}
+
+	private static class Results implements NamingEnumeration<SearchResult> {
+		private final Iterator<SearchResult> it;
+
+		Results(Iterator<SearchResult> it) {
+			this.it = it;
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			return it.hasNext();
+		}
+
+		@Override
+		public SearchResult nextElement() {
+			return it.next();
+		}
+
+		@Override
+		public boolean hasMore() {
+			return it.hasNext();
+		}
+
+		@Override
+		public SearchResult next() {
+			return it.next();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	static final Map<String, MockServer> mockServers = new ConcurrentHashMap<String, MockServer>();
+
+	public static class MockContextFactory implements InitialContextFactory {
+		@Override
+		public Context getInitialContext(Hashtable<?, ?> environment) throws javax.naming.NamingException {
+			try {
+				return mockServers.get(environment.get(Context.PROVIDER_URL)).connect(environment);
+			} catch (javax.naming.NamingException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private MockServer server1, server2;
+	private LDAPUserDataProvider provider;
+
+	@Before
+	public void setUp() {
+		server1 = new MockServer();
+		server2 = new MockServer();
+		mockServers.put("ldap://server1", server1);
+		mockServers.put("ldap://server2", server2);
+
+		provider = new LDAPUserDataProvider();
+		provider.contextFactory = MockContextFactory.class.getName();
+		provider.setUrl("ldap://server1 ldap://server2");
+		provider.setBase(BASE);
+		provider.setBinddn(BINDDN);
+		provider.setBindpw("membrane");
+		provider.setSearchPattern("(uid=%LOGIN%)");
+		provider.setFailoverDelay(100);
+		provider.getAttributeMap().put("mail", "email");
+	}
+
+	@After
+	public void tearDown() {
+		provider.destroy();
+		mockServers.clear();
+	}
+
+	private Map<String, String> login(String username, String password) {
+		Map<String, String> postData = new HashMap<String, String>();
+		postData.put("username", username);
+		postData.put("password", password);
+		return provider.verify(postData);
+	}
+
+	private void assertLoginFails(String username, String password) {
+		try {
+			login(username, password);
+			fail();
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	private LDAPServer getServer(int index) {
+		return provider.getServers().get(index);
+	}
+
+	@Test
+	public void serviceConnectionsArePooled() {
+		provider.init(null);
+		assertEquals("alice@example.com", login("alice", "secret").get("email"));
+		assertEquals("bob@example.com", login("bob", "secret2").get("email"));
+		assertLoginFails("carol", "secret");
+
+		assertEquals(1, server1.serviceBinds.get());
+		assertEquals(2, server1.userBinds.get());
+		assertEquals(1, getServer(0).getIdleConnections());
+		assertEquals(0, server2.serviceBinds.get() + server2.userBinds.get());
+	}
+
+	@Test
+	public void unavailableServerIsSkipped() {
+		server1.down = true;
+		provider.init(null);
+		assertEquals("alice@example.com", login("alice", "secret").get("email"));
+		assertFalse(getServer(0).isAvailable());
+		assertTrue(getServer(1).isAvailable());
+		assertEquals(1, server2.serviceBinds.get());
+
+		login("bob", "secret2");
+		assertEquals(1, server2.serviceBinds.get());
+	}
+
+	@Test
+	public void slowServerIsHedged() throws Exception {
+		server1.connectDelay = 1000;
+		provider.init(null);
+		long start = System.currentTimeMillis();
+		login("alice", "secret");
+		assertTrue(System.currentTimeMillis() - start < 900);
+		assertEquals(1, server2.serviceBinds.get());
+
+		// the slow connection is kept for later
+		long end = System.currentTimeMillis() + 5000;
+		while (getServer(0).getIdleConnections() == 0 && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(1, getServer(0).getIdleConnections());
+		assertTrue(getServer(0).isAvailable());
+	}
+
+	@Test
+	public void searchResultsAreCachedButPasswordsAreVerified() {
+		provider.init(null);
+		login("alice", "secret");
+		login("alice", "secret");
+		assertEquals(1, server1.searches.get() - server1.userBinds.get()); // readAttributesAsSelf searches as the user
+
+		server1.passwords.put("alice", "changed");
+		assertLoginFails("alice", "secret");
+		login("alice", "changed");
+		assertEquals(1, server1.searches.get() - server1.userBinds.get());
+	}
+
+	@Test
+	public void searchResultsContainingPasswordsAreNotCached() {
+		provider.setPasswordAttribute("userPassword");
+		provider.setReadAttributesAsSelf(false);
+		provider.init(null);
+		Map<String, String> attributes = login("alice", "secret");
+		assertEquals("alice@example.com", attributes.get("email"));
+		assertNull(attributes.get("_pass"));
+		assertEquals(0, server1.userBinds.get());
+
+		server1.passwords.put("alice", "changed");
+		assertLoginFails("alice", "secret");
+		login("alice", "changed");
+		assertEquals(3, server1.searches.get());
+	}
+
+	@Test
+	public void brokenPooledConnectionIsReplaced() {
+		provider.init(null);
+		login("alice", "secret");
+		server1.broken = true;
+		// new connections work
+		MockServer replacement = new MockServer();
+		mockServers.put("ldap://server1", replacement);
+		login("bob", "secret2");
+
+		assertEquals(1, server1.closed.get() - server1.userBinds.get());
+		assertEquals(1, replacement.serviceBinds.get());
+		assertEquals(1, getServer(0).getIdleConnections());
+	}
+
+	@Test
+	public void idleConnectionsAreValidated() throws Exception {
+		provider.init(null);
+		LDAPServer server = getServer(0);
+		LDAPServer.PooledContext pc = new LDAPServer.PooledContext(server, server.connect(createServiceEnvironment()));
+
+		server.release(pc);
+		assertSame(pc, server.poll());
+		assertEquals(0, server1.validations.get());
+
+		server.release(pc);
+		pc.lastUse -= LDAPServer.VALIDATE_AFTER;
+		assertSame(pc, server.poll());
+		assertEquals(1, server1.validations.get());
+
+		server.release(pc);
+		pc.lastUse -= LDAPServer.VALIDATE_AFTER;
+		server1.broken = true;
+		assertNull(server.poll());
+		assertEquals(1, server1.closed.get());
+		assertEquals(0, server.getIdleConnections());
+	}
+
+	@Test
+	public void poolIsBoundedAndClosedOnDestroy() throws Exception {
+		provider.setMaxIdleConnections(1);
+		provider.init(null);
+		LDAPServer server = getServer(0);
+		Hashtable<String, String> env = createServiceEnvironment();
+		LDAPServer.PooledContext a = new LDAPServer.PooledContext(server, server.connect(env));
+		LDAPServer.PooledContext b = new LDAPServer.PooledContext(server, server.connect(env));
+		LDAPServer.PooledContext c = new LDAPServer.PooledContext(server, server.connect(env));
+		server.release(a);
+		server.release(b);
+		assertEquals(1, server.getIdleConnections());
+		assertEquals(1, server1.closed.get());
+
+		provider.destroy();
+		assertEquals(0, server.getIdleConnections());
+		assertEquals(2, server1.closed.get());
+		// connections released later are closed
+		server.release(c);
+		assertEquals(0, server.getIdleConnections());
+		assertEquals(3, server1.closed.get());
+	}
+
+	private Hashtable<String, String> createServiceEnvironment() {
+		Hashtable<String, String> env = new Hashtable<String, String>();
+		env.put(Context.INITIAL_CONTEXT_FACTORY, MockContextFactory.class.getName());
+		env.put(Context.SECURITY_PRINCIPAL, BINDDN);
+		return env;
+	}
+
+	@Test
+	public void statisticsAreCollected() {
+		provider.init(null);
+		login("alice", "secret");
+		List<LDAPServer> servers = provider.getServers();
+		assertEquals(2, servers.size());
+		assertEquals(2, servers.get(0).getConnects());
+		assertTrue(servers.get(0).getOperations() >= 3);
+		assertEquals(0, servers.get(0).getFailures());
+		assertNotNull(servers.get(0).toString());
+	}
+}
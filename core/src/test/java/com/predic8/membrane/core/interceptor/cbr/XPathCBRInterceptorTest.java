@@ -25,6 +25,7 @@ import org.junit.Assert;
 import junit.framework.TestCase;
 
 import org.junit.Test;
+import org.xml.sax.SAXException;
 
 import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Request;
@@ -68,6 +69,84 @@ public class XPathCBRInterceptorTest extends TestCase {
 
 	}
 
+	@Test
+	public void testFirstMatchWins() throws Exception {
+		exc = exchange("/customerFromBonn.xml");
+
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//CITY[text()='England']","http://www.host.uk/service",
+				"//CUSTOMER","http://www.host.com/service",
+				"//CITY[text()='Bonn']","http://www.host.de/service"));
+		i.init();
+
+		i.handleRequest(exc);
+		Assert.assertEquals(1, exc.getDestinations().size());
+		Assert.assertEquals("http://www.host.com/service", exc.getDestinations().get(0));
+	}
+
+	@Test
+	public void testNoMatch() throws Exception {
+		exc = exchange("/customerFromBonn.xml");
+		exc.getDestinations().add("http://www.host.org/service");
+
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//CITY[text()='England']","http://www.host.uk/service",
+				"//CITY[text()='Paris']","http://www.host.fr/service"));
+		i.init();
+
+		i.handleRequest(exc);
+		Assert.assertEquals("http://www.host.org/service", exc.getDestinations().get(0));
+	}
+
+	@Test
+	public void testCasesAreReusedAcrossRequests() throws Exception {
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//CITY[text()='England']","http://www.host.uk/service",
+				"//CITY[text()='Bonn']","http://www.host.de/service"));
+		i.init();
+
+		for (int j = 0; j < 3; j++) {
+			exc = exchange("/customerFromBonn.xml");
+			i.handleRequest(exc);
+			Assert.assertEquals("http://www.host.de/service", exc.getDestinations().get(0));
+		}
+
+		// replacing the cases drops the compiled expressions
+		i.setCases(getRouteList("//CITY[text()='Bonn']","http://www.host.com/service"));
+		exc = exchange("/customerFromBonn.xml");
+		i.handleRequest(exc);
+		Assert.assertEquals("http://www.host.com/service", exc.getDestinations().get(0));
+	}
+
+	@Test
+	public void testDoctypeIsRejected() throws Exception {
+		exc = new Exchange(null);
+		Request res = new Request();
+		res.setBodyContent(("<!DOCTYPE CUSTOMER [<!ENTITY city \"Bonn\">]>" +
+				"<CUSTOMER><CITY>&city;</CITY></CUSTOMER>").getBytes("UTF-8"));
+		exc.setRequest(res);
+
+		XPathCBRInterceptor i = new XPathCBRInterceptor();
+		i.setCases(getRouteList("//CITY[text()='Bonn']","http://www.host.de/service"));
+		i.init();
+
+		try {
+			i.handleRequest(exc);
+			fail("DOCTYPE declarations must be rejected");
+		} catch (SAXException e) {
+			// expected
+		}
+		Assert.assertTrue(exc.getDestinations().isEmpty());
+	}
+
+	private Exchange exchange(String resource) throws Exception {
+		Exchange exc = new Exchange(null);
+		Request res = new Request();
+		res.setBodyContent(getByteArrayData(getClass().getResourceAsStream(resource)));
+		exc.setRequest(res);
+		return exc;
+	}
+
 	private List<Case> getRouteList(String... args) {
 		List<Case> l = new ArrayList<Case>();
 		for (int i = 0; i < args.length; i+=2) {
@@ -16,6 +16,8 @@ package com.predic8.membrane.core.interceptor.groovy;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.concurrent.CountDownLatch;
+
 import org.junit.Test;
 import org.springframework.context.ApplicationContext;
 
@@ -48,4 +50,45 @@ public class GroovyInterceptorTest {
 		verify(applicationContext, times(1)).getBean("abc");
 	}
 
+	@Test
+	public void testConcurrentExecutionDoesNotBlock() throws Exception {
+		HttpRouter r = new HttpRouter();
+		r.setApplicationContext(applicationContext);
+
+		final GroovyInterceptor i = new GroovyInterceptor();
+		i.setSrc("def latch = properties.latch\n"+
+				"latch.countDown()\n"+
+				"exc.setProperty('reached', latch.await(10, java.util.concurrent.TimeUnit.SECONDS))\n"+
+				"CONTINUE");
+		i.init(r);
+
+		// more concurrent executions than script instances are initially created
+		int threads = Runtime.getRuntime().availableProcessors() * 3;
+		final CountDownLatch latch = new CountDownLatch(threads);
+		final Exchange[] exchanges = new Exchange[threads];
+		Thread[] t = new Thread[threads];
+		for (int j = 0; j < threads; j++) {
+			exchanges[j] = new Exchange(null);
+			exchanges[j].setRequest(new Request());
+			exchanges[j].setProperty("latch", latch);
+			final Exchange exc = exchanges[j];
+			t[j] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						i.handleRequest(exc);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			t[j].start();
+		}
+		for (Thread thread : t)
+			thread.join();
+		for (Exchange exc : exchanges)
+			assertEquals(Boolean.TRUE, exc.getProperty("reached"));
+		assertTrue(i.getLongDescription().contains("executions: " + threads));
+	}
+
 }
@@ -0,0 +1,126 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.http.Response;
+
+public class JwksKeyResolverTest {
+
+	private RsaJsonWebKey key1, key2;
+	private volatile String published;
+	private JwksKeyResolver resolver;
+	private JwtConsumer consumer;
+
+	@Before
+	public void setUp() throws Exception {
+		key1 = generateKey("k1");
+		key2 = generateKey("k2");
+		publish(key1);
+		createResolver(JwksKeyResolver.MIN_REFRESH_INTERVAL);
+	}
+
+	private void createResolver(long minRefreshInterval) {
+		resolver = new JwksKeyResolver("http://localhost/certs", null, minRefreshInterval) {
+			@Override
+			protected Response fetch() throws Exception {
+				return Response.ok().body(published).build();
+			}
+		};
+		consumer = new JwtConsumerBuilder()
+				.setRequireExpirationTime()
+				.setExpectedIssuer("issuer")
+				.setVerificationKeyResolver(resolver)
+				.build();
+	}
+
+	private static RsaJsonWebKey generateKey(String kid) throws Exception {
+		RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+		key.setKeyId(kid);
+		key.setAlgorithm(AlgorithmIdentifiers.RSA_USING_SHA256);
+		return key;
+	}
+
+	private void publish(RsaJsonWebKey key) {
+		published = "{\"keys\": [ " + key.toJson() + "]}";
+	}
+
+	private static String sign(RsaJsonWebKey key) throws Exception {
+		JwtClaims claims = new JwtClaims();
+		claims.setIssuer("issuer");
+		claims.setSubject("alice");
+		claims.setExpirationTimeMinutesInTheFuture(5);
+		JsonWebSignature jws = new JsonWebSignature();
+		jws.setPayload(claims.toJson());
+		jws.setKey(key.getPrivateKey());
+		jws.setKeyIdHeaderValue(key.getKeyId());
+		jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+		return jws.getCompactSerialization();
+	}
+
+	@Test
+	public void testKeySetIsFetchedOnce() throws Exception {
+		String token = sign(key1);
+		for (int i = 0; i < 10; i++)
+			assertEquals("alice", consumer.processToClaims(token).getSubject());
+		assertEquals(1, resolver.getFetches());
+	}
+
+	@Test
+	public void testUnknownKeyTriggersRefresh() throws Exception {
+		createResolver(0);
+		consumer.processToClaims(sign(key1));
+		publish(key2);
+		assertEquals("alice", consumer.processToClaims(sign(key2)).getSubject());
+		assertEquals(2, resolver.getFetches());
+	}
+
+	@Test
+	public void testRefreshIsRateLimited() throws Exception {
+		consumer.processToClaims(sign(key1));
+		String forged = sign(generateKey("unknown"));
+		for (int i = 0; i < 10; i++) {
+			try {
+				consumer.processToClaims(forged);
+				fail();
+			} catch (InvalidJwtException e) {
+				// expected
+			}
+		}
+		// the first fetch was less than MIN_REFRESH_INTERVAL ago
+		assertEquals(1, resolver.getFetches());
+	}
+
+	@Test
+	public void testMaxAge() throws Exception {
+		assertEquals(JwksKeyResolver.DEFAULT_MAX_AGE, JwksKeyResolver.getMaxAge(Response.ok().build()));
+		assertEquals(7200 * 1000, JwksKeyResolver.getMaxAge(Response.ok().header("Cache-Control", "public, max-age=7200").build()));
+		assertEquals(JwksKeyResolver.MIN_REFRESH_INTERVAL, JwksKeyResolver.getMaxAge(Response.ok().header("Cache-Control", "max-age=0").build()));
+		assertEquals(JwksKeyResolver.MIN_REFRESH_INTERVAL, JwksKeyResolver.getMaxAge(Response.ok().header("Cache-Control", "no-cache").build()));
+	}
+}
@@ -0,0 +1,145 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.AbstractInterceptor;
+import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.rules.ServiceProxy;
+import com.predic8.membrane.core.rules.ServiceProxyKey;
+
+public class JwtAuthInterceptorTest {
+
+	private static final int PORT = 3065;
+
+	private HttpRouter issuer;
+	private final AtomicInteger fetches = new AtomicInteger();
+	private RsaJsonWebKey key;
+	private JwtAuthInterceptor interceptor;
+
+	@Before
+	public void setUp() throws Exception {
+		key = generateKey("k1");
+		final String jwks = "{\"keys\": [ " + key.toJson() + "]}";
+
+		// publishes the key set
+		issuer = new HttpRouter();
+		ServiceProxy sp = new ServiceProxy(new ServiceProxyKey("localhost", "GET", "/certs", PORT), "localhost", 80);
+		sp.getInterceptors().add(new AbstractInterceptor() {
+			@Override
+			public Outcome handleRequest(Exchange exc) throws Exception {
+				fetches.incrementAndGet();
+				exc.setResponse(Response.ok().contentType("application/json").body(jwks).build());
+				return Outcome.RETURN;
+			}
+		});
+		issuer.getRuleManager().addProxyAndOpenPortIfNew(sp);
+		issuer.init();
+
+		interceptor = new JwtAuthInterceptor();
+		interceptor.setJwks("http://localhost:" + PORT + "/certs");
+		interceptor.setIssuer("https://issuer.example.com");
+		interceptor.init(issuer);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		issuer.shutdown();
+	}
+
+	private static RsaJsonWebKey generateKey(String kid) throws Exception {
+		RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+		key.setKeyId(kid);
+		key.setAlgorithm(AlgorithmIdentifiers.RSA_USING_SHA256);
+		return key;
+	}
+
+	private static String sign(RsaJsonWebKey key, String iss, float expirationInMinutes) throws Exception {
+		JwtClaims claims = new JwtClaims();
+		claims.setIssuer(iss);
+		claims.setSubject("alice");
+		claims.setExpirationTimeMinutesInTheFuture(expirationInMinutes);
+		JsonWebSignature jws = new JsonWebSignature();
+		jws.setPayload(claims.toJson());
+		jws.setKey(key.getPrivateKey());
+		jws.setKeyIdHeaderValue(key.getKeyId());
+		jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+		return jws.getCompactSerialization();
+	}
+
+	private Exchange call(String authorization) throws Exception {
+		Request.Builder builder = new Request.Builder().get("/api");
+		if (authorization != null)
+			builder.header(Header.AUTHORIZATION, authorization);
+		Exchange exc = builder.buildExchange();
+		Outcome outcome = interceptor.handleRequest(exc);
+		assertEquals(exc.getResponse() == null ? Outcome.CONTINUE : Outcome.RETURN, outcome);
+		return exc;
+	}
+
+	private void assertRejected(Exchange exc, String wwwAuthenticate) {
+		assertEquals(401, exc.getResponse().getStatusCode());
+		assertEquals(wwwAuthenticate, exc.getResponse().getHeader().getFirstValue(Header.WWW_AUTHENTICATE));
+		assertNull(exc.getProperty(JwtAuthInterceptor.JWT));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void validTokenIsAccepted() throws Exception {
+		String token = sign(key, "https://issuer.example.com", 5);
+		for (int i = 0; i < 3; i++) {
+			Exchange exc = call("Bearer " + token);
+			assertNull(exc.getResponse());
+			assertEquals("alice", ((Map<String, Object>) exc.getProperty(JwtAuthInterceptor.JWT)).get("sub"));
+		}
+		// the key set is cached
+		assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void missingTokenIsRejected() throws Exception {
+		assertRejected(call(null), "Bearer");
+		assertRejected(call("Basic YWxpY2U6c2VjcmV0"), "Bearer");
+		assertRejected(call("Bearer "), "Bearer");
+	}
+
+	@Test
+	public void invalidTokensAreRejected() throws Exception {
+		String invalid = "Bearer error=\"invalid_token\"";
+		assertRejected(call("Bearer " + sign(generateKey("k1"), "https://issuer.example.com", 5)), invalid);
+		assertRejected(call("Bearer " + sign(key, "https://other.example.com", 5)), invalid);
+		assertRejected(call("Bearer " + sign(key, "https://issuer.example.com", -5)), invalid);
+		assertRejected(call("Bearer not.a.token"), invalid);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 predic8 GmbH, www.predic8.com
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.predic8.membrane.core.interceptor.oauth2;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Header;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.http.Response;
+import com.predic8.membrane.core.interceptor.Outcome;
+import com.predic8.membrane.core.interceptor.oauth2.tokenvalidation.OAuth2TokenValidatorInterceptor;
+import com.predic8.membrane.core.transport.http.HttpClient;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenValidatorCacheTest {
+
+    static class ValidationEndpoint extends HttpClient {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile int statusCode = 200;
+        volatile long delay;
+
+        @Override
+        public Exchange call(Exchange exc) throws Exception {
+            calls.incrementAndGet();
+            if (delay > 0)
+                Thread.sleep(delay);
+            exc.setResponse(new Response.ResponseBuilder().status(statusCode, "").build());
+            return exc;
+        }
+    }
+
+    ValidationEndpoint endpoint;
+    OAuth2TokenValidatorInterceptor interceptor;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = new ValidationEndpoint();
+        interceptor = new OAuth2TokenValidatorInterceptor();
+        interceptor.setEndpoint("http://localhost:2000/oauth2/userinfo");
+        interceptor.setHttpClient(endpoint);
+        interceptor.init(new HttpRouter());
+    }
+
+    private Outcome call(String authorization) throws Exception {
+        Exchange exc = new Request.Builder().get("/resource").header(Header.AUTHORIZATION, authorization).buildExchange();
+        return interceptor.handleRequest(exc);
+    }
+
+    @Test
+    public void testValidTokenIsCached() throws Exception {
+        assertEquals(Outcome.CONTINUE, call("Bearer abc"));
+        assertEquals(Outcome.CONTINUE, call("Bearer abc"));
+        assertEquals(1, endpoint.calls.get());
+        assertEquals(Outcome.CONTINUE, call("Bearer def"));
+        assertEquals(2, endpoint.calls.get());
+    }
+
+    @Test
+    public void testInvalidTokenIsCached() throws Exception {
+        endpoint.statusCode = 401;
+        assertEquals(Outcome.RETURN, call("Bearer abc"));
+        assertEquals(Outcome.RETURN, call("Bearer abc"));
+        assertEquals(1, endpoint.calls.get());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+        endpoint.statusCode = 503;
+        assertEquals(Outcome.RETURN, call("Bearer abc"));
+        endpoint.statusCode = 200;
+        assertEquals(Outcome.CONTINUE, call("Bearer abc"));
+        assertEquals(2, endpoint.calls.get());
+    }
+
+    @Test
+    public void testExpiredJwtIsNotCached() throws Exception {
+        String token = jwt("{\"exp\":" + (System.currentTimeMillis() / 1000 - 60) + "}");
+        assertEquals(Outcome.CONTINUE, call("Bearer " + token));
+        assertEquals(Outcome.CONTINUE, call("Bearer " + token));
+        assertEquals(2, endpoint.calls.get());
+
+        token = jwt("{\"exp\":" + (System.currentTimeMillis() / 1000 + 60) + "}");
+        assertEquals(Outcome.CONTINUE, call("Bearer " + token));
+        assertEquals(Outcome.CONTINUE, call("Bearer " + token));
+        assertEquals(3, endpoint.calls.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        endpoint.delay = 200;
+        final AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        if (call("Bearer abc") == Outcome.CONTINUE)
+                            granted.incrementAndGet();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(10, granted.get());
+        assertEquals(1, endpoint.calls.get());
+    }
+
+    private static String jwt(String claims) throws Exception {
+        return Base64.encodeBase64URLSafeString("{\"alg\":\"none\"}".getBytes("UTF-8")) + "." +
+                Base64.encodeBase64URLSafeString(claims.getBytes("UTF-8")) + ".";
+    }
+}
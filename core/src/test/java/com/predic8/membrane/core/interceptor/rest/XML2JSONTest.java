@@ -0,0 +1,97 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+package com.predic8.membrane.core.interceptor.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.predic8.membrane.core.Constants;
+
+public class XML2JSONTest {
+
+	private static Templates xml2jsonXsl;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		xml2jsonXsl = TransformerFactory.newInstance().newTemplates(new StreamSource(
+				XML2JSONTest.class.getResourceAsStream("/com/predic8/membrane/core/interceptor/rest/xml2json.xsl")));
+	}
+
+	@Test
+	public void sameAsStylesheet() throws Exception {
+		assertSameAsStylesheet("<a/>");
+		assertSameAsStylesheet("<a>x</a>");
+		assertSameAsStylesheet("<a><b>1</b><c>true</c><d>FALSE</d><e>0123</e><f>0</f><g>-1.5</g><h/></a>");
+		assertSameAsStylesheet("<a><b>1</b><b>2</b><b/></a>");
+		assertSameAsStylesheet("<a><b>1</b></a>");
+		assertSameAsStylesheet("<a><b><c>x</c></b><b><c>y</c><d/></b></a>");
+		assertSameAsStylesheet("<a>\n  <b>q\"uo\\te\ttab\nnl</b>\n  <c>  spaced  </c>\n</a>");
+		assertSameAsStylesheet("<a><b x='1'>t</b><b>u</b></a>");
+		assertSameAsStylesheet("<a><![CDATA[x<y]]>z</a>");
+		assertSameAsStylesheet("<s:Envelope xmlns:s='http://schemas.xmlsoap.org/soap/envelope/'><s:Body>" +
+				"<ns1:getBankResponse xmlns:ns1='http://thomas-bayer.com/blz/'><ns1:details>" +
+				"<ns1:bezeichnung>Deutsche Bank</ns1:bezeichnung><ns1:bic>DEUTDEDB380</ns1:bic><ns1:plz>53004</ns1:plz>" +
+				"</ns1:details></ns1:getBankResponse></s:Body></s:Envelope>");
+	}
+
+	@Test
+	public void attributesAndArrayElements() throws Exception {
+		XML2JSON xml2json = new XML2JSON();
+		xml2json.setMapAttributes(true);
+		xml2json.setArrayElements(new HashSet<String>(Arrays.asList("b")));
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		xml2json.convert(new StringReader("<a id='1'><b k='v'>t</b></a>"), json);
+		assertEquals("{\"a\":{\"@id\":\"1\",\"b\":[{\"@k\":\"v\",\"#text\":\"t\"}]}}", json.toString(Constants.UTF_8));
+	}
+
+	@Test
+	public void typedRoundTrip() throws Exception {
+		String json = "{\"a\":1,\"b\":[true,null,\"x\",{\"c\":1.5}],\"d\":{}}";
+		StringWriter xml = new StringWriter();
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(xml);
+		new JSON2XML().convert(new JsonFactory().createParser(json), writer);
+		writer.flush();
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		XML2JSON.convertTyped(new StringReader(xml.toString()), result);
+		assertEquals(json, result.toString(Constants.UTF_8));
+	}
+
+	private void assertSameAsStylesheet(String xml) throws Exception {
+		StringWriter expected = new StringWriter();
+		xml2jsonXsl.newTransformer().transform(new StreamSource(new StringReader(xml)), new StreamResult(expected));
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		new XML2JSON().convert(new ByteArrayInputStream(xml.getBytes(Constants.UTF_8)), actual);
+
+		assertEquals(expected.toString(), actual.toString(Constants.UTF_8));
+	}
+}
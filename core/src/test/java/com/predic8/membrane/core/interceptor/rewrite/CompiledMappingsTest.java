@@ -0,0 +1,87 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.interceptor.rewrite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.predic8.membrane.core.interceptor.rewrite.RewriteInterceptor.Mapping;
+
+public class CompiledMappingsTest {
+
+	private static final String[][] MAPPINGS = {
+		{ "^/bank/(.*)", "/axis2/$1" },
+		{ "^/static/", "/files/" },
+		{ "^/static/img", "/images" },
+		{ "^/a\\.b?c", "/X" },
+		{ "/buy/(.*)/(.*)", "/buy?item=$1&amount=$2" },
+		{ "^/exact$", "/e" },
+		{ "^/lit\\$x", "/\\$y" },
+		{ "^/ab+", "/B" },
+		{ "^/x|^/y", "/Z" },
+		{ "foo", "bar" },
+		{ "^", "/root" },
+	};
+
+	private static final String[] URIS = { "/bank/x", "/static/a", "/static/img/1", "/a.bc", "/a.c", "/buy/a/b",
+		"/exact", "/exact2", "/lit$x", "/abbb", "/y", "/foofoo", "/other", "" };
+
+	@Test
+	public void literalPrefixes() {
+		assertEquals(7, CompiledMappings.getLiteralPrefixEnd("^/bank/(.*)"));
+		assertEquals(9, CompiledMappings.getLiteralPrefixEnd("^/static/"));
+		assertEquals(5, CompiledMappings.getLiteralPrefixEnd("^/a\\.b?c"));
+		assertEquals(7, CompiledMappings.getLiteralPrefixEnd("^/exact$"));
+		assertEquals(-1, CompiledMappings.getLiteralPrefixEnd("^/x|^/y"));
+		assertEquals(-1, CompiledMappings.getLiteralPrefixEnd("/buy/(.*)"));
+	}
+
+	@Test
+	public void sameResultsAsReplaceAll() {
+		List<Mapping> mappings = new ArrayList<Mapping>();
+		for (String[] m : MAPPINGS)
+			mappings.add(new Mapping(m[0], m[1], null));
+
+		for (int cacheSize : new int[] { 0, 5 }) {
+			CompiledMappings cm = new CompiledMappings(mappings, cacheSize);
+			for (int run = 0; run < 2; run++) {
+				for (String uri : URIS) {
+					Mapping expected = null;
+					for (Mapping m : mappings) {
+						if (m.matches(uri)) {
+							expected = m;
+							break;
+						}
+					}
+					CompiledMappings.Result result = cm.rewrite(uri);
+					assertSame(uri, expected, result.mapping);
+					assertEquals(uri, uri.replaceAll(expected.from, expected.to), result.uri);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void noMatch() {
+		List<Mapping> mappings = new ArrayList<Mapping>();
+		mappings.add(new Mapping("^/a/", "/b/", null));
+		assertEquals(null, new CompiledMappings(mappings, 10).rewrite("/b/"));
+	}
+}
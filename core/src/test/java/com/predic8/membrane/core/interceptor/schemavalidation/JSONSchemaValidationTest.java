@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import com.predic8.membrane.core.exchange.Exchange;
 import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.interceptor.Outcome;
 import com.predic8.membrane.core.interceptor.schemavalidation.ValidatorInterceptor.FailureHandler;
 import com.predic8.membrane.core.resolver.ResolverMap;
 
@@ -65,5 +66,40 @@ public class JSONSchemaValidationTest {
 		validate("classpath:/validation/jsonschema/schema2001.json", "/validation/jsonschema/bad2001.json", false);
 	}
 
+	@Test
+	public void streamingStopsAtFirstViolation() throws Exception {
+		JSONValidator jsonValidator = new JSONValidator(new ResolverMap(), "classpath:/validation/jsonschema/schema2001.json", null);
+		Request request = new Request.Builder().body(IOUtils.toByteArray(getClass().getResourceAsStream("/validation/jsonschema/bad2001.json"))).build();
+		Exchange exchange = new Exchange(null);
+		Assert.assertEquals(Outcome.ABORT, jsonValidator.validateMessage(exchange, request, "request"));
+		String response = exchange.getResponse().getBodyAsStringDecoded();
+		Assert.assertTrue(response, response.contains("/id"));
+		Assert.assertFalse(response, response.contains("/price"));
+	}
+
+	@Test
+	public void malformed() throws Exception {
+		JSONValidator jsonValidator = new JSONValidator(new ResolverMap(), "classpath:/validation/jsonschema/schema2001.json", null);
+		Request request = new Request.Builder().body("{\"id\": 1, \"name\": ".getBytes("UTF-8")).build();
+		Exchange exchange = new Exchange(null);
+		Assert.assertEquals(Outcome.ABORT, jsonValidator.validateMessage(exchange, request, "request"));
+		Assert.assertEquals(400, exchange.getResponse().getStatusCode());
+	}
+
+	private Outcome validateString(String json) throws Exception {
+		JSONValidator jsonValidator = new JSONValidator(new ResolverMap(), "classpath:/validation/jsonschema/schema2001.json", null);
+		String good = IOUtils.toString(getClass().getResourceAsStream("/validation/jsonschema/good2001.json"), "UTF-8");
+		Request request = new Request.Builder().body(json.replace("GOOD", good).getBytes("UTF-8")).build();
+		return jsonValidator.validateMessage(new Exchange(null), request, "request");
+	}
+
+	@Test
+	public void trailingContent() throws Exception {
+		Assert.assertEquals(Outcome.CONTINUE, validateString("GOOD"));
+		Assert.assertEquals(Outcome.CONTINUE, validateString("GOOD \n "));
+		Assert.assertEquals(Outcome.ABORT, validateString("GOOD {}"));
+		Assert.assertEquals(Outcome.ABORT, validateString("GOOD GOOD"));
+		Assert.assertEquals(Outcome.ABORT, validateString("GOODx"));
+	}
 
 }
@@ -15,6 +15,9 @@
 package com.predic8.membrane.core.interceptor.schemavalidation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 
@@ -129,6 +132,57 @@ public class ValidatorInterceptorTest {
 		assertEquals(Outcome.ABORT, getOutcome(requestTB, createSchemaValidatorInterceptor("src/test/resources/validation/order.xsd"), "/validation/invalid-order.xml"));
 	}
 
+	@Test
+	public void testLazySchemaCompilation() throws Exception {
+		ResolverMap resolverMap = new ResolverMap();
+		ValidatorInterceptor interceptor = new ValidatorInterceptor();
+		interceptor.setResourceResolver(resolverMap);
+		interceptor.setWarmUp(false);
+		interceptor.setSchema("src/test/resources/validation/not-existing.xsd");
+		// does not fail, as the schema is not compiled yet
+		interceptor.init();
+
+		// validators sharing the resolver map also share the compiled schema
+		ValidatorInterceptor interceptor1 = new ValidatorInterceptor();
+		interceptor1.setResourceResolver(resolverMap);
+		interceptor1.setWarmUp(false);
+		interceptor1.setSchema("src/test/resources/validation/order.xsd");
+		interceptor1.init();
+		ValidatorInterceptor interceptor2 = new ValidatorInterceptor();
+		interceptor2.setResourceResolver(resolverMap);
+		interceptor2.setSchema("src/test/resources/validation/order.xsd");
+		interceptor2.init();
+
+		assertEquals(Outcome.CONTINUE, getOutcome(requestTB, interceptor1, "/validation/order.xml"));
+		assertEquals(Outcome.ABORT, getOutcome(requestTB, interceptor2, "/validation/invalid-order.xml"));
+	}
+
+	@Test
+	public void testCompiledSchemasAreShared() throws Exception {
+		ResolverMap resolverMap = new ResolverMap();
+		XMLSchemaValidator validator1 = new XMLSchemaValidator(resolverMap, "src/test/resources/validation/order.xsd", null);
+		XMLSchemaValidator validator2 = new XMLSchemaValidator(resolverMap, "src/test/resources/validation/order.xsd", null, false);
+		assertSame(validator1.getCompiledSchemas(), validator2.getCompiledSchemas());
+
+		// another router (and resolver map) compiles its own
+		XMLSchemaValidator validator3 = new XMLSchemaValidator(new ResolverMap(), "src/test/resources/validation/order.xsd", null);
+		assertEquals(1, validator3.getCompiledSchemas().size());
+		assertNotSame(validator1.getCompiledSchemas().get(0), validator3.getCompiledSchemas().get(0));
+	}
+
+	@Test
+	public void testUnavailableSchemaIsValidationError() throws Exception {
+		ValidatorInterceptor interceptor = new ValidatorInterceptor();
+		interceptor.setResourceResolver(new ResolverMap());
+		interceptor.setWarmUp(false);
+		interceptor.setSchema("src/test/resources/validation/not-existing.xsd");
+		interceptor.init();
+
+		assertEquals(Outcome.ABORT, getOutcome(requestTB, interceptor, "/validation/order.xml"));
+		assertNotNull(exc.getResponse());
+		assertEquals(400, exc.getResponse().getStatusCode());
+	}
+
 	private Outcome getOutcome(Request request, Interceptor interceptor, String fileName) throws Exception {
 		request.setBodyContent(getContent(fileName));
 		exc.setRequest(request);
@@ -60,4 +60,29 @@ public class SimpleXPathAnalyzerTest {
 		assertGetElement("//*[local-name()='a' and namespace-uri()='b']", new QName("b", "a"));
 	}
 
+	private void assertGetElementPath(String xpath, String namespaceURI, String localName, String attributeName, String attributeValue) {
+		SimpleXPathAnalyzer.ElementPath p = new SimpleXPathAnalyzer().getElementPath(new SimpleXPathParser().parse(xpath));
+		if (localName == null) {
+			Assert.assertNull(p);
+			return;
+		}
+		Assert.assertEquals(namespaceURI, p.namespaceURI);
+		Assert.assertEquals(localName, p.localName);
+		Assert.assertEquals(attributeName, p.attributeName);
+		Assert.assertEquals(attributeValue, p.attributeValue);
+	}
+
+	@Test
+	public void testGetElementPath() {
+		assertGetElementPath("//a", "", "a", null, null);
+		assertGetElementPath("//a[@b]", "", "a", "b", null);
+		assertGetElementPath("//a[ @b = 'c' ]", "", "a", "b", "c");
+		assertGetElementPath("//a[namespace-uri()='b']", "b", "a", null, null);
+		assertGetElementPath("//*[local-name()='a']", null, "a", null, null);
+		assertGetElementPath("//*[local-name()='a' and namespace-uri()='b']", "b", "a", null, null);
+		assertGetElementPath("//a/b[@c]", null, null, null, null);
+		assertGetElementPath("//a[1]", null, null, null, null);
+		assertGetElementPath("//*", null, null, null, null);
+	}
+
 }
@@ -67,4 +67,17 @@ public class XMLContentFilterTest {
 		assertFastCheck("// * [ local-name() = 'b']");
 	}
 
+	@Test
+	public void testStreaming() throws XPathExpressionException, SAXException, IOException {
+		// these expressions are evaluated using StAX only
+		Assert.assertNotNull(XMLContentFilter.createElementPaths("//b[@c='12']"));
+		Assert.assertNotNull(XMLContentFilter.createElementPaths("//x | //*[local-name()='b']"));
+		Assert.assertNull(XMLContentFilter.createElementPaths("//a/b"));
+
+		XMLAssert.assertXMLEqual("<a/>", applyXPath("//b[@c='12']"));
+		XMLAssert.assertXMLEqual("<a/>", applyXPath("//x | //*[local-name()='b']"));
+		XMLAssert.assertXMLEqual("<a/>", applyXPath("//a/b"));
+		XMLAssert.assertXMLEqual(DOC, applyXPath("//b[namespace-uri()='http://predic8.de/']"));
+	}
+
 }
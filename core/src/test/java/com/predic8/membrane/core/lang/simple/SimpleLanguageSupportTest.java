@@ -0,0 +1,113 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.lang.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.lang.groovy.GroovyLanguageSupport;
+
+public class SimpleLanguageSupportTest {
+
+	private HttpRouter router;
+	private Exchange exc;
+
+	@Before
+	public void setUp() throws Exception {
+		router = new HttpRouter();
+		exc = new Exchange(null);
+		exc.setRequest(new Request.Builder().post("http://localhost/api/orders?id=7").header("Host", "localhost").
+				header("Content-Type", "application/json").body("{\"order\":{\"id\":7,\"items\":[{\"sku\":\"a1\"},{\"sku\":\"b2\"}]}}").build());
+		exc.setProperty("tenant", "acme");
+	}
+
+	private void check(String expression, boolean expected, boolean simple) {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("exc", exc);
+		assertEquals(expression, simple, SimpleLanguageSupport.isSimple(expression));
+		assertEquals(expression, expected, new SimpleLanguageSupport().compileExpression(router, expression).apply(parameters));
+		assertEquals(expression, expected, new GroovyLanguageSupport().compileExpression(router, expression).apply(parameters));
+	}
+
+	@Test
+	public void comparisons() {
+		check("exc.request.method == 'POST'", true, true);
+		check("exc.request.method != \"POST\"", false, true);
+		check("exc.request.uri.startsWith('/api/')", true, true);
+		check("exc.request.header.getFirstValue('Host') == 'localhost'", true, true);
+		check("exc.request.header.getFirstValue('X-Missing') == null", true, true);
+		check("exc.properties.tenant == 'acme'", true, true);
+		check("properties.tenant == 'acme'", true, true);
+		check("exc.response?.statusCode >= 500", false, true);
+		check("exc.request.header.userAgentSupportsSNI", false, true);
+	}
+
+	@Test
+	public void combinators() {
+		check("(exc.request.method == 'GET' || exc.request.method == 'POST') && !exc.request.uri.endsWith('.xml')", true, true);
+		check("!(exc.request.uri.length() > 3)", false, true);
+		check("exc.request.uri", false, true); // not a boolean
+	}
+
+	@Test
+	public void jsonPath() {
+		check("jsonPath('$.order.id') == 7", true, true);
+		check("jsonPath('$.order.items[1].sku') == 'b2'", true, true);
+		check("jsonPath('$.order.missing') == null", true, true);
+	}
+
+	@Test
+	public void xpath() throws Exception {
+		exc.setRequest(new Request.Builder().post("http://localhost/").body("<order><id>7</id></order>").build());
+		check("xpath('/order/id') == '7'", true, true);
+		check("xpath('/order/id') == '8'", false, true);
+	}
+
+	@Test
+	public void xpathIgnoresExternalEntities() throws Exception {
+		File secret = File.createTempFile("secret", ".txt");
+		try {
+			FileUtils.writeStringToFile(secret, "7");
+			exc.setRequest(new Request.Builder().post("http://localhost/").body("<?xml version=\"1.0\"?>" +
+					"<!DOCTYPE order [<!ENTITY id SYSTEM \"" + secret.toURI() + "\">]><order><id>&id;</id></order>").build());
+			// documents with a DOCTYPE are not parsed at all
+			check("xpath('/order/id') == '7'", false, true);
+			check("xpath('/order/id') == null", true, true);
+		} finally {
+			secret.delete();
+		}
+	}
+
+	@Test
+	public void groovyFallback() {
+		check("exc.request.method ==~ /P.*/", true, false);
+		check("exc.request.method in ['GET', 'POST']", true, false);
+		assertFalse(SimpleLanguageSupport.isSimple("exc.request.method\n== 'POST'"));
+		assertTrue(SimpleLanguageSupport.isSimple(" exc.request.method == 'POST' "));
+	}
+
+}
@@ -0,0 +1,117 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.statistics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TimeSeriesTest {
+
+	private static final long T0 = 1000L * 3600 * 24 * 365;
+
+	@Test
+	public void testBins() {
+		assertEquals(0, RollingBuckets.getBin(0));
+		assertEquals(0, RollingBuckets.getBin(1));
+		assertEquals(3, RollingBuckets.getBin(4));
+		assertEquals(4, RollingBuckets.getBin(5));
+		assertEquals(4, RollingBuckets.getBin(6));
+		assertEquals(RollingBuckets.BINS - 1, RollingBuckets.getBin(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testWindow() {
+		TimeSeries ts = new TimeSeries();
+		for (int i = 0; i < 100; i++)
+			ts.record(T0 + i * 100, i + 1, i % 10 == 0);
+
+		WindowStatistics s = ts.query(T0 + 9999, 10000);
+		assertEquals(TimeSeries.SECOND, s.getResolution());
+		assertEquals(100, s.getCount());
+		assertEquals(10, s.getErrors());
+		assertEquals(10.0, s.getRate(), 0.001);
+		assertEquals(50, s.getAverage());
+		assertEquals(100, s.getMax());
+		long p50 = s.getPercentile(50);
+		assertTrue(p50 >= 50 && p50 <= 75);
+		assertEquals(100, s.getPercentile(99));
+
+		// only the last second
+		assertEquals(10, ts.query(T0 + 9999, 1000).getCount());
+		assertArrayEquals(new long[] { 10, 10, 10 }, ts.getCounts(T0 + 9999, 3000));
+	}
+
+	@Test
+	public void testOldBucketsAreIgnored() {
+		TimeSeries ts = new TimeSeries();
+		ts.record(T0, 5, false);
+		ts.record(T0 + 61 * TimeSeries.SECOND, 5, false);
+
+		assertEquals(1, ts.query(T0 + 61 * TimeSeries.SECOND, TimeSeries.MINUTE).getCount());
+		// the one minute resolution still covers both
+		assertEquals(2, ts.query(T0 + 61 * TimeSeries.SECOND, 10 * TimeSeries.MINUTE).getCount());
+		assertEquals(0, ts.query(T0 + 25 * TimeSeries.HOUR, 10 * TimeSeries.MINUTE).getCount());
+	}
+
+	@Test
+	public void testSlotIsReset() {
+		RollingBuckets buckets = new RollingBuckets(1000, 2);
+		buckets.record(T0, 1, false);
+		buckets.record(T0 + 2000, 1, false);
+		WindowStatistics s = new WindowStatistics(2000, 1000);
+		buckets.sum(T0 + 2000, 2, s);
+		assertEquals(1, s.getCount());
+	}
+
+	@Test
+	public void testBucketsAreAllocatedOnUse() {
+		RollingBuckets buckets = new RollingBuckets(1000, 60);
+		assertEquals(0, buckets.getAllocated());
+		buckets.record(T0, 1, false);
+		buckets.record(T0 + 500, 1, false);
+		assertEquals(1, buckets.getAllocated());
+		buckets.record(T0 + 60000, 1, false);
+		assertEquals(1, buckets.getAllocated());
+		// late exchanges do not reset the newer bucket
+		buckets.record(T0, 1, false);
+		assertArrayEquals(new long[] { 0, 1 }, buckets.getCounts(T0 + 60000, 2));
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		final TimeSeries ts = new TimeSeries();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++)
+						ts.record(T0 + i % 1000, i % 100, i % 10 == 0);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		WindowStatistics s = ts.query(T0 + 999, 1000);
+		assertEquals(80000, s.getCount());
+		assertEquals(8000, s.getErrors());
+		assertEquals(99, s.getMax());
+	}
+}
@@ -0,0 +1,174 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLSocket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.config.security.KeyStore;
+import com.predic8.membrane.core.config.security.SSLParser;
+import com.predic8.membrane.core.config.security.TrustStore;
+import com.predic8.membrane.core.transport.ssl.SSLContext;
+import com.predic8.membrane.core.transport.ssl.StaticSSLContext;
+
+public class ConnectionManagerTest {
+
+	private Router router;
+	private ServerSocket server;
+	private final AtomicInteger accepted = new AtomicInteger();
+	private SSLContext client;
+
+	@Before
+	public void setUp() throws Exception {
+		router = new HttpRouter();
+
+		SSLParser serverParser = new SSLParser();
+		serverParser.setKeyStore(new KeyStore());
+		serverParser.getKeyStore().setLocation("classpath:/ssl-rsa.keystore");
+		serverParser.getKeyStore().setKeyPassword("secret");
+		server = new StaticSSLContext(serverParser, router.getResolverMap(), router.getBaseLocation())
+				.createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+		SSLParser clientParser = new SSLParser();
+		clientParser.setEndpointIdentificationAlgorithm("");
+		clientParser.setTrustStore(new TrustStore());
+		clientParser.getTrustStore().setLocation("classpath:/ssl-rsa-pub.keystore");
+		clientParser.getTrustStore().setPassword("secret");
+		client = new StaticSSLContext(clientParser, router.getResolverMap(), router.getBaseLocation());
+
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				while (true) {
+					final Socket s;
+					try {
+						s = server.accept();
+					} catch (IOException e) {
+						return;
+					}
+					accepted.incrementAndGet();
+					new Thread() {
+						@Override
+						public void run() {
+							try {
+								((SSLSocket) s).startHandshake();
+								while (s.getInputStream().read() != -1)
+									;
+							} catch (IOException e) {
+								// closed
+							}
+						}
+					}.start();
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	private void waitForAccepted(int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while (accepted.get() < count && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		Thread.sleep(100);
+		assertEquals(count, accepted.get());
+	}
+
+	private Connection connect(ConnectionManager cm) throws IOException {
+		return cm.getConnection("localhost", server.getLocalPort(), null, client, 10000);
+	}
+
+	@Test
+	public void testHandshakeIsMeasured() throws Exception {
+		ConnectionManager cm = new ConnectionManager(10000);
+		Connection con = connect(cm);
+		assertTrue(con.getHandshakeMillis() >= 0);
+		con.close();
+
+		assertEquals(1, cm.getHandshakeStatistics().size());
+		HandshakeLatencyStatistics stats = cm.getHandshakeStatistics().values().iterator().next();
+		assertEquals(1, stats.getFullHandshakes() + stats.getResumedHandshakes());
+		cm.shutdownWhenDone();
+	}
+
+	@Test
+	public void testHandshakeTimeout() throws Exception {
+		// accepts connections, but never answers the TLS handshake
+		ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		try {
+			long start = System.currentTimeMillis();
+			try {
+				Connection.open("localhost", silent.getLocalPort(), null, client, null, 500);
+				fail();
+			} catch (SocketTimeoutException e) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		} finally {
+			silent.close();
+		}
+	}
+
+	@Test
+	public void testSpareConnectionsAreOpenedOnDemand() throws Exception {
+		ConnectionManager cm = new ConnectionManager(10000, 2);
+
+		// the first request does not show demand yet
+		connect(cm).release();
+		waitForAccepted(1);
+
+		// the second one takes the idle connection and opens 2 spares in the background
+		connect(cm).release();
+		waitForAccepted(3);
+
+		// no more are needed
+		connect(cm).release();
+		waitForAccepted(3);
+		cm.shutdownWhenDone();
+	}
+
+	@Test
+	public void testNoSpareConnectionsAfterShutdown() throws Exception {
+		ConnectionManager cm = new ConnectionManager(10000, 2);
+		cm.shutdownWhenDone();
+
+		Connection a = connect(cm);
+		Connection b = connect(cm);
+		waitForAccepted(2);
+		a.close();
+		b.close();
+	}
+}
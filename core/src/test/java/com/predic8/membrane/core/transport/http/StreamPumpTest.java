@@ -0,0 +1,110 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.transport.http.StreamPump.StreamPumpStats;
+
+public class StreamPumpTest {
+
+	private ServerSocket server;
+	// client <-> (proxyClientSide | tunnel | proxyBackendSide) <-> backend
+	private Socket client, proxyClientSide, proxyBackendSide, backend;
+	private StreamPumpStats stats;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+		proxyClientSide = server.accept();
+		proxyBackendSide = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+		backend = server.accept();
+		stats = new StreamPumpStats();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (Socket s : new Socket[] { client, proxyClientSide, proxyBackendSide, backend })
+			s.close();
+		server.close();
+	}
+
+	private Thread[] startTunnel(int idleTimeout) throws IOException {
+		StreamPump[] pumps = StreamPump.createTunnel(
+				proxyBackendSide.getInputStream(), proxyClientSide.getOutputStream(), "backward",
+				proxyClientSide.getInputStream(), proxyBackendSide.getOutputStream(), "onward",
+				stats, null, idleTimeout);
+		proxyClientSide.setSoTimeout(idleTimeout);
+		proxyBackendSide.setSoTimeout(idleTimeout);
+		Thread[] threads = new Thread[] { new Thread(pumps[0]), new Thread(pumps[1]) };
+		for (Thread t : threads)
+			t.start();
+		return threads;
+	}
+
+	@Test
+	public void testRelaysAndCounts() throws Exception {
+		Thread[] threads = startTunnel(0);
+
+		client.getOutputStream().write("ping".getBytes());
+		byte[] buffer = new byte[4];
+		assertEquals(4, backend.getInputStream().read(buffer));
+		backend.getOutputStream().write("pong!".getBytes());
+		assertEquals(5, client.getInputStream().read(new byte[5]));
+
+		assertEquals(2, stats.getRunning());
+		long transferred = 0;
+		for (StreamPump p : stats.getStreamPumps())
+			transferred += p.getTransferredBytes();
+		assertEquals(9, transferred);
+
+		client.close();
+		for (Thread t : threads)
+			t.join(5000);
+		assertEquals(0, stats.getRunning());
+	}
+
+	@Test
+	public void testActiveTunnelIsNotIdle() throws Exception {
+		Thread[] threads = startTunnel(300);
+
+		// only one direction is active, which keeps the tunnel open
+		for (int i = 0; i < 6; i++) {
+			Thread.sleep(100);
+			client.getOutputStream().write(1);
+			assertEquals(1, backend.getInputStream().read());
+		}
+		assertTrue(threads[0].isAlive());
+		assertTrue(threads[1].isAlive());
+
+		long start = System.currentTimeMillis();
+		for (Thread t : threads)
+			t.join(5000);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(-1, client.getInputStream().read());
+		assertEquals(0, stats.getRunning());
+	}
+}
@@ -0,0 +1,86 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.Test;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.transport.http.HttpTransport.Executor;
+
+public class VirtualThreadsTest {
+
+	private static int getJavaVersion() {
+		String version = System.getProperty("java.specification.version");
+		if (version.startsWith("1."))
+			version = version.substring(2);
+		return Integer.parseInt(version);
+	}
+
+	@Test
+	public void testSupportedFromJava21() {
+		assertEquals(getJavaVersion() >= 21, VirtualThreads.isSupported());
+	}
+
+	@Test
+	public void testExecutor() throws Exception {
+		HttpRouter router = new HttpRouter();
+		router.getTransport().setExecutor(Executor.VIRTUAL);
+		router.init();
+		try {
+			// without virtual threads, the pool is kept
+			assertEquals(!VirtualThreads.isSupported(), router.getTransport().getExecutorService() instanceof ThreadPoolExecutor);
+		} finally {
+			router.shutdown();
+		}
+	}
+
+	@Test
+	public void testNewThreadFromPlatformThread() throws Exception {
+		Thread t = VirtualThreads.newThread(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, "pump");
+		assertFalse(VirtualThreads.isVirtual(t));
+		assertEquals("pump", t.getName());
+	}
+
+	@Test
+	public void testNewThreadFromVirtualThread() throws Exception {
+		if (!VirtualThreads.isSupported())
+			return;
+		final Thread[] created = new Thread[2];
+		Thread parent = VirtualThreads.newThreadFactory("connection").newThread(new Runnable() {
+			@Override
+			public void run() {
+				created[0] = Thread.currentThread();
+				created[1] = VirtualThreads.newThread(this, "pump");
+			}
+		});
+		parent.start();
+		parent.join();
+		assertSame(parent, created[0]);
+		assertTrue(VirtualThreads.isVirtual(parent));
+		assertTrue(VirtualThreads.isVirtual(created[1]));
+		assertEquals("pump", created[1].getName());
+	}
+}
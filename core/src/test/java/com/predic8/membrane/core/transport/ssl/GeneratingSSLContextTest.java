@@ -0,0 +1,179 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.Router;
+import com.predic8.membrane.core.config.security.Certificate;
+import com.predic8.membrane.core.config.security.Key;
+import com.predic8.membrane.core.config.security.KeyGenerator;
+import com.predic8.membrane.core.config.security.SSLParser;
+
+public class GeneratingSSLContextTest {
+
+	private static final String HOST = "host.example.com";
+
+	private Router router;
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		router = new HttpRouter();
+		dir = Files.createTempDirectory("generated-certs").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	private static String toPEM(Object o) throws IOException {
+		StringWriter sw = new StringWriter();
+		JcaPEMWriter w = new JcaPEMWriter(sw);
+		w.writeObject(o);
+		w.close();
+		return sw.toString();
+	}
+
+	/**
+	 * @return the configuration of a key generator using a new self-signed CA
+	 */
+	private SSLParser createCA(String persistPassword) throws Exception {
+		KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+		kpg.initialize(2048);
+		KeyPair kp = kpg.generateKeyPair();
+		PEMSupport.getInstance(); // registers the BouncyCastle provider
+		X500Name name = new X500Name("CN=Test CA");
+		long now = System.currentTimeMillis();
+		java.security.cert.X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+				new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(now - 86400000L), new Date(now + 10 * 86400000L), name, kp.getPublic())
+						.build(new JcaContentSignerBuilder("SHA256withRSA").build(kp.getPrivate())));
+
+		Key key = new Key();
+		Key.Private private_ = new Key.Private();
+		private_.setContent(toPEM(kp));
+		key.setPrivate(private_);
+		Certificate certificate = new Certificate();
+		certificate.setContent(toPEM(cert));
+		List<Certificate> certificates = new ArrayList<Certificate>();
+		certificates.add(certificate);
+		key.setCertificates(certificates);
+
+		KeyGenerator keyGenerator = new KeyGenerator();
+		keyGenerator.setKey(key);
+		keyGenerator.setPoolSize(1);
+		keyGenerator.setPersistDirectory(dir.getAbsolutePath());
+		keyGenerator.setPersistPassword(persistPassword);
+		SSLParser sslParser = new SSLParser();
+		sslParser.setKeyGenerator(keyGenerator);
+		return sslParser;
+	}
+
+	private GeneratingSSLContext create(SSLParser sslParser) {
+		return new GeneratingSSLContext(sslParser, router.getResolverMap(), router.getBaseLocation());
+	}
+
+	private File persisted() {
+		return new File(dir, HOST + ".jks");
+	}
+
+	@Test
+	public void testPersistedCertificateIsReused() throws Exception {
+		SSLParser ca = createCA(null);
+		GeneratingSSLContext first = create(ca);
+		assertNotNull(first.getSSLContextForHostname(HOST));
+		first.stop();
+		assertTrue(persisted().exists());
+		byte[] stored = Files.readAllBytes(persisted().toPath());
+
+		GeneratingSSLContext second = create(ca);
+		assertNotNull(second.getSSLContextForHostname(HOST));
+		second.stop();
+		assertArrayEquals(stored, Files.readAllBytes(persisted().toPath()));
+	}
+
+	@Test
+	public void testCertificateOfOtherCAIsReplaced() throws Exception {
+		GeneratingSSLContext first = create(createCA(null));
+		first.getSSLContextForHostname(HOST);
+		first.stop();
+		byte[] stored = Files.readAllBytes(persisted().toPath());
+
+		GeneratingSSLContext second = create(createCA(null));
+		second.getSSLContextForHostname(HOST);
+		second.stop();
+		assertFalse(java.util.Arrays.equals(stored, Files.readAllBytes(persisted().toPath())));
+	}
+
+	@Test
+	public void testPersistedFileIsProtected() throws Exception {
+		GeneratingSSLContext context = create(createCA("secret"));
+		context.getSSLContextForHostname(HOST);
+		context.stop();
+
+		if (Files.getFileStore(persisted().toPath()).supportsFileAttributeView("posix"))
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(persisted().toPath())));
+
+		java.security.KeyStore ks = java.security.KeyStore.getInstance("JKS");
+		FileInputStream fis = new FileInputStream(persisted());
+		try {
+			ks.load(fis, "membrane".toCharArray());
+			fail();
+		} catch (IOException e) {
+			// wrong password
+		} finally {
+			fis.close();
+		}
+
+		fis = new FileInputStream(persisted());
+		try {
+			ks.load(fis, "secret".toCharArray());
+		} finally {
+			fis.close();
+		}
+		assertNotNull(ks.getCertificate("alias"));
+	}
+}
@@ -0,0 +1,63 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class HostNameIndexTest {
+
+	private final HostNameIndex index = new HostNameIndex(Arrays.asList(
+			"www.example.com example.com",
+			"*.example.com",
+			"api.example.com",
+			"*.a.example.org",
+			"predic8.de *.pre*8.de",
+			"*"));
+
+	@Test
+	public void exact() {
+		assertEquals(0, index.lookup("www.example.com"));
+		assertEquals(0, index.lookup("EXAMPLE.com"));
+	}
+
+	@Test
+	public void firstMatchWins() {
+		// also matched by entry 2, but entry 1 comes first
+		assertEquals(1, index.lookup("api.example.com"));
+		assertEquals(1, index.lookup("x.y.example.com"));
+	}
+
+	@Test
+	public void wildcardNeedsAtLeastOneCharacter() {
+		assertEquals(5, index.lookup(".a.example.org"));
+		assertEquals(3, index.lookup("b.a.example.org"));
+	}
+
+	@Test
+	public void regexFallback() {
+		assertEquals(4, index.lookup("predic8.de"));
+		assertEquals(4, index.lookup("www.predic8.de"));
+		assertEquals(5, index.lookup("membrane-soa.org"));
+	}
+
+	@Test
+	public void noMatch() {
+		assertEquals(-1, new HostNameIndex(Arrays.asList("a.com", "*.b.com")).lookup("b.com"));
+	}
+}
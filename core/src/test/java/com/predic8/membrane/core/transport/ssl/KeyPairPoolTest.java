@@ -0,0 +1,66 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.core.transport.ssl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.security.KeyPair;
+
+import org.junit.Test;
+
+public class KeyPairPoolTest {
+
+	private static void waitForSize(KeyPairPool pool, int size) throws InterruptedException {
+		long end = System.currentTimeMillis() + 30000;
+		while (pool.size() < size && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(size, pool.size());
+	}
+
+	@Test
+	public void testPoolIsFilledAndRefilled() throws Exception {
+		KeyPairPool pool = new KeyPairPool("EC", 256, 2);
+		waitForSize(pool, 2);
+
+		KeyPair a = pool.take();
+		KeyPair b = pool.take();
+		assertNotNull(a);
+		assertNotSame(a, b);
+
+		waitForSize(pool, 2);
+		pool.stop();
+	}
+
+	@Test
+	public void testStoppedPoolIsEmptyAndStillWorks() throws Exception {
+		KeyPairPool pool = new KeyPairPool("EC", 256, 2);
+		waitForSize(pool, 2);
+		pool.stop();
+		assertEquals(0, pool.size());
+
+		assertNotNull(pool.take());
+		Thread.sleep(100);
+		assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void testWithoutPool() throws Exception {
+		KeyPairPool pool = new KeyPairPool("EC", 256, 0);
+		assertNotNull(pool.take());
+		assertEquals(0, pool.size());
+	}
+}
@@ -0,0 +1,103 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+package com.predic8.membrane.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiringMapTest {
+
+	private static class Value {
+		private long expiresAt;
+
+		public Value(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private long now;
+	private ExpiringMap<String, Value> map;
+
+	@Before
+	public void setUp() {
+		now = System.currentTimeMillis();
+		map = new ExpiringMap<String, Value>(new ExpiringMap.Expiry<Value>() {
+			@Override
+			public long getExpiresAt(Value value) {
+				return value.expiresAt;
+			}
+		}, 10, 16);
+	}
+
+	@Test
+	public void expiredValuesAreNotReturned() {
+		map.put("a", new Value(now - 1));
+		assertNull(map.get("a"));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void expire() {
+		// the wheel covers 160ms, some values expire after several rounds
+		for (int i = 0; i < 100; i++)
+			map.put("k" + i, new Value(now + 50 + (i % 10) * 100));
+		map.put("forever", new Value(Long.MAX_VALUE));
+
+		assertEquals(10, map.expire(now + 100));
+		assertEquals(91, map.size());
+		assertEquals(40, map.expire(now + 500));
+		assertEquals(50, map.expire(now + 5000));
+		assertNotNull(map.get("forever"));
+	}
+
+	@Test
+	public void extendedValuesAreKept() {
+		Value v = new Value(now + 50);
+		map.put("a", v);
+		v.expiresAt = now + 1000;
+		assertEquals(0, map.expire(now + 500));
+		assertNotNull(map.asMap().get("a"));
+		assertEquals(1, map.expire(now + 1000));
+	}
+
+	@Test
+	public void replacedValuesAreKept() {
+		map.put("a", new Value(now + 50));
+		map.put("a", new Value(Long.MAX_VALUE));
+		assertEquals(0, map.expire(now + 1000));
+		assertNotNull(map.get("a"));
+	}
+
+	@Test
+	public void putIfAbsentReplacesExpiredValues() {
+		map.asMap().put("a", new Value(now - 1));
+		Value v = new Value(now + 1000);
+		assertNull(map.putIfAbsent("a", v));
+		assertEquals(v, map.putIfAbsent("a", new Value(now + 1000)));
+	}
+
+	@Test
+	public void removeDoesNotReturnExpiredValues() {
+		map.asMap().put("a", new Value(now - 1));
+		Value v = new Value(now + 1000);
+		map.put("b", v);
+		assertNull(map.remove("a"));
+		assertEquals(v, map.remove("b"));
+		assertNull(map.remove("b"));
+	}
+}
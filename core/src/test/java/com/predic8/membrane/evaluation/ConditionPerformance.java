@@ -0,0 +1,81 @@
+/* Copyright 2016 predic8 GmbH, www.predic8.com
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License. */
+
+package com.predic8.membrane.evaluation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.predic8.membrane.core.HttpRouter;
+import com.predic8.membrane.core.exchange.Exchange;
+import com.predic8.membrane.core.http.Request;
+import com.predic8.membrane.core.lang.LanguageSupport;
+import com.predic8.membrane.core.lang.groovy.GroovyLanguageSupport;
+import com.predic8.membrane.core.lang.simple.SimpleLanguageSupport;
+
+/**
+ * Compares the evaluation of typical &lt;if test="..."&gt; conditions by Groovy and by the simple expression
+ * language.
+ */
+public class ConditionPerformance {
+
+	private static final String[] CONDITIONS = {
+		"exc.request.method == 'POST'",
+		"exc.request.uri.startsWith('/api/') && exc.request.header.getFirstValue('Host') == 'localhost'",
+		"exc.properties.tenant == 'acme' || !exc.request.header.userAgentSupportsSNI",
+		"exc.response?.statusCode >= 500",
+	};
+
+	private static final int ITERATIONS = 1000000;
+
+	private HttpRouter router;
+	private Map<String, Object> parameters;
+
+	@Before
+	public void setUp() throws Exception {
+		router = new HttpRouter();
+		Exchange exc = new Exchange(null);
+		exc.setRequest(new Request.Builder().post("http://localhost/api/orders").header("Host", "localhost").build());
+		exc.setProperty("tenant", "acme");
+		parameters = new HashMap<String, Object>();
+		parameters.put("exc", exc);
+	}
+
+	@Test
+	public void groovy() {
+		run("groovy", new GroovyLanguageSupport());
+	}
+
+	@Test
+	public void simple() {
+		run("simple", new SimpleLanguageSupport());
+	}
+
+	private void run(String name, LanguageSupport ls) {
+		for (String condition : CONDITIONS) {
+			Function<Map<String, Object>, Boolean> f = ls.compileExpression(router, condition);
+			// warm up
+			for (int i = 0; i < ITERATIONS / 10; i++)
+				f.apply(parameters);
+			long time = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++)
+				f.apply(parameters);
+			System.out.println(name + ": " + (System.nanoTime() - time) / ITERATIONS + "ns per evaluation of " + condition);
+		}
+	}
+}